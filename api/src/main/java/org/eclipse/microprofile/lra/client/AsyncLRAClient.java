@@ -0,0 +1,400 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+
+import javax.ws.rs.NotFoundException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A non blocking variant of {@link LRAClient}. Each coordinator operation
+ * returns immediately with a {@link CompletionStage} that is completed when
+ * the coordinator responds so that the calling thread is not parked for the
+ * duration of the round trip.
+ *
+ * Failures that {@link LRAClient} reports by throwing an exception are
+ * reported by completing the returned stage exceptionally with the same
+ * exception type (for example {@link NotFoundException} if the LRA no longer
+ * exists or {@link GenericLRAException} if the request to the coordinator
+ * failed).
+ *
+ * An instance can be instantiated directly or injected if the client is
+ * using CDI.
+ */
+public interface AsyncLRAClient {
+    /**
+     * Set the endpoint on which the coordinator is available
+     *
+     * @param uri the url of the LRA coordinator
+     */
+    void setCoordinatorURI(URI uri);
+
+    /**
+     * Set the endpoints of a set of coordinators that LRAs are spread across.
+     * New top level LRAs are placed on a coordinator chosen by consistent
+     * hashing of their client id (see {@link LRACoordinatorRing}), nested LRAs
+     * are started on the coordinator of their parent and every other operation
+     * on an LRA is routed to the coordinator that is encoded in its id. The
+     * LRA queries are sent to every coordinator in parallel and their results
+     * are merged (an LRA that is reported by more than one coordinator appears
+     * in the result once). Calling {@link AsyncLRAClient#setCoordinatorURI(URI)} is equivalent to
+     * calling this method with a single coordinator.
+     *
+     * @param uris the urls of the LRA coordinators
+     * @throws IllegalArgumentException if the collection is empty
+     */
+    void setCoordinatorURIs(Collection<URI> uris);
+
+    /**
+     * Set the endpoint on which the recovery coordinator is available
+     *
+     * @param uri the url of the LRA recovery coordinator
+     */
+    void setRecoveryCoordinatorURI(URI uri);
+
+    /**
+     * Explicitly dispose of all resources. After this call the instance may no
+     * longer be useable. Stages that have not yet completed may be completed
+     * exceptionally.
+     */
+    void close();
+
+    /**
+     * Start a new LRA (see {@link LRAClient#startLRA(URL, String, Long, TimeUnit)})
+     *
+     * @param parentLRA The parent of the LRA that is about to start. If null then
+     *                 the new LRA will be top level
+     * @param clientID The client may provide a (preferably) unique identity which
+     *                will be reported back when the LRA is queried.
+     * @param timeout Specifies the maximum time that the LRA will exist for. If the
+     *               LRA is terminated because of a timeout it will be cancelled.
+     * @param unit Specifies the unit that the timeout is measured in
+     *
+     * @return a stage that completes with the identifier of the new LRA
+     */
+    CompletionStage<URL> startLRA(URL parentLRA, String clientID, Long timeout, TimeUnit unit);
+
+    /**
+     * Start a top level LRA (see {@link LRAClient#startLRA(String, Long, TimeUnit)})
+     *
+     * @param clientID The client may provide a (preferably) unique identity which
+     *                will be reported back when the LRA is queried.
+     * @param timeout Specifies the maximum time that the LRA will exist for. If the
+     *               LRA is terminated because of a timeout it will be cancelled.
+     * @param unit Specifies the unit that the timeout is measured in
+     *
+     * @return a stage that completes with the identifier of the new LRA
+     */
+    CompletionStage<URL> startLRA(String clientID, Long timeout, TimeUnit unit);
+
+    /**
+     * Start a batch of top level LRAs using a single request to the coordinator
+     * (see {@link LRAClient#startLRAs(int, String, Long, TimeUnit)})
+     *
+     * @param count the number of LRAs to start (must be greater than zero)
+     * @param clientIDPrefix The client id of each LRA is formed by appending the
+     *                      (zero based) position of the LRA in the returned list
+     *                      to this prefix
+     * @param timeout Specifies the maximum time that each LRA will exist for.
+     * @param unit Specifies the unit that the timeout is measured in
+     *
+     * @return a stage that completes with the identifiers of the new LRAs
+     */
+    CompletionStage<List<URL>> startLRAs(int count, String clientIDPrefix, Long timeout, TimeUnit unit);
+
+    /**
+     * Attempt to cancel an LRA (see {@link LRAClient#cancelLRA(URL)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     *
+     * @return a stage that completes with the response of the coordinator which
+     * MAY contain the final status of the LRA as reported by
+     * {@link CompensatorStatus#name()}
+     */
+    CompletionStage<String> cancelLRA(URL lraId);
+
+    /**
+     * Attempt to close an LRA (see {@link LRAClient#closeLRA(URL)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     *
+     * @return a stage that completes with the response of the coordinator which
+     * MAY contain the final status of the LRA as reported by
+     * {@link CompensatorStatus#name()}
+     */
+    CompletionStage<String> closeLRA(URL lraId);
+
+    /**
+     * Attempt to cancel a collection of LRAs using a single request to the
+     * coordinator (see {@link LRAClient#cancelLRAs(Collection)})
+     *
+     * @param lraIds The unique identifiers of the LRAs to cancel (required)
+     *
+     * @return a stage that completes with the outcome of each LRA keyed by LRA id
+     */
+    CompletionStage<Map<URL, String>> cancelLRAs(Collection<URL> lraIds);
+
+    /**
+     * Attempt to close a collection of LRAs using a single request to the
+     * coordinator (see {@link LRAClient#closeLRAs(Collection)})
+     *
+     * @param lraIds The unique identifiers of the LRAs to close (required)
+     *
+     * @return a stage that completes with the outcome of each LRA keyed by LRA id
+     */
+    CompletionStage<Map<URL, String>> closeLRAs(Collection<URL> lraIds);
+
+    /**
+     * Lookup active LRAs (see {@link LRAClient#getActiveLRAs()})
+     *
+     * @return a stage that completes with a list of active LRAs
+     */
+    CompletionStage<List<LRAInfo>> getActiveLRAs();
+
+    /**
+     * Returns all (both active and recovering) LRAs (see {@link LRAClient#getAllLRAs()})
+     *
+     * @return a stage that completes with a list of all LRAs known to this coordinator
+     */
+    CompletionStage<List<LRAInfo>> getAllLRAs();
+
+    /**
+     * List recovering Long Running Actions (see {@link LRAClient#getRecoveringLRAs()})
+     *
+     * @return a stage that completes with the LRAs that are recovering
+     */
+    CompletionStage<List<LRAInfo>> getRecoveringLRAs();
+
+    /**
+     * Lookup one page of active LRAs (see {@link LRAClient#getActiveLRAs(int, String)})
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a stage that completes with a page of active LRAs
+     */
+    CompletionStage<LRAInfoPage> getActiveLRAs(int pageSize, String continuationToken);
+
+    /**
+     * Lookup one page of all LRAs (see {@link LRAClient#getAllLRAs(int, String)})
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a stage that completes with a page of the LRAs known to this coordinator
+     */
+    CompletionStage<LRAInfoPage> getAllLRAs(int pageSize, String continuationToken);
+
+    /**
+     * Lookup one page of recovering LRAs (see {@link LRAClient#getRecoveringLRAs(int, String)})
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a stage that completes with a page of recovering LRAs
+     */
+    CompletionStage<LRAInfoPage> getRecoveringLRAs(int pageSize, String continuationToken);
+
+    /**
+     * Lookup the LRAs that match a query (see {@link LRAClient#findLRAs(LRAQuery)})
+     *
+     * @param query the criteria that the returned LRAs must match
+     *
+     * @return a stage that completes with a list of the LRAs that match the query
+     */
+    CompletionStage<List<LRAInfo>> findLRAs(LRAQuery query);
+
+    /**
+     * Lookup one page of the LRAs that match a query (see
+     * {@link LRAClient#findLRAs(LRAQuery, int, String)})
+     *
+     * @param query the criteria that the returned LRAs must match
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a stage that completes with a page of the LRAs that match the query
+     */
+    CompletionStage<LRAInfoPage> findLRAs(LRAQuery query, int pageSize, String continuationToken);
+
+    /**
+     * Lookup the status of an LRA (see {@link LRAClient#getStatus(URL)})
+     *
+     * @param lraId the LRA whose status is being requested
+     *
+     * @return a stage that completes with the status or empty if the the LRA is
+     * still active (ie has not yet been closed or cancelled)
+     */
+    CompletionStage<Optional<CompensatorStatus>> getStatus(URL lraId);
+
+    /**
+     * Lookup the status of a collection of LRAs using a single request to the
+     * coordinator (see {@link LRAClient#getStatuses(Collection)})
+     *
+     * @param lraIds the LRAs whose status is being requested
+     *
+     * @return a stage that completes with the status of each LRA keyed by LRA id
+     */
+    CompletionStage<Map<URL, Optional<CompensatorStatus>>> getStatuses(Collection<URL> lraIds);
+
+    /**
+     * Lookup a snapshot of the status of an LRA (see {@link LRAClient#getStatusSnapshot(URL)})
+     *
+     * @param lraId the LRA whose status is being requested
+     *
+     * @return a stage that completes with a snapshot of the status of the LRA
+     */
+    CompletionStage<LRAStatusSnapshot> getStatusSnapshot(URL lraId);
+
+    /**
+     * Indicates whether an LRA is active (see {@link LRAClient#isActiveLRA(URL)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     *
+     * @return a stage that completes with whether or not the specified LRA is active
+     */
+    CompletionStage<Boolean> isActiveLRA(URL lraId);
+
+    /**
+     * Indicates whether an LRA was compensated (see {@link LRAClient#isCompensatedLRA(URL)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     *
+     * @return a stage that completes with whether or not the specified LRA has
+     * been compensated
+     */
+    CompletionStage<Boolean> isCompensatedLRA(URL lraId);
+
+    /**
+     * Indicates whether an LRA is complete (see {@link LRAClient#isCompletedLRA(URL)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     *
+     * @return a stage that completes with whether or not the specified LRA has
+     * been completed
+     */
+    CompletionStage<Boolean> isCompletedLRA(URL lraId);
+
+    /**
+     * Wait for an LRA to reach its final status (see
+     * {@link LRAClient#awaitOutcome(URL, long, TimeUnit)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param timeout the maximum time to wait for the LRA to reach its final status
+     * @param unit the unit that the timeout is measured in
+     *
+     * @return a stage that completes with the final status of the LRA or empty
+     * if the deadline passed before the LRA reached its final status
+     */
+    CompletionStage<Optional<CompensatorStatus>> awaitOutcome(URL lraId, long timeout, TimeUnit unit);
+
+    /**
+     * Join an LRA (see
+     * {@link LRAClient#joinLRA(URL, Long, URL, URL, URL, URL, URL, String)})
+     *
+     * @param lraId   The unique identifier of the LRA (required) to enlist with
+     * @param timelimit The time limit (in seconds) that the participant can
+     *                 guarantee that it can compensate the work performed while
+     *                 the LRA is active.
+     * @param compensateUrl the `compensatation URL`
+     * @param completeUrl the `completion URL`
+     * @param forgetUrl the `forget URL`
+     * @param leaveUrl the `leave URL`
+     * @param statusUrl the `status URL`
+     * @param compensatorData data that will be stored with the coordinator and
+     *                       passed back to the participant when the LRA is closed
+     *                       or cancelled
+     *
+     * @return a stage that completes with a recovery URL for this enlistment
+     */
+    CompletionStage<String> joinLRA(URL lraId, Long timelimit,
+                                    URL compensateUrl, URL completeUrl, URL forgetUrl,
+                                    URL leaveUrl, URL statusUrl,
+                                    String compensatorData);
+
+    /**
+     * Join an LRA passing in a class that will act as the participant (see
+     * {@link LRAClient#joinLRA(URL, Class, URI, String)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param resourceClass An annotated class for the participant methods:
+     * {@link org.eclipse.microprofile.lra.annotation.Compensate}, etc.
+     * @param baseUri Base uri for the participant endpoints
+     * @param compensatorData Compensator specific data that the coordinator will
+     *                       pass to the participant when the LRA is closed or
+     *                       cancelled
+     *
+     * @return a stage that completes with a recovery URL for this enlistment
+     */
+    CompletionStage<String> joinLRA(URL lraId, Class<?> resourceClass, URI baseUri, String compensatorData);
+
+    /**
+     * Change the endpoints that a participant can be contacted on (see
+     * {@link LRAClient#updateCompensator(URL, URL, URL, URL, URL, String)})
+     *
+     * @param recoveryUrl the recovery URL returned from a participant join request
+     * @param compensateUrl the URL to invoke when the LRA is cancelled
+     * @param completeUrl the URL to invoke when the LRA is closed
+     * @param forgetUrl used to inform the participant that can forget about this LRA
+     * @param statusUrl if a participant cannot finish immediately then it provides
+     *                  this URL that the coordinator uses to monitor the progress
+     * @param compensatorData opaque data that returned to the participant when the
+     *                       LRA is closed or cancelled
+     *
+     * @return a stage that completes with an updated recovery URL for this participant
+     */
+    CompletionStage<URL> updateCompensator(URL recoveryUrl, URL compensateUrl, URL completeUrl,
+                                           URL forgetUrl, URL statusUrl,
+                                           String compensatorData);
+
+    /**
+     * A Compensator can resign from the LRA at any time prior to the completion
+     * of an activity (see {@link LRAClient#leaveLRA(URL, String)})
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param body  (optional)
+     *
+     * @return a stage that completes when the coordinator has removed the participant
+     */
+    CompletionStage<Void> leaveLRA(URL lraId, String body);
+
+    /**
+     * Update the timeout of an LRA (see {@link LRAClient#renewTimeLimit(URL, long, TimeUnit)})
+     *
+     * @param lraId the id of the lra to update
+     * @param limit the new timeout period
+     * @param unit the time unit for limit
+     *
+     * @return a stage that completes when the coordinator has accepted the new time limit
+     */
+    CompletionStage<Void> renewTimeLimit(URL lraId, long limit, TimeUnit unit);
+}
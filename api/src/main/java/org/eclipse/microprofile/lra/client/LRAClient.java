@@ -25,9 +25,16 @@ import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
 import javax.ws.rs.NotFoundException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface LRAClient {
     /**
@@ -55,12 +62,106 @@ public interface LRAClient {
      */
     String LRA_COORDINATOR_PORT_KEY = "lra.http.port";
 
+    /**
+     * Key for looking up the config property that specifies the number of
+     * consecutive failed requests after which a client stops sending requests
+     * to a coordinator (ie opens its circuit, see {@link LRACoordinatorHealth})
+     */
+    String LRA_COORDINATOR_FAILURE_THRESHOLD_KEY = "lra.http.failure.threshold";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, after which a client sends a probe request to a coordinator
+     * whose circuit is open
+     */
+    String LRA_COORDINATOR_OPEN_DURATION_KEY = "lra.http.circuit.open.duration";
+
+    /**
+     * Key for looking up the config property that specifies the interval, in
+     * milliseconds, at which a client probes coordinators whose circuit is open
+     * in the background (so that a recovered coordinator is detected without
+     * waiting for an application request). Background probing is optional: a
+     * client that does not probe ignores this property and detects a recovered
+     * coordinator with the first request after the open duration (see
+     * {@link LRACoordinatorHealth}).
+     */
+    String LRA_COORDINATOR_PROBE_INTERVAL_KEY = "lra.http.probe.interval";
+
+    /**
+     * Key for looking up the config property that specifies the average
+     * request latency, in milliseconds, above which new LRAs are not placed on
+     * a coordinator if there is a faster one available (0, the default, means
+     * no limit)
+     */
+    String LRA_COORDINATOR_SLOW_THRESHOLD_KEY = "lra.http.slow.threshold";
+
+    /**
+     * Key for looking up the config property that specifies the average error
+     * rate (between 0 and 1) at or above which new LRAs are not placed on a
+     * coordinator if there is a healthier one available
+     */
+    String LRA_COORDINATOR_ERROR_RATE_THRESHOLD_KEY = "lra.http.error.rate.threshold";
+
+    /**
+     * Key for looking up the config property that specifies the smoothing
+     * factor used when averaging the latency and error rate of requests to a
+     * coordinator (the weight given to the most recent request)
+     */
+    String LRA_COORDINATOR_EWMA_ALPHA_KEY = "lra.http.ewma.alpha";
+
+    /**
+     * Key for looking up the config property that specifies the maximum number
+     * of connections that a client keeps to each coordinator (see
+     * {@link LRATransportConfig})
+     */
+    String LRA_HTTP_POOL_SIZE_KEY = "lra.http.pool.size";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, for which an idle connection to a coordinator is kept open
+     * (0 means that connections are not reused)
+     */
+    String LRA_HTTP_KEEP_ALIVE_KEY = "lra.http.keep.alive";
+
+    /**
+     * Key for looking up the config property that specifies the HTTP version
+     * used to communicate with coordinators (<code>HTTP/1.1</code> or
+     * <code>HTTP/2</code>)
+     */
+    String LRA_HTTP_VERSION_KEY = "lra.http.version";
+
+    /**
+     * Key for looking up the config property that specifies the maximum number
+     * of concurrent requests multiplexed over one HTTP/2 connection
+     */
+    String LRA_HTTP_MAX_STREAMS_KEY = "lra.http.max.concurrent.streams";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, allowed for connecting to a coordinator
+     */
+    String LRA_HTTP_CONNECT_TIMEOUT_KEY = "lra.http.connect.timeout";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, allowed for a coordinator to respond to a request
+     */
+    String LRA_HTTP_READ_TIMEOUT_KEY = "lra.http.read.timeout";
+
     /**
      * Key for looking up the config property that specifies which JAX-RS path a
      * coordinator is running on
      */
     String LRA_COORDINATOR_PATH_KEY = "lra.coordinator.path";
 
+    /**
+     * Key for looking up the config property that specifies a comma separated
+     * list of coordinator URLs to spread LRAs across (see
+     * {@link LRAClient#setCoordinatorURIs(Collection)}). When set it takes
+     * precedence over the host, port and path properties.
+     */
+    String LRA_COORDINATOR_URIS_KEY = "lra.coordinator.uris";
+
     /**
      * Key for looking up the config property that specifies which JAX-RS path a
      * recovery coordinator is running on
@@ -79,6 +180,48 @@ public interface LRAClient {
      */
     String LRA_RECOVERY_PATH_KEY = "lra.coordinator.recovery.path";
 
+    /**
+     * Key for looking up the config property that specifies the maximum number
+     * of LRA statuses that a client may cache. Once an LRA reaches a final status
+     * ({@link CompensatorStatus#Completed}, {@link CompensatorStatus#Compensated},
+     * {@link CompensatorStatus#FailedToComplete} or
+     * {@link CompensatorStatus#FailedToCompensate}) its status never changes so a
+     * client may answer subsequent status requests for that LRA from the cache.
+     * The least recently used entries are evicted when the cache is full. A value
+     * of zero (the default) disables the cache.
+     */
+    String LRA_STATUS_CACHE_SIZE_KEY = "lra.client.status.cache.size";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, for which a status that is not final (including the status
+     * of an LRA that is still active) may be answered from the cache. A value of
+     * zero (the default) means that such statuses are never cached.
+     */
+    String LRA_STATUS_CACHE_TTL_KEY = "lra.client.status.cache.ttl";
+
+    /**
+     * Key for looking up the config property that specifies whether a client
+     * may coalesce concurrent identical read requests. When enabled (the default)
+     * a read ({@link LRAClient#getStatus(URL)}, {@link LRAClient#isActiveLRA(URL)},
+     * {@link LRAClient#isCompensatedLRA(URL)}, {@link LRAClient#isCompletedLRA(URL)},
+     * {@link LRAClient#getStatusSnapshot(URL)} or one of the unpaged LRA list
+     * queries) that is issued while an identical read is already in flight may
+     * share the result of that read instead of sending another request to the
+     * coordinator. A read must never share the result of a request that was sent
+     * before the calling thread closed, cancelled or otherwise updated the LRA
+     * via this client.
+     */
+    String LRA_COALESCE_READS_KEY = "lra.client.coalesce.reads";
+
+    /**
+     * Key for looking up the config property that specifies whether the
+     * {@link LRAClient#LRA_HTTP_HEADER} header should be emitted in compact form
+     * (see {@link LRAContextToken}). Disabled by default. Header values in either
+     * form must always be accepted regardless of this setting.
+     */
+    String LRA_HTTP_HEADER_COMPACT_KEY = "lra.http.header.compact";
+
     /**
      * Set the endpoint on which the coordinator is available
      *
@@ -86,6 +229,56 @@ public interface LRAClient {
      */
     void setCoordinatorURI(URI uri);
 
+    /**
+     * Set the endpoints of a set of coordinators that LRAs are spread across.
+     * New top level LRAs are placed on a coordinator chosen by consistent
+     * hashing of a key that is unique to each LRA (see
+     * {@link LRACoordinatorRing#placementKey(String)}), nested LRAs
+     * are started on the coordinator of their parent and every other operation
+     * on an LRA is routed to the coordinator that is encoded in its id. The
+     * LRA queries are sent to every coordinator in parallel and their results
+     * are merged (an LRA that is reported by more than one coordinator appears
+     * in the result once). Calling {@link LRAClient#setCoordinatorURI(URI)} is equivalent to
+     * calling this method with a single coordinator.
+     *
+     * The default implementation supports a single coordinator only and fails
+     * with a {@link GenericLRAException} whose status code is 501 (not
+     * implemented) if more than one is passed.
+     *
+     * @param uris the urls of the LRA coordinators
+     * @throws IllegalArgumentException if the collection is empty
+     */
+    default void setCoordinatorURIs(Collection<URI> uris) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("no coordinators");
+        } else if (uris.size() > 1) {
+            throw new GenericLRAException(null, 501, "this client does not support several coordinators", null);
+        }
+
+        setCoordinatorURI(uris.iterator().next());
+    }
+
+    /**
+     * Obtain the health of the coordinators that this client uses. New top
+     * level LRAs are placed on the coordinator selected by
+     * {@link LRACoordinatorRing#select(String, java.util.function.Predicate)}
+     * from the healthy coordinators or, if none are healthy, from those whose
+     * circuit allows a request. If every circuit is open the request fails
+     * immediately. Requests pertaining to an existing LRA fail immediately
+     * while the circuit of its coordinator is open. Such requests fail with a
+     * {@link GenericLRAException} whose status code is 503 (service unavailable).
+     *
+     * The default implementation does not track the health of coordinators and
+     * returns an empty list.
+     *
+     * @return the health trackers of the coordinators in the order that the
+     * coordinators were configured (the trackers are owned by the client and
+     * should only be read by callers)
+     */
+    default List<LRACoordinatorHealth> getCoordinatorHealth() {
+        return Collections.emptyList();
+    }
+
     /**
      * Set the endpoint on which the recovery coordinator is available
      *
@@ -144,6 +337,61 @@ public interface LRAClient {
     URL startLRA(String clientID, Long timeout, TimeUnit unit)
             throws GenericLRAException;
 
+    /**
+     * Start a batch of top level LRAs using a single request to the coordinator.
+     * Either all of the requested LRAs are started or none of them are.
+     *
+     * Since the identifiers are allocated in advance of any work being done a
+     * client may use this method to maintain a pool of ready to use LRAs. Note
+     * that the time limit of each LRA starts running when the batch is started
+     * (and not when the LRA is taken from such a pool) so clients that pool LRAs
+     * should either specify a sufficiently large timeout or use
+     * {@link LRAClient#renewTimeLimit(URL, long, TimeUnit)} when the LRA is used.
+     *
+     * The default implementation starts the LRAs one at a time using
+     * {@link LRAClient#startLRA(URL, String, Long, TimeUnit)} and cancels the
+     * LRAs that it has already started if one of them cannot be started.
+     *
+     * @param count the number of LRAs to start (must be greater than zero)
+     * @param clientIDPrefix The client id of each LRA, as reported back when the
+     *                      LRA is queried, is formed by appending the (zero based)
+     *                      position of the LRA in the returned list to this prefix
+     * @param timeout Specifies the maximum time that each LRA will exist for. If
+     *               an LRA is terminated because of a timeout it will be cancelled.
+     * @param unit Specifies the unit that the timeout is measured in
+     *
+     * @throws GenericLRAException the LRAs could not be started. The specific
+     * reason is available in {@link GenericLRAException#getStatusCode()}
+     *
+     * @return the identifiers of the new LRAs
+     */
+    default List<URL> startLRAs(int count, String clientIDPrefix, Long timeout, TimeUnit unit)
+            throws GenericLRAException {
+        if (count <= 0) {
+            throw new GenericLRAException(null, 400, "count must be greater than zero", null);
+        }
+
+        List<URL> lras = new ArrayList<>(count);
+
+        try {
+            for (int i = 0; i < count; i++) {
+                lras.add(startLRA(null, clientIDPrefix + i, timeout, unit));
+            }
+        } catch (RuntimeException e) {
+            for (URL lra : lras) {
+                try {
+                    cancelLRA(lra);
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            throw e;
+        }
+
+        return lras;
+    }
+
     /**
      * Attempt to cancel an LRA
      *
@@ -186,6 +434,80 @@ public interface LRAClient {
      */
     String closeLRA(URL lraId) throws GenericLRAException;
 
+    /**
+     * Attempt to cancel a collection of LRAs using a single request to the
+     * coordinator (ie the batch equivalent of {@link LRAClient#cancelLRA(URL)}).
+     *
+     * The coordinator may cancel the LRAs in any order and may compensate the
+     * participants of different LRAs in the batch concurrently.
+     *
+     * The default implementation cancels the LRAs one at a time using
+     * {@link LRAClient#cancelLRA(URL)}.
+     *
+     * @param lraIds The unique identifiers of the LRAs to cancel (required)
+     *
+     * @throws GenericLRAException Communication error (the reason is availalbe via
+     * the {@link GenericLRAException#getStatusCode()} method
+     *
+     * @return the outcome of each LRA keyed by LRA id. The value is the final
+     * status of the LRA as reported by {@link CompensatorStatus#name()} or an
+     * empty string if the final status is not known. The final state of such
+     * LRAs can still be discovered using the {@link LRAClient#getStatus(URL)}
+     * method. LRAs that no longer exist have no entry in the map.
+     */
+    default Map<URL, String> cancelLRAs(Collection<URL> lraIds) throws GenericLRAException {
+        Map<URL, String> outcomes = new LinkedHashMap<>();
+
+        for (URL lraId : lraIds) {
+            try {
+                String status = cancelLRA(lraId);
+
+                outcomes.put(lraId, status == null ? "" : status);
+            } catch (NotFoundException e) {
+                // LRAs that no longer exist have no entry
+            }
+        }
+
+        return outcomes;
+    }
+
+    /**
+     * Attempt to close a collection of LRAs using a single request to the
+     * coordinator (ie the batch equivalent of {@link LRAClient#closeLRA(URL)}).
+     *
+     * The coordinator may close the LRAs in any order and may complete the
+     * participants of different LRAs in the batch concurrently.
+     *
+     * The default implementation closes the LRAs one at a time using
+     * {@link LRAClient#closeLRA(URL)}.
+     *
+     * @param lraIds The unique identifiers of the LRAs to close (required)
+     *
+     * @throws GenericLRAException Communication error (the reason is availalbe via
+     * the {@link GenericLRAException#getStatusCode()} method
+     *
+     * @return the outcome of each LRA keyed by LRA id. The value is the final
+     * status of the LRA as reported by {@link CompensatorStatus#name()} or an
+     * empty string if the final status is not known. The final state of such
+     * LRAs can still be discovered using the {@link LRAClient#getStatus(URL)}
+     * method. LRAs that no longer exist have no entry in the map.
+     */
+    default Map<URL, String> closeLRAs(Collection<URL> lraIds) throws GenericLRAException {
+        Map<URL, String> outcomes = new LinkedHashMap<>();
+
+        for (URL lraId : lraIds) {
+            try {
+                String status = closeLRA(lraId);
+
+                outcomes.put(lraId, status == null ? "" : status);
+            } catch (NotFoundException e) {
+                // LRAs that no longer exist have no entry
+            }
+        }
+
+        return outcomes;
+    }
+
     /**
      * Lookup active LRAs
      *
@@ -198,7 +520,8 @@ public interface LRAClient {
     /**
      * Returns all (both active and recovering) LRAs
      *
-     * @return a list of all LRAs known to this coordinator
+     * @return a list of all LRAs known to this coordinator (or, if the client
+     * is configured with several coordinators, to any of them)
      *
      * @throws GenericLRAException on error
      */
@@ -216,7 +539,164 @@ public interface LRAClient {
     List<LRAInfo> getRecoveringLRAs() throws GenericLRAException;
 
     /**
-     * Lookup the status of an LRA
+     * Lookup one page of active LRAs. Paging through the result is started by
+     * passing a null continuation token and each subsequent page is requested by
+     * passing the token returned with the previous page
+     * (see {@link LRAInfoPage#getContinuationToken()}).
+     *
+     * An LRA that is active for the whole time that the pages are being read
+     * is returned exactly once. LRAs that start or end while the pages are being
+     * read may or may not be returned.
+     *
+     * The default implementation pages through the result of
+     * {@link LRAClient#getActiveLRAs()} (see {@link LRAInfoPage#slice}).
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a page of active LRAs
+     *
+     * @throws GenericLRAException on error (including a continuation token that
+     * is not recognised by the coordinator)
+     */
+    default LRAInfoPage getActiveLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return LRAInfoPage.slice(getActiveLRAs(), pageSize, continuationToken);
+    }
+
+    /**
+     * Lookup one page of all (both active and recovering) LRAs. Paging follows
+     * the same rules as {@link LRAClient#getActiveLRAs(int, String)}.
+     *
+     * The default implementation pages through the result of
+     * {@link LRAClient#getAllLRAs()} (see {@link LRAInfoPage#slice}).
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a page of the LRAs known to this coordinator
+     *
+     * @throws GenericLRAException on error (including a continuation token that
+     * is not recognised by the coordinator)
+     */
+    default LRAInfoPage getAllLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return LRAInfoPage.slice(getAllLRAs(), pageSize, continuationToken);
+    }
+
+    /**
+     * Lookup one page of recovering LRAs. Paging follows the same rules as
+     * {@link LRAClient#getActiveLRAs(int, String)}.
+     *
+     * The default implementation pages through the result of
+     * {@link LRAClient#getRecoveringLRAs()} (see {@link LRAInfoPage#slice}).
+     *
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a page of recovering LRAs
+     *
+     * @throws GenericLRAException on error (including a continuation token that
+     * is not recognised by the coordinator)
+     */
+    default LRAInfoPage getRecoveringLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return LRAInfoPage.slice(getRecoveringLRAs(), pageSize, continuationToken);
+    }
+
+    /**
+     * Lookup active LRAs without materialising the whole result. The response
+     * from the coordinator is consumed incrementally as the stream is traversed.
+     * The stream holds on to resources until it is closed so callers should
+     * close it when they are done with it (for example using a
+     * try-with-resources statement).
+     *
+     * The default implementation streams the result of
+     * {@link LRAClient#getActiveLRAs()}.
+     *
+     * @return a stream of active LRAs
+     *
+     * @throws GenericLRAException on error. Errors that occur while the stream
+     * is being traversed are also reported as a GenericLRAException
+     */
+    default Stream<LRAInfo> streamActiveLRAs() throws GenericLRAException {
+        return getActiveLRAs().stream();
+    }
+
+    /**
+     * Returns all (both active and recovering) LRAs without materialising the
+     * whole result (see {@link LRAClient#streamActiveLRAs()}).
+     *
+     * The default implementation streams the result of
+     * {@link LRAClient#getAllLRAs()}.
+     *
+     * @return a stream of all LRAs known to this coordinator
+     *
+     * @throws GenericLRAException on error. Errors that occur while the stream
+     * is being traversed are also reported as a GenericLRAException
+     */
+    default Stream<LRAInfo> streamAllLRAs() throws GenericLRAException {
+        return getAllLRAs().stream();
+    }
+
+    /**
+     * List recovering LRAs without materialising the whole result (see
+     * {@link LRAClient#streamActiveLRAs()}).
+     *
+     * The default implementation streams the result of
+     * {@link LRAClient#getRecoveringLRAs()}.
+     *
+     * @return a stream of recovering LRAs
+     *
+     * @throws GenericLRAException on error. Errors that occur while the stream
+     * is being traversed are also reported as a GenericLRAException
+     */
+    default Stream<LRAInfo> streamRecoveringLRAs() throws GenericLRAException {
+        return getRecoveringLRAs().stream();
+    }
+
+    /**
+     * Lookup the LRAs that match a query. The query is evaluated by the
+     * coordinator so only the matching LRAs are returned to the client.
+     *
+     * The default implementation fails with a
+     * {@link GenericLRAException} whose status code is 501 (not implemented).
+     *
+     * @param query the criteria that the returned LRAs must match
+     *
+     * @return a list of the LRAs that match the query
+     *
+     * @throws GenericLRAException on error
+     */
+    default List<LRAInfo> findLRAs(LRAQuery query) throws GenericLRAException {
+        throw new GenericLRAException(null, 501, "this client does not support queries", null);
+    }
+
+    /**
+     * Lookup one page of the LRAs that match a query. Paging follows the same
+     * rules as {@link LRAClient#getActiveLRAs(int, String)}.
+     *
+     * The default implementation pages through the result of
+     * {@link LRAClient#findLRAs(LRAQuery)} (see {@link LRAInfoPage#slice}).
+     *
+     * @param query the criteria that the returned LRAs must match
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     *
+     * @return a page of the LRAs that match the query
+     *
+     * @throws GenericLRAException on error (including a continuation token that
+     * is not recognised by the coordinator)
+     */
+    default LRAInfoPage findLRAs(LRAQuery query, int pageSize, String continuationToken) throws GenericLRAException {
+        return LRAInfoPage.slice(findLRAs(query), pageSize, continuationToken);
+    }
+
+    /**
+     * Lookup the status of an LRA. The request may be answered from the status
+     * cache (see {@link LRAClient#LRA_STATUS_CACHE_SIZE_KEY}). Closing or
+     * cancelling an LRA via this client invalidates any cached status for it.
      *
      * @param lraId the LRA whose status is being requested
      *
@@ -232,6 +712,88 @@ public interface LRAClient {
      */
     Optional<CompensatorStatus> getStatus(URL lraId) throws GenericLRAException;
 
+    /**
+     * Lookup the status of a collection of LRAs using a single request to the
+     * coordinator (ie the batch equivalent of {@link LRAClient#getStatus(URL)}).
+     *
+     * The default implementation requests the statuses one at a time using
+     * {@link LRAClient#getStatus(URL)}.
+     *
+     * @param lraIds the LRAs whose status is being requested
+     *
+     * @return the status of each LRA keyed by LRA id. The value is empty if the
+     * LRA is still active (ie has not yet been closed or cancelled). LRAs that no
+     * longer exist have no entry in the map.
+     *
+     * @throws GenericLRAException if the request to the coordinator failed.
+     * {@link GenericLRAException#getCause()} and/or
+     * {@link GenericLRAException#getStatusCode()}
+     * may provide a more specific reason.
+     */
+    default Map<URL, Optional<CompensatorStatus>> getStatuses(Collection<URL> lraIds) throws GenericLRAException {
+        Map<URL, Optional<CompensatorStatus>> statuses = new LinkedHashMap<>();
+
+        for (URL lraId : lraIds) {
+            try {
+                statuses.put(lraId, getStatus(lraId));
+            } catch (NotFoundException e) {
+                // LRAs that no longer exist have no entry
+            }
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Lookup the status of an LRA in a form that answers the questions asked by
+     * {@link LRAClient#isActiveLRA(URL)}, {@link LRAClient#isCompensatedLRA(URL)}
+     * and {@link LRAClient#isCompletedLRA(URL)} using a single request to the
+     * coordinator.
+     *
+     * The default implementation is based on {@link LRAClient#getStatus(URL)}.
+     *
+     * @param lraId the LRA whose status is being requested
+     *
+     * @return a snapshot of the status of the LRA
+     *
+     * @throws NotFoundException if the LRA no longer exists
+     *
+     * @throws GenericLRAException if the request to the coordinator failed.
+     * {@link GenericLRAException#getCause()} and/or
+     * {@link GenericLRAException#getStatusCode()}
+     * may provide a more specific reason.
+     */
+    default LRAStatusSnapshot getStatusSnapshot(URL lraId) throws GenericLRAException {
+        return LRAStatusSnapshot.of(lraId, getStatus(lraId));
+    }
+
+    /**
+     * Report the counters of the cache that this client uses to answer status
+     * requests (see {@link LRAClient#LRA_STATUS_CACHE_SIZE_KEY}).
+     *
+     * The default implementation fails with a
+     * {@link GenericLRAException} whose status code is 501 (not implemented).
+     *
+     * @return the current cache statistics. If the cache is disabled every
+     * counter is zero except for the miss count.
+     */
+    default LRAStatusCacheStatistics getStatusCacheStatistics() {
+        throw new GenericLRAException(null, 501, "this client does not report cache statistics", null);
+    }
+
+    /**
+     * Report the counters of the transport that this client uses to send
+     * requests to coordinators (see {@link LRATransportConfig}).
+     *
+     * The default implementation fails with a
+     * {@link GenericLRAException} whose status code is 501 (not implemented).
+     *
+     * @return the current transport statistics
+     */
+    default LRATransportStatistics getTransportStatistics() {
+        throw new GenericLRAException(null, 501, "this client does not report transport statistics", null);
+    }
+
     /**
      * Indicates whether an LRA is active. The same information can be obtained via
      * a call to {@link LRAClient#getStatus(URL)}.
@@ -282,6 +844,110 @@ public interface LRAClient {
      * may provide a more specific reason.     */
     Boolean isCompletedLRA(URL lraId) throws GenericLRAException;
 
+    /**
+     * Ask to be told when an LRA reaches its final status. This avoids having
+     * to poll the coordinator using {@link LRAClient#getStatus(URL)} or
+     * {@link LRAClient#isActiveLRA(URL)} in order to discover the outcome of an LRA.
+     *
+     * The listener is invoked at most once. If the LRA has already reached its
+     * final status when the subscription is made the listener is invoked
+     * promptly with that status. The listener must not block since it may be
+     * invoked on a thread that is shared with other subscriptions.
+     *
+     * Implementations should deliver all of the notifications for a client over
+     * a single connection to the coordinator rather than a connection per
+     * subscription.
+     *
+     * The default implementation fails with a
+     * {@link GenericLRAException} whose status code is 501 (not implemented).
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param listener called with the final status of the LRA
+     *
+     * @return a subscription that can be closed if the listener is no longer
+     * interested in the outcome
+     *
+     * @throws NotFoundException if the LRA no longer exists
+     *
+     * @throws GenericLRAException if the request to the coordinator failed.
+     * {@link GenericLRAException#getCause()} and/or
+     * {@link GenericLRAException#getStatusCode()}
+     * may provide a more specific reason.
+     */
+    default LRASubscription onTermination(URL lraId, Consumer<CompensatorStatus> listener) throws GenericLRAException {
+        throw new GenericLRAException(lraId, 501, "this client does not support termination listeners", null);
+    }
+
+    /**
+     * Wait for an LRA to reach its final status. The coordinator holds the
+     * request open until either the LRA reaches its final status or the
+     * deadline passes so the client does not need to repeatedly poll
+     * {@link LRAClient#getStatus(URL)}.
+     *
+     * The default implementation polls {@link LRAClient#getStatus(URL)} until the
+     * LRA reaches its final status or the deadline passes.
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param timeout the maximum time to wait for the LRA to reach its final status
+     * @param unit the unit that the timeout is measured in
+     *
+     * @return the final status of the LRA or empty if the deadline passed before
+     * the LRA reached its final status
+     *
+     * @throws NotFoundException if the LRA no longer exists
+     *
+     * @throws GenericLRAException if the request to the coordinator failed.
+     * {@link GenericLRAException#getCause()} and/or
+     * {@link GenericLRAException#getStatusCode()}
+     * may provide a more specific reason.
+     */
+    default Optional<CompensatorStatus> awaitOutcome(URL lraId, long timeout, TimeUnit unit) throws GenericLRAException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (true) {
+            LRAStatusSnapshot snapshot = getStatusSnapshot(lraId);
+            long remaining = deadline - System.nanoTime();
+
+            if (snapshot.isTerminal()) {
+                return snapshot.getStatus();
+            } else if (remaining <= 0) {
+                return Optional.empty();
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new GenericLRAException(lraId, 503, "interrupted while waiting for the outcome", e);
+            }
+        }
+    }
+
+    /**
+     * Ask to be told about every lifecycle transition of every LRA managed by
+     * the coordinator. The same delivery rules apply as for
+     * {@link LRAClient#onTermination(URL, Consumer)} except that the listener
+     * is invoked for each event until the subscription is closed. Events for a
+     * given LRA are delivered in the order in which they occurred.
+     *
+     * The default implementation fails with a
+     * {@link GenericLRAException} whose status code is 501 (not implemented).
+     *
+     * @param listener called with each lifecycle transition
+     *
+     * @return a subscription that must be closed when the listener is no longer
+     * interested in events
+     *
+     * @throws GenericLRAException if the request to the coordinator failed.
+     * {@link GenericLRAException#getCause()} and/or
+     * {@link GenericLRAException#getStatusCode()}
+     * may provide a more specific reason.
+     */
+    default LRASubscription onLRAEvents(Consumer<LRAEvent> listener) throws GenericLRAException {
+        throw new GenericLRAException(null, 501, "this client does not support event listeners", null);
+    }
+
 
     /**
      * A participant can join with the LRA at any time prior to the completion of
@@ -396,7 +1062,13 @@ public interface LRAClient {
      * not all users of the API are being called in the context of JAX-RS
      * resource requests).
      *
+     * If the current LRA was set from a compact context (see
+     * {@link LRAClient#setCurrentContext(LRAContextToken)}) it is expanded to
+     * the full LRA id by this call (and not before).
+     *
      * @return the current LRA (can be null)
+     * @throws InvalidLRAIdException if the current context is in compact form
+     * and its routing key does not identify a coordinator known to this client
      */
     URL getCurrent();
 
@@ -408,4 +1080,155 @@ public interface LRAClient {
      * @param lraId the id of the LRA (can be null)
      */
     void setCurrentLRA(URL lraId);
+
+    /**
+     * Obtain the LRA context associated with the calling thread in the form
+     * that should be propagated in the {@link LRAClient#LRA_HTTP_HEADER} header
+     * (ie in compact form if {@link LRAClient#LRA_HTTP_HEADER_COMPACT_KEY} is
+     * enabled and the LRA is managed by a coordinator known to this client).
+     * This method does not expand a compact context.
+     *
+     * The default implementation returns the URL form of {@link LRAClient#getCurrent()}.
+     *
+     * @return the current context (can be null)
+     */
+    default LRAContextToken getCurrentContext() {
+        URL current = getCurrent();
+
+        return current == null ? null : LRAContextToken.of(LRAId.valueOf(current));
+    }
+
+    /**
+     * Associate an LRA context with the calling thread (typically a context
+     * parsed from an incoming {@link LRAClient#LRA_HTTP_HEADER} header using
+     * {@link LRAContextToken#parse(String)}). A context in compact form is not
+     * expanded until {@link LRAClient#getCurrent()} is called.
+     *
+     * The default implementation expands the context immediately and fails with an
+     * {@link InvalidLRAIdException} if it is in compact form.
+     *
+     * @param context the context (can be null)
+     */
+    default void setCurrentContext(LRAContextToken context) {
+        if (context != null && context.isCompact()) {
+            throw new InvalidLRAIdException(context.toHeaderValue(), "this client does not support compact contexts", null);
+        }
+
+        setCurrentLRA(context == null ? null : context.expand(null).toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#cancelLRA(URL)} for callers that hold the
+     * LRA id as an {@link LRAId}. Implementations that track LRAs by
+     * {@link LRAId} should override this method (and the other {@link LRAId}
+     * forms) to avoid converting the identifier to a {@link URL}.
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return the response content from the coordinator
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default String cancelLRA(LRAId lraId) throws GenericLRAException {
+        return cancelLRA(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#closeLRA(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return the response content from the coordinator
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default String closeLRA(LRAId lraId) throws GenericLRAException {
+        return closeLRA(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#getStatus(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return the status or empty if the LRA is still active
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default Optional<CompensatorStatus> getStatus(LRAId lraId) throws GenericLRAException {
+        return getStatus(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#getStatusSnapshot(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return a snapshot of the status of the LRA
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default LRAStatusSnapshot getStatusSnapshot(LRAId lraId) throws GenericLRAException {
+        return getStatusSnapshot(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#isActiveLRA(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return true if the LRA is active
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default Boolean isActiveLRA(LRAId lraId) throws GenericLRAException {
+        return isActiveLRA(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#isCompensatedLRA(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return true if the LRA has compensated
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default Boolean isCompensatedLRA(LRAId lraId) throws GenericLRAException {
+        return isCompensatedLRA(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#isCompletedLRA(URL)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @return true if the LRA has completed
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default Boolean isCompletedLRA(LRAId lraId) throws GenericLRAException {
+        return isCompletedLRA(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#awaitOutcome(URL, long, TimeUnit)}
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param timeout the maximum time to wait for the outcome
+     * @param unit the unit that the timeout parameter is expressed in
+     * @return the final status or empty if the timeout elapsed first
+     * @throws NotFoundException if the LRA no longer exists
+     * @throws GenericLRAException if the request to the coordinator failed
+     */
+    default Optional<CompensatorStatus> awaitOutcome(LRAId lraId, long timeout, TimeUnit unit)
+            throws GenericLRAException {
+        return awaitOutcome(lraId.toURL(), timeout, unit);
+    }
+
+    /**
+     * Equivalent to {@link LRAClient#renewTimeLimit(URL, long, TimeUnit)}
+     *
+     * @throws NotFoundException if the LRA no longer exists
+     *
+     * @param lraId the id of the lra to update
+     * @param limit the new timeout period
+     * @param unit the time unit for limit
+     */
+    default void renewTimeLimit(LRAId lraId, long limit, TimeUnit unit) {
+        renewTimeLimit(lraId.toURL(), limit, unit);
+    }
 }
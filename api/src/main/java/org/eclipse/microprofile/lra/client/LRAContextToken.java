@@ -0,0 +1,204 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * The value of the {@link LRAClient#LRA_HTTP_HEADER} header in either of its
+ * two forms:
+ * <ul>
+ * <li>the URL form which is the full id of the LRA (eg
+ * <code>http://host:8082/lra-coordinator/0_ffff0a28054b_9133_5ae8f7a9_3</code>)</li>
+ * <li>the compact form <code>lra:&lt;routing key&gt;/&lt;token&gt;</code>
+ * where the routing key identifies the coordinator (see
+ * {@link LRAContextToken#routingKey(URI)}) and the token is the remainder of
+ * the LRA id relative to that coordinator (eg
+ * <code>lra:1mz0k9c/0_ffff0a28054b_9133_5ae8f7a9_3</code>)</li>
+ * </ul>
+ *
+ * Parsing a header value never contacts a coordinator: a compact token is only
+ * expanded to the full LRA id when it is needed (see
+ * {@link LRAContextToken#expand(URI)} and {@link LRAClient#getCurrent()}).
+ */
+public final class LRAContextToken {
+    /**
+     * The prefix of a header value in compact form
+     */
+    public static final String COMPACT_PREFIX = "lra:";
+
+    private final String headerValue;
+    private final int tokenStart; // 0 for the URL form
+
+    private LRAContextToken(String headerValue, int tokenStart) {
+        this.headerValue = headerValue;
+        this.tokenStart = tokenStart;
+    }
+
+    /**
+     * Parse the value of an {@link LRAClient#LRA_HTTP_HEADER} header
+     *
+     * @param headerValue the value in either URL or compact form
+     * @return the token or null if the header value is null
+     * @throws InvalidLRAIdException if the value is in neither form
+     */
+    public static LRAContextToken parse(String headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+
+        if (headerValue.startsWith(COMPACT_PREFIX)) {
+            int sep = headerValue.indexOf('/', COMPACT_PREFIX.length());
+
+            if (sep <= COMPACT_PREFIX.length() || sep == headerValue.length() - 1) {
+                throw new InvalidLRAIdException(headerValue, "invalid compact LRA context", null);
+            }
+
+            return new LRAContextToken(headerValue, sep + 1);
+        }
+
+        return of(LRAId.fromHeader(headerValue));
+    }
+
+    /**
+     * @param lraId an LRA id
+     * @return the URL form of the header value for the LRA
+     */
+    public static LRAContextToken of(LRAId lraId) {
+        return new LRAContextToken(lraId.toString(), 0);
+    }
+
+    /**
+     * Produce the compact form of an LRA id. If the id is not relative to the
+     * given coordinator then the URL form is returned instead.
+     *
+     * @param coordinator the coordinator that manages the LRA
+     * @param lraId the LRA id
+     * @return the compact form of the header value for the LRA, if possible
+     */
+    public static LRAContextToken compact(URI coordinator, LRAId lraId) {
+        String base = baseOf(coordinator);
+        String id = lraId.toString();
+
+        if (id.length() <= base.length() || !id.startsWith(base)) {
+            return of(lraId);
+        }
+
+        String prefix = COMPACT_PREFIX + routingKey(coordinator) + '/';
+
+        return new LRAContextToken(prefix + id.substring(base.length()), prefix.length());
+    }
+
+    /**
+     * The routing key of a coordinator. The key is derived from the URI of the
+     * coordinator only so that every client configured with the same
+     * coordinator computes the same key.
+     *
+     * @param coordinator the URI of the coordinator
+     * @return a short key identifying the coordinator
+     */
+    public static String routingKey(URI coordinator) {
+        CRC32 crc = new CRC32();
+
+        crc.update(baseOf(coordinator).getBytes(StandardCharsets.UTF_8));
+
+        return Long.toString(crc.getValue(), Character.MAX_RADIX);
+    }
+
+    /**
+     * @return true if this token is in compact form, false if it is in URL form
+     */
+    public boolean isCompact() {
+        return tokenStart != 0;
+    }
+
+    /**
+     * @return the routing key of the coordinator that manages the LRA or empty
+     * if this token is in URL form
+     */
+    public Optional<String> getRoutingKey() {
+        return isCompact()
+                ? Optional.of(headerValue.substring(COMPACT_PREFIX.length(), tokenStart - 1))
+                : Optional.empty();
+    }
+
+    /**
+     * Expand this token to the full LRA id
+     *
+     * @param coordinator the coordinator whose routing key this token carries
+     *                    (ignored if this token is in URL form)
+     * @return the LRA id
+     * @throws InvalidLRAIdException if the routing key of this token is not the
+     * routing key of the given coordinator
+     */
+    public LRAId expand(URI coordinator) {
+        if (!isCompact()) {
+            return LRAId.valueOf(headerValue);
+        }
+
+        String key = routingKey(coordinator);
+
+        if (!headerValue.regionMatches(COMPACT_PREFIX.length(), key, 0, key.length())
+                || tokenStart - 1 != COMPACT_PREFIX.length() + key.length()) {
+            throw new InvalidLRAIdException(headerValue, "LRA context is not managed by coordinator " + coordinator, null);
+        }
+
+        return LRAId.valueOf(baseOf(coordinator) + headerValue.substring(tokenStart));
+    }
+
+    /**
+     * @return the value to use for the {@link LRAClient#LRA_HTTP_HEADER} header
+     */
+    public String toHeaderValue() {
+        return headerValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return headerValue.equals(((LRAContextToken) o).headerValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(headerValue);
+    }
+
+    @Override
+    public String toString() {
+        return headerValue;
+    }
+
+    private static String baseOf(URI coordinator) {
+        String base = coordinator.toString();
+
+        return base.endsWith("/") ? base : base + '/';
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the health of a single coordinator endpoint on behalf of a client.
+ * The client reports the outcome and latency of every request it sends to the
+ * coordinator and the tracker maintains:
+ * <ul>
+ * <li>an exponentially weighted moving average (EWMA) of the request latency;</li>
+ * <li>an EWMA of the error rate (each request counts as 0 on success and 1 on failure);</li>
+ * <li>a decay of both averages while no requests are reported: they halve
+ * every open duration (see {@link Policy#withOpenDuration(long)}). A
+ * coordinator whose averages make it unhealthy while its circuit is closed
+ * receives no new LRAs, and so no requests, and would otherwise stay
+ * unhealthy forever;</li>
+ * <li>a circuit breaker which opens after a configured number of consecutive
+ * failures. While the circuit is open requests should not be sent to the
+ * coordinator. Once the open duration has elapsed a single probe request is
+ * allowed through (the circuit is half open): if it succeeds the circuit
+ * closes and if it fails the circuit opens again. A probe whose outcome is
+ * not reported within the open duration is presumed to have failed.</li>
+ * </ul>
+ *
+ * A tracker never sends requests itself. A client may probe coordinators whose
+ * circuit is open in the background (see
+ * {@link LRAClient#LRA_COORDINATOR_PROBE_INTERVAL_KEY}) by asking
+ * {@link #allowRequest()} and reporting the outcome of its probe like that of
+ * any other request. Without background probing a recovered coordinator is
+ * detected by the first request sent after the open duration has elapsed.
+ *
+ * A client with several coordinators (see
+ * {@link LRAClient#setCoordinatorURIs(java.util.Collection)}) places new LRAs on
+ * healthy coordinators only (see {@link LRACoordinatorRing#select(String,
+ * java.util.function.Predicate)}). Operations on an existing LRA can only be
+ * sent to the coordinator that manages it so, while its circuit is open,
+ * they fail immediately instead of waiting for the coordinator to time out.
+ *
+ * Instances are safe for use by multiple threads.
+ */
+public final class LRACoordinatorHealth {
+    /**
+     * The states of the circuit breaker
+     */
+    public enum State {
+        /**
+         * Requests are sent to the coordinator
+         */
+        CLOSED,
+        /**
+         * Requests are not sent to the coordinator
+         */
+        OPEN,
+        /**
+         * A single probe request has been allowed through to discover whether
+         * the coordinator has recovered
+         */
+        HALF_OPEN,
+    }
+
+    /**
+     * The thresholds that a tracker applies. Instances are immutable: each of
+     * the <code>with</code> methods returns a new policy.
+     */
+    public static final class Policy {
+        private static final Policy DEFAULTS = new Policy(0.2, 5, 0.5, 0, TimeUnit.SECONDS.toMillis(5));
+
+        private final double ewmaAlpha;
+        private final int failureThreshold;
+        private final double errorRateThreshold;
+        private final long slowThresholdMillis;
+        private final long openDurationMillis;
+
+        private Policy(double ewmaAlpha, int failureThreshold, double errorRateThreshold,
+                       long slowThresholdMillis, long openDurationMillis) {
+            this.ewmaAlpha = ewmaAlpha;
+            this.failureThreshold = failureThreshold;
+            this.errorRateThreshold = errorRateThreshold;
+            this.slowThresholdMillis = slowThresholdMillis;
+            this.openDurationMillis = openDurationMillis;
+        }
+
+        /**
+         * @return the default policy: a smoothing factor of 0.2, a circuit that
+         * opens after 5 consecutive failures and stays open for 5 seconds,
+         * an error rate threshold of 0.5 and no latency threshold
+         */
+        public static Policy defaults() {
+            return DEFAULTS;
+        }
+
+        /**
+         * @param alpha the weight (between 0 exclusive and 1 inclusive) given
+         *              to the latest sample when updating the averages
+         *              (see {@link LRAClient#LRA_COORDINATOR_EWMA_ALPHA_KEY})
+         * @return a new policy with the given smoothing factor
+         */
+        public Policy withEwmaAlpha(double alpha) {
+            if (!(alpha > 0 && alpha <= 1)) {
+                throw new IllegalArgumentException("alpha must be in the range (0, 1]");
+            }
+
+            return new Policy(alpha, failureThreshold, errorRateThreshold, slowThresholdMillis, openDurationMillis);
+        }
+
+        /**
+         * @param threshold the number of consecutive failures that opens the circuit
+         *                  (see {@link LRAClient#LRA_COORDINATOR_FAILURE_THRESHOLD_KEY})
+         * @return a new policy with the given failure threshold
+         */
+        public Policy withFailureThreshold(int threshold) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("threshold must be positive");
+            }
+
+            return new Policy(ewmaAlpha, threshold, errorRateThreshold, slowThresholdMillis, openDurationMillis);
+        }
+
+        /**
+         * @param threshold the average error rate at or above which the
+         *                  coordinator is no longer healthy
+         *                  (see {@link LRAClient#LRA_COORDINATOR_ERROR_RATE_THRESHOLD_KEY})
+         * @return a new policy with the given error rate threshold
+         */
+        public Policy withErrorRateThreshold(double threshold) {
+            if (!(threshold > 0 && threshold <= 1)) {
+                throw new IllegalArgumentException("threshold must be in the range (0, 1]");
+            }
+
+            return new Policy(ewmaAlpha, failureThreshold, threshold, slowThresholdMillis, openDurationMillis);
+        }
+
+        /**
+         * @param millis the average latency above which the coordinator is no
+         *               longer healthy or 0 for no limit
+         *               (see {@link LRAClient#LRA_COORDINATOR_SLOW_THRESHOLD_KEY})
+         * @return a new policy with the given latency threshold
+         */
+        public Policy withSlowThreshold(long millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("millis must not be negative");
+            }
+
+            return new Policy(ewmaAlpha, failureThreshold, errorRateThreshold, millis, openDurationMillis);
+        }
+
+        /**
+         * @param millis the time for which the circuit stays open before a probe
+         *               request is allowed through, which is also the time
+         *               allowed for the outcome of the probe to be reported
+         *               and the time in which the averages halve while no
+         *               requests are reported
+         *               (see {@link LRAClient#LRA_COORDINATOR_OPEN_DURATION_KEY})
+         * @return a new policy with the given open duration
+         */
+        public Policy withOpenDuration(long millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("millis must not be negative");
+            }
+
+            return new Policy(ewmaAlpha, failureThreshold, errorRateThreshold, slowThresholdMillis, millis);
+        }
+
+        /**
+         * @return the smoothing factor of the averages
+         */
+        public double getEwmaAlpha() {
+            return ewmaAlpha;
+        }
+
+        /**
+         * @return the number of consecutive failures that opens the circuit
+         */
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        /**
+         * @return the average error rate at which the coordinator is no longer healthy
+         */
+        public double getErrorRateThreshold() {
+            return errorRateThreshold;
+        }
+
+        /**
+         * @return the average latency above which the coordinator is no longer healthy (0 for no limit)
+         */
+        public long getSlowThresholdMillis() {
+            return slowThresholdMillis;
+        }
+
+        /**
+         * @return the time for which the circuit stays open before a probe is allowed
+         */
+        public long getOpenDurationMillis() {
+            return openDurationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Policy{" +
+                    "ewmaAlpha=" + ewmaAlpha +
+                    ", failureThreshold=" + failureThreshold +
+                    ", errorRateThreshold=" + errorRateThreshold +
+                    ", slowThresholdMillis=" + slowThresholdMillis +
+                    ", openDurationMillis=" + openDurationMillis +
+                    '}';
+        }
+    }
+
+    private final URI coordinator;
+    private final Policy policy;
+    private final LongSupplier nanoClock;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long probeStartedAt;
+    private int consecutiveFailures;
+    private double latencyEwmaNanos = Double.NaN;
+    private double errorRate;
+    private long decayedAt;
+
+    private LRACoordinatorHealth(URI coordinator, Policy policy, LongSupplier nanoClock) {
+        this.coordinator = Objects.requireNonNull(coordinator);
+        this.policy = Objects.requireNonNull(policy);
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+        this.decayedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * @param coordinator the coordinator endpoint
+     * @param policy the thresholds to apply
+     * @return a tracker for a coordinator that has not yet been used
+     */
+    public static LRACoordinatorHealth of(URI coordinator, Policy policy) {
+        return of(coordinator, policy, System::nanoTime);
+    }
+
+    /**
+     * @param coordinator the coordinator endpoint
+     * @param policy the thresholds to apply
+     * @param nanoClock the source of time in nanoseconds (as for {@link System#nanoTime()})
+     * @return a tracker for a coordinator that has not yet been used
+     */
+    public static LRACoordinatorHealth of(URI coordinator, Policy policy, LongSupplier nanoClock) {
+        return new LRACoordinatorHealth(coordinator, policy, nanoClock);
+    }
+
+    /**
+     * @return the coordinator that this tracker pertains to
+     */
+    public URI getCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * @return the policy that this tracker applies
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Ask whether a request may be sent to the coordinator. If the circuit is
+     * open and the open duration has elapsed the circuit becomes half open and
+     * the caller is given permission to send a probe request (subsequent
+     * callers are refused until the outcome of the probe is reported or the
+     * open duration elapses again, in which case the probe is presumed to
+     * have failed and the circuit opens).
+     *
+     * @return true if the request may be sent, false otherwise
+     */
+    public synchronized boolean allowRequest() {
+        expireProbe();
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (hasElapsed(openedAt)) {
+                    state = State.HALF_OPEN;
+                    probeStartedAt = nanoClock.getAsLong();
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Report a request that succeeded
+     *
+     * @param latency the time taken by the request
+     * @param unit the unit that the latency is expressed in
+     */
+    public synchronized void onSuccess(long latency, TimeUnit unit) {
+        sample(unit.toNanos(latency), 0);
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Report a request that failed (including requests that timed out)
+     *
+     * @param latency the time taken by the request
+     * @param unit the unit that the latency is expressed in
+     */
+    public synchronized void onFailure(long latency, TimeUnit unit) {
+        sample(unit.toNanos(latency), 1);
+        consecutiveFailures += 1;
+
+        if (state == State.HALF_OPEN
+                || (state == State.CLOSED && consecutiveFailures >= policy.failureThreshold)) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * @return true if the circuit is closed and neither the average latency nor
+     * the average error rate have reached the thresholds of the policy
+     */
+    public synchronized boolean isHealthy() {
+        decay();
+
+        return state == State.CLOSED
+                && errorRate < policy.errorRateThreshold
+                && (policy.slowThresholdMillis == 0 || Double.isNaN(latencyEwmaNanos)
+                    || latencyEwmaNanos <= TimeUnit.MILLISECONDS.toNanos(policy.slowThresholdMillis));
+    }
+
+    /**
+     * @return the state of the circuit breaker
+     */
+    public synchronized State getState() {
+        expireProbe();
+
+        return state;
+    }
+
+    /**
+     * @return the number of failures reported since the last success
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the average latency in milliseconds or NaN if no requests have been reported
+     */
+    public synchronized double getLatencyEwmaMillis() {
+        decay();
+
+        return latencyEwmaNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the average error rate (between 0 and 1)
+     */
+    public synchronized double getErrorRate() {
+        decay();
+
+        return errorRate;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LRACoordinatorHealth{" +
+                "coordinator=" + coordinator +
+                ", state=" + state +
+                ", consecutiveFailures=" + consecutiveFailures +
+                ", latencyEwmaMillis=" + getLatencyEwmaMillis() +
+                ", errorRate=" + getErrorRate() +
+                '}';
+    }
+
+    // a probe that has not reported its outcome within the open duration (for example because its caller gave up) failed
+    private void expireProbe() {
+        if (state == State.HALF_OPEN && hasElapsed(probeStartedAt)) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    private boolean hasElapsed(long since) {
+        return nanoClock.getAsLong() - since >= TimeUnit.MILLISECONDS.toNanos(policy.openDurationMillis);
+    }
+
+    // halve the averages for every open duration that has elapsed since they were last decayed
+    private void decay() {
+        long now = nanoClock.getAsLong();
+        long halfLife = TimeUnit.MILLISECONDS.toNanos(policy.openDurationMillis);
+
+        if (now == decayedAt) {
+            return;
+        }
+
+        double factor = halfLife == 0 ? 0 : Math.pow(0.5, (double) (now - decayedAt) / halfLife);
+
+        latencyEwmaNanos *= factor;
+        errorRate *= factor;
+        decayedAt = now;
+    }
+
+    private void sample(long latencyNanos, int error) {
+        double alpha = policy.ewmaAlpha;
+
+        decay();
+
+        latencyEwmaNanos = Double.isNaN(latencyEwmaNanos)
+                ? latencyNanos
+                : alpha * latencyNanos + (1 - alpha) * latencyEwmaNanos;
+        errorRate = alpha * error + (1 - alpha) * errorRate;
+    }
+}
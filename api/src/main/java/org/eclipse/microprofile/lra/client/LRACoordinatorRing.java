@@ -0,0 +1,287 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * An immutable consistent hash ring over a set of LRA coordinators. A client
+ * that is configured with more than one coordinator (see
+ * {@link LRAClient#setCoordinatorURIs(Collection)}) uses a ring to:
+ * <ul>
+ * <li>choose the coordinator that a new top level LRA is started on
+ * ({@link LRACoordinatorRing#select(String)}) using a key that is unique to
+ * the LRA ({@link LRACoordinatorRing#placementKey(String)}). Each coordinator is placed on
+ * the ring at several points so that keys are spread evenly and adding or
+ * removing a coordinator only moves the keys of neighbouring points;</li>
+ * <li>route every later operation on an LRA to the coordinator that is encoded
+ * in its id ({@link LRACoordinatorRing#coordinatorOf(LRAId)}) or in the
+ * routing key of its compact context
+ * ({@link LRACoordinatorRing#coordinatorOf(LRAContextToken)}).</li>
+ * </ul>
+ *
+ * A service normally starts all of its LRAs with the same client id so the
+ * client id alone is not used as the key: every LRA of the service would be
+ * placed on the same coordinator, which would then limit its throughput.
+ *
+ * A null key has no affinity with any coordinator so it selects a random
+ * point on the ring. Such LRAs are spread over the coordinators in the same
+ * proportions as keyed ones.
+ */
+public final class LRACoordinatorRing {
+    /**
+     * The number of points on the ring per coordinator used by
+     * {@link LRACoordinatorRing#of(Collection)}
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    private final List<URI> coordinators;
+    private final Map<String, URI> byRoutingKey;
+    private final long[] points; // sorted
+    private final URI[] owners; // owners[i] owns points[i]
+
+    private LRACoordinatorRing(List<URI> coordinators, int virtualNodes) {
+        this.coordinators = Collections.unmodifiableList(coordinators);
+        this.byRoutingKey = new HashMap<>();
+
+        long[] hashes = new long[coordinators.size() * virtualNodes];
+        Map<Long, URI> owner = new HashMap<>();
+        int n = 0;
+
+        for (URI coordinator : coordinators) {
+            byRoutingKey.put(LRAContextToken.routingKey(coordinator), coordinator);
+
+            for (int i = 0; i < virtualNodes; i++) {
+                long h = hash(coordinator.toString() + '#' + i);
+
+                // on the (unlikely) event of a collision the first coordinator keeps the point
+                if (owner.putIfAbsent(h, coordinator) == null) {
+                    hashes[n++] = h;
+                }
+            }
+        }
+
+        this.points = Arrays.copyOf(hashes, n);
+        Arrays.sort(points);
+        this.owners = new URI[n];
+
+        for (int i = 0; i < n; i++) {
+            owners[i] = owner.get(points[i]);
+        }
+    }
+
+    /**
+     * @param coordinators the coordinators (duplicates are ignored)
+     * @return a ring with {@link LRACoordinatorRing#DEFAULT_VIRTUAL_NODES} points per coordinator
+     * @throws IllegalArgumentException if there are no coordinators
+     */
+    public static LRACoordinatorRing of(Collection<URI> coordinators) {
+        return of(coordinators, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param coordinators the coordinators (duplicates are ignored)
+     * @param virtualNodes the number of points on the ring per coordinator
+     * @return a ring over the coordinators
+     * @throws IllegalArgumentException if there are no coordinators or
+     * virtualNodes is not positive
+     */
+    public static LRACoordinatorRing of(Collection<URI> coordinators, int virtualNodes) {
+        List<URI> distinct = new ArrayList<>(new LinkedHashSet<>(coordinators));
+
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("at least one coordinator is required");
+        }
+
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+
+        return new LRACoordinatorRing(distinct, virtualNodes);
+    }
+
+    /**
+     * @return the coordinators on the ring in the order they were given
+     */
+    public List<URI> getCoordinators() {
+        return coordinators;
+    }
+
+    /**
+     * Create the key that a new top level LRA is placed with. The client id is
+     * salted with a random token so that the LRAs started with the same client
+     * id are spread over the coordinators.
+     *
+     * @param clientId the client id of the new LRA or null
+     * @return a key that is unique to the new LRA
+     */
+    public static String placementKey(String clientId) {
+        return (clientId == null ? "" : clientId) + '#' + Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Choose a coordinator for a key. The same key always selects the same
+     * coordinator on rings made from the same coordinators.
+     *
+     * @param key the key (for example the placement key of a new LRA) or null
+     *            to select a random coordinator
+     * @return the coordinator that owns the key
+     */
+    public URI select(String key) {
+        return owners[indexOf(hash(key))];
+    }
+
+    /**
+     * Choose a coordinator for a key from those that satisfy a predicate. The
+     * coordinators are tried in the order in which their points follow the key
+     * around the ring so, when the coordinator that owns the key is excluded,
+     * its keys are spread over the remaining coordinators rather than all
+     * moving to the same one. A client uses this method to fail over new LRAs
+     * from unhealthy coordinators (see {@link LRACoordinatorHealth}).
+     *
+     * @param key the key (for example the placement key of a new LRA) or null
+     *            to start from a random point on the ring
+     * @param candidate the predicate that the chosen coordinator must satisfy.
+     *                  It is evaluated at most once per coordinator and not at
+     *                  all for coordinators after the chosen one
+     * @return the chosen coordinator or empty if no coordinator satisfies the predicate
+     */
+    public Optional<URI> select(String key, Predicate<URI> candidate) {
+        Set<URI> rejected = new HashSet<>();
+        int start = indexOf(hash(key));
+
+        for (int n = 0; n < points.length && rejected.size() < coordinators.size(); n++) {
+            URI owner = owners[(start + n) % points.length];
+
+            if (!rejected.contains(owner)) {
+                if (candidate.test(owner)) {
+                    return Optional.of(owner);
+                }
+
+                rejected.add(owner);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Find the coordinator that manages an LRA
+     *
+     * @param lraId the LRA id
+     * @return the coordinator whose URI is a prefix of the LRA id or empty if
+     * the LRA is not managed by any coordinator on the ring (in which case the
+     * LRA id itself is the only route to its coordinator)
+     */
+    public Optional<URI> coordinatorOf(LRAId lraId) {
+        String id = lraId.toString();
+        URI best = null;
+        int bestLength = 0;
+
+        for (URI coordinator : coordinators) {
+            String base = coordinator.toString();
+            int length = base.endsWith("/") ? base.length() - 1 : base.length();
+
+            if (length > bestLength && id.length() > length + 1
+                    && id.startsWith(base.substring(0, length)) && id.charAt(length) == '/') {
+                best = coordinator;
+                bestLength = length;
+            }
+        }
+
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Find the coordinator that manages the LRA of a context
+     *
+     * @param context the context in either URL or compact form
+     * @return the coordinator or empty if the context does not belong to any
+     * coordinator on the ring
+     */
+    public Optional<URI> coordinatorOf(LRAContextToken context) {
+        if (context.isCompact()) {
+            return context.getRoutingKey().map(byRoutingKey::get);
+        }
+
+        return coordinatorOf(context.expand(null));
+    }
+
+    @Override
+    public String toString() {
+        return "LRACoordinatorRing" + coordinators;
+    }
+
+    /*
+     * the index of the first point at or clockwise from the hash
+     */
+    private int indexOf(long hash) {
+        int i = Arrays.binarySearch(points, hash);
+
+        if (i < 0) {
+            i = -i - 1; // the insertion point is the next point clockwise
+
+            if (i == points.length) {
+                i = 0;
+            }
+        }
+
+        return i;
+    }
+
+    /*
+     * 64 bit FNV-1a followed by the MurmurHash3 finalizer to spread similar keys around the ring
+     */
+    private static long hash(String key) {
+        if (key == null) {
+            return ThreadLocalRandom.current().nextLong();
+        }
+
+        long h = 0xcbf29ce484222325L;
+
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
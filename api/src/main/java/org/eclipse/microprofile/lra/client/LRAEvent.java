@@ -0,0 +1,76 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Data object describing a transition in the lifecycle of an LRA as
+ * published by the coordinator (see {@link LRAClient#onLRAEvents}).
+ */
+public interface LRAEvent {
+    /**
+     * The lifecycle transitions that are published
+     */
+    enum Type {
+        /**
+         * The LRA was started
+         */
+        STARTED,
+        /**
+         * The LRA was asked to close and is completing its participants
+         */
+        CLOSING,
+        /**
+         * The LRA was asked to cancel (or timed out) and is compensating its participants
+         */
+        CANCELLING,
+        /**
+         * The LRA has reached its final status (see {@link LRAEvent#getStatus()})
+         */
+        TERMINATED,
+    }
+
+    /**
+     * @return  lra id of the LRA that made the transition
+     */
+    URL getLraId();
+
+    /**
+     * @return  the transition that the LRA made
+     */
+    Type getType();
+
+    /**
+     * @return  the final status of the LRA if the event is of type
+     * {@link Type#TERMINATED}, otherwise empty
+     */
+    Optional<CompensatorStatus> getStatus();
+
+    /**
+     * @return  the time at which the coordinator recorded the transition
+     */
+    Instant getTimestamp();
+}
@@ -0,0 +1,183 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+
+/**
+ * An immutable identifier of an LRA. In contrast to {@link URL}, equality and
+ * hashing are based purely on the external form of the identifier (the
+ * {@link URL#equals(Object)} and {@link URL#hashCode()} methods may resolve
+ * host names) and the hash code is computed once when the identifier is
+ * created. This makes identifiers cheap to use as keys in maps of LRAs.
+ *
+ * Identifiers can be converted to and from {@link URL}s for use with the
+ * methods of the API that take URLs.
+ */
+public final class LRAId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final int hash;
+
+    private transient volatile URL url;
+
+    private LRAId(String id) {
+        this.id = id;
+        this.hash = id.hashCode();
+    }
+
+    /**
+     * Create an identifier from the external form of an LRA id
+     *
+     * @param lraId the external form of the LRA id (ie an absolute URL)
+     * @return the identifier
+     * @throws InvalidLRAIdException if the value is not an absolute URL
+     */
+    public static LRAId valueOf(String lraId) {
+        if (!hasScheme(lraId)) {
+            throw new InvalidLRAIdException(lraId, "LRA id is not an absolute URL", null);
+        }
+
+        return new LRAId(lraId);
+    }
+
+    /**
+     * Create an identifier from a URL
+     *
+     * @param lraId the LRA id
+     * @return the identifier
+     */
+    public static LRAId valueOf(URL lraId) {
+        LRAId id = new LRAId(lraId.toExternalForm());
+
+        id.url = lraId;
+
+        return id;
+    }
+
+    /**
+     * Create an identifier from the value of the {@link LRAClient#LRA_HTTP_HEADER}
+     * header. The value is used as is if it is already in external form and
+     * is only decoded if it has been URL encoded.
+     *
+     * @param headerValue the value of the header
+     * @return the identifier or null if the header value is null
+     * @throws InvalidLRAIdException if the value is not an absolute URL
+     */
+    public static LRAId fromHeader(String headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+
+        if (hasScheme(headerValue)) {
+            return new LRAId(headerValue);
+        }
+
+        if (headerValue.indexOf('%') != -1) {
+            try {
+                return valueOf(URLDecoder.decode(headerValue, "UTF-8"));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                throw new InvalidLRAIdException(headerValue, "LRA id is not correctly encoded", e);
+            }
+        }
+
+        throw new InvalidLRAIdException(headerValue, "LRA id is not an absolute URL", null);
+    }
+
+    /**
+     * @return  the LRA id as a URL
+     * @throws InvalidLRAIdException if the id uses a protocol that is not
+     * supported by {@link URL}
+     */
+    public URL toURL() {
+        URL u = url;
+
+        if (u == null) {
+            try {
+                u = new URL(id);
+            } catch (MalformedURLException e) {
+                throw new InvalidLRAIdException(id, "LRA id is not a valid URL", e);
+            }
+
+            url = u;
+        }
+
+        return u;
+    }
+
+    /**
+     * @return  the external form of the LRA id (as would be used for the value
+     * of the {@link LRAClient#LRA_HTTP_HEADER} header)
+     */
+    @Override
+    public String toString() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LRAId that = (LRAId) o;
+        return hash == that.hash && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /*
+     * check, without allocating, that the value starts with a URI scheme followed by "://"
+     */
+    private static boolean hasScheme(String value) {
+        if (value == null || value.isEmpty() || !isAsciiLetter(value.charAt(0))) {
+            return false;
+        }
+
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == ':') {
+                return value.startsWith("//", i + 1) && value.length() > i + 3;
+            }
+
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
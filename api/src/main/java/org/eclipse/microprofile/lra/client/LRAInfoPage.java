@@ -0,0 +1,99 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the result of an LRA query. The next page is requested by
+ * passing the continuation token of this page back to the coordinator.
+ * When a client spreads LRAs across several coordinators the continuation
+ * token records the position reached in the results of each of them.
+ */
+public interface LRAInfoPage {
+
+    /**
+     * @return  the LRAs on this page (never more than the requested page size)
+     */
+    List<LRAInfo> getLRAs();
+
+    /**
+     * @return  an opaque token for requesting the next page or null if this
+     * is the last page
+     */
+    String getContinuationToken();
+
+    /**
+     * @return  true if there are no more pages, false otherwise
+     */
+    boolean isLastPage();
+
+    /**
+     * Page through a result that was obtained in one piece (this is how the
+     * default paged queries of {@link LRAClient} are answered). The
+     * continuation token is the position of the next LRA in the result.
+     *
+     * @param lras the whole result
+     * @param pageSize the maximum number of LRAs to return (must be greater than zero)
+     * @param continuationToken the token returned with the previous page or null
+     *                          to request the first page
+     * @return the requested page
+     * @throws GenericLRAException if the page size is not greater than zero or
+     * the continuation token was not produced by this method
+     */
+    static LRAInfoPage slice(List<LRAInfo> lras, int pageSize, String continuationToken) throws GenericLRAException {
+        int from;
+
+        try {
+            from = continuationToken == null ? 0 : Integer.parseInt(continuationToken);
+        } catch (NumberFormatException e) {
+            throw new GenericLRAException(null, 400, "invalid continuation token " + continuationToken, e);
+        }
+
+        if (pageSize <= 0 || from < 0) {
+            throw new GenericLRAException(null, 400, "invalid page request", null);
+        }
+
+        int to = (int) Math.min(lras.size(), (long) from + pageSize);
+        List<LRAInfo> page = Collections.unmodifiableList(
+                from >= lras.size() ? Collections.emptyList() : new ArrayList<>(lras.subList(from, to)));
+        String next = to < lras.size() ? Integer.toString(to) : null;
+
+        return new LRAInfoPage() {
+            @Override
+            public List<LRAInfo> getLRAs() {
+                return page;
+            }
+
+            @Override
+            public String getContinuationToken() {
+                return next;
+            }
+
+            @Override
+            public boolean isLastPage() {
+                return next == null;
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A predicate over the LRAs known to a coordinator that is evaluated by the
+ * coordinator (see {@link LRAClient#findLRAs(LRAQuery)}) so that only the
+ * matching LRAs are returned to the client. An LRA matches the query if it
+ * satisfies every criterion that has been set. A query with no criteria set
+ * matches every LRA.
+ *
+ * Instances are immutable: each of the <code>with</code> methods returns a
+ * new query with the additional criterion set.
+ *
+ * A coordinator is expected to maintain indexes (for example by client id,
+ * by parent and by state) so that evaluating a query does not require a scan
+ * of every LRA it knows about.
+ */
+public final class LRAQuery {
+    /**
+     * The states that a query can select LRAs by
+     */
+    public enum State {
+        /**
+         * The LRA has not yet been closed or cancelled (see {@link LRAInfo#isActive()})
+         */
+        ACTIVE,
+        /**
+         * The LRA is recovering: it is ending or its participants failed to
+         * complete or compensate (see {@link LRAInfo#isRecovering()})
+         */
+        RECOVERING,
+        /**
+         * The LRA was successfully completed (see {@link LRAInfo#isComplete()})
+         */
+        COMPLETED,
+        /**
+         * The LRA was compensated (see {@link LRAInfo#isCompensated()})
+         */
+        COMPENSATED,
+    }
+
+    private static final LRAQuery ALL = new LRAQuery(null, null, null, EnumSet.noneOf(State.class), null, null);
+
+    private final String clientIdPrefix;
+    private final Boolean topLevel;
+    private final URL parentLRA;
+    private final Set<State> states;
+    private final Instant startedAfter;
+    private final Instant startedBefore;
+
+    private LRAQuery(String clientIdPrefix, Boolean topLevel, URL parentLRA, Set<State> states,
+                     Instant startedAfter, Instant startedBefore) {
+        this.clientIdPrefix = clientIdPrefix;
+        this.topLevel = topLevel;
+        this.parentLRA = parentLRA;
+        this.states = Collections.unmodifiableSet(states);
+        this.startedAfter = startedAfter;
+        this.startedBefore = startedBefore;
+    }
+
+    /**
+     * @return a query that matches every LRA
+     */
+    public static LRAQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @param prefix the value that the client id of matching LRAs must start with
+     *               (the client id is the one passed when the LRA was started)
+     * @return a new query that additionally selects LRAs by client id prefix
+     */
+    public LRAQuery withClientIdPrefix(String prefix) {
+        return new LRAQuery(Objects.requireNonNull(prefix), topLevel, parentLRA, states, startedAfter, startedBefore);
+    }
+
+    /**
+     * @param topLevel true to select only top level LRAs, false to select only
+     *                 nested LRAs
+     * @return a new query that additionally selects LRAs by nesting
+     */
+    public LRAQuery withTopLevel(boolean topLevel) {
+        return new LRAQuery(clientIdPrefix, topLevel, parentLRA, states, startedAfter, startedBefore);
+    }
+
+    /**
+     * @param parentLRA the LRA whose directly nested LRAs are to be selected
+     * @return a new query that additionally selects LRAs by parent
+     */
+    public LRAQuery withParent(URL parentLRA) {
+        return new LRAQuery(clientIdPrefix, topLevel, Objects.requireNonNull(parentLRA), states,
+                startedAfter, startedBefore);
+    }
+
+    /**
+     * @param first a state that matching LRAs may be in
+     * @param rest further states that matching LRAs may be in
+     * @return a new query that additionally selects LRAs that are in any of the
+     * given states
+     */
+    public LRAQuery withStates(State first, State... rest) {
+        return new LRAQuery(clientIdPrefix, topLevel, parentLRA, EnumSet.of(first, rest), startedAfter, startedBefore);
+    }
+
+    /**
+     * @param instant the time after which matching LRAs must have been started
+     * @return a new query that additionally selects LRAs by start time
+     */
+    public LRAQuery withStartedAfter(Instant instant) {
+        return new LRAQuery(clientIdPrefix, topLevel, parentLRA, states, Objects.requireNonNull(instant), startedBefore);
+    }
+
+    /**
+     * @param instant the time before which matching LRAs must have been started
+     * @return a new query that additionally selects LRAs by start time
+     */
+    public LRAQuery withStartedBefore(Instant instant) {
+        return new LRAQuery(clientIdPrefix, topLevel, parentLRA, states, startedAfter, Objects.requireNonNull(instant));
+    }
+
+    /**
+     * @return the client id prefix that matching LRAs must have, if set
+     */
+    public Optional<String> getClientIdPrefix() {
+        return Optional.ofNullable(clientIdPrefix);
+    }
+
+    /**
+     * @return true if only top level LRAs match, false if only nested LRAs
+     * match or empty if the query does not select by nesting
+     */
+    public Optional<Boolean> getTopLevel() {
+        return Optional.ofNullable(topLevel);
+    }
+
+    /**
+     * @return the parent of the matching LRAs, if set
+     */
+    public Optional<URL> getParent() {
+        return Optional.ofNullable(parentLRA);
+    }
+
+    /**
+     * @return the states that matching LRAs may be in. An empty set means that
+     * the query does not select by state
+     */
+    public Set<State> getStates() {
+        return states;
+    }
+
+    /**
+     * @return the time after which matching LRAs must have been started, if set
+     */
+    public Optional<Instant> getStartedAfter() {
+        return Optional.ofNullable(startedAfter);
+    }
+
+    /**
+     * @return the time before which matching LRAs must have been started, if set
+     */
+    public Optional<Instant> getStartedBefore() {
+        return Optional.ofNullable(startedBefore);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LRAQuery query = (LRAQuery) o;
+        return Objects.equals(clientIdPrefix, query.clientIdPrefix)
+                && Objects.equals(topLevel, query.topLevel)
+                && Objects.equals(parentLRA == null ? null : parentLRA.toExternalForm(),
+                                  query.parentLRA == null ? null : query.parentLRA.toExternalForm())
+                && states.equals(query.states)
+                && Objects.equals(startedAfter, query.startedAfter)
+                && Objects.equals(startedBefore, query.startedBefore);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(clientIdPrefix, topLevel, parentLRA == null ? null : parentLRA.toExternalForm(),
+                states, startedAfter, startedBefore);
+    }
+
+    @Override
+    public String toString() {
+        return "LRAQuery{" +
+                "clientIdPrefix='" + clientIdPrefix + '\'' +
+                ", topLevel=" + topLevel +
+                ", parentLRA=" + parentLRA +
+                ", states=" + states +
+                ", startedAfter=" + startedAfter +
+                ", startedBefore=" + startedBefore +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+/**
+ * Data object carrying the counters of the cache that an {@link LRAClient}
+ * uses to answer status requests without contacting the coordinator (see
+ * {@link LRAClient#LRA_STATUS_CACHE_SIZE_KEY}). The values are a snapshot
+ * taken when the statistics were requested.
+ */
+public interface LRAStatusCacheStatistics {
+
+    /**
+     * @return  the number of status requests that were answered from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return  the number of status requests that had to be sent to the coordinator
+     */
+    long getMissCount();
+
+    /**
+     * @return  the number of entries that were removed to keep the cache within
+     * its configured size
+     */
+    long getEvictionCount();
+
+    /**
+     * @return  the number of LRAs whose status is currently cached
+     */
+    int getSize();
+}
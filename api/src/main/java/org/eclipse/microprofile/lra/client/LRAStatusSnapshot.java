@@ -0,0 +1,136 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+
+import java.net.URL;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The status of an LRA as reported by the coordinator at a single point in
+ * time. A snapshot answers the questions asked by
+ * {@link LRAClient#isActiveLRA(URL)}, {@link LRAClient#isCompensatedLRA(URL)}
+ * and {@link LRAClient#isCompletedLRA(URL)} from a single request to the
+ * coordinator (see {@link LRAClient#getStatusSnapshot(URL)}).
+ */
+public final class LRAStatusSnapshot {
+    private final URL lraId;
+    private final CompensatorStatus status;
+
+    private LRAStatusSnapshot(URL lraId, CompensatorStatus status) {
+        this.lraId = Objects.requireNonNull(lraId);
+        this.status = status;
+    }
+
+    /**
+     * @param lraId the LRA that the status pertains to
+     * @param status the status as returned by {@link LRAClient#getStatus(URL)}
+     * @return a snapshot of the status of the LRA
+     */
+    public static LRAStatusSnapshot of(URL lraId, Optional<CompensatorStatus> status) {
+        return new LRAStatusSnapshot(lraId, status.orElse(null));
+    }
+
+    /**
+     * @return  the LRA that this snapshot pertains to
+     */
+    public URL getLraId() {
+        return lraId;
+    }
+
+    /**
+     * @return  the status or empty if the LRA was still active (ie had not yet
+     * been closed or cancelled) when the snapshot was taken
+     */
+    public Optional<CompensatorStatus> getStatus() {
+        return Optional.ofNullable(status);
+    }
+
+    /**
+     * @return  true if the LRA was active when the snapshot was taken, false otherwise
+     */
+    public boolean isActive() {
+        return status == null;
+    }
+
+    /**
+     * @return  true if the LRA had been compensated when the snapshot was taken,
+     * false otherwise
+     */
+    public boolean isCompensated() {
+        return status == CompensatorStatus.Compensated;
+    }
+
+    /**
+     * @return  true if the LRA had been completed when the snapshot was taken,
+     * false otherwise
+     */
+    public boolean isCompleted() {
+        return status == CompensatorStatus.Completed;
+    }
+
+    /**
+     * @return  true if the LRA had reached a final status when the snapshot was
+     * taken. The status of such an LRA will never change.
+     */
+    public boolean isTerminal() {
+        if (status == null) {
+            return false;
+        }
+
+        switch (status) {
+            case Completed:
+            case Compensated:
+            case FailedToComplete:
+            case FailedToCompensate:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LRAStatusSnapshot that = (LRAStatusSnapshot) o;
+        return lraId.toExternalForm().equals(that.lraId.toExternalForm()) && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lraId.toExternalForm(), status);
+    }
+
+    @Override
+    public String toString() {
+        return "LRAStatusSnapshot{" +
+                "lraId=" + lraId +
+                ", status=" + status +
+                '}';
+    }
+}
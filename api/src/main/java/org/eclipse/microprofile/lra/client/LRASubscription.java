@@ -0,0 +1,41 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+/**
+ * A registration for notifications about LRAs (see
+ * {@link LRAClient#onTermination} and {@link LRAClient#onLRAEvents}).
+ */
+public interface LRASubscription extends AutoCloseable {
+    /**
+     * @return  true if notifications are still being delivered to the
+     * listener, false if the subscription has been closed or has delivered
+     * its final notification
+     */
+    boolean isActive();
+
+    /**
+     * Stop delivering notifications to the listener. Closing a subscription
+     * that is no longer active has no effect.
+     */
+    @Override
+    void close();
+}
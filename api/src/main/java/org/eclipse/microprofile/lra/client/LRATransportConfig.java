@@ -0,0 +1,307 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_CONNECT_TIMEOUT_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_KEEP_ALIVE_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_MAX_STREAMS_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_POOL_SIZE_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_READ_TIMEOUT_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_VERSION_KEY;
+
+/**
+ * The settings of the transport that an {@link LRAClient} uses to send
+ * requests to coordinators (see {@link LRATransportProvider}). Every
+ * coordinator request is short so reusing connections matters more than for
+ * most clients: opening a connection per request wastes a round trip and
+ * leaves a socket in the TIME_WAIT state for each request.
+ *
+ * Instances are immutable: each of the <code>with</code> methods returns a
+ * new configuration.
+ */
+public final class LRATransportConfig {
+    /**
+     * The versions of HTTP that the transport may use
+     */
+    public enum HttpVersion {
+        /**
+         * HTTP/1.1 with persistent connections. Each connection carries one
+         * request at a time (request pipelining is not used since
+         * intermediaries commonly mishandle it)
+         */
+        HTTP_1_1,
+        /**
+         * HTTP/2, which multiplexes concurrent requests over a single
+         * connection per coordinator. A transport that does not support
+         * HTTP/2 falls back to HTTP/1.1
+         */
+        HTTP_2,
+    }
+
+    private static final LRATransportConfig DEFAULTS = new LRATransportConfig(20, TimeUnit.SECONDS.toMillis(60),
+            HttpVersion.HTTP_1_1, 100, TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(30));
+
+    private final int poolSize;
+    private final long keepAliveMillis;
+    private final HttpVersion httpVersion;
+    private final int maxConcurrentStreams;
+    private final long connectTimeoutMillis;
+    private final long readTimeoutMillis;
+
+    private LRATransportConfig(int poolSize, long keepAliveMillis, HttpVersion httpVersion,
+                               int maxConcurrentStreams, long connectTimeoutMillis, long readTimeoutMillis) {
+        this.poolSize = poolSize;
+        this.keepAliveMillis = keepAliveMillis;
+        this.httpVersion = httpVersion;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * @return the default settings: a pool of 20 connections per coordinator
+     * that are kept alive for 60 seconds when idle, HTTP/1.1, at most 100
+     * concurrent streams per HTTP/2 connection, a connect timeout of 5 seconds
+     * and a read timeout of 30 seconds
+     */
+    public static LRATransportConfig defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Read the settings from config properties. Properties that are not set
+     * keep their default values.
+     *
+     * @param properties looks up the value of a config property by key (for
+     *                   example <code>System::getProperty</code>), returning
+     *                   null if the property is not set
+     * @return the settings
+     * @throws IllegalArgumentException if a property has an invalid value
+     */
+    public static LRATransportConfig from(Function<String, String> properties) {
+        LRATransportConfig config = DEFAULTS;
+        String value;
+
+        try {
+            if ((value = properties.apply(LRA_HTTP_POOL_SIZE_KEY)) != null) {
+                config = config.withPoolSize(Integer.parseInt(value.trim()));
+            }
+            if ((value = properties.apply(LRA_HTTP_KEEP_ALIVE_KEY)) != null) {
+                config = config.withKeepAlive(Long.parseLong(value.trim()));
+            }
+            if ((value = properties.apply(LRA_HTTP_VERSION_KEY)) != null) {
+                config = config.withHttpVersion(parseVersion(value.trim()));
+            }
+            if ((value = properties.apply(LRA_HTTP_MAX_STREAMS_KEY)) != null) {
+                config = config.withMaxConcurrentStreams(Integer.parseInt(value.trim()));
+            }
+            if ((value = properties.apply(LRA_HTTP_CONNECT_TIMEOUT_KEY)) != null) {
+                config = config.withConnectTimeout(Long.parseLong(value.trim()));
+            }
+            if ((value = properties.apply(LRA_HTTP_READ_TIMEOUT_KEY)) != null) {
+                config = config.withReadTimeout(Long.parseLong(value.trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid LRA transport property: " + e.getMessage(), e);
+        }
+
+        return config;
+    }
+
+    /**
+     * @param size the maximum number of connections to each coordinator
+     *             (see {@link LRAClient#LRA_HTTP_POOL_SIZE_KEY})
+     * @return new settings with the given pool size
+     */
+    public LRATransportConfig withPoolSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("pool size must be positive");
+        }
+
+        return new LRATransportConfig(size, keepAliveMillis, httpVersion, maxConcurrentStreams,
+                connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * @param millis the time for which an idle connection is kept open or 0
+     *               to close connections after each request
+     *               (see {@link LRAClient#LRA_HTTP_KEEP_ALIVE_KEY})
+     * @return new settings with the given keep alive time
+     */
+    public LRATransportConfig withKeepAlive(long millis) {
+        return new LRATransportConfig(poolSize, nonNegative(millis), httpVersion, maxConcurrentStreams,
+                connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * @param version the HTTP version to use (see {@link LRAClient#LRA_HTTP_VERSION_KEY})
+     * @return new settings with the given HTTP version
+     */
+    public LRATransportConfig withHttpVersion(HttpVersion version) {
+        return new LRATransportConfig(poolSize, keepAliveMillis, Objects.requireNonNull(version),
+                maxConcurrentStreams, connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * @param streams the maximum number of concurrent requests on one HTTP/2
+     *                connection (see {@link LRAClient#LRA_HTTP_MAX_STREAMS_KEY})
+     * @return new settings with the given stream limit
+     */
+    public LRATransportConfig withMaxConcurrentStreams(int streams) {
+        if (streams <= 0) {
+            throw new IllegalArgumentException("streams must be positive");
+        }
+
+        return new LRATransportConfig(poolSize, keepAliveMillis, httpVersion, streams,
+                connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * @param millis the time allowed for establishing a connection or 0 for no
+     *               limit (see {@link LRAClient#LRA_HTTP_CONNECT_TIMEOUT_KEY})
+     * @return new settings with the given connect timeout
+     */
+    public LRATransportConfig withConnectTimeout(long millis) {
+        return new LRATransportConfig(poolSize, keepAliveMillis, httpVersion, maxConcurrentStreams,
+                nonNegative(millis), readTimeoutMillis);
+    }
+
+    /**
+     * @param millis the time allowed for a coordinator to respond or 0 for no
+     *               limit (see {@link LRAClient#LRA_HTTP_READ_TIMEOUT_KEY}).
+     *               Requests that wait for an outcome (see
+     *               {@link LRAClient#awaitOutcome(java.net.URL, long, TimeUnit)})
+     *               extend this timeout by the time they wait.
+     * @return new settings with the given read timeout
+     */
+    public LRATransportConfig withReadTimeout(long millis) {
+        return new LRATransportConfig(poolSize, keepAliveMillis, httpVersion, maxConcurrentStreams,
+                connectTimeoutMillis, nonNegative(millis));
+    }
+
+    /**
+     * @return the maximum number of connections to each coordinator
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return the time for which an idle connection is kept open (0 if
+     * connections are not kept alive)
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * @return the HTTP version to use
+     */
+    public HttpVersion getHttpVersion() {
+        return httpVersion;
+    }
+
+    /**
+     * @return the maximum number of concurrent requests on one HTTP/2 connection
+     */
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * @return the time allowed for establishing a connection (0 for no limit)
+     */
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @return the time allowed for a coordinator to respond (0 for no limit)
+     */
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LRATransportConfig that = (LRATransportConfig) o;
+        return poolSize == that.poolSize
+                && keepAliveMillis == that.keepAliveMillis
+                && httpVersion == that.httpVersion
+                && maxConcurrentStreams == that.maxConcurrentStreams
+                && connectTimeoutMillis == that.connectTimeoutMillis
+                && readTimeoutMillis == that.readTimeoutMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(poolSize, keepAliveMillis, httpVersion, maxConcurrentStreams,
+                connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "LRATransportConfig{" +
+                "poolSize=" + poolSize +
+                ", keepAliveMillis=" + keepAliveMillis +
+                ", httpVersion=" + httpVersion +
+                ", maxConcurrentStreams=" + maxConcurrentStreams +
+                ", connectTimeoutMillis=" + connectTimeoutMillis +
+                ", readTimeoutMillis=" + readTimeoutMillis +
+                '}';
+    }
+
+    private static long nonNegative(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must not be negative");
+        }
+
+        return millis;
+    }
+
+    /*
+     * accept both the enum names and the protocol names (eg HTTP/2)
+     */
+    private static HttpVersion parseVersion(String value) {
+        switch (value.toUpperCase()) {
+            case "HTTP/1.1":
+            case "HTTP_1_1":
+            case "1.1":
+                return HttpVersion.HTTP_1_1;
+            case "HTTP/2":
+            case "HTTP_2":
+            case "2":
+                return HttpVersion.HTTP_2;
+            default:
+                throw new IllegalArgumentException("unsupported HTTP version: " + value);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+import javax.ws.rs.client.Client;
+
+/**
+ * Service provider interface for the transport that an {@link LRAClient}
+ * uses to communicate with coordinators. A client discovers providers using
+ * {@link java.util.ServiceLoader} and uses the first one found, falling back
+ * to its own transport if there are none. This allows an application to plug
+ * in a JAX-RS client that is backed by a particular HTTP stack (for example
+ * one that supports HTTP/2) without changing the LRA client implementation.
+ */
+public interface LRATransportProvider {
+
+    /**
+     * Create the JAX-RS client that will be used to send requests to
+     * coordinators. The client is shared by every thread using the LRA client
+     * so it must pool connections rather than open one per request. The
+     * provider should honour every setting of the configuration that its HTTP
+     * stack supports and ignore the rest.
+     *
+     * @param config the transport settings
+     * @return a client configured according to the settings. The LRA client
+     * closes it when it is itself closed.
+     */
+    Client createClient(LRATransportConfig config);
+}
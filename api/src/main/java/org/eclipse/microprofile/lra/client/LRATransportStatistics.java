@@ -0,0 +1,54 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.client;
+
+/**
+ * Data object carrying the counters of the transport that an {@link LRAClient}
+ * uses to send requests to coordinators (see {@link LRATransportConfig}). The
+ * values are a snapshot taken when the statistics were requested.
+ */
+public interface LRATransportStatistics {
+
+    /**
+     * @return  the number of requests sent to coordinators
+     */
+    long getRequestCount();
+
+    /**
+     * @return  the number of connections that have been opened to coordinators.
+     * A client that reuses connections opens far fewer connections than it
+     * sends requests
+     */
+    long getConnectionsOpened();
+
+    /**
+     * @return  the number of connections that are currently open (both idle
+     * and in use)
+     */
+    int getOpenConnections();
+
+    /**
+     * @return  the configuration that the transport applies, which is what
+     * the counters should be judged against (for example a transport that
+     * reuses connections opens at most its pool size of them to each coordinator)
+     */
+    LRATransportConfig getConfig();
+}
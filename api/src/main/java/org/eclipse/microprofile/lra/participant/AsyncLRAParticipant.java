@@ -0,0 +1,108 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.participant;
+
+import org.eclipse.microprofile.lra.client.LRAId;
+
+import javax.ws.rs.NotFoundException;
+import java.io.Serializable;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A variant of {@link LRAParticipant} for participants that finish their work
+ * asynchronously. Instead of a {@link java.util.concurrent.Future} that the
+ * caller can only block on or poll, the notification methods return a
+ * {@link CompletionStage} so that the LRA manager can react when the
+ * participant finishes without dedicating a thread to each outstanding
+ * participant. A participant joins with an LRA via a call to
+ * {@link LRAManagement#joinLRA(AsyncLRAParticipant, URL, Long,
+ * java.util.concurrent.TimeUnit)}
+ */
+public interface AsyncLRAParticipant extends Serializable {
+    /**
+     * Notifies the participant that the LRA is closing
+     * @param lraId the LRA that is closing
+     * @return a stage (never null) that completes normally when the participant has
+     *         completed successfully. If the participant fails to complete the
+     *         stage must complete exceptionally (preferably with a
+     *         {@link TerminationException}). A stage that completes
+     *         exceptionally with a {@link NotFoundException} indicates that
+     *         the participant does not know about this LRA. If the JVM crashes
+     *         before the stage completes the participant should expect this
+     *         method to be called again.
+     * @throws NotFoundException the participant does not know about this LRA
+     */
+    CompletionStage<Void> completeWork(URL lraId) throws NotFoundException;
+
+    /**
+     * Notifies the participant that the LRA is cancelling
+     * @param lraId the LRA that is cancelling
+     * @return a stage that completes normally when the participant has
+     *         compensated successfully. If the participant fails to compensate
+     *         the stage must complete exceptionally (see
+     *         {@link AsyncLRAParticipant#completeWork(URL)}).
+     * @throws NotFoundException the participant does not know about this LRA
+     */
+    CompletionStage<Void> compensateWork(URL lraId) throws NotFoundException;
+
+    /**
+     * Equivalent to {@link AsyncLRAParticipant#completeWork(URL)} (see
+     * {@link LRAParticipant#completeWork(LRAId)})
+     *
+     * @param lraId the LRA that is closing
+     * @return see {@link AsyncLRAParticipant#completeWork(URL)}
+     * @throws NotFoundException the participant does not know about this LRA
+     */
+    default CompletionStage<Void> completeWork(LRAId lraId) throws NotFoundException {
+        return completeWork(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link AsyncLRAParticipant#compensateWork(URL)}
+     *
+     * @param lraId the LRA that is cancelling
+     * @return see {@link AsyncLRAParticipant#compensateWork(URL)}
+     * @throws NotFoundException the participant does not know about this LRA
+     */
+    default CompletionStage<Void> compensateWork(LRAId lraId) throws NotFoundException {
+        return compensateWork(lraId.toURL());
+    }
+
+    /**
+     * @return the type tag that is stored with the persistent form of this
+     * participant (see {@link LRAParticipant#getRecoveryTypeTag()})
+     */
+    default String getRecoveryTypeTag() {
+        return null;
+    }
+
+    /**
+     * @param buffer the buffer to write the state into
+     * @return true if the state was written or false (the default) if the LRA
+     * manager should use java serialization instead (see
+     * {@link LRAParticipant#writeRecoveryState(ByteBuffer)})
+     */
+    default boolean writeRecoveryState(ByteBuffer buffer) {
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.participant;
+
+import org.eclipse.microprofile.lra.client.LRAId;
+
+import javax.ws.rs.NotFoundException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+
+/**
+ * Presents an {@link AsyncLRAParticipant} as an {@link LRAParticipant}. The
+ * futures returned are {@link CompletableFuture}s so an LRA manager that
+ * recognises them as {@link CompletionStage}s can register callbacks instead
+ * of waiting for them. Each future is a new one that follows the stage of the
+ * participant, so the stage need not support
+ * {@link CompletionStage#toCompletableFuture()} and the LRA manager cannot
+ * complete or cancel it.
+ */
+final class AsyncLRAParticipantAdapter implements LRAParticipant {
+    private static final long serialVersionUID = 1L;
+
+    private final AsyncLRAParticipant participant;
+
+    AsyncLRAParticipantAdapter(AsyncLRAParticipant participant) {
+        this.participant = Objects.requireNonNull(participant);
+    }
+
+    @Override
+    public Future<Void> completeWork(URL lraId) throws NotFoundException {
+        return follow(participant.completeWork(lraId), "completeWork", lraId);
+    }
+
+    @Override
+    public Future<Void> compensateWork(URL lraId) throws NotFoundException {
+        return follow(participant.compensateWork(lraId), "compensateWork", lraId);
+    }
+
+    @Override
+    public Future<Void> completeWork(LRAId lraId) throws NotFoundException {
+        return follow(participant.completeWork(lraId), "completeWork", lraId);
+    }
+
+    @Override
+    public Future<Void> compensateWork(LRAId lraId) throws NotFoundException {
+        return follow(participant.compensateWork(lraId), "compensateWork", lraId);
+    }
+
+    private Future<Void> follow(CompletionStage<Void> stage, String method, Object lraId) {
+        if (stage == null) {
+            throw new IllegalStateException(String.format("%s.%s returned null instead of a CompletionStage for LRA %s",
+                    participant.getClass().getName(), method, lraId));
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        stage.whenComplete((ignore, failure) -> {
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        });
+
+        return future;
+    }
+
+    @Override
+    public String getRecoveryTypeTag() {
+        return participant.getRecoveryTypeTag();
+    }
+
+    @Override
+    public boolean writeRecoveryState(ByteBuffer buffer) {
+        return participant.writeRecoveryState(buffer);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return participant.equals(((AsyncLRAParticipantAdapter) o).participant);
+    }
+
+    @Override
+    public int hashCode() {
+        return participant.hashCode();
+    }
+}
@@ -20,6 +20,8 @@
 
 package org.eclipse.microprofile.lra.participant;
 
+import org.eclipse.microprofile.lra.client.LRAId;
+
 import javax.enterprise.context.ApplicationScoped;
 import java.net.URL;
 import java.util.concurrent.TimeUnit;
@@ -65,6 +67,83 @@ public interface LRAManagement {
      */
     String joinLRA(LRAParticipant participant, URL lraId) throws JoinLRAException;
 
+    /**
+     * Equivalent to {@link LRAManagement#joinLRA(LRAParticipant, URL, Long, TimeUnit)}
+     * for callers that hold the LRA id as an {@link LRAId} (for example one
+     * obtained from the {@link org.eclipse.microprofile.lra.client.LRAClient#LRA_HTTP_HEADER}
+     * header using {@link LRAId#fromHeader(String)}).
+     *
+     * @param participant an instance of a {@link LRAParticipant} that will be
+     *                   notified when the target LRA ends
+     * @param lraId the LRA that the join request pertains to
+     * @param timeLimit the time for which the participant should remain valid
+     * @param unit the unit that the timeLimit parameter is expressed in
+     *
+     * @return a recovery URL for this enlistment
+     *
+     * @throws JoinLRAException if the request to the coordinator failed
+     */
+    default String joinLRA(LRAParticipant participant, LRAId lraId, Long timeLimit, TimeUnit unit)
+            throws JoinLRAException {
+        return joinLRA(participant, lraId.toURL(), timeLimit, unit);
+    }
+
+    /**
+     * Equivalent to {@link LRAManagement#joinLRA(LRAParticipant, URL)}
+     *
+     * @param participant an instance of a {@link LRAParticipant} that will be
+     *                   notified when the target LRA ends
+     * @param lraId the LRA that the join request pertains to
+     *
+     * @return a recovery URL for this enlistment
+     *
+     * @throws JoinLRAException if the request to the coordinator failed
+     */
+    default String joinLRA(LRAParticipant participant, LRAId lraId) throws JoinLRAException {
+        return joinLRA(participant, lraId.toURL());
+    }
+
+    /**
+     * Join an existing LRA with a participant that finishes its work
+     * asynchronously. The default implementation enlists the participant via
+     * {@link LRAManagement#joinLRA(LRAParticipant, URL, Long, TimeUnit)} as an
+     * {@link LRAParticipant} whose futures are also
+     * {@link java.util.concurrent.CompletionStage}s. Implementations should
+     * react to those stages completing rather than wait for them so that slow
+     * participants do not each tie up a thread.
+     *
+     * @param participant an instance of a {@link AsyncLRAParticipant} that will
+     *                   be notified when the target LRA ends
+     * @param lraId the LRA that the join request pertains to
+     * @param timeLimit the time for which the participant should remain valid
+     * @param unit the unit that the timeLimit parameter is expressed in
+     *
+     * @return a recovery URL for this enlistment
+     *
+     * @throws JoinLRAException if the request to the coordinator failed
+     */
+    default String joinLRA(AsyncLRAParticipant participant, URL lraId, Long timeLimit, TimeUnit unit)
+            throws JoinLRAException {
+        return joinLRA(new AsyncLRAParticipantAdapter(participant), lraId, timeLimit, unit);
+    }
+
+    /**
+     * Equivalent to {@link LRAManagement#joinLRA(LRAParticipant, URL)} for a
+     * participant that finishes its work asynchronously (see
+     * {@link LRAManagement#joinLRA(AsyncLRAParticipant, URL, Long, TimeUnit)})
+     *
+     * @param participant an instance of a {@link AsyncLRAParticipant} that will
+     *                   be notified when the target LRA ends
+     * @param lraId the LRA that the join request pertains to
+     *
+     * @return a recovery URL for this enlistment
+     *
+     * @throws JoinLRAException if the request to the coordinator failed
+     */
+    default String joinLRA(AsyncLRAParticipant participant, URL lraId) throws JoinLRAException {
+        return joinLRA(new AsyncLRAParticipantAdapter(participant), lraId);
+    }
+
     /**
      * Register an object for recreating participants during recovery. Use this
      * mechanism after a JVM that hosted a LRA participant has terminated with
@@ -74,18 +153,36 @@ public interface LRAManagement {
      *
      * @param deserializer an object that knows how to recreate participants.
      *                     Note that when the LRA manager is recreating a
-     *                     participant it may run through all registered
-     *                     deserializers. In recovery scenarios the first such
-     *                     deserializer returning a valid {@link LRAParticipant}
-     *                     is used for sending completion or compensation
-     *                     notifications
+     *                     participant whose persistent form is untagged (see
+     *                     {@link LRAParticipant#getRecoveryTypeTag()}) it may
+     *                     run through all registered deserializers. In recovery
+     *                     scenarios the first such deserializer returning a
+     *                     valid {@link LRAParticipant} is used for sending
+     *                     completion or compensation notifications
      */
     void registerDeserializer(LRAParticipantDeserializer deserializer);
 
+    /**
+     * Register an object for recreating the participants whose persistent form
+     * carries the given type tag (see {@link LRAParticipant#getRecoveryTypeTag()}).
+     * An LRA manager that stores the tag with the persistent form of a
+     * participant uses the deserializer registered for it to recreate the
+     * participant, without running through the other registered deserializers.
+     * The deserializer may also be offered participants whose persistent form
+     * is untagged. The default implementation ignores the tag and is equivalent
+     * to {@link LRAManagement#registerDeserializer(LRAParticipantDeserializer)}.
+     *
+     * @param typeTag the type tag of the participants that the deserializer recreates
+     * @param deserializer an object that knows how to recreate participants
+     */
+    default void registerDeserializer(String typeTag, LRAParticipantDeserializer deserializer) {
+        registerDeserializer(deserializer);
+    }
+
     /**
      * Unregister a participant deserializer. The first deserializer registered
      * with the LRA manager for which the equals method returns true is removed
-     * from LRA manager
+     * from LRA manager (together with any type tags it was registered for)
      *
      * @param deserializer the deserializer to unregister
      */
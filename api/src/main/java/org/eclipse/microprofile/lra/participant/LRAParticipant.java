@@ -20,9 +20,12 @@
 
 package org.eclipse.microprofile.lra.participant;
 
+import org.eclipse.microprofile.lra.client.LRAId;
+
 import javax.ws.rs.NotFoundException;
 import java.io.Serializable;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
 
 /**
@@ -63,5 +66,72 @@ public interface LRAParticipant extends Serializable {
      */
     Future<Void> compensateWork(URL lraId)
             throws NotFoundException, TerminationException;
-}
 
+    /**
+     * Equivalent to {@link LRAParticipant#completeWork(URL)}. An LRA manager
+     * that tracks LRAs by {@link LRAId} notifies participants using this method
+     * so participants that also key their state by {@link LRAId} can override
+     * it to avoid converting the identifier to a {@link URL}.
+     *
+     * @param lraId the LRA that is closing
+     * @return see {@link LRAParticipant#completeWork(URL)}
+     * @throws NotFoundException the participant does not know about this LRA
+     * @throws TerminationException the participant was unable to complete and will
+     *         never be able to do so
+     */
+    default Future<Void> completeWork(LRAId lraId)
+            throws NotFoundException, TerminationException {
+        return completeWork(lraId.toURL());
+    }
+
+    /**
+     * Equivalent to {@link LRAParticipant#compensateWork(URL)}
+     *
+     * @param lraId the LRA that is cancelling
+     * @return see {@link LRAParticipant#compensateWork(URL)}
+     * @throws NotFoundException the participant does not know about this LRA
+     * @throws TerminationException the participant was unable to complete and
+     *         will never be able to do so
+     */
+    default Future<Void> compensateWork(LRAId lraId)
+            throws NotFoundException, TerminationException {
+        return compensateWork(lraId.toURL());
+    }
+
+    /**
+     * The type tag that is stored with the persistent form of this participant.
+     * During recovery the deserializer registered for the tag (see
+     * {@link LRAManagement#registerDeserializer(String, LRAParticipantDeserializer)})
+     * is used to recreate the participant without consulting any other
+     * deserializer.
+     *
+     * @return the type tag of the participant or null (the default) if its
+     * persistent form is untagged and may be offered to every registered
+     * deserializer
+     */
+    default String getRecoveryTypeTag() {
+        return null;
+    }
+
+    /**
+     * Write the persistent form of this participant directly into a buffer
+     * supplied by the LRA manager, for example a region of a memory mapped
+     * recovery log, instead of the manager using java serialization. The state
+     * is written starting at the position of the buffer, which the participant
+     * must advance past the bytes it writes. The state is later passed to
+     * {@link LRAParticipantDeserializer#deserialize(URL, ByteBuffer)}, so a
+     * participant that implements this method should be registered with a type
+     * tag (see {@link #getRecoveryTypeTag()}) whose deserializer understands
+     * the format.
+     *
+     * @param buffer the buffer to write the state into
+     * @return true if the state was written or false (the default) if the LRA
+     * manager should use java serialization instead
+     * @throws java.nio.BufferOverflowException if the state does not fit in the
+     * remaining space of the buffer. The LRA manager may call the method again
+     * with a larger buffer.
+     */
+    default boolean writeRecoveryState(ByteBuffer buffer) {
+        return false;
+    }
+}
@@ -21,6 +21,7 @@
 package org.eclipse.microprofile.lra.participant;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
 
 /*
  * An object that knows how to recreate a participant from its' persistent form
@@ -38,4 +39,28 @@ public interface LRAParticipantDeserializer {
      * recovery or null if the recoveryState is not recognized
      */
     LRAParticipant deserialize(URL lraId, byte[] recoveryState);
+
+    /**
+     * Ask the deserializer to recreate a participant from its persistent state
+     * held in a buffer, which may for example be a slice of a memory mapped
+     * recovery log. The buffer is read only and its contents are only valid
+     * for the duration of the call so the deserializer must not retain it.
+     * Deserializers that override this method can recreate participants
+     * without the state being copied onto the heap. The default implementation
+     * copies the remaining bytes of the buffer and calls
+     * {@link LRAParticipantDeserializer#deserialize(URL, byte[])}.
+     *
+     * @param lraId the LRA id that this participant is being created for
+     * @param recoveryState the persistent form of the participant between the
+     *                      position and the limit of the buffer
+     * @return a participant that will be asked to complete or compensate during
+     * recovery or null if the recoveryState is not recognized
+     */
+    default LRAParticipant deserialize(URL lraId, ByteBuffer recoveryState) {
+        byte[] state = new byte[recoveryState.remaining()];
+
+        recoveryState.duplicate().get(state);
+
+        return deserialize(lraId, state);
+    }
 }
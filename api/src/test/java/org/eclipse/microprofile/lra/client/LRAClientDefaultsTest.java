@@ -0,0 +1,314 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.client;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a client which only implements the original operations still
+ * supports the operations that were added later through their default methods
+ * (the failures that are reported with a {@link GenericLRAException} are not
+ * checked since constructing one needs a JAX-RS runtime)
+ */
+public class LRAClientDefaultsTest {
+    private final MinimalClient client = new MinimalClient();
+
+    @Test
+    public void batchesAreSentOneLRAAtATime() {
+        List<URL> lras = client.startLRAs(3, "batch-", 0L, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("batch-0", "batch-1", "batch-2"), clientIdsOf(client.getActiveLRAs()));
+
+        Map<URL, String> outcomes = client.closeLRAs(Arrays.asList(lras.get(0), lras.get(1)));
+
+        assertEquals(Arrays.asList(lras.get(0), lras.get(1)), new ArrayList<>(outcomes.keySet()));
+        assertEquals(CompensatorStatus.Completed.name(), outcomes.get(lras.get(0)));
+        assertEquals(Optional.of(CompensatorStatus.Completed), client.getStatuses(lras).get(lras.get(1)));
+        assertEquals(Optional.empty(), client.getStatuses(lras).get(lras.get(2)));
+        assertTrue(client.getStatusSnapshot(lras.get(0)).isCompleted());
+        assertEquals(Optional.of(CompensatorStatus.Completed), client.awaitOutcome(lras.get(0), 0L, TimeUnit.SECONDS));
+        assertEquals(Optional.empty(), client.awaitOutcome(lras.get(2), 10L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void failedBatchStartCancelsTheLRAsThatWereStarted() {
+        client.capacity = 2;
+
+        try {
+            client.startLRAs(3, "batch-", 0L, TimeUnit.SECONDS);
+            fail("the batch should not have been started");
+        } catch (IllegalStateException expected) {
+            assertEquals("no capacity", expected.getMessage());
+        }
+
+        assertTrue("the LRAs that were started should have been cancelled", client.getActiveLRAs().isEmpty());
+        assertEquals(2, client.getStatuses(client.statuses.keySet()).values().stream()
+                .filter(status -> status.equals(Optional.of(CompensatorStatus.Compensated))).count());
+    }
+
+    @Test
+    public void queriesArePagedAndStreamedFromTheWholeResult() {
+        client.startLRAs(5, "paged-", 0L, TimeUnit.SECONDS);
+
+        List<String> paged = new ArrayList<>();
+        String token = null;
+        LRAInfoPage page;
+
+        do {
+            page = client.getActiveLRAs(2, token);
+            token = page.getContinuationToken();
+            paged.addAll(clientIdsOf(page.getLRAs()));
+        } while (!page.isLastPage());
+
+        assertEquals(clientIdsOf(client.getActiveLRAs()), paged);
+        assertEquals(paged, clientIdsOf(client.streamAllLRAs().collect(Collectors.toList())));
+        assertTrue(client.getRecoveringLRAs(2, null).isLastPage());
+    }
+
+    @Test
+    public void singleCoordinatorAndURLContextsAreSupported() throws MalformedURLException {
+        URI coordinator = URI.create("http://localhost:8080/lra-coordinator");
+        URL lra = new URL(coordinator + "/0_ffff");
+
+        client.setCoordinatorURIs(Collections.singletonList(coordinator));
+
+        assertEquals(coordinator, client.coordinator);
+        assertTrue(client.getCoordinatorHealth().isEmpty());
+
+        client.setCurrentContext(LRAContextToken.of(LRAId.valueOf(lra)));
+
+        assertEquals(lra, client.getCurrent());
+        assertEquals(LRAContextToken.of(LRAId.valueOf(lra)), client.getCurrentContext());
+
+        client.setCurrentContext(null);
+
+        assertNull(client.getCurrentContext());
+    }
+
+    private static List<String> clientIdsOf(List<LRAInfo> lras) {
+        return lras.stream().map(LRAInfo::getClientId).collect(Collectors.toList());
+    }
+
+    /*
+     * implements only the operations that LRAClient had before the batch, paged, query and listener operations
+     */
+    private static final class MinimalClient implements LRAClient {
+        private final Map<URL, Optional<CompensatorStatus>> statuses = new LinkedHashMap<>();
+        private final Map<URL, String> clientIds = new LinkedHashMap<>();
+        private int capacity = Integer.MAX_VALUE;
+        private URI coordinator;
+        private URL current;
+
+        @Override
+        public void setCoordinatorURI(URI uri) {
+            coordinator = uri;
+        }
+
+        @Override
+        public void setRecoveryCoordinatorURI(URI uri) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public URL startLRA(URL parentLRA, String clientID, Long timeout, TimeUnit unit) {
+            if (statuses.size() >= capacity) {
+                throw new IllegalStateException("no capacity");
+            }
+
+            try {
+                URL lra = new URL("http://localhost:8080/lra-coordinator/" + statuses.size());
+
+                statuses.put(lra, Optional.empty());
+                clientIds.put(lra, clientID);
+
+                return lra;
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public URL startLRA(String clientID, Long timeout, TimeUnit unit) {
+            return startLRA(null, clientID, timeout, unit);
+        }
+
+        @Override
+        public String cancelLRA(URL lraId) {
+            return end(lraId, CompensatorStatus.Compensated);
+        }
+
+        @Override
+        public String closeLRA(URL lraId) {
+            return end(lraId, CompensatorStatus.Completed);
+        }
+
+        @Override
+        public List<LRAInfo> getActiveLRAs() {
+            List<LRAInfo> active = new ArrayList<>();
+
+            statuses.forEach((lra, status) -> {
+                if (!status.isPresent()) {
+                    active.add(info(lra));
+                }
+            });
+
+            return active;
+        }
+
+        @Override
+        public List<LRAInfo> getAllLRAs() {
+            return getActiveLRAs();
+        }
+
+        @Override
+        public List<LRAInfo> getRecoveringLRAs() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Optional<CompensatorStatus> getStatus(URL lraId) {
+            Optional<CompensatorStatus> status = statuses.get(lraId);
+
+            return Objects.requireNonNull(status, "unknown LRA");
+        }
+
+        @Override
+        public Boolean isActiveLRA(URL lraId) {
+            return !getStatus(lraId).isPresent();
+        }
+
+        @Override
+        public Boolean isCompensatedLRA(URL lraId) {
+            return getStatus(lraId).filter(CompensatorStatus.Compensated::equals).isPresent();
+        }
+
+        @Override
+        public Boolean isCompletedLRA(URL lraId) {
+            return getStatus(lraId).filter(CompensatorStatus.Completed::equals).isPresent();
+        }
+
+        @Override
+        public String joinLRA(URL lraId, Long timelimit, URL compensateUrl, URL completeUrl, URL forgetUrl,
+                              URL leaveUrl, URL statusUrl, String compensatorData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String joinLRA(URL lraId, Class<?> resourceClass, URI baseUri, String compensatorData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URL updateCompensator(URL recoveryUrl, URL compensateUrl, URL completeUrl, URL forgetUrl,
+                                     URL statusUrl, String compensatorData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void leaveLRA(URL lraId, String body) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void renewTimeLimit(URL lraId, long limit, TimeUnit unit) {
+        }
+
+        @Override
+        public URL getCurrent() {
+            return current;
+        }
+
+        @Override
+        public void setCurrentLRA(URL lraId) {
+            current = lraId;
+        }
+
+        private String end(URL lraId, CompensatorStatus outcome) {
+            getStatus(lraId);
+            statuses.put(lraId, Optional.of(outcome));
+
+            return outcome.name();
+        }
+
+        private LRAInfo info(URL lra) {
+            return new LRAInfo() {
+                @Override
+                public String getLraId() {
+                    return lra.toExternalForm();
+                }
+
+                @Override
+                public String getClientId() {
+                    return clientIds.get(lra);
+                }
+
+                @Override
+                public boolean isComplete() {
+                    return false;
+                }
+
+                @Override
+                public boolean isCompensated() {
+                    return false;
+                }
+
+                @Override
+                public boolean isRecovering() {
+                    return false;
+                }
+
+                @Override
+                public boolean isActive() {
+                    return true;
+                }
+
+                @Override
+                public boolean isTopLevel() {
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.client;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the circuit breaker of a coordinator health tracker using a simulated clock
+ */
+public class LRACoordinatorHealthTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final LRACoordinatorHealth.Policy policy = LRACoordinatorHealth.Policy.defaults()
+            .withFailureThreshold(3).withOpenDuration(1000).withSlowThreshold(50);
+    private final LRACoordinatorHealth health =
+            LRACoordinatorHealth.of(URI.create("http://localhost:8082/lra-coordinator"), policy, clock::get);
+
+    @Test
+    public void circuitOpensAfterConsecutiveFailuresAndClosesAfterAProbe() {
+        assertTrue("new coordinator should be healthy", health.isHealthy() && health.allowRequest());
+
+        for (int i = 1; i < policy.getFailureThreshold(); i++) {
+            health.onFailure(10, TimeUnit.MILLISECONDS);
+            assertEquals("circuit opened too early", LRACoordinatorHealth.State.CLOSED, health.getState());
+        }
+
+        open();
+
+        assertFalse("open circuit should refuse requests", health.allowRequest() || health.isHealthy());
+
+        elapseOpenDuration();
+
+        assertTrue("probe should be allowed after the open duration", health.allowRequest());
+        assertFalse("only one probe should be allowed", health.allowRequest());
+
+        health.onFailure(10, TimeUnit.MILLISECONDS);
+
+        assertEquals("failed probe should reopen the circuit", LRACoordinatorHealth.State.OPEN, health.getState());
+
+        elapseOpenDuration();
+        assertTrue("second probe should be allowed", health.allowRequest());
+        health.onSuccess(10, TimeUnit.MILLISECONDS);
+
+        assertEquals("successful probe should close the circuit", LRACoordinatorHealth.State.CLOSED, health.getState());
+        assertEquals("failures should be reset", 0, health.getConsecutiveFailures());
+    }
+
+    @Test
+    public void unreportedProbeReopensTheCircuit() {
+        open();
+        elapseOpenDuration();
+
+        assertTrue("probe should be allowed after the open duration", health.allowRequest());
+        assertEquals(LRACoordinatorHealth.State.HALF_OPEN, health.getState());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMillis()) - 1);
+        assertFalse("probe is still outstanding", health.allowRequest());
+
+        clock.incrementAndGet();
+
+        assertEquals("lost probe should reopen the circuit", LRACoordinatorHealth.State.OPEN, health.getState());
+        assertFalse("reopened circuit should refuse requests", health.allowRequest());
+
+        elapseOpenDuration();
+
+        assertTrue("a new probe should be allowed", health.allowRequest());
+        assertFalse("only one probe should be allowed", health.allowRequest());
+    }
+
+    @Test
+    public void slowCoordinatorIsUnhealthyButReachable() {
+        open();
+        elapseOpenDuration();
+        assertTrue(health.allowRequest());
+
+        // a run of successes restores the error rate and then slow responses make the coordinator unhealthy
+        for (int i = 0; i < 20; i++) {
+            health.onSuccess(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue("coordinator should have recovered " + health, health.isHealthy());
+
+        for (int i = 0; i < 20; i++) {
+            health.onSuccess(policy.getSlowThresholdMillis() * 4, TimeUnit.MILLISECONDS);
+        }
+
+        assertFalse("slow coordinator should be unhealthy " + health, health.isHealthy());
+        assertEquals("slow coordinator should be reachable", LRACoordinatorHealth.State.CLOSED, health.getState());
+        assertTrue(health.allowRequest());
+    }
+
+    @Test
+    public void closedButUnhealthyCoordinatorIsUsedAgainOnceItsAveragesDecay() {
+        URI other = URI.create("http://localhost:8083/lra-coordinator");
+        LRACoordinatorHealth.Policy defaults = LRACoordinatorHealth.Policy.defaults().withOpenDuration(1000);
+        LRACoordinatorHealth tracker = LRACoordinatorHealth.of(health.getCoordinator(), defaults, clock::get);
+        LRACoordinatorRing ring = LRACoordinatorRing.of(Arrays.asList(tracker.getCoordinator(), other));
+        String key = IntStream.range(0, 1000).mapToObj(i -> "key-" + i)
+                .filter(k -> ring.select(k).equals(tracker.getCoordinator())).findFirst().orElseThrow(AssertionError::new);
+
+        for (int i = 1; i < defaults.getFailureThreshold(); i++) {
+            tracker.onFailure(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(LRACoordinatorHealth.State.CLOSED, tracker.getState());
+        assertFalse("error rate should make the coordinator unhealthy " + tracker, tracker.isHealthy());
+        assertEquals(other, ring.select(key, uri -> !uri.equals(tracker.getCoordinator()) || tracker.isHealthy()).orElse(null));
+
+        // no requests reach the coordinator while it is avoided
+        elapseOpenDuration();
+
+        assertTrue("averages should decay while no requests are reported " + tracker, tracker.isHealthy());
+        assertEquals(tracker.getCoordinator(),
+                ring.select(key, uri -> !uri.equals(tracker.getCoordinator()) || tracker.isHealthy()).orElse(null));
+
+        tracker.onSuccess(10, TimeUnit.MILLISECONDS);
+
+        assertTrue(tracker.isHealthy());
+    }
+
+    private void open() {
+        for (int i = 0; i < policy.getFailureThreshold(); i++) {
+            health.onFailure(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals("circuit should be open", LRACoordinatorHealth.State.OPEN, health.getState());
+    }
+
+    private void elapseOpenDuration() {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMillis()));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.client;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how a ring chooses coordinators for new LRAs when some are unavailable
+ */
+public class LRACoordinatorRingTest {
+    private static final int COORDINATORS = 4;
+    private static final int KEYS = 1000;
+
+    private final List<URI> coordinators = IntStream.range(0, COORDINATORS)
+            .mapToObj(i -> URI.create(String.format("http://localhost:%d/lra-coordinator", 18080 + i)))
+            .collect(Collectors.toList());
+    private final LRACoordinatorRing ring = LRACoordinatorRing.of(coordinators);
+
+    @Test
+    public void keysFailOverFromAnExcludedCoordinatorToSeveralOthers() {
+        URI failed = coordinators.get(0);
+        Set<URI> fallbacks = new HashSet<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "LRACoordinatorRingTest-" + i;
+            URI primary = ring.select(key);
+            URI chosen = ring.select(key, uri -> !uri.equals(failed)).orElse(null);
+
+            if (primary.equals(failed)) {
+                assertNotEquals("chose the failed coordinator", failed, chosen);
+                fallbacks.add(chosen);
+            } else {
+                assertEquals("moved a key from a healthy coordinator", primary, chosen);
+            }
+        }
+
+        assertTrue("the failed coordinator's keys should be spread out", fallbacks.size() > 1);
+        assertFalse("chose a coordinator when none were available", ring.select("key", uri -> false).isPresent());
+    }
+
+    @Test
+    public void lrasWithTheSameClientIdAreSpreadOverTheCoordinators() {
+        Map<URI, Integer> placements = new HashMap<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            placements.merge(ring.select(LRACoordinatorRing.placementKey("orders")), 1, Integer::sum);
+        }
+
+        for (URI coordinator : coordinators) {
+            // a fair share is KEYS / COORDINATORS so allow for a generous imbalance
+            assertTrue("too few LRAs placed on " + coordinator + ": " + placements,
+                    placements.getOrDefault(coordinator, 0) > KEYS / (COORDINATORS * 4));
+        }
+    }
+
+    @Test
+    public void nullKeysAreSpreadOverTheCoordinators() {
+        Set<URI> selected = new HashSet<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            selected.add(ring.select(null));
+            assertTrue(ring.select(null, uri -> true).isPresent());
+        }
+
+        assertEquals(new HashSet<>(coordinators), selected);
+    }
+}
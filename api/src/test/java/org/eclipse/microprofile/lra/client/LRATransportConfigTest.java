@@ -0,0 +1,72 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.client;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_POOL_SIZE_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_READ_TIMEOUT_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_VERSION_KEY;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how transport settings are read from config properties
+ */
+public class LRATransportConfigTest {
+    private final Map<String, String> properties = new HashMap<>();
+
+    @Test
+    public void propertiesOverrideTheDefaults() {
+        properties.put(LRA_HTTP_POOL_SIZE_KEY, "8");
+        properties.put(LRA_HTTP_VERSION_KEY, "HTTP/2");
+        properties.put(LRA_HTTP_READ_TIMEOUT_KEY, " 1000 ");
+
+        LRATransportConfig config = LRATransportConfig.from(properties::get);
+
+        assertEquals("properties were not applied", LRATransportConfig.defaults().withPoolSize(8)
+                .withHttpVersion(LRATransportConfig.HttpVersion.HTTP_2).withReadTimeout(1000), config);
+        assertEquals("unset property should keep its default",
+                LRATransportConfig.defaults().getKeepAliveMillis(), config.getKeepAliveMillis());
+    }
+
+    @Test
+    public void noPropertiesMeansTheDefaults() {
+        assertEquals(LRATransportConfig.defaults(), LRATransportConfig.from(properties::get));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNumberIsRejected() {
+        properties.put(LRA_HTTP_POOL_SIZE_KEY, "eight");
+
+        LRATransportConfig.from(properties::get);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPoolSizeIsRejected() {
+        properties.put(LRA_HTTP_POOL_SIZE_KEY, "0");
+
+        LRATransportConfig.from(properties::get);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing the active LRAs of a coordinator that knows about a large number of
+ * them, both in full and one page at a time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ActiveLRAsBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int population;
+
+    private List<URL> lras;
+
+    @Setup(Level.Trial)
+    public void populate(LRAClientState state) {
+        lras = state.getClient().startLRAs(population, state.getClientId(), 0L, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void cancel(LRAClientState state) {
+        state.getClient().cancelLRAs(lras);
+    }
+
+    @Benchmark
+    public List<LRAInfo> getActiveLRAs(LRAClientState state) {
+        return state.getClient().getActiveLRAs();
+    }
+
+    @Benchmark
+    public LRAInfoPage getActiveLRAsFirstPage(LRAClientState state) {
+        return state.getClient().getActiveLRAs(PAGE_SIZE, null);
+    }
+}
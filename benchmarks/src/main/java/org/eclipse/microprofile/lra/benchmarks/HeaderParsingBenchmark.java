@@ -0,0 +1,95 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import org.eclipse.microprofile.lra.client.LRAContextToken;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the value of the {@link org.eclipse.microprofile.lra.client.LRAClient#LRA_HTTP_HEADER}
+ * header, which is done for every request that carries an LRA context. Parsing
+ * the header as a {@link URL} is included as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeaderParsingBenchmark {
+    private static final URI COORDINATOR = URI.create("http://localhost:8082/lra-coordinator");
+
+    private String urlHeader;
+    private String encodedHeader;
+    private String compactHeader;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        LRAId lraId = LRAId.valueOf(COORDINATOR + "/0_ffff9b1c4e2a_3f1d");
+
+        urlHeader = lraId.toString();
+        encodedHeader = URLEncoder.encode(urlHeader, "UTF-8");
+        compactHeader = LRAContextToken.compact(COORDINATOR, lraId).toHeaderValue();
+    }
+
+    @Benchmark
+    public URL parseURL() throws MalformedURLException {
+        return new URL(urlHeader);
+    }
+
+    @Benchmark
+    public LRAId parseLRAId() {
+        return LRAId.fromHeader(urlHeader);
+    }
+
+    @Benchmark
+    public LRAId parseEncodedLRAId() {
+        return LRAId.fromHeader(encodedHeader);
+    }
+
+    @Benchmark
+    public LRAId parseContextToken() {
+        return LRAContextToken.parse(urlHeader).expand(COORDINATOR);
+    }
+
+    @Benchmark
+    public LRAId parseCompactContextToken() {
+        return LRAContextToken.parse(compactHeader).expand(COORDINATOR);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start an LRA, enlist a number of participants and end it. The time taken to
+ * notify the participants is included since a coordinator may defer work
+ * from the join to the end of the LRA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JoinBenchmark {
+    @Param({"1", "10", "100"})
+    public int participants;
+
+    @Benchmark
+    public String joinAndClose(LRAClientState state) throws JoinLRAException, MalformedURLException {
+        LRAClient client = state.getClient();
+
+        return client.closeLRA(startAndJoin(state));
+    }
+
+    @Benchmark
+    public String joinAndCancel(LRAClientState state) throws JoinLRAException, MalformedURLException {
+        LRAClient client = state.getClient();
+
+        return client.cancelLRA(startAndJoin(state));
+    }
+
+    private URL startAndJoin(LRAClientState state) throws JoinLRAException, MalformedURLException {
+        URL lraId = state.getClient().startLRA(null, state.getClientId(), 0L, TimeUnit.SECONDS);
+
+        for (int i = 0; i < participants; i++) {
+            state.join(lraId);
+        }
+
+        return lraId;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.embedded.EmbeddedLRAClient;
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.eclipse.microprofile.lra.participant.LRAManagement;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_HOST_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PATH_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PORT_KEY;
+
+/**
+ * The LRA client that the benchmarks measure. By default this is an
+ * {@link EmbeddedLRAClient}, which gives a baseline that has no network costs.
+ * To measure another implementation set the {@link #CLIENT_KEY} system
+ * property to the name of an {@link LRAClient} class that has a public no
+ * argument constructor. That client is pointed at the coordinator given by the
+ * same properties that configure the TCK (<code>lra.http.host</code>,
+ * <code>lra.http.port</code> and <code>lra.coordinator.path</code>).
+ *
+ * Participants that join over HTTP are served by a local endpoint that
+ * completes and compensates immediately so that the results measure the
+ * client and the coordinator rather than the participants.
+ *
+ * Every client enlists the same kind of participant, chosen by the
+ * {@link #participant} parameter, so that results are only compared between
+ * clients doing the same work. JMH reports the parameter with each result.
+ */
+@State(Scope.Benchmark)
+public class LRAClientState {
+    /**
+     * Key for looking up the system property that names the {@link LRAClient}
+     * class to measure
+     */
+    public static final String CLIENT_KEY = "lra.benchmark.client";
+
+    private static final String CLIENT_ID = "lra-benchmark";
+    private static final String LOCAL = "local";
+    private static final String HTTP = "http";
+    private static final LRAParticipant PARTICIPANT = new NoopParticipant();
+
+    /**
+     * The kind of participant that joins LRAs: <code>local</code> participants
+     * are notified in the JVM (the client must implement {@link LRAManagement})
+     * and <code>http</code> participants are notified over HTTP (the client must
+     * be able to reach a coordinator). Choose the kind with <code>-p participant=http</code>.
+     */
+    @Param({LOCAL})
+    public String participant;
+
+    private final AtomicLong enlistments = new AtomicLong();
+    private LRAClient client;
+    private HttpServer participants;
+    private String participantBase;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ReflectiveOperationException {
+        String clientClass = System.getProperty(CLIENT_KEY);
+
+        if (clientClass == null) {
+            client = new EmbeddedLRAClient(URI.create("http://localhost/lra-benchmark"));
+        } else {
+            client = (LRAClient) Class.forName(clientClass).getConstructor().newInstance();
+            client.setCoordinatorURI(URI.create(String.format("http://%s:%d/%s",
+                    System.getProperty(LRA_COORDINATOR_HOST_KEY, "localhost"),
+                    Integer.getInteger(LRA_COORDINATOR_PORT_KEY, 8082),
+                    System.getProperty(LRA_COORDINATOR_PATH_KEY, "lra-coordinator"))));
+        }
+
+        if (LOCAL.equals(participant) && !(client instanceof LRAManagement)) {
+            throw new IllegalStateException(client.getClass().getName()
+                    + " cannot enlist local participants (run with -p participant=" + HTTP + ")");
+        } else if (HTTP.equals(participant) && clientClass == null) {
+            throw new IllegalStateException("the embedded client has no coordinator to enlist http participants with"
+                    + " (set " + CLIENT_KEY + " or run with -p participant=" + LOCAL + ")");
+        } else if (!LOCAL.equals(participant) && !HTTP.equals(participant)) {
+            throw new IllegalArgumentException("unknown participant kind: " + participant);
+        }
+
+        participants = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        participants.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] reply = (path.endsWith("/compensate") ? "Compensated" : "Completed").getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, reply.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply);
+            }
+        });
+        participants.start();
+        participantBase = String.format("http://localhost:%d/participant/", participants.getAddress().getPort());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        participants.stop(0);
+    }
+
+    /**
+     * @return the client being measured
+     */
+    public LRAClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return the client id that the benchmarks start LRAs with
+     */
+    public String getClientId() {
+        return CLIENT_ID;
+    }
+
+    /**
+     * Enlist a participant that finishes immediately: an {@link LRAParticipant}
+     * if {@link #participant} is <code>local</code>, otherwise a distinct set
+     * of participant URLs for each call.
+     *
+     * @param lraId the LRA to join
+     * @return the recovery URL of the enlistment
+     * @throws JoinLRAException if the participant could not join
+     * @throws MalformedURLException never (the participant URLs are well formed)
+     */
+    public String join(URL lraId) throws JoinLRAException, MalformedURLException {
+        if (LOCAL.equals(participant)) {
+            return ((LRAManagement) client).joinLRA(PARTICIPANT, lraId);
+        }
+
+        String participant = participantBase + enlistments.incrementAndGet();
+
+        return client.joinLRA(lraId, 0L,
+                new URL(participant + "/compensate"), new URL(participant + "/complete"), null, null,
+                new URL(participant + "/status"), null);
+    }
+
+    private static final class NoopParticipant implements LRAParticipant {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Future<Void> completeWork(URL lraId) {
+            return null;
+        }
+
+        @Override
+        public Future<Void> compensateWork(URL lraId) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips that start an LRA and then end it without any participants, ie
+ * the fixed cost that every LRA pays
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LifecycleBenchmark {
+
+    @Benchmark
+    public String startAndClose(LRAClientState state) {
+        LRAClient client = state.getClient();
+
+        return client.closeLRA(client.startLRA(null, state.getClientId(), 0L, TimeUnit.SECONDS));
+    }
+
+    @Benchmark
+    public String startAndCancel(LRAClientState state) {
+        LRAClient client = state.getClient();
+
+        return client.cancelLRA(client.startLRA(null, state.getClientId(), 0L, TimeUnit.SECONDS));
+    }
+}
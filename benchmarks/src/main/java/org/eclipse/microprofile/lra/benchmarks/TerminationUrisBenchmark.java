@@ -0,0 +1,85 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.benchmarks;
+
+import org.eclipse.microprofile.lra.annotation.Compensate;
+import org.eclipse.microprofile.lra.annotation.Complete;
+import org.eclipse.microprofile.lra.tck.participant.api.ActivityController;
+import org.eclipse.microprofile.lra.tck.participant.api.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the participant URLs and <code>Link</code> header of a participant
+ * resource class from its annotations, which is done each time a resource
+ * class joins an LRA (see {@link Util#getTerminationUris(Class, URI)})
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TerminationUrisBenchmark {
+    private static final URI BASE_URI = URI.create("http://localhost:8080/");
+
+    @Benchmark
+    public Map<String, String> minimalParticipant() {
+        return Util.getTerminationUris(MinimalParticipant.class, BASE_URI);
+    }
+
+    @Benchmark
+    public Map<String, String> activityController() {
+        return Util.getTerminationUris(ActivityController.class, BASE_URI);
+    }
+
+    /**
+     * A participant with only the required methods
+     */
+    @Path("minimal")
+    public static class MinimalParticipant {
+        @PUT
+        @Path("complete")
+        @Complete
+        public Response complete() {
+            return null;
+        }
+
+        @PUT
+        @Path("compensate")
+        @Compensate
+        public Response compensate() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.coordinator;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.TerminationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A participant that joined an LRA over HTTP. The coordinator notifies the
+ * participant by sending a PUT request to its complete or compensate URL.
+ * A participant that answers with 202 (Accepted) has not finished yet and
+ * its status URL is polled until it reports a final status or the completion
+ * timeout elapses (a completion timeout of 0 means that polling never gives
+ * up). The read timeout only bounds the wait for each response.
+ * The requests are sent by an executor and the future returned by
+ * {@link #completeWork} and {@link #compensateWork} is a
+ * {@link java.util.concurrent.CompletionStage} so the thread ending the LRA
+ * does not wait for the participant.
+ *
+ * The coordinator does not log participants so a participant that cannot be
+ * reached is not retried: the LRA ends with a failed status instead.
+ */
+final class HttpParticipant implements LRAParticipant {
+    private static final long serialVersionUID = 1L;
+    private static final long STATUS_POLL_MILLIS = 100L;
+
+    private final URL compensateUrl;
+    private final URL completeUrl;
+    private final URL statusUrl;
+    private final String compensatorData;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long completionTimeoutMillis;
+    private final transient ScheduledExecutorService executor;
+
+    private HttpParticipant(URL compensateUrl, URL completeUrl, URL statusUrl, String compensatorData,
+                            long connectTimeoutMillis, long readTimeoutMillis, long completionTimeoutMillis,
+                            ScheduledExecutorService executor) {
+        this.compensateUrl = compensateUrl;
+        this.completeUrl = completeUrl;
+        this.statusUrl = statusUrl;
+        this.compensatorData = compensatorData;
+        this.connectTimeout = (int) Math.min(Integer.MAX_VALUE, connectTimeoutMillis);
+        this.readTimeout = (int) Math.min(Integer.MAX_VALUE, readTimeoutMillis);
+        this.completionTimeoutMillis = completionTimeoutMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * @param links the participant URLs keyed by link relation (compensate,
+     *              complete and status). The compensate URL is required.
+     * @param compensatorData the data to pass back to the participant or null
+     * @param connectTimeoutMillis the time allowed for connecting to the participant
+     * @param readTimeoutMillis the time allowed for the participant to answer a request or 0 for no limit
+     * @param completionTimeoutMillis the time allowed for a participant that answers with 202
+     *                                to finish or 0 for no limit
+     * @param executor sends the requests to the participant
+     * @return the participant
+     * @throws IllegalArgumentException if there is no compensate URL
+     */
+    static HttpParticipant of(Map<String, URL> links, String compensatorData,
+                              long connectTimeoutMillis, long readTimeoutMillis, long completionTimeoutMillis,
+                              ScheduledExecutorService executor) {
+        URL compensateUrl = links.get("compensate");
+
+        if (compensateUrl == null) {
+            throw new IllegalArgumentException("the participant has no compensate URL");
+        }
+
+        return new HttpParticipant(compensateUrl, links.get("complete"), links.get("status"), compensatorData,
+                connectTimeoutMillis, readTimeoutMillis, completionTimeoutMillis, executor);
+    }
+
+    /**
+     * @param compensateUrl the compensate URL of a participant
+     * @return a participant that is equal to the enlisted participant with the
+     * same compensate URL (for use when the participant leaves)
+     */
+    static HttpParticipant withCompensateUrl(URL compensateUrl) {
+        return new HttpParticipant(compensateUrl, null, null, null, 0L, 0L, 0L, null);
+    }
+
+    @Override
+    public Future<Void> completeWork(URL lraId) {
+        return notify(completeUrl, lraId, CompensatorStatus.Completed);
+    }
+
+    @Override
+    public Future<Void> compensateWork(URL lraId) {
+        return notify(compensateUrl, lraId, CompensatorStatus.Compensated);
+    }
+
+    private Future<Void> notify(URL endpoint, URL lraId, CompensatorStatus success) {
+        if (endpoint == null) {
+            return null; // the participant has nothing to do for this outcome
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        executor.execute(() -> send(endpoint, lraId, success, done));
+
+        return done;
+    }
+
+    private void send(URL endpoint, URL lraId, CompensatorStatus success, CompletableFuture<Void> done) {
+        try {
+            HttpURLConnection connection = open(endpoint, "PUT", lraId);
+            byte[] body = compensatorData == null ? new byte[0] : compensatorData.getBytes(StandardCharsets.UTF_8);
+
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int code = connection.getResponseCode();
+            String reply = read(connection);
+
+            if (code == HttpURLConnection.HTTP_ACCEPTED && statusUrl != null) {
+                poll(lraId, success, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(completionTimeoutMillis), done);
+            } else if (code == HttpURLConnection.HTTP_ACCEPTED) {
+                done.complete(null); // the participant cannot be monitored so assume that it will finish
+            } else if (code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_NO_CONTENT) {
+                finish(parseStatus(reply), done);
+            } else if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+                done.complete(null); // the participant has already finished with the LRA
+            } else {
+                done.completeExceptionally(new TerminationException());
+            }
+        } catch (IOException | RuntimeException e) {
+            done.completeExceptionally(new TerminationException());
+        }
+    }
+
+    // asks for the status of the participant and, if it has not finished, schedules the next request
+    private void poll(URL lraId, CompensatorStatus success, long deadline, CompletableFuture<Void> done) {
+        try {
+            HttpURLConnection connection = open(statusUrl, "GET", lraId);
+            int code = connection.getResponseCode();
+            String reply = read(connection);
+            CompensatorStatus status = code == HttpURLConnection.HTTP_OK ? parseStatus(reply) : null;
+
+            if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE || status == success) {
+                done.complete(null);
+            } else if (isFailure(status) || (code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_NO_CONTENT)) {
+                done.completeExceptionally(new TerminationException());
+            } else if (completionTimeoutMillis > 0 && System.nanoTime() - deadline >= 0) {
+                done.completeExceptionally(new TerminationException());
+            } else {
+                executor.schedule(() -> poll(lraId, success, deadline, done), STATUS_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException | RuntimeException e) {
+            done.completeExceptionally(new TerminationException());
+        }
+    }
+
+    private static void finish(CompensatorStatus status, CompletableFuture<Void> done) {
+        if (isFailure(status)) {
+            done.completeExceptionally(new TerminationException());
+        } else {
+            done.complete(null);
+        }
+    }
+
+    private static boolean isFailure(CompensatorStatus status) {
+        return status == CompensatorStatus.FailedToComplete || status == CompensatorStatus.FailedToCompensate;
+    }
+
+    private static CompensatorStatus parseStatus(String reply) {
+        for (CompensatorStatus status : CompensatorStatus.values()) {
+            if (status.name().equals(reply)) {
+                return status;
+            }
+        }
+
+        return null;
+    }
+
+    private HttpURLConnection open(URL endpoint, String method, URL lraId) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setRequestProperty(LRAClient.LRA_HTTP_HEADER, lraId.toExternalForm());
+
+        return connection;
+    }
+
+    // reading the whole response lets the connection be reused for the next request
+    private static String read(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+
+        if (in == null) {
+            return "";
+        }
+
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int n;
+
+        try (InputStream stream = in) {
+            while ((n = stream.read(buffer)) != -1) {
+                reply.write(buffer, 0, n);
+            }
+        }
+
+        return new String(reply.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return compensateUrl.toExternalForm().equals(((HttpParticipant) o).compensateUrl.toExternalForm());
+    }
+
+    @Override
+    public int hashCode() {
+        return compensateUrl.toExternalForm().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpParticipant{" + compensateUrl + '}';
+    }
+}
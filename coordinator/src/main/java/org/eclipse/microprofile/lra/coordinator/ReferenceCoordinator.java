@@ -0,0 +1,641 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.coordinator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.client.LRATransportConfig;
+import org.eclipse.microprofile.lra.embedded.EmbeddedCoordinator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_HOST_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PATH_KEY;
+import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PORT_KEY;
+
+/**
+ * A standalone LRA coordinator that keeps its LRAs in memory and serves the
+ * REST contract used by {@link LRAClient} implementations. It needs nothing
+ * beyond the HTTP server built into the JDK so it can be started wherever the
+ * TCK runs, and since it does no logging it also gives a baseline against
+ * which the overhead of a production coordinator can be measured.
+ *
+ * The LRAs are held by an {@link EmbeddedCoordinator} whose LRA table is a
+ * concurrent map: requests for different LRAs do not contend with each other.
+ * Participants are notified over HTTP (see {@link LRAClient#joinLRA(URL, Long,
+ * URL, URL, URL, URL, URL, String)}) by a separate pool of threads so a
+ * request to end an LRA does not tie up a request thread while the
+ * participants finish. The state of an LRA is lost if the coordinator stops
+ * before it ends.
+ *
+ * The resources, relative to the coordinator path (<code>lra-coordinator</code>
+ * by default), are:
+ * <ul>
+ * <li><code>POST start</code> starts an LRA. The optional query parameters are
+ *   <code>ClientID</code>, <code>TimeLimit</code> (milliseconds) and
+ *   <code>ParentLRA</code>. Answers 201 with the LRA id in the body and in the
+ *   <code>Location</code> and {@link LRAClient#LRA_HTTP_HEADER} headers.</li>
+ * <li><code>GET</code> lists LRAs as a JSON array, optionally filtered by the
+ *   <code>Status</code> ({@link LRAQuery.State}) and <code>ClientID</code> (prefix)
+ *   query parameters. If <code>PageSize</code> is given one page is returned and the
+ *   <code>Continuation-Token</code> header, if present, requests the next page via
+ *   the <code>ContinuationToken</code> query parameter.</li>
+ * <li><code>GET {id}</code> returns the LRA as a JSON object.</li>
+ * <li><code>GET {id}/status</code> answers 204 while the LRA is active and
+ *   otherwise 200 with the {@link CompensatorStatus} in the body.</li>
+ * <li><code>PUT {id}/close</code> and <code>PUT {id}/cancel</code> end the LRA
+ *   and answer 200 with its final status.</li>
+ * <li><code>PUT {id}/renew?TimeLimit=</code> replaces the time limit of the LRA.</li>
+ * <li><code>PUT {id}</code> joins the LRA. The participant URLs are given by the
+ *   <code>compensate</code>, <code>complete</code> and <code>status</code>
+ *   relations of the <code>Link</code> header, in which case the body is the
+ *   compensator data, or else the body is a base URL that the relation names are
+ *   appended to. Answers 200 with the recovery URL in the body and in the
+ *   {@link LRAClient#LRA_HTTP_RECOVERY_HEADER} header.</li>
+ * <li><code>PUT {id}/remove</code> removes the participant whose compensate (or
+ *   base) URL is the body.</li>
+ * </ul>
+ * Requests for unknown LRAs answer 404 and requests that are not valid in the
+ * current state of the LRA answer 412.
+ */
+public class ReferenceCoordinator implements AutoCloseable {
+    /**
+     * Key for looking up the config property that specifies how many threads
+     * serve requests
+     */
+    public static final String THREADS_KEY = "lra.coordinator.threads";
+
+    /**
+     * Key for looking up the config property that specifies the time, in
+     * milliseconds, that a participant which answered 202 (Accepted) is given
+     * to finish before the LRA ends with a failed status (0, the default, for
+     * no limit). Its status URL is polled until then.
+     */
+    public static final String COMPLETION_TIMEOUT_KEY = "lra.coordinator.completion.timeout";
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceCoordinator.class.getName());
+
+    private static final String CLIENT_ID_PARAM = "ClientID";
+    private static final String TIME_LIMIT_PARAM = "TimeLimit";
+    private static final String PARENT_LRA_PARAM = "ParentLRA";
+    private static final String STATUS_PARAM = "Status";
+    private static final String PAGE_SIZE_PARAM = "PageSize";
+    private static final String CONTINUATION_TOKEN_PARAM = "ContinuationToken";
+    private static final String CONTINUATION_TOKEN_HEADER = "Continuation-Token";
+    private static final int BACKLOG = 1024;
+    private static final Pattern LINK = Pattern.compile("<([^>]*)>\\s*;[^<]*?\\brel\\s*=\\s*\"?([a-zA-Z]+)");
+
+    private final String path;
+    private final URI baseUri;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService notifier;
+    private final EmbeddedCoordinator coordinator;
+    private final LRATransportConfig transport;
+    private final long completionTimeoutMillis;
+
+    /**
+     * Create a coordinator that is bound to the given address but does not yet
+     * serve requests (see {@link #start()}) and that contacts participants
+     * using the default transport configuration and gives them as long as they
+     * need to finish
+     *
+     * @param host the host name to listen on, which is also used in LRA ids
+     * @param port the port to listen on or 0 to pick a free port
+     * @param path the path of the coordinator resources
+     * @param threads the number of threads that serve requests (and the number
+     *                that notify participants)
+     * @throws IOException if the address cannot be bound
+     */
+    public ReferenceCoordinator(String host, int port, String path, int threads) throws IOException {
+        this(host, port, path, threads, LRATransportConfig.defaults(), 0L);
+    }
+
+    /**
+     * Create a coordinator that is bound to the given address but does not yet
+     * serve requests (see {@link #start()})
+     *
+     * @param host the host name to listen on, which is also used in LRA ids
+     * @param port the port to listen on or 0 to pick a free port
+     * @param path the path of the coordinator resources
+     * @param threads the number of threads that serve requests (and the number
+     *                that notify participants)
+     * @param transport the timeouts used when contacting participants
+     * @param completionTimeoutMillis the time that a participant which answered 202 (Accepted)
+     *                                is given to finish or 0 for no limit
+     * @throws IOException if the address cannot be bound
+     */
+    public ReferenceCoordinator(String host, int port, String path, int threads, LRATransportConfig transport,
+                                long completionTimeoutMillis) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger notifiers = new AtomicInteger();
+
+        this.path = '/' + path.replaceAll("^/+|/+$", "");
+        this.server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+        this.baseUri = URI.create(String.format("http://%s:%d%s", host, server.getAddress().getPort(), this.path));
+        this.coordinator = new Table(baseUri);
+        this.transport = transport;
+        this.completionTimeoutMillis = completionTimeoutMillis;
+        this.executor = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, "lra-coordinator-" + count.incrementAndGet()));
+        this.notifier = Executors.newScheduledThreadPool(threads,
+                r -> new Thread(r, "lra-participant-" + notifiers.incrementAndGet()));
+
+        server.createContext(this.path, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Create a coordinator configured by the {@link LRAClient#LRA_COORDINATOR_HOST_KEY},
+     * {@link LRAClient#LRA_COORDINATOR_PORT_KEY}, {@link LRAClient#LRA_COORDINATOR_PATH_KEY},
+     * {@link #THREADS_KEY} and {@link #COMPLETION_TIMEOUT_KEY} properties and the transport properties read by
+     * {@link LRATransportConfig#from}. The defaults match the coordinator
+     * that the TCK expects (<code>http://localhost:8082/lra-coordinator</code>).
+     *
+     * @param properties looks up the value of a config property by key, returning
+     *                   null if the property is not set
+     * @return the coordinator
+     * @throws IOException if the address cannot be bound
+     */
+    public static ReferenceCoordinator fromConfig(Function<String, String> properties) throws IOException {
+        String port = properties.apply(LRA_COORDINATOR_PORT_KEY);
+        String threads = properties.apply(THREADS_KEY);
+        String completionTimeout = properties.apply(COMPLETION_TIMEOUT_KEY);
+
+        return new ReferenceCoordinator(
+                Optional.ofNullable(properties.apply(LRA_COORDINATOR_HOST_KEY)).orElse("localhost"),
+                port == null ? 8082 : Integer.parseInt(port.trim()),
+                Optional.ofNullable(properties.apply(LRA_COORDINATOR_PATH_KEY)).orElse("lra-coordinator"),
+                threads == null ? Math.max(16, 4 * Runtime.getRuntime().availableProcessors()) : Integer.parseInt(threads.trim()),
+                LRATransportConfig.from(properties),
+                completionTimeout == null ? 0L : Long.parseLong(completionTimeout.trim()));
+    }
+
+    /**
+     * Run a coordinator configured from system properties until the JVM exits
+     *
+     * @param args ignored
+     * @throws IOException if the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        ReferenceCoordinator coordinator = fromConfig(System::getProperty);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(coordinator::close));
+        coordinator.start();
+
+        LOGGER.info("LRA coordinator listening on " + coordinator.getBaseUri());
+    }
+
+    /**
+     * @return the URI of the coordinator (the LRA ids are relative to it)
+     */
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Start serving requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop serving requests. The state of any LRAs that have not ended is lost.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        notifier.shutdownNow();
+        coordinator.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean replied = true;
+
+        try {
+            replied = route(exchange);
+        } catch (RequestFailure e) {
+            reply(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            reply(exchange, HttpURLConnection.HTTP_BAD_REQUEST, e.getMessage());
+        } catch (RuntimeException e) {
+            reply(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, String.valueOf(e.getMessage()));
+        } finally {
+            if (replied) {
+                exchange.close();
+            }
+        }
+    }
+
+    // returns false if the reply is sent once an LRA has ended
+    private boolean route(HttpExchange exchange) throws IOException {
+        String rest = exchange.getRequestURI().getRawPath().substring(path.length());
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (rest.isEmpty() || "/".equals(rest)) {
+            expect(exchange, "GET");
+            list(exchange, params);
+
+            return true;
+        } else if (rest.charAt(0) != '/') {
+            throw new RequestFailure(HttpURLConnection.HTTP_NOT_FOUND, "no such resource"); // eg lra-coordinator-2
+        }
+
+        String[] segments = rest.substring(1).split("/");
+
+        if (segments.length == 1 && "start".equals(segments[0])) {
+            expect(exchange, "POST");
+            start(exchange, params);
+
+            return true;
+        }
+
+        URL lraId = toURL(baseUri + "/" + segments[0]);
+
+        if (segments.length == 1) {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                replyJson(exchange, appendJson(new StringBuilder(), coordinator.getInfo(lraId)).toString());
+            } else {
+                expect(exchange, "PUT");
+                join(exchange, lraId, params);
+            }
+
+            return true;
+        } else if (segments.length > 2) {
+            throw new RequestFailure(HttpURLConnection.HTTP_NOT_FOUND, "no such resource");
+        }
+
+        switch (segments[1]) {
+            case "status":
+                expect(exchange, "GET");
+                Optional<CompensatorStatus> status = coordinator.getStatus(lraId);
+
+                reply(exchange, status.isPresent() ? HttpURLConnection.HTTP_OK : HttpURLConnection.HTTP_NO_CONTENT,
+                        status.map(Enum::name).orElse(""));
+                break;
+            case "close":
+                expect(exchange, "PUT");
+                replyWhenEnded(exchange, coordinator.closeAsync(lraId));
+                return false;
+            case "cancel":
+                expect(exchange, "PUT");
+                replyWhenEnded(exchange, coordinator.cancelAsync(lraId));
+                return false;
+            case "renew":
+                expect(exchange, "PUT");
+                coordinator.renewTimeLimit(lraId, parseLong(params, TIME_LIMIT_PARAM), TimeUnit.MILLISECONDS);
+                reply(exchange, HttpURLConnection.HTTP_OK, lraId.toExternalForm());
+                break;
+            case "remove":
+                expect(exchange, "PUT");
+                leave(exchange, lraId);
+                break;
+            default:
+                throw new RequestFailure(HttpURLConnection.HTTP_NOT_FOUND, "no such resource");
+        }
+
+        return true;
+    }
+
+    private static void replyWhenEnded(HttpExchange exchange, CompletionStage<CompensatorStatus> outcome) {
+        outcome.whenComplete((status, failure) -> {
+            try {
+                if (failure == null) {
+                    reply(exchange, HttpURLConnection.HTTP_OK, status.name());
+                } else {
+                    reply(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, String.valueOf(failure.getMessage()));
+                }
+            } catch (IOException ignore) {
+                // the client has gone away
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private void start(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String parent = params.get(PARENT_LRA_PARAM);
+        URL lraId = coordinator.start(parent == null || parent.isEmpty() ? null : toURL(parent),
+                params.getOrDefault(CLIENT_ID_PARAM, ""), parseLong(params, TIME_LIMIT_PARAM), TimeUnit.MILLISECONDS);
+        String id = lraId.toExternalForm();
+
+        exchange.getResponseHeaders().add("Location", id);
+        exchange.getResponseHeaders().add(LRAClient.LRA_HTTP_HEADER, id);
+        reply(exchange, HttpURLConnection.HTTP_CREATED, id);
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> params) throws IOException {
+        LRAQuery query = LRAQuery.all();
+        List<LRAInfo> lras;
+
+        if (params.containsKey(STATUS_PARAM)) {
+            query = query.withStates(LRAQuery.State.valueOf(params.get(STATUS_PARAM).toUpperCase(Locale.ROOT)));
+        }
+        if (params.containsKey(CLIENT_ID_PARAM)) {
+            query = query.withClientIdPrefix(params.get(CLIENT_ID_PARAM));
+        }
+
+        if (params.containsKey(PAGE_SIZE_PARAM)) {
+            LRAInfoPage page = coordinator.find(query, (int) parseLong(params, PAGE_SIZE_PARAM),
+                    params.get(CONTINUATION_TOKEN_PARAM));
+
+            if (!page.isLastPage()) {
+                exchange.getResponseHeaders().add(CONTINUATION_TOKEN_HEADER, page.getContinuationToken());
+            }
+
+            lras = page.getLRAs();
+        } else {
+            lras = coordinator.find(query);
+        }
+
+        StringBuilder json = new StringBuilder(lras.size() * 160 + 2).append('[');
+
+        for (LRAInfo lra : lras) {
+            appendJson(json.length() == 1 ? json : json.append(','), lra);
+        }
+
+        replyJson(exchange, json.append(']').toString());
+    }
+
+    private void join(HttpExchange exchange, URL lraId, Map<String, String> params) throws IOException {
+        String body = readBody(exchange);
+        Map<String, URL> links = parseLinks(exchange.getRequestHeaders().getFirst("Link"));
+        String compensatorData = body.isEmpty() ? null : body;
+
+        if (links.isEmpty()) {
+            if (body.isEmpty()) {
+                throw new IllegalArgumentException("the request has neither a Link header nor a participant URL");
+            }
+
+            String participant = body.trim().replaceAll("/+$", "");
+
+            links.put("compensate", toURL(participant + "/compensate"));
+            links.put("complete", toURL(participant + "/complete"));
+            links.put("status", toURL(participant + "/status"));
+            compensatorData = null;
+        }
+
+        String recoveryUrl = coordinator.join(lraId,
+                HttpParticipant.of(links, compensatorData,
+                        transport.getConnectTimeoutMillis(), transport.getReadTimeoutMillis(), completionTimeoutMillis,
+                        notifier),
+                parseLong(params, TIME_LIMIT_PARAM), TimeUnit.MILLISECONDS);
+
+        exchange.getResponseHeaders().add("Location", recoveryUrl);
+        exchange.getResponseHeaders().add(LRAClient.LRA_HTTP_RECOVERY_HEADER, recoveryUrl);
+        reply(exchange, HttpURLConnection.HTTP_OK, recoveryUrl);
+    }
+
+    private void leave(HttpExchange exchange, URL lraId) throws IOException {
+        String participant = readBody(exchange).trim().replaceAll("/+$", "");
+
+        if (participant.isEmpty()) {
+            throw new IllegalArgumentException("the request has no participant URL");
+        }
+
+        // the body is either the compensate URL of the participant or the URL that it was derived from
+        if (!coordinator.leave(lraId, HttpParticipant.withCompensateUrl(toURL(participant)))
+                && !coordinator.leave(lraId, HttpParticipant.withCompensateUrl(toURL(participant + "/compensate")))) {
+            throw new IllegalArgumentException("the participant has not joined the LRA: " + participant);
+        }
+
+        reply(exchange, HttpURLConnection.HTTP_OK, "");
+    }
+
+    private static void expect(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new RequestFailure(HttpURLConnection.HTTP_BAD_METHOD, "use " + method + " for this resource");
+        }
+    }
+
+    private static void replyJson(HttpExchange exchange, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        reply(exchange, HttpURLConnection.HTTP_OK, json);
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        /*
+         * the server closes, rather than reuses, a connection whose request has not been read to the end by the
+         * time the response is complete and, for a response without a body, that is as soon as the headers are sent
+         */
+        exchange.getRequestBody().close();
+
+        if (bytes.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+
+            return;
+        }
+
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        }
+
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int n;
+
+        try (InputStream in = exchange.getRequestBody()) {
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+        }
+
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> params = new HashMap<>();
+
+        try {
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+
+                if (eq < 0) {
+                    params.put(URLDecoder.decode(param, "UTF-8"), "");
+                } else {
+                    params.put(URLDecoder.decode(param.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); // every JVM supports UTF-8
+        }
+
+        return params;
+    }
+
+    // returns 0 (no limit) if the parameter is absent
+    private static long parseLong(Map<String, String> params, String name) {
+        String value = params.get(name);
+
+        try {
+            return value == null || value.isEmpty() ? 0L : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + name + ": " + value, e);
+        }
+    }
+
+    private static Map<String, URL> parseLinks(String header) {
+        Map<String, URL> links = new HashMap<>();
+
+        if (header != null) {
+            Matcher matcher = LINK.matcher(header);
+
+            while (matcher.find()) {
+                links.put(matcher.group(2), toURL(matcher.group(1)));
+            }
+        }
+
+        return links;
+    }
+
+    private static URL toURL(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("invalid URL: " + url, e);
+        }
+    }
+
+    private static StringBuilder appendJson(StringBuilder json, LRAInfo lra) {
+        json.append("{\"lraId\":");
+        appendString(json, lra.getLraId());
+        json.append(",\"clientId\":");
+        appendString(json, lra.getClientId());
+
+        return json.append(",\"complete\":").append(lra.isComplete())
+                .append(",\"compensated\":").append(lra.isCompensated())
+                .append(",\"recovering\":").append(lra.isRecovering())
+                .append(",\"active\":").append(lra.isActive())
+                .append(",\"topLevel\":").append(lra.isTopLevel())
+                .append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+
+            return;
+        }
+
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+
+        json.append('"');
+    }
+
+    /*
+     * The JAX-RS exceptions thrown by the embedded coordinator need a JAX-RS
+     * runtime to construct their responses so report failures without them
+     */
+    private static final class Table extends EmbeddedCoordinator {
+        Table(URI baseUri) {
+            super(baseUri);
+        }
+
+        @Override
+        protected RuntimeException notFound(URL lraId) {
+            return new RequestFailure(HttpURLConnection.HTTP_NOT_FOUND, "LRA not found: " + lraId);
+        }
+
+        @Override
+        protected RuntimeException illegalState(String lraId, String operation, String reason) {
+            return new RequestFailure(HttpURLConnection.HTTP_PRECON_FAILED, operation + " " + lraId + ": " + reason);
+        }
+
+        @Override
+        protected RuntimeException failure(URL lraId, int statusCode, String reason, Throwable cause) {
+            return new RequestFailure(statusCode, reason);
+        }
+    }
+
+    private static final class RequestFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestFailure(int status, String message) {
+            super(message);
+
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.coordinator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A minimal blocking HTTP client, built on the JDK alone, for driving the REST
+ * resources of a coordinator from the tests
+ */
+final class Http {
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private Http() {
+    }
+
+    static Reply get(String url) throws IOException {
+        return send("GET", url, null);
+    }
+
+    static Reply post(String url) throws IOException {
+        return send("POST", url, "");
+    }
+
+    static Reply put(String url) throws IOException {
+        return send("PUT", url, "");
+    }
+
+    /**
+     * @param headers the request headers as alternating names and values
+     */
+    static Reply send(String method, String url, String body, String... headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(bytes.length);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+
+        int status = connection.getResponseCode();
+
+        return new Reply(status, read(status >= 400 ? connection.getErrorStream() : connection.getInputStream()), connection);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int n;
+
+        try (InputStream stream = in) {
+            while ((n = stream.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+        }
+
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static final class Reply {
+        final int status;
+        final String body;
+        private final HttpURLConnection connection;
+
+        Reply(int status, String body, HttpURLConnection connection) {
+            this.status = status;
+            this.body = body;
+            this.connection = connection;
+        }
+
+        String header(String name) {
+            return connection.getHeaderField(name);
+        }
+    }
+}
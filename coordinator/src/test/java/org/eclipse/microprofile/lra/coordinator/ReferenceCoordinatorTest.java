@@ -0,0 +1,364 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.coordinator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.client.LRATransportConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the REST resources of a reference coordinator with the HTTP client
+ * built into the JDK. The participants are served by a second HTTP server that
+ * records the requests it receives.
+ */
+public class ReferenceCoordinatorTest {
+    private static final Pattern LRA_ID = Pattern.compile("\"lraId\":\"([^\"]*)\"");
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private volatile long finishAt;
+    private ReferenceCoordinator coordinator;
+    private HttpServer participants;
+    private String base;
+
+    @After
+    public void stop() {
+        release.countDown();
+
+        if (coordinator != null) {
+            coordinator.close();
+        }
+
+        if (participants != null) {
+            participants.stop(0);
+        }
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void startReportsTheLRAAndCloseEndsIt() throws IOException {
+        start(LRATransportConfig.defaults(), 4);
+
+        Http.Reply started = Http.post(base + "/start?ClientID=contract&TimeLimit=0");
+        String lra = started.body;
+
+        assertEquals(HttpURLConnection.HTTP_CREATED, started.status);
+        assertTrue(lra, lra.startsWith(base + '/'));
+        assertEquals(lra, started.header("Location"));
+        assertEquals(lra, started.header(LRAClient.LRA_HTTP_HEADER));
+
+        assertEquals(HttpURLConnection.HTTP_NO_CONTENT, Http.get(lra + "/status").status);
+
+        Http.Reply info = Http.get(lra);
+
+        assertEquals(HttpURLConnection.HTTP_OK, info.status);
+        assertEquals("application/json", info.header("Content-Type"));
+        assertTrue(info.body, info.body.contains("\"clientId\":\"contract\"") && info.body.contains("\"active\":true"));
+
+        assertEquals("Completed", Http.put(lra + "/close").body);
+        assertEquals("an ended LRA is forgotten", HttpURLConnection.HTTP_NOT_FOUND, Http.get(lra + "/status").status);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, Http.put(lra + "/close").status);
+    }
+
+    @Test
+    public void participantsAreCompletedInJoinOrderAndCompensatedInReverse() throws IOException {
+        start(LRATransportConfig.defaults(), 4);
+
+        String closed = startLRA();
+
+        joinByBaseUrl(closed, "first");
+        joinByLinks(closed, "second");
+
+        assertEquals("Completed", Http.put(closed + "/close").body);
+        assertEquals(Arrays.asList("first complete", "second complete"), log);
+
+        log.clear();
+
+        String cancelled = startLRA();
+
+        joinByBaseUrl(cancelled, "first");
+        joinByLinks(cancelled, "second");
+
+        assertEquals("Compensated", Http.put(cancelled + "/cancel").body);
+        assertEquals(Arrays.asList("second compensate", "first compensate"), log);
+    }
+
+    @Test
+    public void removedParticipantsAreNotNotified() throws IOException {
+        start(LRATransportConfig.defaults(), 4);
+
+        String lra = startLRA();
+
+        joinByBaseUrl(lra, "leaving");
+        joinByLinks(lra, "staying");
+
+        assertEquals(HttpURLConnection.HTTP_OK, Http.send("PUT", lra + "/remove", participant("leaving")).status);
+        assertEquals("a participant can only be removed once",
+                HttpURLConnection.HTTP_BAD_REQUEST, Http.send("PUT", lra + "/remove", participant("leaving")).status);
+
+        Http.put(lra + "/cancel");
+
+        assertEquals(Collections.singletonList("staying compensate"), log);
+    }
+
+    @Test
+    public void renewedTimeLimitCancelsTheLRA() throws IOException, InterruptedException {
+        start(LRATransportConfig.defaults(), 4);
+
+        String lra = Http.post(base + "/start?TimeLimit=60000").body;
+
+        joinByBaseUrl(lra, "timed");
+
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, Http.put(lra + "/renew?TimeLimit=soon").status);
+        assertEquals(HttpURLConnection.HTTP_OK, Http.put(lra + "/renew?TimeLimit=50").status);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (Http.get(lra + "/status").status != HttpURLConnection.HTTP_NOT_FOUND && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Collections.singletonList("timed compensate"), log);
+    }
+
+    @Test
+    public void listingIsFilteredAndPaged() throws IOException {
+        start(LRATransportConfig.defaults(), 4);
+
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            expected.add(Http.post(base + "/start?ClientID=page-" + i).body);
+            Http.post(base + "/start?ClientID=other-" + i);
+        }
+
+        Http.put(expected.get(0) + "/close");
+        expected.remove(0);
+
+        List<String> listed = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+
+        do {
+            Http.Reply page = Http.get(base + "?Status=active&ClientID=page-&PageSize=3"
+                    + (token == null ? "" : "&ContinuationToken=" + token));
+
+            assertEquals(HttpURLConnection.HTTP_OK, page.status);
+            listed.addAll(lraIds(page.body));
+            token = page.header("Continuation-Token");
+            pages++;
+        } while (token != null);
+
+        assertEquals(expected, listed);
+        assertEquals(2, pages);
+        assertEquals(10 - 1, lraIds(Http.get(base).body).size());
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, Http.get(base + "?PageSize=2&ContinuationToken=%21").status);
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, Http.get(base + "?Status=unknown").status);
+    }
+
+    @Test
+    public void invalidRequestsAreRefused() throws IOException {
+        start(LRATransportConfig.defaults(), 4);
+
+        String lra = startLRA();
+
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, Http.get(base + "/unknown/status").status);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, Http.put(lra + "/unknown").status);
+        assertEquals(HttpURLConnection.HTTP_BAD_METHOD, Http.get(lra + "/close").status);
+        assertEquals(HttpURLConnection.HTTP_BAD_METHOD, Http.get(base + "/start").status);
+        assertEquals("a join needs a participant", HttpURLConnection.HTTP_BAD_REQUEST, Http.put(lra).status);
+
+        String child = Http.post(base + "/start?ParentLRA=" + lra).body;
+
+        Http.put(lra + "/cancel");
+
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, Http.get(child + "/status").status);
+    }
+
+    @Test
+    public void acceptedParticipantIsPolledPastTheReadTimeout() throws IOException {
+        start(LRATransportConfig.defaults().withReadTimeout(100), 4, 0L);
+
+        String lra = startLRA();
+
+        joinByLinks(lra, "accepting");
+        finishAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(400);
+
+        assertEquals("Compensated", Http.put(lra + "/cancel").body);
+        assertTrue("the status was not polled", log.contains("accepting status"));
+    }
+
+    @Test
+    public void acceptedParticipantFailsWhenCompletionTimeoutElapses() throws IOException {
+        start(LRATransportConfig.defaults(), 4, 200L);
+
+        String lra = startLRA();
+
+        joinByLinks(lra, "accepting");
+        finishAt = System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+
+        assertEquals("FailedToCompensate", Http.put(lra + "/cancel").body);
+    }
+
+    @Test
+    public void endingAnLRADoesNotHoldARequestThread() throws Exception {
+        start(LRATransportConfig.defaults(), 1);
+
+        String lra = startLRA();
+
+        joinByLinks(lra, "blocked");
+
+        Future<Http.Reply> closing = executor.submit(() -> Http.put(lra + "/close"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!log.contains("blocked complete") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Http.Reply status = Http.get(lra + "/status");
+
+        assertEquals("the only request thread should be free", HttpURLConnection.HTTP_OK, status.status);
+        assertEquals("Completing", status.body);
+        assertFalse(closing.isDone());
+
+        release.countDown();
+
+        assertEquals("Completed", closing.get(5L, TimeUnit.SECONDS).body);
+    }
+
+    private void start(LRATransportConfig transport, int threads) throws IOException {
+        start(transport, threads, 0L);
+    }
+
+    private void start(LRATransportConfig transport, int threads, long completionTimeoutMillis) throws IOException {
+        participants = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        participants.createContext("/", this::participate);
+        participants.setExecutor(executor);
+        participants.start();
+
+        coordinator = new ReferenceCoordinator("localhost", 0, "lra-coordinator", threads, transport, completionTimeoutMillis);
+        coordinator.start();
+        base = coordinator.getBaseUri().toString();
+    }
+
+    private String startLRA() throws IOException {
+        return Http.post(base + "/start").body;
+    }
+
+    private String participant(String name) {
+        return String.format("http://localhost:%d/%s", participants.getAddress().getPort(), name);
+    }
+
+    private void joinByBaseUrl(String lra, String name) throws IOException {
+        Http.Reply joined = Http.send("PUT", lra, participant(name));
+
+        assertEquals(joined.body, HttpURLConnection.HTTP_OK, joined.status);
+        assertEquals(joined.body, joined.header(LRAClient.LRA_HTTP_RECOVERY_HEADER));
+    }
+
+    private void joinByLinks(String lra, String name) throws IOException {
+        String url = participant(name);
+        String links = String.format("<%s/compensate>; rel=\"compensate\", <%s/complete>; rel=\"complete\", <%s/status>; rel=\"status\"",
+                url, url, url);
+        Http.Reply joined = Http.send("PUT", lra, "data", "Link", links);
+
+        assertEquals(joined.body, HttpURLConnection.HTTP_OK, joined.status);
+    }
+
+    private static List<String> lraIds(String json) {
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = LRA_ID.matcher(json);
+
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+
+        return ids;
+    }
+
+    /*
+     * the participant named "accepting" answers 202 and reports Compensated once finishAt has passed,
+     * the one named "blocked" does not answer until released and the others answer immediately
+     */
+    private void participate(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+        String name = path[0];
+        String action = path.length > 1 ? path[1] : "";
+        int status = HttpURLConnection.HTTP_OK;
+        String body = "";
+
+        log.add(name + ' ' + action);
+
+        if ("accepting".equals(name)) {
+            if ("status".equals(action)) {
+                body = System.nanoTime() - finishAt >= 0 ? "Compensated" : "Compensating";
+            } else {
+                status = HttpURLConnection.HTTP_ACCEPTED;
+            }
+        } else if ("blocked".equals(name)) {
+            try {
+                release.await(10L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        exchange.close();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.coordinator;
+
+import org.eclipse.microprofile.lra.client.LRAContextToken;
+import org.eclipse.microprofile.lra.client.LRACoordinatorRing;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Places LRAs on a ring of reference coordinators, each listening on its own
+ * port, and checks that every LRA is started on and routed to the server that
+ * the ring selected for it
+ */
+public class ShardedCoordinatorsTest {
+    private static final int COORDINATORS = 3;
+    private static final int KEYS = 60;
+
+    private final List<ReferenceCoordinator> coordinators = new ArrayList<>();
+    private LRACoordinatorRing ring;
+
+    @Before
+    public void startCoordinators() throws IOException {
+        for (int i = 0; i < COORDINATORS; i++) {
+            ReferenceCoordinator coordinator = new ReferenceCoordinator("localhost", 0, "lra-coordinator", 4);
+
+            coordinators.add(coordinator);
+            coordinator.start();
+        }
+
+        ring = LRACoordinatorRing.of(coordinators.stream().map(ReferenceCoordinator::getBaseUri).collect(Collectors.toList()));
+    }
+
+    @After
+    public void stopCoordinators() {
+        coordinators.forEach(ReferenceCoordinator::close);
+    }
+
+    @Test
+    public void keyedLRAsReachTheSelectedCoordinator() throws IOException {
+        Set<URI> used = new HashSet<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "ShardedCoordinatorsTest-" + i;
+            URI selected = ring.select(key);
+
+            used.add(startAndRoute(selected, selected + "/start?ClientID=" + key));
+            assertEquals("placement is not stable", selected, ring.select(key));
+        }
+
+        assertEquals("the LRAs should be spread over every coordinator", COORDINATORS, used.size());
+    }
+
+    @Test
+    public void lrasOfOneClientAreSpreadOverTheCoordinators() throws IOException {
+        Set<URI> used = new HashSet<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            URI selected = ring.select(LRACoordinatorRing.placementKey("ShardedCoordinatorsTest"));
+
+            used.add(startAndRoute(selected, selected + "/start?ClientID=ShardedCoordinatorsTest"));
+        }
+
+        assertEquals("LRAs with the same client id should be spread over every coordinator", COORDINATORS, used.size());
+    }
+
+    @Test
+    public void unkeyedLRAsAreSpreadOverTheCoordinators() throws IOException {
+        Set<URI> used = new HashSet<>();
+
+        for (int i = 0; i < KEYS; i++) {
+            URI selected = ring.select(null);
+
+            used.add(startAndRoute(selected, selected + "/start"));
+        }
+
+        assertEquals("LRAs without a client id should be spread over every coordinator", COORDINATORS, used.size());
+
+        URI excluded = coordinators.get(0).getBaseUri();
+
+        for (int i = 0; i < KEYS; i++) {
+            assertNotEquals(excluded, ring.select(null, coordinator -> !coordinator.equals(excluded)).orElse(excluded));
+        }
+    }
+
+    /*
+     * start an LRA on the selected coordinator and check that its id and its
+     * compact context route back to that coordinator and to no other server
+     */
+    private URI startAndRoute(URI selected, String startUrl) throws IOException {
+        Http.Reply started = Http.post(startUrl);
+
+        assertEquals(started.body, HttpURLConnection.HTTP_CREATED, started.status);
+
+        LRAId lraId = LRAId.valueOf(started.body);
+        URI routed = ring.coordinatorOf(lraId).orElse(null);
+
+        assertEquals("LRA id routed to the wrong coordinator", selected, routed);
+        assertEquals("compact context routed to the wrong coordinator",
+                selected, ring.coordinatorOf(LRAContextToken.compact(routed, lraId)).orElse(null));
+
+        String token = started.body.substring(started.body.lastIndexOf('/') + 1);
+
+        for (ReferenceCoordinator coordinator : coordinators) {
+            int expected = coordinator.getBaseUri().equals(selected)
+                    ? HttpURLConnection.HTTP_NO_CONTENT
+                    : HttpURLConnection.HTTP_NOT_FOUND;
+
+            assertEquals("status of " + lraId + " on " + coordinator.getBaseUri(),
+                    expected, Http.get(coordinator.getBaseUri() + "/" + token + "/status").status);
+        }
+
+        Http.Reply closed = Http.put(lraId + "/close");
+
+        assertEquals(HttpURLConnection.HTTP_OK, closed.status);
+        assertEquals("Completed", closed.body);
+
+        return routed;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.LRAParticipantDeserializer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The deserializers registered with an LRA manager for recreating participants
+ * during recovery. A deserializer registered with a type tag is found with a
+ * single lookup for recovery records carrying that tag. Untagged records, and
+ * records whose tag has no registered deserializer, are offered to every
+ * deserializer registered without a tag, in registration order, until one
+ * recreates the participant. A deserializer registered for several tags is
+ * therefore held once per tag and is not offered untagged records unless it
+ * is also registered without a tag. The state of a record is passed to the deserializers as a read
+ * only buffer (see {@link LRAParticipantDeserializer#deserialize(java.net.URL,
+ * java.nio.ByteBuffer)}) so deserializers that read it in place do not cause
+ * it to be copied.
+ */
+public final class DeserializerRegistry {
+    private final Map<String, LRAParticipantDeserializer> byTag = new ConcurrentHashMap<>();
+    private final List<LRAParticipantDeserializer> all = new CopyOnWriteArrayList<>();
+
+    /**
+     * Register a deserializer for untagged recovery records
+     *
+     * @param deserializer an object that knows how to recreate participants
+     */
+    public void register(LRAParticipantDeserializer deserializer) {
+        all.add(Objects.requireNonNull(deserializer));
+    }
+
+    /**
+     * Register a deserializer for the recovery records carrying a type tag. A
+     * deserializer already registered for the tag is replaced.
+     *
+     * @param typeTag the type tag of the participants that the deserializer recreates
+     * @param deserializer an object that knows how to recreate participants
+     */
+    public void register(String typeTag, LRAParticipantDeserializer deserializer) {
+        byTag.put(Objects.requireNonNull(typeTag), Objects.requireNonNull(deserializer));
+    }
+
+    /**
+     * Unregister the first untagged registration of a deserializer that is
+     * equal to the given one together with any type tags it was registered for
+     *
+     * @param deserializer the deserializer to unregister
+     */
+    public void unregister(LRAParticipantDeserializer deserializer) {
+        all.remove(deserializer);
+        byTag.values().removeIf(d -> d.equals(deserializer));
+    }
+
+    /**
+     * @param typeTag a type tag
+     * @return the deserializer registered for the tag or null if there is none
+     */
+    public LRAParticipantDeserializer lookup(String typeTag) {
+        return typeTag == null ? null : byTag.get(typeTag);
+    }
+
+    /**
+     * Recreate a participant from its recovery record
+     *
+     * @param record the persistent form of the participant
+     * @return the participant or null if no registered deserializer recognises the record
+     */
+    public LRAParticipant deserialize(RecoveryRecord record) {
+        LRAParticipantDeserializer tagged = lookup(record.getTypeTag());
+
+        if (tagged != null) {
+            return tagged.deserialize(record.getLraId(), record.getState());
+        }
+
+        for (LRAParticipantDeserializer deserializer : all) {
+            LRAParticipant participant = deserializer.deserialize(record.getLraId(), record.getState());
+
+            if (participant != null) {
+                return participant;
+            }
+        }
+
+        return null;
+    }
+}
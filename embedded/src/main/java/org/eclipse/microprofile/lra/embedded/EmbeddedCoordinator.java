@@ -0,0 +1,1098 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.GenericLRAException;
+import org.eclipse.microprofile.lra.client.IllegalLRAStateException;
+import org.eclipse.microprofile.lra.client.LRAEvent;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.client.LRASubscription;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.TerminationException;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An LRA coordinator that keeps the state of its LRAs in the memory of the
+ * JVM and notifies participants by calling {@link LRAParticipant} directly.
+ * The coordinator does not log its state so its LRAs do not survive the JVM.
+ *
+ * LRA ids are allocated relative to the base URI of the coordinator. Closing
+ * an LRA completes the participants in the order in which they joined and
+ * cancelling it compensates them in the reverse order. A nested LRA that is
+ * closed stays known to the coordinator until its parent ends so that its
+ * participants can be compensated if the parent is cancelled. For the same
+ * reason the final status of a closed nested LRA (as reported by
+ * {@link #awaitOutcome} and {@link #onTermination}) is only known once its
+ * top level LRA has ended.
+ *
+ * The LRA table is a concurrent map so operations on different LRAs do not
+ * contend with each other. Operations on the same LRA are serialised.
+ * The LRAs are also indexed by client id and by state, and the children of
+ * an LRA are held by its record, so that a query that selects by any of them
+ * does not have to examine every LRA. The start order index is keyed by the
+ * start time of each LRA in microseconds (made unique and increasing) so that
+ * it also selects LRAs by start time.
+ *
+ * A participant that cannot finish immediately returns a future. If the
+ * future is also a {@link CompletionStage} (as it is for participants that
+ * join via {@link org.eclipse.microprofile.lra.participant.LRAManagement#joinLRA(
+ * org.eclipse.microprofile.lra.participant.AsyncLRAParticipant, URL)}) the
+ * next participant is notified when the stage completes so no thread waits
+ * for it. Any other future is waited for by the thread ending the LRA.
+ * LRAs whose time limits are reached are ended by a pool of threads
+ * so that the timer is never held up by a participant.
+ */
+public class EmbeddedCoordinator implements AutoCloseable {
+    private final String base;
+    private final String node = Long.toString(UUID.randomUUID().getMostSignificantBits() >>> 1, Character.MAX_RADIX);
+    private final AtomicLong lastStart = new AtomicLong();
+    private final Map<LRAId, LRARecord> lras = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, LRARecord> lrasInStartOrder = new ConcurrentSkipListMap<>();
+    // keyed by client id followed by the start sequence number so that a prefix selects a contiguous range
+    private final ConcurrentSkipListMap<String, LRARecord> lrasByClientId = new ConcurrentSkipListMap<>();
+    private final Map<LRAQuery.State, ConcurrentSkipListMap<Long, LRARecord>> lrasByState = new EnumMap<>(LRAQuery.State.class);
+    private final List<Consumer<LRAEvent>> eventListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService timeouts;
+
+    /**
+     * @param baseUri the URI that the ids of the LRAs managed by this coordinator
+     *                are relative to (for example <code>http://localhost/lra-embedded</code>).
+     *                The URI must be an absolute URL.
+     */
+    public EmbeddedCoordinator(URI baseUri) {
+        String uri = baseUri.toString();
+
+        this.base = uri.endsWith("/") ? uri : uri + '/';
+
+        for (LRAQuery.State state : LRAQuery.State.values()) {
+            lrasByState.put(state, new ConcurrentSkipListMap<>());
+        }
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lra-embedded-timer");
+
+            t.setDaemon(true);
+
+            return t;
+        });
+        this.timeouts = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "lra-embedded-timeout");
+
+            t.setDaemon(true);
+
+            return t;
+        });
+
+        LRAId.valueOf(base); // fail early if the URI is not an absolute URL
+    }
+
+    /**
+     * @return the URI that the ids of the LRAs managed by this coordinator are relative to
+     */
+    public URI getBaseUri() {
+        return URI.create(base.substring(0, base.length() - 1));
+    }
+
+    /**
+     * @param lraId an LRA id
+     * @return true if the id was allocated by this coordinator (the LRA need
+     * not still exist)
+     */
+    public boolean isLocal(URL lraId) {
+        return lraId != null && lraId.toExternalForm().startsWith(base);
+    }
+
+    /**
+     * Start a new LRA
+     *
+     * @param parentLRA the parent LRA or null for a top level LRA
+     * @param clientId the client id to report when the LRA is queried
+     * @param timeout the time limit of the LRA or 0 for no limit
+     * @param unit the unit that the timeout is expressed in
+     * @return the id of the new LRA
+     * @throws NotFoundException if the parent LRA does not exist
+     * @throws IllegalLRAStateException if the parent LRA is no longer active
+     */
+    public URL start(URL parentLRA, String clientId, long timeout, TimeUnit unit) {
+        LRARecord parent = parentLRA == null ? null : lookup(parentLRA);
+        long seq = lastStart.updateAndGet(last -> Math.max(last + 1, micros(Instant.now())));
+        LRARecord lra = new LRARecord(seq, LRAId.valueOf(base + node + '_' + Long.toString(seq, Character.MAX_RADIX)),
+                clientId, parent);
+
+        if (parent != null) {
+            synchronized (parent) {
+                if (parent.status != null) {
+                    throw illegalState(parent.id.toString(), "startLRA", "parent LRA is not active");
+                }
+
+                parent.children.add(lra);
+            }
+        }
+
+        lras.put(lra.id, lra);
+        lrasInStartOrder.put(seq, lra);
+        lrasByState.get(LRAQuery.State.ACTIVE).put(seq, lra);
+
+        if (clientId != null) {
+            lrasByClientId.put(clientIdKey(lra), lra);
+        }
+
+        if (timeout > 0) {
+            synchronized (lra) {
+                schedule(lra, unit.toNanos(timeout));
+            }
+        }
+
+        publish(lra, LRAEvent.Type.STARTED, null);
+
+        return lra.url;
+    }
+
+    /**
+     * Close an LRA: nested LRAs that are still active are closed first and
+     * then the participants are asked to complete
+     *
+     * @param lraId the LRA to close
+     * @return the final status of the LRA
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public CompensatorStatus close(URL lraId) {
+        return end(lookup(lraId), false, "closeLRA").join();
+    }
+
+    /**
+     * Close an LRA without waiting for its participants to finish (see
+     * {@link #close(URL)})
+     *
+     * @param lraId the LRA to close
+     * @return a stage that completes with the final status of the LRA
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public CompletionStage<CompensatorStatus> closeAsync(URL lraId) {
+        return end(lookup(lraId), false, "closeLRA");
+    }
+
+    /**
+     * Cancel an LRA: nested LRAs are cancelled (or, if they have already been
+     * closed, compensated) first and then the participants are asked to compensate
+     *
+     * @param lraId the LRA to cancel
+     * @return the final status of the LRA
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public CompensatorStatus cancel(URL lraId) {
+        return end(lookup(lraId), true, "cancelLRA").join();
+    }
+
+    /**
+     * Cancel an LRA without waiting for its participants to finish (see
+     * {@link #cancel(URL)})
+     *
+     * @param lraId the LRA to cancel
+     * @return a stage that completes with the final status of the LRA
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public CompletionStage<CompensatorStatus> cancelAsync(URL lraId) {
+        return end(lookup(lraId), true, "cancelLRA");
+    }
+
+    /**
+     * Enlist a participant with an LRA
+     *
+     * @param lraId the LRA to join
+     * @param participant the participant to notify when the LRA ends
+     * @param timeLimit the time for which the participant remains valid or 0 for
+     *                  no limit. The LRA is cancelled if it has not ended when
+     *                  the limit is reached.
+     * @param unit the unit that the timeLimit is expressed in
+     * @return an identifier for the enlistment
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public String join(URL lraId, LRAParticipant participant, long timeLimit, TimeUnit unit) {
+        LRARecord lra = lookup(lraId);
+
+        synchronized (lra) {
+            if (lra.status != null) {
+                throw illegalState(lra.id.toString(), "joinLRA", "LRA is not active");
+            }
+
+            lra.participants.add(participant);
+
+            if (timeLimit > 0) {
+                long limit = unit.toNanos(timeLimit);
+
+                if (lra.deadlineNanos == 0 || System.nanoTime() + limit < lra.deadlineNanos) {
+                    schedule(lra, limit);
+                }
+            }
+
+            return lra.id + "/participant/" + ++lra.enlistments;
+        }
+    }
+
+    /**
+     * Remove a participant from an LRA
+     *
+     * @param lraId the LRA to leave
+     * @param participant the participant (as passed to join)
+     * @return true if the participant was enlisted, false otherwise
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public boolean leave(URL lraId, LRAParticipant participant) {
+        LRARecord lra = lookup(lraId);
+
+        synchronized (lra) {
+            if (lra.status != null) {
+                throw illegalState(lra.id.toString(), "leaveLRA", "LRA is not active");
+            }
+
+            return lra.participants.remove(participant);
+        }
+    }
+
+    /**
+     * Replace the time limit of an LRA
+     *
+     * @param lraId the LRA
+     * @param limit the new time limit measured from now or 0 for no limit
+     * @param unit the unit that the limit is expressed in
+     * @throws NotFoundException if the LRA does not exist
+     * @throws IllegalLRAStateException if the LRA is not active
+     */
+    public void renewTimeLimit(URL lraId, long limit, TimeUnit unit) {
+        LRARecord lra = lookup(lraId);
+
+        synchronized (lra) {
+            if (lra.status != null) {
+                throw illegalState(lra.id.toString(), "renewTimeLimit", "LRA is not active");
+            }
+
+            if (limit > 0) {
+                schedule(lra, unit.toNanos(limit));
+            } else {
+                unschedule(lra);
+            }
+        }
+    }
+
+    /**
+     * @param lraId the LRA
+     * @return the time remaining before the LRA times out in milliseconds, or 0
+     * if the LRA has no time limit
+     * @throws NotFoundException if the LRA does not exist
+     */
+    public long getRemainingTimeMillis(URL lraId) {
+        LRARecord lra = lookup(lraId);
+
+        synchronized (lra) {
+            return lra.deadlineNanos == 0
+                    ? 0L
+                    : Math.max(1L, TimeUnit.NANOSECONDS.toMillis(lra.deadlineNanos - System.nanoTime()));
+        }
+    }
+
+    /**
+     * @param lraId the LRA
+     * @return the status of the LRA or empty if it is still active
+     * @throws NotFoundException if the LRA does not exist
+     */
+    public Optional<CompensatorStatus> getStatus(URL lraId) {
+        return Optional.ofNullable(lookup(lraId).status);
+    }
+
+    /**
+     * @param lraId the LRA
+     * @return the parent of the LRA or null if it is top level
+     * @throws NotFoundException if the LRA does not exist
+     */
+    public URL getParent(URL lraId) {
+        LRARecord parent = lookup(lraId).parent;
+
+        return parent == null ? null : parent.url;
+    }
+
+    /**
+     * @param lraId the LRA
+     * @return a snapshot of the LRA
+     * @throws NotFoundException if the LRA does not exist
+     */
+    public LRAInfo getInfo(URL lraId) {
+        return lookup(lraId).toInfo();
+    }
+
+    /**
+     * @param query the criteria that the LRAs must match
+     * @return the matching LRAs in the order in which they were started or,
+     * if the query selects by client id prefix, in client id order
+     */
+    public List<LRAInfo> find(LRAQuery query) {
+        List<LRAInfo> found = new ArrayList<>();
+
+        scan(query, 0L, null, lra -> found.add(lra.toInfo()));
+
+        return found;
+    }
+
+    /**
+     * Find one page of the LRAs that match a query. Each page costs time in
+     * proportion to its size rather than to the number of LRAs: the pages of
+     * a query by client id prefix are read from the client id index in place
+     * and the continuation token records where the previous page stopped.
+     *
+     * @param query the criteria that the LRAs must match
+     * @param pageSize the maximum number of LRAs to return
+     * @param continuationToken the token of the previous page or null for the first page
+     * @return one page of the matching LRAs in the order in which they were
+     * started or, if the query selects by client id prefix, in client id order
+     * @throws GenericLRAException if the page size or continuation token is invalid
+     */
+    public LRAInfoPage find(LRAQuery query, int pageSize, String continuationToken) {
+        if (pageSize <= 0) {
+            throw failure(null, Response.Status.BAD_REQUEST.getStatusCode(),
+                    "page size must be greater than zero", null);
+        }
+
+        boolean byClientId = query.getClientIdPrefix().isPresent();
+        long after = 0L;
+        String afterKey = null;
+
+        try {
+            if (continuationToken != null && byClientId) {
+                afterKey = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+            } else if (continuationToken != null) {
+                after = Long.parseLong(continuationToken, Character.MAX_RADIX);
+            }
+        } catch (IllegalArgumentException e) {
+            throw failure(null, Response.Status.BAD_REQUEST.getStatusCode(),
+                    "invalid continuation token: " + continuationToken, e);
+        }
+
+        List<LRAInfo> page = new ArrayList<>(pageSize);
+        LRARecord[] last = new LRARecord[1];
+        boolean[] more = new boolean[1];
+
+        scan(query, after, afterKey, lra -> {
+            if (page.size() == pageSize) {
+                more[0] = true; // there is at least one more match so there is another page
+
+                return false;
+            }
+
+            page.add(lra.toInfo());
+            last[0] = lra;
+
+            return true;
+        });
+
+        if (!more[0]) {
+            return new Page(page, null);
+        }
+
+        return new Page(page, byClientId
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(clientIdKey(last[0]).getBytes(StandardCharsets.UTF_8))
+                : Long.toString(last[0].seq, Character.MAX_RADIX));
+    }
+
+    /**
+     * Register a listener for the final status of an LRA. If the LRA has
+     * already ended the listener is called immediately.
+     *
+     * @param lraId the LRA
+     * @param listener the listener
+     * @return the subscription
+     * @throws NotFoundException if the LRA does not exist
+     */
+    public LRASubscription onTermination(URL lraId, Consumer<CompensatorStatus> listener) {
+        LRARecord lra = lookup(lraId);
+        Subscription[] subscription = new Subscription[1];
+        Consumer<CompensatorStatus> once = status -> {
+            // the listener is told about the final status at most once and the subscription then ends
+            if (subscription[0].deactivate()) {
+                listener.accept(status);
+            }
+        };
+
+        subscription[0] = new Subscription(() -> lra.terminationListeners.remove(once));
+        lra.terminationListeners.add(once);
+
+        if (lra.outcome.isDone()) {
+            once.accept(lra.outcome.join());
+        }
+
+        return subscription[0];
+    }
+
+    /**
+     * Wait for an LRA to reach a final status
+     *
+     * @param lraId the LRA
+     * @param timeout the maximum time to wait
+     * @param unit the unit that the timeout is expressed in
+     * @return the final status or empty if the timeout elapsed first
+     * @throws NotFoundException if the LRA does not exist
+     * @throws GenericLRAException if the calling thread was interrupted
+     */
+    public Optional<CompensatorStatus> awaitOutcome(URL lraId, long timeout, TimeUnit unit) {
+        LRARecord lra = lookup(lraId);
+
+        try {
+            return Optional.of(lra.outcome.get(timeout, unit));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw failure(lraId, Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                    "interrupted while waiting for the outcome", e);
+        } catch (ExecutionException e) {
+            throw failure(lraId, Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                    e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Register a listener for the lifecycle events of every LRA
+     *
+     * @param listener the listener
+     * @return the subscription
+     */
+    public LRASubscription onLRAEvents(Consumer<LRAEvent> listener) {
+        eventListeners.add(listener);
+
+        return new Subscription(() -> eventListeners.remove(listener));
+    }
+
+    /**
+     * Stop the timer that cancels LRAs when their time limits are reached.
+     * The state of any LRAs that have not ended is lost.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    /**
+     * Create the exception that reports a request for an LRA that this
+     * coordinator does not know about. Coordinators that report errors
+     * without a JAX-RS runtime (which the JAX-RS exceptions need) override
+     * this method, {@link #illegalState} and {@link #failure}.
+     *
+     * @param lraId the LRA that was not found
+     * @return the exception to throw
+     */
+    protected RuntimeException notFound(URL lraId) {
+        return new NotFoundException("LRA not found: " + lraId);
+    }
+
+    /**
+     * Create the exception that reports a request that is not valid in the
+     * current state of an LRA
+     *
+     * @param lraId the LRA
+     * @param operation the operation that was requested
+     * @param reason why the operation is not valid
+     * @return the exception to throw
+     */
+    protected RuntimeException illegalState(String lraId, String operation, String reason) {
+        return new IllegalLRAStateException(lraId, operation, reason);
+    }
+
+    /**
+     * Create the exception that reports any other failure of a request
+     *
+     * @param lraId the LRA or null if the request was not for a particular LRA
+     * @param statusCode the HTTP status code that best describes the failure
+     * @param reason a description of the failure
+     * @param cause the cause of the failure or null
+     * @return the exception to throw
+     */
+    protected RuntimeException failure(URL lraId, int statusCode, String reason, Throwable cause) {
+        return new GenericLRAException(lraId, statusCode, reason, cause);
+    }
+
+    private LRARecord lookup(URL lraId) {
+        LRARecord lra = isLocal(lraId) ? lras.get(LRAId.valueOf(lraId)) : null;
+
+        if (lra == null) {
+            throw notFound(lraId);
+        }
+
+        return lra;
+    }
+
+    /*
+     * pass the LRAs that match the query to the visitor until it returns false, taking the candidates from
+     * the narrowest index that the query selects by. A query by client id prefix resumes after the client
+     * id key afterKey and any other query resumes after the start sequence number after.
+     */
+    private void scan(LRAQuery query, long after, String afterKey, Predicate<LRARecord> visitor) {
+        long from = Math.max(after, query.getStartedAfter().map(EmbeddedCoordinator::micros).orElse(0L));
+        long to = query.getStartedBefore().map(instant -> micros(instant) + 1).orElse(Long.MAX_VALUE);
+
+        if (query.getClientIdPrefix().isPresent()) {
+            String prefix = query.getClientIdPrefix().get();
+
+            for (Map.Entry<String, LRARecord> entry
+                    : lrasByClientId.tailMap(afterKey == null ? prefix : afterKey, afterKey == null).entrySet()) {
+                LRARecord lra = entry.getValue();
+
+                if (!entry.getKey().startsWith(prefix)) {
+                    return; // the keys are sorted so no later key has the prefix
+                } else if (lra.seq > from && lra.seq < to && lra.matches(query) && !visitor.test(lra)) {
+                    return;
+                }
+            }
+
+            return;
+        } else if (from >= to) {
+            return;
+        }
+
+        Iterator<LRARecord> candidates;
+
+        if (query.getParent().isPresent()) {
+            LRARecord parent = isLocal(query.getParent().get()) ? lras.get(LRAId.valueOf(query.getParent().get())) : null;
+            NavigableMap<Long, LRARecord> children = new TreeMap<>();
+
+            if (parent != null) {
+                synchronized (parent) {
+                    parent.children.stream()
+                            .filter(child -> child.seq > from && child.seq < to)
+                            .forEach(child -> children.put(child.seq, child));
+                }
+            }
+
+            candidates = children.values().iterator();
+        } else if (!query.getStates().isEmpty()) {
+            List<Iterator<LRARecord>> indexes = new ArrayList<>();
+
+            query.getStates().forEach(state -> indexes.add(lrasByState.get(state).subMap(from, false, to, false).values().iterator()));
+            candidates = indexes.size() == 1 ? indexes.get(0) : new MergedIterator(indexes);
+        } else {
+            candidates = lrasInStartOrder.subMap(from, false, to, false).values().iterator();
+        }
+
+        while (candidates.hasNext()) {
+            LRARecord lra = candidates.next();
+
+            if (lras.get(lra.id) == lra && lra.matches(query) && !visitor.test(lra)) {
+                return;
+            }
+        }
+    }
+
+    // the start time in microseconds since the epoch, rounded down
+    private static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static String clientIdKey(LRARecord lra) {
+        return lra.clientId + '\u0000' + String.format("%016x", lra.seq);
+    }
+
+    // moves the record between the state indexes (the index may briefly hold it under both states which find tolerates)
+    private void setStatus(LRARecord lra, CompensatorStatus status) {
+        LRAQuery.State from = lra.state();
+
+        lra.status = status;
+
+        LRAQuery.State to = lra.state();
+
+        if (from != to) {
+            lrasByState.get(to).put(lra.seq, lra);
+            lrasByState.get(from).remove(lra.seq);
+
+            if (!lras.containsKey(lra.id)) {
+                lrasByState.get(to).remove(lra.seq); // the LRA was forgotten concurrently
+            }
+        }
+    }
+
+    private void remove(LRARecord lra) {
+        lras.remove(lra.id);
+        lrasInStartOrder.remove(lra.seq);
+
+        if (lra.clientId != null) {
+            lrasByClientId.remove(clientIdKey(lra));
+        }
+
+        lrasByState.values().forEach(index -> index.remove(lra.seq));
+    }
+
+    private CompletableFuture<CompensatorStatus> end(LRARecord lra, boolean cancel, String operation) {
+        CompletableFuture<CompensatorStatus> outcome = endIfActive(lra, cancel);
+
+        if (outcome == null) {
+            throw illegalState(lra.id.toString(), operation, "LRA is " + lra.status);
+        }
+
+        return outcome;
+    }
+
+    // returns null if the LRA had already started to end
+    private CompletableFuture<CompensatorStatus> endIfActive(LRARecord lra, boolean cancel) {
+        List<LRAParticipant> participants;
+        List<LRARecord> children;
+
+        synchronized (lra) {
+            if (lra.status != null) {
+                return null;
+            }
+
+            setStatus(lra, cancel ? CompensatorStatus.Compensating : CompensatorStatus.Completing);
+            unschedule(lra);
+            participants = new ArrayList<>(lra.participants);
+            children = new ArrayList<>(lra.children);
+        }
+
+        publish(lra, cancel ? LRAEvent.Type.CANCELLING : LRAEvent.Type.CLOSING, null);
+
+        CompletableFuture<Void> nested = CompletableFuture.completedFuture(null);
+
+        for (LRARecord child : children) {
+            nested = nested.thenCompose(ignore -> endChild(child, cancel));
+        }
+
+        return nested
+                .thenCompose(ignore -> cancel ? compensate(lra, participants) : complete(lra, participants))
+                .thenApply(outcome -> {
+                    finish(lra, outcome);
+
+                    // only successfully closed nested LRAs need to be kept until the top level LRA ends
+                    if (isFinal(lra, outcome)) {
+                        forget(lra);
+                    }
+
+                    return outcome;
+                });
+    }
+
+    private CompletableFuture<Void> endChild(LRARecord child, boolean cancel) {
+        if (child.status == null) {
+            CompletableFuture<CompensatorStatus> outcome = endIfActive(child, cancel);
+
+            // there is nothing to wait for if the child ended concurrently
+            return outcome == null ? CompletableFuture.completedFuture(null) : outcome.thenApply(status -> null);
+        } else if (cancel && child.status == CompensatorStatus.Completed) {
+            return compensateClosedChild(child);
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> compensateClosedChild(LRARecord child) {
+        List<LRAParticipant> participants;
+        List<LRARecord> children;
+
+        synchronized (child) {
+            if (child.status != CompensatorStatus.Completed) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            setStatus(child, CompensatorStatus.Compensating);
+            participants = new ArrayList<>(child.participants);
+            children = new ArrayList<>(child.children);
+        }
+
+        publish(child, LRAEvent.Type.CANCELLING, null);
+
+        CompletableFuture<Void> nested = CompletableFuture.completedFuture(null);
+
+        for (LRARecord grandChild : children) {
+            nested = nested.thenCompose(ignore -> compensateClosedChild(grandChild));
+        }
+
+        return nested
+                .thenCompose(ignore -> compensate(child, participants))
+                .thenAccept(outcome -> finish(child, outcome));
+    }
+
+    // participants are completed one after the other in the order in which they joined
+    private CompletableFuture<CompensatorStatus> complete(LRARecord lra, List<LRAParticipant> participants) {
+        CompletableFuture<Boolean> failed = CompletableFuture.completedFuture(false);
+
+        for (LRAParticipant participant : participants) {
+            failed = failed.thenCompose(f -> succeeded(() -> participant.completeWork(lra.id)).thenApply(ok -> f || !ok));
+        }
+
+        return failed.thenApply(f -> f ? CompensatorStatus.FailedToComplete : CompensatorStatus.Completed);
+    }
+
+    // participants are compensated one after the other in the reverse of the order in which they joined
+    private CompletableFuture<CompensatorStatus> compensate(LRARecord lra, List<LRAParticipant> participants) {
+        CompletableFuture<Boolean> failed = CompletableFuture.completedFuture(false);
+
+        for (int i = participants.size() - 1; i >= 0; i--) {
+            LRAParticipant participant = participants.get(i);
+
+            failed = failed.thenCompose(f -> succeeded(() -> participant.compensateWork(lra.id)).thenApply(ok -> f || !ok));
+        }
+
+        return failed.thenApply(f -> f ? CompensatorStatus.FailedToCompensate : CompensatorStatus.Compensated);
+    }
+
+    /*
+     * a participant that cannot finish immediately returns a future and signals failure by cancelling it
+     * (or, if the future is a stage, by completing it exceptionally)
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Boolean> succeeded(Notification notification) {
+        Future<Void> work;
+
+        try {
+            work = notification.send();
+        } catch (NotFoundException e) {
+            return CompletableFuture.completedFuture(true); // the participant has already finished with the LRA
+        } catch (TerminationException | RuntimeException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        if (work instanceof CompletionStage) {
+            // react to the participant finishing instead of tying up this thread waiting for it
+            return ((CompletionStage<Void>) work).handle((ignore, failure) -> failure == null || isNotFound(failure))
+                    .toCompletableFuture();
+        }
+
+        return CompletableFuture.completedFuture(succeeded(work));
+    }
+
+    private static boolean isNotFound(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+
+        return cause instanceof NotFoundException;
+    }
+
+    private boolean succeeded(Future<Void> work) {
+        if (work == null) {
+            return true;
+        }
+
+        try {
+            work.get();
+
+            return true;
+        } catch (CancellationException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    private void finish(LRARecord lra, CompensatorStatus outcome) {
+        setStatus(lra, outcome);
+
+        if (isFinal(lra, outcome)) {
+            settle(lra, outcome);
+        }
+
+        publish(lra, LRAEvent.Type.TERMINATED, outcome);
+    }
+
+    /*
+     * a closed nested LRA is compensated if an enclosing LRA is cancelled so its outcome
+     * is not final until the top level LRA has ended
+     */
+    private static boolean isFinal(LRARecord lra, CompensatorStatus outcome) {
+        LRARecord top = lra;
+
+        while (top.parent != null) {
+            top = top.parent;
+        }
+
+        return outcome != CompensatorStatus.Completed || top == lra || top.outcome.isDone();
+    }
+
+    // the outcome and the termination listeners are settled at most once
+    private void settle(LRARecord lra, CompensatorStatus outcome) {
+        if (!lra.outcome.complete(outcome)) {
+            return;
+        }
+
+        for (Consumer<CompensatorStatus> listener : lra.terminationListeners) {
+            try {
+                listener.accept(outcome);
+            } catch (RuntimeException ignore) {
+                // a misbehaving listener must not affect the LRA or the other listeners
+            }
+        }
+    }
+
+    private void forget(LRARecord lra) {
+        List<LRARecord> children;
+
+        synchronized (lra) {
+            children = new ArrayList<>(lra.children);
+        }
+
+        remove(lra);
+
+        if (lra.status == CompensatorStatus.Completed) {
+            settle(lra, CompensatorStatus.Completed); // a closed nested LRA can no longer be compensated
+        }
+
+        children.forEach(this::forget);
+    }
+
+    // must be called holding the monitor of the record
+    private void schedule(LRARecord lra, long nanos) {
+        unschedule(lra);
+
+        lra.deadlineNanos = System.nanoTime() + nanos;
+        // the timer only hands the LRA over so that participants cannot delay the other time limits
+        lra.timeout = timer.schedule(() -> timeouts.execute(() -> timeout(lra)), nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // must be called holding the monitor of the record
+    private void unschedule(LRARecord lra) {
+        if (lra.timeout != null) {
+            lra.timeout.cancel(false);
+            lra.timeout = null;
+        }
+
+        lra.deadlineNanos = 0;
+    }
+
+    private void timeout(LRARecord lra) {
+        // does nothing if the LRA ended before the time limit was reached and does not wait for participants that finish asynchronously
+        endIfActive(lra, true);
+    }
+
+    private void publish(LRARecord lra, LRAEvent.Type type, CompensatorStatus status) {
+        if (eventListeners.isEmpty()) {
+            return;
+        }
+
+        LRAEvent event = new Event(lra.url, type, status, Instant.now());
+
+        for (Consumer<LRAEvent> listener : eventListeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException ignore) {
+                // a misbehaving listener must not affect the LRA or the other listeners
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Notification {
+        Future<Void> send() throws TerminationException;
+    }
+
+    /*
+     * merges state indexes in start order, skipping the second copy of a record that is briefly in two of them
+     */
+    private static final class MergedIterator implements Iterator<LRARecord> {
+        private final List<Iterator<LRARecord>> sources;
+        private final LRARecord[] heads;
+
+        MergedIterator(List<Iterator<LRARecord>> sources) {
+            this.sources = sources;
+            this.heads = new LRARecord[sources.size()];
+
+            for (int i = 0; i < heads.length; i++) {
+                advance(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (LRARecord head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public LRARecord next() {
+            int first = -1;
+
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (first < 0 || heads[i].seq < heads[first].seq)) {
+                    first = i;
+                }
+            }
+
+            if (first < 0) {
+                throw new NoSuchElementException();
+            }
+
+            LRARecord next = heads[first];
+
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && heads[i].seq == next.seq) {
+                    advance(i);
+                }
+            }
+
+            return next;
+        }
+
+        private void advance(int i) {
+            heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+        }
+    }
+
+    private static final class Page implements LRAInfoPage {
+        private final List<LRAInfo> lras;
+        private final String continuationToken;
+
+        Page(List<LRAInfo> lras, String continuationToken) {
+            this.lras = Collections.unmodifiableList(lras);
+            this.continuationToken = continuationToken;
+        }
+
+        @Override
+        public List<LRAInfo> getLRAs() {
+            return lras;
+        }
+
+        @Override
+        public String getContinuationToken() {
+            return continuationToken;
+        }
+
+        @Override
+        public boolean isLastPage() {
+            return continuationToken == null;
+        }
+    }
+
+    private static final class Event implements LRAEvent {
+        private final URL lraId;
+        private final Type type;
+        private final CompensatorStatus status;
+        private final Instant timestamp;
+
+        Event(URL lraId, Type type, CompensatorStatus status, Instant timestamp) {
+            this.lraId = lraId;
+            this.type = type;
+            this.status = status;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public URL getLraId() {
+            return lraId;
+        }
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public Optional<CompensatorStatus> getStatus() {
+            return Optional.ofNullable(status);
+        }
+
+        @Override
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return "LRAEvent{" + lraId + ", " + type + (status == null ? "" : ", " + status) + '}';
+        }
+    }
+
+    static final class Subscription implements LRASubscription {
+        private final AtomicBoolean active = new AtomicBoolean(true);
+        private final Runnable onClose;
+
+        Subscription(Runnable onClose) {
+            this.onClose = onClose;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active.get();
+        }
+
+        @Override
+        public void close() {
+            deactivate();
+        }
+
+        boolean deactivate() {
+            if (active.compareAndSet(true, false)) {
+                onClose.run();
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
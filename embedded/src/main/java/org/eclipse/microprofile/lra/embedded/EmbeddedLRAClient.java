@@ -0,0 +1,827 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.GenericLRAException;
+import org.eclipse.microprofile.lra.client.IllegalLRAStateException;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.client.LRAContextToken;
+import org.eclipse.microprofile.lra.client.LRACoordinatorHealth;
+import org.eclipse.microprofile.lra.client.LRAEvent;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.client.LRAStatusCacheStatistics;
+import org.eclipse.microprofile.lra.client.LRAStatusSnapshot;
+import org.eclipse.microprofile.lra.client.LRASubscription;
+import org.eclipse.microprofile.lra.client.LRATransportConfig;
+import org.eclipse.microprofile.lra.client.LRATransportStatistics;
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.eclipse.microprofile.lra.participant.LRAManagement;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.LRAParticipantDeserializer;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An {@link LRAClient} and {@link LRAManagement} for services whose initiator
+ * and participants live in the same JVM. LRAs are started on an
+ * {@link EmbeddedCoordinator} so starting, joining and ending them involves no
+ * remote calls and participants that join via
+ * {@link LRAManagement#joinLRA(LRAParticipant, URL, Long, TimeUnit)} are
+ * notified by calling them directly.
+ *
+ * An embedded LRA is escalated to a remote coordinator only when a remote
+ * participant (one identified by URLs or by a JAX-RS resource class) joins it:
+ * an LRA is started on the remote coordinator, the remote participants are
+ * enlisted with it and it is closed or cancelled when the embedded LRA ends.
+ * Operations on LRAs that were not started by this client are passed to the
+ * remote coordinator. Without a remote coordinator such operations fail with
+ * a status code of 501 (not implemented).
+ *
+ * The LRA queries report the LRAs of the embedded coordinator only.
+ */
+public class EmbeddedLRAClient implements LRAClient, LRAManagement {
+    private static final int NOT_IMPLEMENTED = 501;
+    private static final int STREAM_PAGE_SIZE = 256;
+
+    private final EmbeddedCoordinator coordinator;
+    private final LRAClient remote;
+    private final Map<LRAId, CompletableFuture<URL>> escalated = new ConcurrentHashMap<>();
+    private final DeserializerRegistry deserializers = new DeserializerRegistry();
+    private final ThreadLocal<LRAContextToken> current = new ThreadLocal<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong statusRequests = new AtomicLong();
+    private final boolean compactContext;
+
+    /**
+     * Create a client with its own embedded coordinator and no remote coordinator
+     *
+     * @param baseUri the URI that the ids of the embedded LRAs are relative to
+     */
+    public EmbeddedLRAClient(URI baseUri) {
+        this(new EmbeddedCoordinator(baseUri), null);
+    }
+
+    /**
+     * @param coordinator the coordinator that manages the embedded LRAs
+     * @param remote the client of the remote coordinator that LRAs are escalated
+     *               to when a remote participant joins them (may be null)
+     */
+    public EmbeddedLRAClient(EmbeddedCoordinator coordinator, LRAClient remote) {
+        this(coordinator, remote, false);
+    }
+
+    /**
+     * @param coordinator the coordinator that manages the embedded LRAs
+     * @param remote the client of the remote coordinator that LRAs are escalated
+     *               to when a remote participant joins them (may be null)
+     * @param compactContext whether the context of an embedded LRA is propagated
+     *                       in compact form (see {@link LRAClient#LRA_HTTP_HEADER_COMPACT_KEY})
+     */
+    public EmbeddedLRAClient(EmbeddedCoordinator coordinator, LRAClient remote, boolean compactContext) {
+        this.coordinator = coordinator;
+        this.remote = remote;
+        this.compactContext = compactContext;
+    }
+
+    /**
+     * Create a client configured using the property names defined by {@link LRAClient}
+     *
+     * @param coordinator the coordinator that manages the embedded LRAs
+     * @param remote the client of the remote coordinator that LRAs are escalated
+     *               to when a remote participant joins them (may be null)
+     * @param properties the source of the configuration (for example <code>System::getProperty</code>)
+     * @return the client
+     */
+    public static EmbeddedLRAClient fromConfig(EmbeddedCoordinator coordinator, LRAClient remote,
+                                               Function<String, String> properties) {
+        String compact = properties.apply(LRA_HTTP_HEADER_COMPACT_KEY);
+
+        return new EmbeddedLRAClient(coordinator, remote, compact != null && Boolean.parseBoolean(compact.trim()));
+    }
+
+    /**
+     * @return the coordinator that manages the embedded LRAs
+     */
+    public EmbeddedCoordinator getCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * Set the endpoint of the remote coordinator (ignored if there is no remote coordinator)
+     *
+     * @param uri the url of the LRA coordinator
+     */
+    @Override
+    public void setCoordinatorURI(URI uri) {
+        if (remote != null) {
+            remote.setCoordinatorURI(uri);
+        }
+    }
+
+    /**
+     * Set the endpoints of the remote coordinators (ignored if there is no remote coordinator)
+     *
+     * @param uris the urls of the LRA coordinators
+     */
+    @Override
+    public void setCoordinatorURIs(Collection<URI> uris) {
+        if (remote != null) {
+            remote.setCoordinatorURIs(uris);
+        }
+    }
+
+    @Override
+    public List<LRACoordinatorHealth> getCoordinatorHealth() {
+        return remote == null ? Collections.emptyList() : remote.getCoordinatorHealth();
+    }
+
+    /**
+     * Set the endpoint of the remote recovery coordinator (ignored if there is
+     * no remote coordinator)
+     *
+     * @param uri the url of the LRA recovery coordinator
+     */
+    @Override
+    public void setRecoveryCoordinatorURI(URI uri) {
+        if (remote != null) {
+            remote.setRecoveryCoordinatorURI(uri);
+        }
+    }
+
+    /**
+     * Close the embedded coordinator and the remote client
+     */
+    @Override
+    public void close() {
+        coordinator.close();
+
+        if (remote != null) {
+            remote.close();
+        }
+    }
+
+    @Override
+    public URL startLRA(URL parentLRA, String clientID, Long timeout, TimeUnit unit) throws GenericLRAException {
+        if (parentLRA != null && !coordinator.isLocal(parentLRA)) {
+            return remote(parentLRA).startLRA(parentLRA, clientID, timeout, unit);
+        }
+
+        requests.incrementAndGet();
+
+        URL lraId = coordinator.start(parentLRA, clientID, timeout == null ? 0L : timeout, unit);
+
+        setCurrentLRA(lraId);
+
+        return lraId;
+    }
+
+    @Override
+    public URL startLRA(String clientID, Long timeout, TimeUnit unit) throws GenericLRAException {
+        return startLRA(null, clientID, timeout, unit);
+    }
+
+    @Override
+    public List<URL> startLRAs(int count, String clientIDPrefix, Long timeout, TimeUnit unit)
+            throws GenericLRAException {
+        if (count <= 0) {
+            throw new GenericLRAException(null, 400, "count must be greater than zero", null);
+        }
+
+        List<URL> lras = new ArrayList<>(count);
+
+        requests.incrementAndGet();
+
+        for (int i = 0; i < count; i++) {
+            lras.add(coordinator.start(null, clientIDPrefix + i, timeout == null ? 0L : timeout, unit));
+        }
+
+        return lras;
+    }
+
+    @Override
+    public String cancelLRA(URL lraId) throws GenericLRAException {
+        if (!coordinator.isLocal(lraId)) {
+            return remote(lraId).cancelLRA(lraId);
+        }
+
+        requests.incrementAndGet();
+
+        URL parent = coordinator.getParent(lraId);
+
+        try {
+            return coordinator.cancel(lraId).name();
+        } finally {
+            restoreCurrent(lraId, parent);
+        }
+    }
+
+    @Override
+    public String closeLRA(URL lraId) throws GenericLRAException {
+        if (!coordinator.isLocal(lraId)) {
+            return remote(lraId).closeLRA(lraId);
+        }
+
+        requests.incrementAndGet();
+
+        URL parent = coordinator.getParent(lraId);
+
+        try {
+            return coordinator.close(lraId).name();
+        } finally {
+            restoreCurrent(lraId, parent);
+        }
+    }
+
+    @Override
+    public Map<URL, String> cancelLRAs(Collection<URL> lraIds) throws GenericLRAException {
+        return endLRAs(lraIds, true);
+    }
+
+    @Override
+    public Map<URL, String> closeLRAs(Collection<URL> lraIds) throws GenericLRAException {
+        return endLRAs(lraIds, false);
+    }
+
+    @Override
+    public List<LRAInfo> getActiveLRAs() throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.ACTIVE));
+    }
+
+    @Override
+    public List<LRAInfo> getAllLRAs() throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.ACTIVE, LRAQuery.State.RECOVERING));
+    }
+
+    @Override
+    public List<LRAInfo> getRecoveringLRAs() throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.RECOVERING));
+    }
+
+    @Override
+    public LRAInfoPage getActiveLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.ACTIVE), pageSize, continuationToken);
+    }
+
+    @Override
+    public LRAInfoPage getAllLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.ACTIVE, LRAQuery.State.RECOVERING),
+                pageSize, continuationToken);
+    }
+
+    @Override
+    public LRAInfoPage getRecoveringLRAs(int pageSize, String continuationToken) throws GenericLRAException {
+        return findLRAs(LRAQuery.all().withStates(LRAQuery.State.RECOVERING), pageSize, continuationToken);
+    }
+
+    @Override
+    public Stream<LRAInfo> streamActiveLRAs() throws GenericLRAException {
+        return stream(LRAQuery.all().withStates(LRAQuery.State.ACTIVE));
+    }
+
+    @Override
+    public Stream<LRAInfo> streamAllLRAs() throws GenericLRAException {
+        return stream(LRAQuery.all().withStates(LRAQuery.State.ACTIVE, LRAQuery.State.RECOVERING));
+    }
+
+    @Override
+    public Stream<LRAInfo> streamRecoveringLRAs() throws GenericLRAException {
+        return stream(LRAQuery.all().withStates(LRAQuery.State.RECOVERING));
+    }
+
+    @Override
+    public List<LRAInfo> findLRAs(LRAQuery query) throws GenericLRAException {
+        requests.incrementAndGet();
+
+        return coordinator.find(query);
+    }
+
+    @Override
+    public LRAInfoPage findLRAs(LRAQuery query, int pageSize, String continuationToken) throws GenericLRAException {
+        requests.incrementAndGet();
+
+        return coordinator.find(query, pageSize, continuationToken);
+    }
+
+    @Override
+    public Optional<CompensatorStatus> getStatus(URL lraId) throws GenericLRAException {
+        if (!coordinator.isLocal(lraId)) {
+            return remote(lraId).getStatus(lraId);
+        }
+
+        requests.incrementAndGet();
+        statusRequests.incrementAndGet();
+
+        return coordinator.getStatus(lraId);
+    }
+
+    @Override
+    public Map<URL, Optional<CompensatorStatus>> getStatuses(Collection<URL> lraIds) throws GenericLRAException {
+        Map<URL, Optional<CompensatorStatus>> statuses = new HashMap<>();
+
+        for (URL lraId : lraIds) {
+            try {
+                statuses.put(lraId, getStatus(lraId));
+            } catch (NotFoundException ignore) {
+                // LRAs that no longer exist are omitted
+            }
+        }
+
+        return statuses;
+    }
+
+    @Override
+    public LRAStatusSnapshot getStatusSnapshot(URL lraId) throws GenericLRAException {
+        return LRAStatusSnapshot.of(lraId, getStatus(lraId));
+    }
+
+    /**
+     * The embedded coordinator is already in process so statuses are never cached
+     *
+     * @return statistics in which every status request is counted as a miss
+     */
+    @Override
+    public LRAStatusCacheStatistics getStatusCacheStatistics() {
+        long misses = statusRequests.get();
+
+        return new LRAStatusCacheStatistics() {
+            @Override
+            public long getHitCount() {
+                return 0;
+            }
+
+            @Override
+            public long getMissCount() {
+                return misses;
+            }
+
+            @Override
+            public long getEvictionCount() {
+                return 0;
+            }
+
+            @Override
+            public int getSize() {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * @return statistics in which requests served by the embedded coordinator
+     * are counted as requests that did not need a connection, combined with
+     * the statistics of the remote client (if there is one)
+     */
+    @Override
+    public LRATransportStatistics getTransportStatistics() {
+        LRATransportStatistics remoteStatistics = remote == null ? null : remote.getTransportStatistics();
+        long requestCount = requests.get() + (remoteStatistics == null ? 0 : remoteStatistics.getRequestCount());
+
+        return new LRATransportStatistics() {
+            @Override
+            public long getRequestCount() {
+                return requestCount;
+            }
+
+            @Override
+            public long getConnectionsOpened() {
+                return remoteStatistics == null ? 0 : remoteStatistics.getConnectionsOpened();
+            }
+
+            @Override
+            public int getOpenConnections() {
+                return remoteStatistics == null ? 0 : remoteStatistics.getOpenConnections();
+            }
+
+            @Override
+            public LRATransportConfig getConfig() {
+                return remoteStatistics == null ? LRATransportConfig.defaults() : remoteStatistics.getConfig();
+            }
+        };
+    }
+
+    @Override
+    public Boolean isActiveLRA(URL lraId) throws GenericLRAException {
+        return !getStatus(lraId).isPresent();
+    }
+
+    @Override
+    public Boolean isCompensatedLRA(URL lraId) throws GenericLRAException {
+        return getStatus(lraId).map(CompensatorStatus.Compensated::equals).orElse(false);
+    }
+
+    @Override
+    public Boolean isCompletedLRA(URL lraId) throws GenericLRAException {
+        return getStatus(lraId).map(CompensatorStatus.Completed::equals).orElse(false);
+    }
+
+    @Override
+    public LRASubscription onTermination(URL lraId, Consumer<CompensatorStatus> listener) throws GenericLRAException {
+        return coordinator.isLocal(lraId)
+                ? coordinator.onTermination(lraId, listener)
+                : remote(lraId).onTermination(lraId, listener);
+    }
+
+    @Override
+    public Optional<CompensatorStatus> awaitOutcome(URL lraId, long timeout, TimeUnit unit) throws GenericLRAException {
+        return coordinator.isLocal(lraId)
+                ? coordinator.awaitOutcome(lraId, timeout, unit)
+                : remote(lraId).awaitOutcome(lraId, timeout, unit);
+    }
+
+    /**
+     * Subscribe to the events of the embedded LRAs and, if there is a remote
+     * coordinator, to those of the remote LRAs
+     *
+     * @param listener the listener
+     * @return the subscription
+     */
+    @Override
+    public LRASubscription onLRAEvents(Consumer<LRAEvent> listener) throws GenericLRAException {
+        LRASubscription local = coordinator.onLRAEvents(listener);
+
+        if (remote == null) {
+            return local;
+        }
+
+        LRASubscription remoteEvents = remote.onLRAEvents(listener);
+
+        return new EmbeddedCoordinator.Subscription(() -> {
+            local.close();
+            remoteEvents.close();
+        });
+    }
+
+    @Override
+    public String joinLRA(URL lraId, Long timelimit, URL compensateUrl, URL completeUrl, URL forgetUrl,
+                          URL leaveUrl, URL statusUrl, String compensatorData) throws GenericLRAException {
+        return coordinator.isLocal(lraId)
+                ? remote(lraId).joinLRA(escalate(lraId), timelimit, compensateUrl, completeUrl, forgetUrl,
+                        leaveUrl, statusUrl, compensatorData)
+                : remote(lraId).joinLRA(lraId, timelimit, compensateUrl, completeUrl, forgetUrl,
+                        leaveUrl, statusUrl, compensatorData);
+    }
+
+    @Override
+    public String joinLRA(URL lraId, Class<?> resourceClass, URI baseUri, String compensatorData)
+            throws GenericLRAException {
+        return coordinator.isLocal(lraId)
+                ? remote(lraId).joinLRA(escalate(lraId), resourceClass, baseUri, compensatorData)
+                : remote(lraId).joinLRA(lraId, resourceClass, baseUri, compensatorData);
+    }
+
+    @Override
+    public URL updateCompensator(URL recoveryUrl, URL compensateUrl, URL completeUrl, URL forgetUrl, URL statusUrl,
+                                 String compensatorData) throws GenericLRAException {
+        return remote(recoveryUrl).updateCompensator(recoveryUrl, compensateUrl, completeUrl, forgetUrl, statusUrl,
+                compensatorData);
+    }
+
+    /**
+     * Remove a remote participant from an LRA (participants that joined via
+     * {@link LRAManagement} cannot be identified by a request body)
+     *
+     * @param lraId The unique identifier of the LRA (required)
+     * @param body the data identifying the participant
+     */
+    @Override
+    public void leaveLRA(URL lraId, String body) throws GenericLRAException {
+        if (!coordinator.isLocal(lraId)) {
+            remote(lraId).leaveLRA(lraId, body);
+        } else if (escalatedTo(lraId) != null) {
+            remote(lraId).leaveLRA(escalatedTo(lraId), body);
+        } else {
+            throw new NotFoundException("no remote participants have joined LRA " + lraId);
+        }
+    }
+
+    @Override
+    public void renewTimeLimit(URL lraId, long limit, TimeUnit unit) {
+        if (!coordinator.isLocal(lraId)) {
+            remote(lraId).renewTimeLimit(lraId, limit, unit);
+            return;
+        }
+
+        requests.incrementAndGet();
+        coordinator.renewTimeLimit(lraId, limit, unit);
+
+        URL remoteLRA = escalatedTo(lraId);
+
+        if (remoteLRA != null) {
+            remote.renewTimeLimit(remoteLRA, limit, unit);
+        }
+    }
+
+    @Override
+    public URL getCurrent() {
+        LRAContextToken context = current.get();
+
+        if (context == null) {
+            return null;
+        }
+
+        URL lraId = context.expand(coordinator.getBaseUri()).toURL();
+
+        current.set(LRAContextToken.of(LRAId.valueOf(lraId))); // expand at most once
+
+        return lraId;
+    }
+
+    @Override
+    public void setCurrentLRA(URL lraId) {
+        if (lraId == null) {
+            current.remove();
+        } else {
+            current.set(LRAContextToken.of(LRAId.valueOf(lraId)));
+        }
+    }
+
+    @Override
+    public LRAContextToken getCurrentContext() {
+        LRAContextToken context = current.get();
+
+        if (context == null || !compactContext || context.isCompact()) {
+            return context;
+        }
+
+        return LRAContextToken.compact(coordinator.getBaseUri(), context.expand(null));
+    }
+
+    @Override
+    public void setCurrentContext(LRAContextToken context) {
+        if (context == null) {
+            current.remove();
+        } else {
+            current.set(context);
+        }
+    }
+
+    @Override
+    public String joinLRA(LRAParticipant participant, URL lraId, Long timeLimit, TimeUnit unit)
+            throws JoinLRAException {
+        if (!coordinator.isLocal(lraId)) {
+            throw new JoinLRAException(lraId, NOT_IMPLEMENTED,
+                    "participants can only join LRAs managed by the embedded coordinator", null);
+        }
+
+        requests.incrementAndGet();
+
+        try {
+            return coordinator.join(lraId, participant, timeLimit == null ? 0L : timeLimit, unit);
+        } catch (NotFoundException e) {
+            throw new JoinLRAException(lraId, e.getResponse().getStatus(), e.getMessage(), e);
+        } catch (IllegalLRAStateException e) {
+            throw new JoinLRAException(lraId, 412, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String joinLRA(LRAParticipant participant, URL lraId) throws JoinLRAException {
+        return joinLRA(participant, lraId, 0L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The embedded coordinator does not survive the JVM so deserializers are
+     * only kept for the benefit of a remote coordinator
+     *
+     * @param deserializer an object that knows how to recreate participants
+     */
+    @Override
+    public void registerDeserializer(LRAParticipantDeserializer deserializer) {
+        deserializers.register(deserializer);
+    }
+
+    @Override
+    public void registerDeserializer(String typeTag, LRAParticipantDeserializer deserializer) {
+        deserializers.register(typeTag, deserializer);
+    }
+
+    @Override
+    public void unregisterDeserializer(LRAParticipantDeserializer deserializer) {
+        deserializers.unregister(deserializer);
+    }
+
+    /**
+     * @return the deserializers registered with this client
+     */
+    public DeserializerRegistry getDeserializers() {
+        return deserializers;
+    }
+
+    private LRAClient remote(URL lraId) {
+        if (remote == null) {
+            throw new GenericLRAException(lraId, NOT_IMPLEMENTED, "no remote coordinator is configured", null);
+        }
+
+        return remote;
+    }
+
+    /*
+     * the LRA on the remote coordinator that the remote participants of an embedded LRA are enlisted with:
+     * the first caller escalates the LRA and concurrent callers for the same LRA wait for it to finish
+     * (escalations of different LRAs do not wait for each other)
+     */
+    private URL escalate(URL lraId) {
+        LRAId id = LRAId.valueOf(lraId);
+        CompletableFuture<URL> escalation = new CompletableFuture<>();
+        CompletableFuture<URL> existing = escalated.putIfAbsent(id, escalation);
+
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            LRAInfo info = coordinator.getInfo(lraId);
+            URL remoteLRA = remote(lraId).startLRA(null, info.getClientId(),
+                    coordinator.getRemainingTimeMillis(lraId), TimeUnit.MILLISECONDS);
+
+            try {
+                coordinator.join(lraId, new RemoteLRAParticipant(remote, remoteLRA), 0L, TimeUnit.SECONDS);
+            } catch (WebApplicationException e) {
+                remote.cancelLRA(remoteLRA);
+                throw e;
+            }
+
+            escalation.complete(remoteLRA);
+            coordinator.onTermination(lraId, status -> escalated.remove(id));
+
+            return remoteLRA;
+        } catch (RuntimeException e) {
+            escalated.remove(id, escalation);
+            escalation.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /*
+     * the remote LRA that an embedded LRA has been escalated to (null if it has not finished escalating)
+     */
+    private URL escalatedTo(URL lraId) {
+        CompletableFuture<URL> escalation = escalated.get(LRAId.valueOf(lraId));
+
+        return escalation == null || escalation.isCompletedExceptionally() ? null : escalation.getNow(null);
+    }
+
+    /*
+     * read the matching LRAs a page at a time as the stream is traversed so that the whole result is never held
+     */
+    private Stream<LRAInfo> stream(LRAQuery query) {
+        Spliterator<LRAInfo> pages = new Spliterators.AbstractSpliterator<LRAInfo>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<LRAInfo> page = Collections.emptyIterator();
+            private String continuationToken;
+            private boolean lastPage;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super LRAInfo> action) {
+                while (!page.hasNext()) {
+                    if (lastPage) {
+                        return false;
+                    }
+
+                    LRAInfoPage next = findLRAs(query, STREAM_PAGE_SIZE, continuationToken);
+
+                    page = next.getLRAs().iterator();
+                    continuationToken = next.getContinuationToken();
+                    lastPage = continuationToken == null;
+                }
+
+                action.accept(page.next());
+
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(pages, false);
+    }
+
+    /*
+     * end every local LRA without waiting so that the participants of different LRAs are notified
+     * concurrently, and send the remote LRAs to the remote coordinator in a single batch
+     */
+    private Map<URL, String> endLRAs(Collection<URL> lraIds, boolean cancel) {
+        Map<URL, CompletableFuture<CompensatorStatus>> ending = new LinkedHashMap<>();
+        Map<URL, URL> parents = new HashMap<>();
+        List<URL> remoteLRAs = new ArrayList<>();
+
+        requests.incrementAndGet();
+
+        for (URL lraId : lraIds) {
+            if (!coordinator.isLocal(lraId)) {
+                remoteLRAs.add(lraId);
+                continue;
+            } else if (ending.containsKey(lraId)) {
+                continue; // the LRA is already ending
+            }
+
+            try {
+                parents.put(lraId, coordinator.getParent(lraId));
+                ending.put(lraId, (cancel ? coordinator.cancelAsync(lraId) : coordinator.closeAsync(lraId)).toCompletableFuture());
+            } catch (RuntimeException e) {
+                CompletableFuture<CompensatorStatus> failed = new CompletableFuture<>();
+
+                failed.completeExceptionally(e);
+                ending.put(lraId, failed);
+            }
+        }
+
+        Map<URL, String> remoteOutcomes = remoteLRAs.isEmpty() ? Collections.emptyMap()
+                : cancel ? remote(remoteLRAs.get(0)).cancelLRAs(remoteLRAs) : remote(remoteLRAs.get(0)).closeLRAs(remoteLRAs);
+
+        CompletableFuture.allOf(ending.values().toArray(new CompletableFuture<?>[0])).handle((ignore, failure) -> null).join();
+
+        Map<URL, String> outcomes = new LinkedHashMap<>();
+        RuntimeException failure = null;
+
+        for (URL lraId : lraIds) {
+            CompletableFuture<CompensatorStatus> outcome = ending.get(lraId);
+
+            if (outcome == null) {
+                if (remoteOutcomes.containsKey(lraId)) {
+                    outcomes.put(lraId, remoteOutcomes.get(lraId));
+                }
+
+                continue;
+            }
+
+            try {
+                outcomes.put(lraId, outcome.join().name());
+                restoreCurrent(lraId, parents.get(lraId));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+
+                // LRAs that no longer exist are omitted and any other failure is thrown once every LRA has ended
+                if (cause instanceof IllegalLRAStateException) {
+                    outcomes.put(lraId, "");
+                } else if (!(cause instanceof NotFoundException) && failure == null) {
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause : e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return outcomes;
+    }
+
+    /*
+     * once the current LRA has ended its parent (if any) becomes the current LRA
+     */
+    private void restoreCurrent(URL lraId, URL parent) {
+        LRAContextToken context = current.get();
+
+        if (context != null && !context.isCompact() && context.toHeaderValue().equals(lraId.toExternalForm())) {
+            setCurrentLRA(parent);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.eclipse.microprofile.lra.participant.LRAManagement;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.LRAParticipantDeserializer;
+import org.eclipse.microprofile.lra.participant.TerminationException;
+
+import javax.ws.rs.NotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * An {@link LRAManagement} that makes the participants that join LRAs durable
+ * before passing the join on to another LRA manager. The persistent form of
+ * each participant (see {@link LRAParticipant#writeRecoveryState(ByteBuffer)})
+ * is appended to a local memory mapped journal together with its type tag and
+ * the join only proceeds once the journal has been forced to the storage
+ * device. Forces are group committed so concurrent joins share them. When the
+ * participant finishes completing or compensating a tombstone is appended and
+ * the journal is compacted once enough of it is taken up by finished
+ * participants.
+ *
+ * After the JVM restarts the participants that had not finished are replayed
+ * with {@link #recover(RecoveryReplay)} using the deserializers registered
+ * with this manager (see {@link #getDeserializers()}). The LRAs of an
+ * {@link EmbeddedCoordinator} do not survive the restart, so the coordinator
+ * reports them as not found and the replay deals with their participants
+ * according to its {@link RecoveryReplay.NotFoundPolicy}. By default they stay
+ * in the journal; compensating them is only safe if the participants report
+ * that they do not know about LRAs they have already finished with, because
+ * tombstones are not forced and a completed participant may be replayed again.
+ */
+public class JournalLRAManagement implements LRAManagement, AutoCloseable {
+    /**
+     * The name of the property holding the path of the journal file
+     */
+    public static final String JOURNAL_PATH_KEY = "lra.journal.path";
+    /**
+     * The name of the property holding the initial size of the journal file in bytes
+     */
+    public static final String JOURNAL_SIZE_KEY = "lra.journal.size";
+    /**
+     * The name of the property that when false stops joins from waiting for the journal to be
+     * forced to the storage device (participants may then be lost if the operating system crashes)
+     */
+    public static final String JOURNAL_SYNC_KEY = "lra.journal.sync";
+    /**
+     * The name of the property holding the fraction of the journal that must be taken up by
+     * finished participants for it to be compacted rather than grown when it is full
+     */
+    public static final String JOURNAL_COMPACTION_THRESHOLD_KEY = "lra.journal.compaction.threshold";
+
+    private static final int INTERNAL_SERVER_ERROR = 500;
+
+    private final LRAManagement delegate;
+    private final RecoveryJournal journal;
+    private final DeserializerRegistry deserializers = new DeserializerRegistry();
+
+    private JournalLRAManagement(LRAManagement delegate, RecoveryJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    /**
+     * Open the journal, creating it if it does not exist
+     *
+     * @param delegate the LRA manager that participants join once they are durable
+     * @param path the journal file
+     * @param initialSize the initial size of the journal file in bytes
+     * @param sync false if joins should not wait for the journal to be forced to the storage device
+     * @param compactionThreshold the fraction of the journal that must be taken up by finished
+     *                            participants for it to be compacted rather than grown when it is full
+     * @return the LRA manager
+     * @throws IOException if the journal cannot be opened
+     */
+    public static JournalLRAManagement open(LRAManagement delegate, Path path, int initialSize, boolean sync,
+                                            double compactionThreshold) throws IOException {
+        return new JournalLRAManagement(Objects.requireNonNull(delegate),
+                RecoveryJournal.open(path, initialSize, sync, compactionThreshold));
+    }
+
+    /**
+     * Open the journal configured using the property names defined by this class
+     *
+     * @param delegate the LRA manager that participants join once they are durable
+     * @param properties the source of the configuration (for example <code>System::getProperty</code>)
+     * @return the LRA manager
+     * @throws IOException if the journal cannot be opened
+     */
+    public static JournalLRAManagement fromConfig(LRAManagement delegate, Function<String, String> properties)
+            throws IOException {
+        String path = properties.apply(JOURNAL_PATH_KEY);
+        String size = properties.apply(JOURNAL_SIZE_KEY);
+        String sync = properties.apply(JOURNAL_SYNC_KEY);
+        String threshold = properties.apply(JOURNAL_COMPACTION_THRESHOLD_KEY);
+
+        return open(delegate,
+                Paths.get(path == null ? "lra-participants.journal" : path.trim()),
+                size == null ? 16 * 1024 * 1024 : Integer.parseInt(size.trim()),
+                sync == null || Boolean.parseBoolean(sync.trim()),
+                threshold == null ? 0.5 : Double.parseDouble(threshold.trim()));
+    }
+
+    @Override
+    public String joinLRA(LRAParticipant participant, URL lraId, Long timeLimit, TimeUnit unit)
+            throws JoinLRAException {
+        long id = persist(participant, lraId);
+
+        try {
+            return delegate.joinLRA(new JournaledParticipant(participant, journal, id), lraId, timeLimit, unit);
+        } catch (JoinLRAException | RuntimeException e) {
+            forget(id);
+
+            throw e;
+        }
+    }
+
+    @Override
+    public String joinLRA(LRAParticipant participant, URL lraId) throws JoinLRAException {
+        long id = persist(participant, lraId);
+
+        try {
+            return delegate.joinLRA(new JournaledParticipant(participant, journal, id), lraId);
+        } catch (JoinLRAException | RuntimeException e) {
+            forget(id);
+
+            throw e;
+        }
+    }
+
+    @Override
+    public void registerDeserializer(LRAParticipantDeserializer deserializer) {
+        deserializers.register(deserializer);
+        delegate.registerDeserializer(deserializer);
+    }
+
+    @Override
+    public void registerDeserializer(String typeTag, LRAParticipantDeserializer deserializer) {
+        deserializers.register(typeTag, deserializer);
+        delegate.registerDeserializer(typeTag, deserializer);
+    }
+
+    @Override
+    public void unregisterDeserializer(LRAParticipantDeserializer deserializer) {
+        deserializers.unregister(deserializer);
+        delegate.unregisterDeserializer(deserializer);
+    }
+
+    /**
+     * @return the deserializers registered with this manager
+     */
+    public DeserializerRegistry getDeserializers() {
+        return deserializers;
+    }
+
+    /**
+     * @return the number of participants in the journal that have not finished
+     */
+    public int getPendingCount() {
+        return journal.size();
+    }
+
+    /**
+     * Replay the participants that had not finished when the journal was
+     * opened. A tombstone is written for each participant that the replay
+     * resolves so that it is not replayed again.
+     *
+     * @param replay the replay (which should use the deserializers of this manager)
+     * @return the final progress of the replay
+     */
+    public RecoveryProgress recover(RecoveryReplay replay) {
+        Map<Long, RecoveryRecord> recovered = journal.getRecovered();
+        Map<RecoveryRecord, Long> ids = new IdentityHashMap<>();
+
+        recovered.forEach((id, record) -> ids.put(record, id));
+
+        // the replay relies on the join order, which the identity map does not keep
+        return replay.replay(recovered.values(), record -> forget(ids.get(record)));
+    }
+
+    /**
+     * Copy the participants that have not finished into a new journal file
+     *
+     * @throws IOException if the new journal file cannot be written
+     */
+    public void compact() throws IOException {
+        journal.compact();
+    }
+
+    /**
+     * Close the journal (the delegate is not closed)
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private long persist(LRAParticipant participant, URL lraId) throws JoinLRAException {
+        try {
+            return journal.append(lraId, participant);
+        } catch (IOException e) {
+            throw new JoinLRAException(lraId, INTERNAL_SERVER_ERROR, "unable to make the participant durable: " + e.getMessage(), e);
+        }
+    }
+
+    private void forget(long id) {
+        try {
+            journal.remove(id);
+        } catch (IOException ignore) {
+            // without the tombstone the participant is replayed again after a restart
+        }
+    }
+
+    /**
+     * Enlisted in place of the participant so that a tombstone is written when it finishes
+     */
+    private static final class JournaledParticipant implements LRAParticipant {
+        private static final long serialVersionUID = 1L;
+
+        private final LRAParticipant participant;
+        private final transient RecoveryJournal journal;
+        private final long id;
+        private final transient AtomicBoolean finished = new AtomicBoolean();
+
+        JournaledParticipant(LRAParticipant participant, RecoveryJournal journal, long id) {
+            this.participant = participant;
+            this.journal = journal;
+            this.id = id;
+        }
+
+        @Override
+        public Future<Void> completeWork(URL lraId) throws NotFoundException, TerminationException {
+            try {
+                return track(participant.completeWork(lraId));
+            } catch (NotFoundException | TerminationException e) {
+                finish();
+
+                throw e;
+            }
+        }
+
+        @Override
+        public Future<Void> compensateWork(URL lraId) throws NotFoundException, TerminationException {
+            try {
+                return track(participant.compensateWork(lraId));
+            } catch (NotFoundException | TerminationException e) {
+                finish();
+
+                throw e;
+            }
+        }
+
+        @Override
+        public String getRecoveryTypeTag() {
+            return participant.getRecoveryTypeTag();
+        }
+
+        @Override
+        public boolean writeRecoveryState(ByteBuffer buffer) {
+            return participant.writeRecoveryState(buffer);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return participant.equals(((JournaledParticipant) o).participant);
+        }
+
+        @Override
+        public int hashCode() {
+            return participant.hashCode();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Future<Void> track(Future<Void> work) {
+            if (work == null) {
+                finish();
+
+                return null;
+            }
+
+            if (work instanceof CompletionStage) {
+                // keep the future a stage so that the LRA manager can still react to it instead of waiting
+                CompletableFuture<Void> tracked = new CompletableFuture<>();
+
+                ((CompletionStage<Void>) work).whenComplete((result, failure) -> {
+                    finish();
+
+                    if (failure == null) {
+                        tracked.complete(result);
+                    } else {
+                        tracked.completeExceptionally(failure);
+                    }
+                });
+
+                return tracked;
+            }
+
+            return new TrackedFuture(work);
+        }
+
+        private void finish() {
+            if (journal != null && finished.compareAndSet(false, true)) {
+                try {
+                    journal.remove(id);
+                } catch (IOException ignore) {
+                    // without the tombstone the participant is replayed again after a restart
+                }
+            }
+        }
+
+        // writes the tombstone once the caller observes that the participant has finished
+        private final class TrackedFuture implements Future<Void> {
+            private final Future<Void> work;
+
+            TrackedFuture(Future<Void> work) {
+                this.work = work;
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return work.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return work.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return work.isDone();
+            }
+
+            @Override
+            public Void get() throws InterruptedException, ExecutionException {
+                try {
+                    Void result = work.get();
+
+                    finish();
+
+                    return result;
+                } catch (ExecutionException | CancellationException e) {
+                    finish();
+
+                    throw e;
+                }
+            }
+
+            @Override
+            public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    Void result = work.get(timeout, unit);
+
+                    finish();
+
+                    return result;
+                } catch (ExecutionException | CancellationException e) {
+                    finish();
+
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+/**
+ * The state of an LRA managed by an {@link EmbeddedCoordinator}. The status is
+ * volatile so that queries can read it without locking. Every other mutable
+ * field is guarded by the monitor of the record.
+ */
+final class LRARecord {
+    final long seq; // the start time in microseconds since the epoch (unique and increasing in start order)
+    final LRAId id;
+    final URL url;
+    final String clientId;
+    final LRARecord parent;
+    final Instant startTime;
+    final CompletableFuture<CompensatorStatus> outcome = new CompletableFuture<>();
+    final List<Consumer<CompensatorStatus>> terminationListeners = new CopyOnWriteArrayList<>();
+
+    // null while the LRA is active
+    volatile CompensatorStatus status;
+
+    final List<LRAParticipant> participants = new ArrayList<>();
+    final List<LRARecord> children = new ArrayList<>();
+    ScheduledFuture<?> timeout;
+    long deadlineNanos; // 0 if the LRA has no time limit
+    int enlistments;
+
+    LRARecord(long seq, LRAId id, String clientId, LRARecord parent) {
+        this.seq = seq;
+        this.id = id;
+        this.url = id.toURL();
+        this.clientId = clientId;
+        this.parent = parent;
+        this.startTime = Instant.ofEpochSecond(seq / 1_000_000, seq % 1_000_000 * 1_000);
+    }
+
+    boolean isRecovering() {
+        return state() == LRAQuery.State.RECOVERING;
+    }
+
+    boolean matches(LRAQuery query) {
+        CompensatorStatus s = status;
+
+        if (query.getClientIdPrefix().isPresent()
+                && (clientId == null || !clientId.startsWith(query.getClientIdPrefix().get()))) {
+            return false;
+        }
+
+        if (query.getTopLevel().isPresent() && query.getTopLevel().get() != (parent == null)) {
+            return false;
+        }
+
+        if (query.getParent().isPresent()
+                && (parent == null || !parent.id.equals(LRAId.valueOf(query.getParent().get())))) {
+            return false;
+        }
+
+        if (query.getStartedAfter().isPresent() && !startTime.isAfter(query.getStartedAfter().get())) {
+            return false;
+        }
+
+        if (query.getStartedBefore().isPresent() && !startTime.isBefore(query.getStartedBefore().get())) {
+            return false;
+        }
+
+        return query.getStates().isEmpty() || query.getStates().contains(stateOf(s));
+    }
+
+    LRAQuery.State state() {
+        return stateOf(status);
+    }
+
+    LRAInfo toInfo() {
+        return new Info(id.toString(), clientId, status, parent == null);
+    }
+
+    // an LRA whose participants failed to complete or compensate needs recovery just as one that is ending does
+    private static LRAQuery.State stateOf(CompensatorStatus s) {
+        if (s == null) {
+            return LRAQuery.State.ACTIVE;
+        }
+
+        switch (s) {
+            case Completed:
+                return LRAQuery.State.COMPLETED;
+            case Compensated:
+                return LRAQuery.State.COMPENSATED;
+            default:
+                return LRAQuery.State.RECOVERING;
+        }
+    }
+
+    /*
+     * an immutable snapshot of the record
+     */
+    private static final class Info implements LRAInfo {
+        private final String lraId;
+        private final String clientId;
+        private final CompensatorStatus status;
+        private final boolean topLevel;
+
+        Info(String lraId, String clientId, CompensatorStatus status, boolean topLevel) {
+            this.lraId = lraId;
+            this.clientId = clientId;
+            this.status = status;
+            this.topLevel = topLevel;
+        }
+
+        @Override
+        public String getLraId() {
+            return lraId;
+        }
+
+        @Override
+        public String getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return status == CompensatorStatus.Completed;
+        }
+
+        @Override
+        public boolean isCompensated() {
+            return status == CompensatorStatus.Compensated;
+        }
+
+        @Override
+        public boolean isRecovering() {
+            return stateOf(status) == LRAQuery.State.RECOVERING;
+        }
+
+        @Override
+        public boolean isActive() {
+            return status == null;
+        }
+
+        @Override
+        public boolean isTopLevel() {
+            return topLevel;
+        }
+
+        @Override
+        public String toString() {
+            return "LRAInfo{" +
+                    "lraId='" + lraId + '\'' +
+                    ", clientId='" + clientId + '\'' +
+                    ", status=" + Optional.ofNullable(status).map(Enum::name).orElse("Active") +
+                    ", topLevel=" + topLevel +
+                    '}';
+        }
+    }
+}
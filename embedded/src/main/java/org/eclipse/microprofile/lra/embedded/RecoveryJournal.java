@@ -0,0 +1,554 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append only journal of participant records held in a memory mapped file.
+ *
+ * A participant record holds the {@link RecoveryRecord} of a participant and
+ * is written when the participant joins. A tombstone is written when the
+ * participant finishes. Every record is framed by its length and a CRC so
+ * that a record torn by a crash ends the journal when it is reopened.
+ *
+ * Appending a participant record copies it into the mapped file and then
+ * waits until the file has been forced to the storage device. Forces are
+ * group committed: while one thread forces the file, other threads that
+ * append wait and are then covered by a single further force. Tombstones are
+ * not forced because a lost tombstone only means that a participant is
+ * replayed again, which participants must tolerate anyway.
+ *
+ * When the file is full the journal is compacted, if enough of it is taken up
+ * by finished participants, by copying the records of the unfinished
+ * participants into a new file that then replaces the old one. Otherwise the
+ * file is grown.
+ */
+final class RecoveryJournal implements AutoCloseable {
+    private static final int MAGIC = 0x4C52414A; // "LRAJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte PARTICIPANT = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int TOMBSTONE_SIZE = 4 + 1 + 8 + 4; // length, type, id, crc
+
+    private final Path path;
+    private final int initialSize;
+    private final boolean sync;
+    private final double compactionThreshold;
+
+    // guarded by the monitor of the journal
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int writePosition;
+    private long nextId = 1;
+    private long appended; // the number of records appended since the journal was opened
+    private long deadBytes;
+    private Map<Long, Extent> live = new LinkedHashMap<>();
+    private final Map<Long, RecoveryRecord> recovered = new LinkedHashMap<>();
+    private boolean closed;
+
+    // guarded by syncLock
+    private final Object syncLock = new Object();
+    private long durable;
+    private boolean syncing;
+
+    private RecoveryJournal(Path path, int initialSize, boolean sync, double compactionThreshold) {
+        this.path = path;
+        this.initialSize = initialSize;
+        this.sync = sync;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Open a journal, creating it if it does not exist
+     *
+     * @param path the journal file
+     * @param initialSize the initial size of the file in bytes
+     * @param sync true if appending a participant record should wait for it to be forced to the storage device
+     * @param compactionThreshold the fraction of the file that must be taken up by finished participants
+     *                            for it to be compacted rather than grown when it is full
+     * @return the journal
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    static RecoveryJournal open(Path path, int initialSize, boolean sync, double compactionThreshold) throws IOException {
+        RecoveryJournal journal = new RecoveryJournal(path, Math.max(initialSize, 4096), sync, compactionThreshold);
+
+        Files.deleteIfExists(journal.compactionPath()); // left behind by a crash during compaction
+        journal.load();
+
+        return journal;
+    }
+
+    /**
+     * @return the records of the participants that had not finished when the
+     * journal was opened (and have not finished since) keyed by record id, in
+     * the order in which they joined
+     */
+    synchronized Map<Long, RecoveryRecord> getRecovered() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(recovered));
+    }
+
+    /**
+     * @return the number of participants that have not finished
+     */
+    synchronized int size() {
+        return live.size();
+    }
+
+    /**
+     * Append the record of a participant and wait for it to be durable
+     *
+     * @param lraId the LRA that the participant is joining
+     * @param participant the participant
+     * @return the id of the record
+     * @throws IOException if the record cannot be written
+     */
+    long append(URL lraId, LRAParticipant participant) throws IOException {
+        long id;
+        long seq;
+
+        synchronized (this) {
+            checkOpen();
+
+            id = nextId++;
+
+            int end;
+
+            while ((end = tryAppend(writePosition, id, lraId, participant)) < 0) {
+                makeRoom();
+            }
+
+            live.put(id, new Extent(writePosition, end - writePosition));
+            writePosition = end;
+            seq = ++appended;
+        }
+
+        awaitDurable(seq);
+
+        return id;
+    }
+
+    /**
+     * Record that a participant has finished
+     *
+     * @param id the id of the record of the participant
+     * @throws IOException if the tombstone cannot be written
+     */
+    synchronized void remove(long id) throws IOException {
+        if (closed) {
+            return;
+        }
+
+        Extent extent = live.remove(id);
+
+        recovered.remove(id);
+
+        if (extent == null) {
+            return;
+        }
+
+        deadBytes += extent.length;
+
+        if (writePosition + TOMBSTONE_SIZE > mapped.capacity()) {
+            makeRoom();
+
+            if (deadBytes == 0) {
+                return; // the journal was compacted so the participant record is gone
+            }
+        }
+
+        ByteBuffer out = at(writePosition);
+
+        out.put(TOMBSTONE).putLong(id);
+        writePosition = seal(writePosition, out.position());
+        deadBytes += TOMBSTONE_SIZE;
+        appended++;
+    }
+
+    /**
+     * Copy the records of the participants that have not finished into a new
+     * file that replaces the journal file
+     *
+     * @throws IOException if the new file cannot be written
+     */
+    synchronized void compact() throws IOException {
+        checkOpen();
+
+        long liveBytes = HEADER_SIZE;
+
+        for (Extent extent : live.values()) {
+            liveBytes += extent.length;
+        }
+
+        Path compacted = compactionPath();
+        FileChannel newChannel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            MappedByteBuffer region = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    capacityFor(Math.max(initialSize, 2 * liveBytes)));
+            Map<Long, Extent> moved = new LinkedHashMap<>();
+
+            region.putInt(MAGIC).putInt(VERSION);
+
+            for (Map.Entry<Long, Extent> entry : live.entrySet()) {
+                Extent extent = entry.getValue();
+                ByteBuffer record = mapped.duplicate();
+
+                record.position(extent.offset).limit(extent.offset + extent.length);
+                moved.put(entry.getKey(), new Extent(region.position(), extent.length));
+                region.put(record);
+            }
+
+            if (sync) {
+                region.force();
+            }
+
+            Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE);
+
+            channel.close();
+            channel = newChannel;
+            mapped = region;
+            writePosition = region.position();
+            live = moved;
+            deadBytes = 0;
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            Files.deleteIfExists(compacted);
+
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+
+            if (sync) {
+                mapped.force();
+            }
+
+            channel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long existing = channel.size();
+
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(Math.max(initialSize, existing)));
+
+        if (existing == 0) {
+            mapped.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            channel.close();
+
+            throw new IOException(path + " is not a recovery journal");
+        }
+
+        int position = HEADER_SIZE;
+        int length;
+
+        while ((length = validLength(position)) > 0) {
+            ByteBuffer in = at(position);
+            byte type = in.get();
+            long id = in.getLong();
+
+            if (type == PARTICIPANT) {
+                URL lraId = new URL(getString(in));
+                String typeTag = getString(in);
+                int stateLength = in.getInt();
+
+                in.limit(in.position() + stateLength);
+                live.put(id, new Extent(position, 4 + length));
+                recovered.put(id, new RecoveryRecord(lraId, typeTag, in)); // refers to the mapped file
+            } else {
+                Extent extent = live.remove(id);
+
+                recovered.remove(id);
+                deadBytes += TOMBSTONE_SIZE + (extent == null ? 0 : extent.length);
+            }
+
+            nextId = Math.max(nextId, id + 1);
+            position += 4 + length;
+        }
+
+        writePosition = position;
+        zeroTail(position);
+    }
+
+    /*
+     * A record torn by a crash, and any record that reached the file after it,
+     * may have left bytes after the end of the journal that a later record
+     * must not be mistaken for. Only the region up to the last non zero byte
+     * is written so that the untouched end of the file is not dirtied.
+     */
+    private void zeroTail(int position) {
+        int end = mapped.capacity();
+
+        while (end - 8 >= position && mapped.getLong(end - 8) == 0) {
+            end -= 8;
+        }
+
+        while (end > position && mapped.get(end - 1) == 0) {
+            end--;
+        }
+
+        ByteBuffer tail = mapped.duplicate();
+        byte[] zeros = new byte[Math.min(64 * 1024, end - position)];
+
+        tail.position(position).limit(end);
+
+        while (tail.hasRemaining()) {
+            tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+        }
+    }
+
+    // the length of the record at the position or 0 if there is no intact record there
+    private int validLength(int position) {
+        if (position + 4 > mapped.capacity()) {
+            return 0;
+        }
+
+        int length = mapped.getInt(position);
+
+        if (length < 1 + 8 + 4 || length > mapped.capacity() - position - 4) {
+            return 0;
+        }
+
+        ByteBuffer body = mapped.duplicate();
+        CRC32 crc = new CRC32();
+
+        body.position(position + 4).limit(position + length);
+        crc.update(body);
+
+        return (int) crc.getValue() == mapped.getInt(position + length) ? length : 0;
+    }
+
+    // returns the end of the record or -1 if it does not fit
+    private int tryAppend(int start, long id, URL lraId, LRAParticipant participant) throws IOException {
+        if (start + 8 > mapped.capacity()) {
+            return -1; // there is not even room for the length and crc
+        }
+
+        ByteBuffer out = at(start);
+
+        try {
+            out.put(PARTICIPANT).putLong(id);
+            putString(out, lraId.toExternalForm());
+            putString(out, participant.getRecoveryTypeTag());
+
+            int stateLengthPosition = out.position();
+
+            out.putInt(0);
+
+            int stateStart = out.position();
+
+            if (!participant.writeRecoveryState(out)) {
+                out.position(stateStart);
+
+                try (ObjectOutputStream stream = new ObjectOutputStream(new BufferOutputStream(out))) {
+                    stream.writeObject(participant);
+                }
+            }
+
+            out.putInt(stateLengthPosition, out.position() - stateStart);
+
+            return seal(start, out.position());
+        } catch (BufferOverflowException e) {
+            return -1;
+        }
+    }
+
+    // a buffer for writing a record at the position leaving room for its length and crc
+    private ByteBuffer at(int position) {
+        ByteBuffer out = mapped.duplicate();
+
+        out.limit(mapped.capacity() - 4).position(position + 4);
+
+        return out;
+    }
+
+    // write the crc and then the length, which makes the record visible, and return the end of the record
+    private int seal(int start, int end) {
+        ByteBuffer body = mapped.duplicate();
+        CRC32 crc = new CRC32();
+
+        body.position(start + 4).limit(end);
+        crc.update(body);
+        mapped.putInt(end, (int) crc.getValue());
+        mapped.putInt(start, end + 4 - start - 4);
+
+        return end + 4;
+    }
+
+    private void makeRoom() throws IOException {
+        if (deadBytes > 0 && deadBytes >= compactionThreshold * (writePosition - HEADER_SIZE)) {
+            compact();
+        } else if (mapped.capacity() == Integer.MAX_VALUE) {
+            throw new IOException("recovery journal " + path + " is full");
+        } else {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(2L * mapped.capacity()));
+        }
+    }
+
+    private void awaitDurable(long seq) throws IOException {
+        if (!sync) {
+            return;
+        }
+
+        while (true) {
+            synchronized (syncLock) {
+                try {
+                    while (syncing && durable < seq) {
+                        syncLock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    throw new InterruptedIOException("interrupted waiting for the recovery journal");
+                }
+
+                if (durable >= seq) {
+                    return;
+                }
+
+                // become the thread that forces every record appended so far
+                syncing = true;
+            }
+
+            long target = 0;
+            boolean forced = false;
+
+            try {
+                MappedByteBuffer region;
+
+                synchronized (this) {
+                    checkOpen();
+                    target = appended;
+                    region = mapped;
+                }
+
+                region.force();
+                forced = true;
+            } finally {
+                synchronized (syncLock) {
+                    syncing = false;
+
+                    if (forced) {
+                        durable = Math.max(durable, target);
+                    }
+
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("recovery journal " + path + " is closed");
+        }
+    }
+
+    private Path compactionPath() {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private static int capacityFor(long size) {
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            out.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+
+        in.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Extent {
+        final int offset;
+        final int length;
+
+        Extent(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    // writes java serialized participants straight into the mapped file
+    private static final class BufferOutputStream extends OutputStream {
+        private final ByteBuffer out;
+
+        BufferOutputStream(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            out.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            out.put(b, off, len);
+        }
+    }
+}
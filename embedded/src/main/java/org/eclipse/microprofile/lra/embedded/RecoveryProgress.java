@@ -0,0 +1,126 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The progress of a {@link RecoveryReplay} at a single point in time
+ */
+public final class RecoveryProgress {
+    private final int total;
+    private final int resolved;
+    private final int failed;
+    private final int unresolved;
+    private final long elapsedNanos;
+
+    RecoveryProgress(int total, int resolved, int failed, int unresolved, long elapsedNanos) {
+        this.total = total;
+        this.resolved = resolved;
+        this.failed = failed;
+        this.unresolved = unresolved;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of participants being replayed
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of participants that no longer need to be replayed
+     * because they finished (successfully or not, see {@link #getFailed()})
+     */
+    public int getResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return the number of resolved participants that reported that they
+     * were unable to complete or compensate
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of participants that were not replayed and still need
+     * to be: the LRA was still active, its outcome could not be obtained from
+     * the coordinator or no deserializer recognised the participant
+     */
+    public int getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * @return the number of participants that have not yet been dealt with
+     */
+    public int getRemaining() {
+        return total - resolved - unresolved;
+    }
+
+    /**
+     * @return the time since the replay started
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * @return the number of participants dealt with per second so far
+     */
+    public double getRate() {
+        return elapsedNanos == 0 ? 0.0 : (resolved + unresolved) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the estimated time until every participant has been dealt with
+     * at the current rate, or empty if nothing has been dealt with yet
+     */
+    public Optional<Duration> getEstimatedTimeRemaining() {
+        double rate = getRate();
+
+        return rate == 0.0 ? Optional.empty() : Optional.of(Duration.ofNanos((long) (getRemaining() / rate * 1e9)));
+    }
+
+    /**
+     * @return true if every participant has been dealt with
+     */
+    public boolean isDone() {
+        return getRemaining() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryProgress{" +
+                "total=" + total +
+                ", resolved=" + resolved +
+                ", failed=" + failed +
+                ", unresolved=" + unresolved +
+                ", remaining=" + getRemaining() +
+                ", rate=" + String.format("%.1f/s", getRate()) +
+                ", eta=" + getEstimatedTimeRemaining().map(Duration::toString).orElse("unknown") +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The persistent form of a participant: the LRA it joined, the type tag that
+ * selects the deserializer able to recreate it (see
+ * {@link org.eclipse.microprofile.lra.participant.LRAParticipant#getRecoveryTypeTag()})
+ * and the state the deserializer recreates it from. The state is held in a
+ * buffer so that a record read from a recovery log can refer to the bytes of
+ * the log (for example a slice of a memory mapped file) instead of a copy.
+ */
+public final class RecoveryRecord {
+    private final URL lraId;
+    private final String typeTag;
+    private final ByteBuffer state;
+
+    /**
+     * @param lraId the LRA that the participant joined
+     * @param typeTag the type tag of the participant or null if the state is untagged
+     * @param state the persistent form of the participant
+     */
+    public RecoveryRecord(URL lraId, String typeTag, byte[] state) {
+        this(lraId, typeTag, ByteBuffer.wrap(state));
+    }
+
+    /**
+     * @param lraId the LRA that the participant joined
+     * @param typeTag the type tag of the participant or null if the state is untagged
+     * @param state the persistent form of the participant between the position
+     *              and the limit of the buffer. The bytes are not copied so they
+     *              must not change while the record is in use.
+     */
+    public RecoveryRecord(URL lraId, String typeTag, ByteBuffer state) {
+        this.lraId = Objects.requireNonNull(lraId);
+        this.typeTag = typeTag;
+        this.state = state.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the LRA that the participant joined
+     */
+    public URL getLraId() {
+        return lraId;
+    }
+
+    /**
+     * @return the type tag of the participant or null if the state is untagged
+     */
+    public String getTypeTag() {
+        return typeTag;
+    }
+
+    /**
+     * @return a read only view of the persistent form of the participant (the
+     * bytes are not copied)
+     */
+    public ByteBuffer getState() {
+        return state.duplicate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RecoveryRecord that = (RecoveryRecord) o;
+        return lraId.toExternalForm().equals(that.lraId.toExternalForm())
+                && Objects.equals(typeTag, that.typeTag)
+                && state.equals(that.state);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lraId.toExternalForm(), typeTag, state);
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryRecord{" +
+                "lraId=" + lraId +
+                ", typeTag='" + typeTag + '\'' +
+                ", state=" + state.remaining() + " bytes" +
+                '}';
+    }
+}
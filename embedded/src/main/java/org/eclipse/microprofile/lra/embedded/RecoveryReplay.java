@@ -0,0 +1,440 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.TerminationException;
+
+import javax.ws.rs.NotFoundException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Replays the participants of a JVM after it restarts: each participant is
+ * recreated from its {@link RecoveryRecord} and told to complete or compensate
+ * according to the outcome of its LRA as reported by the coordinator.
+ *
+ * The participants of different LRAs are replayed concurrently by a bounded
+ * number of threads. The participants of the same LRA are replayed by a single
+ * thread in the order in which they joined if the LRA is closing and in the
+ * reverse order if it is cancelling, which is the order in which the
+ * coordinator notifies them. The coordinator is asked for the outcome of each
+ * LRA once. To avoid overwhelming it after a restart with many in-doubt
+ * participants, the number of concurrent requests to the coordinator is bounded
+ * separately from the number of threads, and a failed request is retried after
+ * an exponentially increasing delay during which no request slot is held.
+ *
+ * A participant whose LRA is still active, whose outcome cannot be obtained,
+ * that no deserializer recognises or that does not finish within the
+ * participant timeout is left unresolved so that it can be replayed again
+ * later. The participants of an LRA that the coordinator does not know about
+ * are dealt with according to the {@link NotFoundPolicy}. The progress of a
+ * replay can be read from another thread while it runs (see {@link #getProgress()}).
+ */
+public class RecoveryReplay {
+    /**
+     * The name of the property holding the number of threads that replay participants
+     */
+    public static final String PARALLELISM_KEY = "lra.recovery.parallelism";
+    /**
+     * The name of the property holding the maximum number of concurrent requests to the coordinator
+     */
+    public static final String COORDINATOR_CONCURRENCY_KEY = "lra.recovery.coordinator.concurrency";
+    /**
+     * The name of the property holding the number of times a failed request to the coordinator is retried
+     */
+    public static final String RETRIES_KEY = "lra.recovery.retries";
+    /**
+     * The name of the property holding the delay in milliseconds before the first retry of a failed
+     * request to the coordinator (the delay doubles on every further retry)
+     */
+    public static final String RETRY_DELAY_KEY = "lra.recovery.retry.delay";
+    /**
+     * The name of the property holding the time in milliseconds that a replayed participant is given
+     * to finish (0 for no limit)
+     */
+    public static final String PARTICIPANT_TIMEOUT_KEY = "lra.recovery.participant.timeout";
+    /**
+     * The name of the property holding the {@link NotFoundPolicy} (for example <code>forget</code>)
+     */
+    public static final String NOT_FOUND_POLICY_KEY = "lra.recovery.notfound.policy";
+
+    /**
+     * What a replay does with the participants of an LRA that the coordinator
+     * reports as not found. A coordinator forgets an LRA once it has ended,
+     * and a coordinator that keeps its LRAs in memory (such as an
+     * {@link EmbeddedCoordinator}) also forgets every LRA that had not ended
+     * when it stopped, so retrying the request never produces an outcome.
+     */
+    public enum NotFoundPolicy {
+        /**
+         * Presume that the LRA was cancelled and ask the participants to
+         * compensate. No outcome was recorded for an LRA that was lost with
+         * its coordinator. Tombstones are not forced to the storage device, so
+         * a participant that had already completed may still be replayed after
+         * a crash: this policy is only safe for participants that report that
+         * they do not know about an LRA they have already finished with, which
+         * resolves their record without undoing their work.
+         */
+        COMPENSATE,
+        /**
+         * Resolve the participants without notifying them
+         */
+        FORGET,
+        /**
+         * Leave the participants unresolved so that they are replayed again
+         * later (the default). This suits coordinators that may report an LRA
+         * as not found while they are themselves recovering, and never undoes
+         * work that a participant has already completed; the records of LRAs
+         * that were lost with their coordinator have to be resolved by choosing
+         * one of the other policies.
+         */
+        RETAIN
+    }
+
+    private enum Outcome {
+        DONE, FAILED, UNRESOLVED
+    }
+
+    private enum Decision {
+        COMPLETE, COMPENSATE, FORGET, UNKNOWN
+    }
+
+    private final LRAClient coordinator;
+    private final DeserializerRegistry deserializers;
+    private final int parallelism;
+    private final Semaphore coordinatorPermits;
+    private final int retries;
+    private final long retryDelayMillis;
+    private final long participantTimeoutMillis;
+    private final NotFoundPolicy notFoundPolicy;
+    private volatile Run run;
+
+    /**
+     * Create a replay that gives each participant 30 seconds to finish and
+     * retains the participants of LRAs that the coordinator does not know about
+     *
+     * @param coordinator the client for the coordinator that knows the outcome of the LRAs
+     * @param deserializers the deserializers that recreate the participants
+     * @param parallelism the number of threads that replay participants
+     * @param coordinatorConcurrency the maximum number of concurrent requests to the coordinator
+     * @param retries the number of times a failed request to the coordinator is retried
+     * @param retryDelayMillis the delay before the first retry of a failed request to the coordinator
+     */
+    public RecoveryReplay(LRAClient coordinator, DeserializerRegistry deserializers, int parallelism,
+                          int coordinatorConcurrency, int retries, long retryDelayMillis) {
+        this(coordinator, deserializers, parallelism, coordinatorConcurrency, retries, retryDelayMillis,
+                TimeUnit.SECONDS.toMillis(30), NotFoundPolicy.RETAIN);
+    }
+
+    /**
+     * @param coordinator the client for the coordinator that knows the outcome of the LRAs
+     * @param deserializers the deserializers that recreate the participants
+     * @param parallelism the number of threads that replay participants
+     * @param coordinatorConcurrency the maximum number of concurrent requests to the coordinator
+     * @param retries the number of times a failed request to the coordinator is retried
+     * @param retryDelayMillis the delay before the first retry of a failed request to the coordinator
+     * @param participantTimeoutMillis the time that a participant is given to finish or 0 for no limit
+     * @param notFoundPolicy what to do with the participants of LRAs that the coordinator does not know about
+     */
+    public RecoveryReplay(LRAClient coordinator, DeserializerRegistry deserializers, int parallelism,
+                          int coordinatorConcurrency, int retries, long retryDelayMillis,
+                          long participantTimeoutMillis, NotFoundPolicy notFoundPolicy) {
+        if (parallelism <= 0 || coordinatorConcurrency <= 0 || retries < 0 || retryDelayMillis < 0
+                || participantTimeoutMillis < 0) {
+            throw new IllegalArgumentException("invalid recovery configuration");
+        }
+
+        this.coordinator = coordinator;
+        this.deserializers = deserializers;
+        this.parallelism = parallelism;
+        this.coordinatorPermits = new Semaphore(coordinatorConcurrency);
+        this.retries = retries;
+        this.retryDelayMillis = retryDelayMillis;
+        this.participantTimeoutMillis = participantTimeoutMillis;
+        this.notFoundPolicy = Objects.requireNonNull(notFoundPolicy);
+    }
+
+    /**
+     * Create a replay configured using the property names defined by this class
+     *
+     * @param coordinator the client for the coordinator that knows the outcome of the LRAs
+     * @param deserializers the deserializers that recreate the participants
+     * @param properties the source of the configuration (for example <code>System::getProperty</code>)
+     * @return the replay
+     */
+    public static RecoveryReplay fromConfig(LRAClient coordinator, DeserializerRegistry deserializers,
+                                            Function<String, String> properties) {
+        int parallelism = intProperty(properties, PARALLELISM_KEY, Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+        String policy = properties.apply(NOT_FOUND_POLICY_KEY);
+
+        return new RecoveryReplay(coordinator, deserializers, parallelism,
+                intProperty(properties, COORDINATOR_CONCURRENCY_KEY, Math.max(1, parallelism / 2)),
+                intProperty(properties, RETRIES_KEY, 5),
+                intProperty(properties, RETRY_DELAY_KEY, 100),
+                intProperty(properties, PARTICIPANT_TIMEOUT_KEY, 30_000),
+                policy == null ? NotFoundPolicy.RETAIN : NotFoundPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Replay participants. The call returns once every participant has been
+     * dealt with or the calling thread is interrupted.
+     *
+     * @param records the persistent forms of the participants in the order in which they joined
+     * @param onResolved called, possibly concurrently, with the record of each participant
+     *                   that finished and so no longer needs to be replayed
+     * @return the final progress of the replay
+     */
+    public RecoveryProgress replay(Collection<RecoveryRecord> records, Consumer<RecoveryRecord> onResolved) {
+        Map<String, List<RecoveryRecord>> byLRA = new LinkedHashMap<>();
+
+        for (RecoveryRecord record : records) {
+            byLRA.computeIfAbsent(record.getLraId().toExternalForm(), id -> new ArrayList<>()).add(record);
+        }
+
+        Queue<List<RecoveryRecord>> lras = new ConcurrentLinkedQueue<>(byLRA.values());
+        Run current = new Run(records.size());
+        int threads = Math.min(parallelism, Math.max(1, lras.size()));
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "lra-recovery");
+
+            t.setDaemon(true);
+
+            return t;
+        });
+
+        run = current;
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.execute(() -> replayLRAs(current, lras, onResolved));
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            current.endNanos = System.nanoTime();
+        }
+
+        return current.progress();
+    }
+
+    /**
+     * @return the progress of the current (or last) replay
+     */
+    public RecoveryProgress getProgress() {
+        Run current = run;
+
+        return current == null ? new RecoveryProgress(0, 0, 0, 0, 0L) : current.progress();
+    }
+
+    /**
+     * Decide whether a failure reports that the coordinator or a participant
+     * does not know about an LRA. Replays that use a client or participants
+     * that report errors without a JAX-RS runtime override this method.
+     *
+     * @param failure the exception thrown by the coordinator client or a participant
+     * @return true if the failure means that the LRA was not found
+     */
+    protected boolean isNotFound(Throwable failure) {
+        return failure instanceof NotFoundException;
+    }
+
+    private void replayLRAs(Run current, Queue<List<RecoveryRecord>> lras, Consumer<RecoveryRecord> onResolved) {
+        List<RecoveryRecord> participants;
+
+        try {
+            while (!Thread.currentThread().isInterrupted() && (participants = lras.poll()) != null) {
+                replayLRA(current, participants, onResolved);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void replayLRA(Run current, List<RecoveryRecord> participants, Consumer<RecoveryRecord> onResolved)
+            throws InterruptedException {
+        URL lraId = participants.get(0).getLraId();
+        Decision decision = outcomeOf(lraId);
+
+        if (decision == Decision.UNKNOWN) {
+            current.unresolved.addAndGet(participants.size());
+            return;
+        } else if (decision == Decision.FORGET) {
+            participants.forEach(onResolved);
+            current.resolved.addAndGet(participants.size());
+            return;
+        }
+
+        boolean cancel = decision == Decision.COMPENSATE;
+        List<RecoveryRecord> ordered = new ArrayList<>(participants);
+
+        if (cancel) {
+            Collections.reverse(ordered);
+        }
+
+        for (RecoveryRecord record : ordered) {
+            Outcome outcome = replay(record, cancel);
+
+            if (outcome == Outcome.UNRESOLVED) {
+                current.unresolved.incrementAndGet();
+            } else {
+                if (outcome == Outcome.FAILED) {
+                    current.failed.incrementAndGet();
+                }
+
+                onResolved.accept(record);
+                current.resolved.incrementAndGet();
+            }
+        }
+    }
+
+    // what the participants of the LRA should do
+    private Decision outcomeOf(URL lraId) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            coordinatorPermits.acquire();
+
+            try {
+                Optional<CompensatorStatus> status = coordinator.getStatus(lraId);
+
+                if (!status.isPresent()) {
+                    return Decision.UNKNOWN; // the LRA is still active so its participants are not in doubt
+                }
+
+                switch (status.get()) {
+                    case Completing:
+                    case Completed:
+                        return Decision.COMPLETE;
+                    case Compensating:
+                    case Compensated:
+                        return Decision.COMPENSATE;
+                    default:
+                        return Decision.UNKNOWN; // the coordinator has given up on the LRA
+                }
+            } catch (RuntimeException e) {
+                if (isNotFound(e)) {
+                    return onNotFound();
+                } else if (attempt >= retries) {
+                    return Decision.UNKNOWN;
+                }
+            } finally {
+                coordinatorPermits.release();
+            }
+
+            // back off without holding a permit so that other threads can still use the coordinator
+            Thread.sleep(retryDelayMillis << Math.min(attempt, 16));
+        }
+    }
+
+    private Decision onNotFound() {
+        switch (notFoundPolicy) {
+            case COMPENSATE:
+                return Decision.COMPENSATE;
+            case FORGET:
+                return Decision.FORGET;
+            default:
+                return Decision.UNKNOWN;
+        }
+    }
+
+    private Outcome replay(RecoveryRecord record, boolean cancel) throws InterruptedException {
+        try {
+            LRAParticipant participant = deserializers.deserialize(record);
+
+            if (participant == null) {
+                return Outcome.UNRESOLVED;
+            }
+
+            Future<Void> work = cancel
+                    ? participant.compensateWork(record.getLraId())
+                    : participant.completeWork(record.getLraId());
+
+            if (work != null && participantTimeoutMillis > 0) {
+                work.get(participantTimeoutMillis, TimeUnit.MILLISECONDS);
+            } else if (work != null) {
+                work.get();
+            }
+
+            return Outcome.DONE;
+        } catch (TerminationException | CancellationException e) {
+            return Outcome.FAILED;
+        } catch (ExecutionException e) {
+            // a participant that does not know about the LRA has already finished with it
+            return isNotFound(e.getCause()) ? Outcome.DONE : Outcome.FAILED;
+        } catch (TimeoutException e) {
+            return Outcome.UNRESOLVED; // the participant may still finish so try again during the next replay
+        } catch (RuntimeException e) {
+            return isNotFound(e) ? Outcome.DONE : Outcome.UNRESOLVED;
+        }
+    }
+
+    private static int intProperty(Function<String, String> properties, String name, int defaultValue) {
+        String value = properties.apply(name);
+
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static final class Run {
+        final int total;
+        final long startNanos = System.nanoTime();
+        final AtomicInteger resolved = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger unresolved = new AtomicInteger();
+        volatile long endNanos;
+
+        Run(int total) {
+            this.total = total;
+        }
+
+        RecoveryProgress progress() {
+            long end = endNanos;
+
+            return new RecoveryProgress(total, resolved.get(), failed.get(), unresolved.get(),
+                    (end == 0 ? System.nanoTime() : end) - startNanos);
+        }
+    }
+}
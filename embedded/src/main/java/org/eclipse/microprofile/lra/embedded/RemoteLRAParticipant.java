@@ -0,0 +1,84 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.TerminationException;
+
+import javax.ws.rs.NotFoundException;
+import java.net.URL;
+import java.util.concurrent.Future;
+
+/**
+ * Enlisted with an embedded LRA once a remote participant joins it. The remote
+ * participants are enlisted with an LRA on a remote coordinator instead and
+ * this participant ends that LRA in the same way as the embedded one.
+ */
+class RemoteLRAParticipant implements LRAParticipant {
+    private static final long serialVersionUID = 1L;
+
+    private final transient LRAClient remote;
+    private final URL remoteLRA;
+
+    RemoteLRAParticipant(LRAClient remote, URL remoteLRA) {
+        this.remote = remote;
+        this.remoteLRA = remoteLRA;
+    }
+
+    URL getRemoteLRA() {
+        return remoteLRA;
+    }
+
+    @Override
+    public Future<Void> completeWork(URL lraId) throws NotFoundException, TerminationException {
+        return end(false);
+    }
+
+    @Override
+    public Future<Void> compensateWork(URL lraId) throws NotFoundException, TerminationException {
+        return end(true);
+    }
+
+    private Future<Void> end(boolean cancel) throws TerminationException {
+        if (cancel) {
+            remote.cancelLRA(remoteLRA);
+        } else {
+            remote.closeLRA(remoteLRA);
+        }
+
+        // the response to the request to end the LRA may not carry the final status so ask for it
+        CompensatorStatus status;
+
+        try {
+            status = remote.getStatus(remoteLRA).orElse(null);
+        } catch (NotFoundException e) {
+            return null; // the remote coordinator has finished with the LRA
+        }
+
+        if (status == CompensatorStatus.FailedToComplete || status == CompensatorStatus.FailedToCompensate) {
+            throw new TerminationException();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.participant.AsyncLRAParticipant;
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ends LRAs whose participants finish asynchronously. The test thread finishes
+ * each participant in turn so the test only passes if no thread waits for a
+ * participant: a coordinator that blocked would never return to the test.
+ */
+public class AsyncParticipantsTest {
+    private final TestCoordinator coordinator = new TestCoordinator();
+    private final EmbeddedLRAClient client = new EmbeddedLRAClient(coordinator, null);
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<Void>> pending = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void close() {
+        coordinator.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void slowParticipantsCompleteOneAfterAnotherInJoinOrder() throws JoinLRAException {
+        URL lra = startWithParticipants("a", "b", "c");
+        CompletionStage<CompensatorStatus> outcome = coordinator.closeAsync(lra);
+
+        finishInTurn(outcome, "a:complete", "b:complete", "c:complete");
+
+        assertEquals(CompensatorStatus.Completed, outcome.toCompletableFuture().join());
+    }
+
+    @Test(timeout = 10_000)
+    public void slowParticipantsCompensateOneAfterAnotherInReverseOrder() throws JoinLRAException {
+        URL lra = startWithParticipants("a", "b", "c");
+        CompletionStage<CompensatorStatus> outcome = coordinator.cancelAsync(lra);
+
+        finishInTurn(outcome, "c:compensate", "b:compensate", "a:compensate");
+
+        assertEquals(CompensatorStatus.Compensated, outcome.toCompletableFuture().join());
+    }
+
+    @Test(timeout = 10_000)
+    public void failedStageFailsTheLRA() throws JoinLRAException {
+        URL lra = startWithParticipants("a", "b");
+        CompletionStage<CompensatorStatus> outcome = coordinator.closeAsync(lra);
+
+        pending.get(0).completeExceptionally(new IllegalStateException("a failed"));
+        pending.get(1).complete(null);
+
+        assertEquals("later participants are still notified", Arrays.asList("a:complete", "b:complete"), log);
+        assertEquals(CompensatorStatus.FailedToComplete, outcome.toCompletableFuture().join());
+    }
+
+    @Test(timeout = 10_000)
+    public void nullStageFailsTheLRA() throws JoinLRAException {
+        URL lra = coordinator.start(null, "null-stage", 0L, TimeUnit.SECONDS);
+
+        client.joinLRA(new AsyncLRAParticipant() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletionStage<Void> completeWork(URL lraId) {
+                return null;
+            }
+
+            @Override
+            public CompletionStage<Void> compensateWork(URL lraId) {
+                return null;
+            }
+        }, lra);
+
+        assertEquals(CompensatorStatus.FailedToComplete, coordinator.close(lra));
+    }
+
+    @Test(timeout = 10_000)
+    public void batchNotifiesTheParticipantsOfDifferentLRAsConcurrently() throws JoinLRAException {
+        URL first = coordinator.start(null, "batch-1", 0L, TimeUnit.SECONDS);
+        URL second = coordinator.start(null, "batch-2", 0L, TimeUnit.SECONDS);
+        CompletableFuture<Void> secondNotified = new CompletableFuture<>();
+
+        // the first participant only finishes once the participant of the other LRA has been notified
+        client.joinLRA(new SlowParticipant("first", log, pending) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletionStage<Void> completeWork(URL lraId) {
+                super.completeWork(lraId);
+
+                return secondNotified;
+            }
+        }, first);
+        client.joinLRA(new SlowParticipant("second", log, pending) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletionStage<Void> completeWork(URL lraId) {
+                super.completeWork(lraId);
+                secondNotified.complete(null);
+
+                return CompletableFuture.completedFuture(null);
+            }
+        }, second);
+
+        Map<URL, String> outcomes = client.closeLRAs(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList("first:complete", "second:complete"), log);
+        assertEquals(CompensatorStatus.Completed.name(), outcomes.get(first));
+        assertEquals(CompensatorStatus.Completed.name(), outcomes.get(second));
+    }
+
+    private URL startWithParticipants(String... names) throws JoinLRAException {
+        URL lra = coordinator.start(null, "async", 0L, TimeUnit.SECONDS);
+
+        for (String name : names) {
+            client.joinLRA(new SlowParticipant(name, log, pending), lra);
+        }
+
+        return lra;
+    }
+
+    /*
+     * finish the participants one at a time checking that only the next one has been notified
+     */
+    private void finishInTurn(CompletionStage<CompensatorStatus> outcome, String... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("a participant was notified before the previous one finished",
+                    Arrays.asList(expected).subList(0, i + 1), log);
+            assertFalse(outcome.toCompletableFuture().isDone());
+
+            pending.get(i).complete(null);
+        }
+
+        assertTrue(outcome.toCompletableFuture().isDone());
+    }
+
+    /*
+     * returns a stage that the test completes
+     */
+    private static class SlowParticipant implements AsyncLRAParticipant {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final transient List<String> log;
+        private final transient List<CompletableFuture<Void>> pending;
+
+        SlowParticipant(String name, List<String> log, List<CompletableFuture<Void>> pending) {
+            this.name = name;
+            this.log = log;
+            this.pending = pending;
+        }
+
+        @Override
+        public CompletionStage<Void> completeWork(URL lraId) {
+            return notified(":complete");
+        }
+
+        @Override
+        public CompletionStage<Void> compensateWork(URL lraId) {
+            return notified(":compensate");
+        }
+
+        private CompletionStage<Void> notified(String how) {
+            CompletableFuture<Void> stage = new CompletableFuture<>();
+
+            log.add(name + how);
+            pending.add(stage);
+
+            return stage;
+        }
+    }
+}
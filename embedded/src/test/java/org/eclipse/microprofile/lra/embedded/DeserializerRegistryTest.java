@@ -0,0 +1,143 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.LRAParticipantDeserializer;
+import org.junit.Test;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks which registered deserializers are offered a recovery record
+ */
+public class DeserializerRegistryTest {
+    private final DeserializerRegistry registry = new DeserializerRegistry();
+    private final List<String> offered = new ArrayList<>();
+
+    @Test
+    public void taggedRecordsGoOnlyToTheTaggedDeserializer() throws Exception {
+        Recognising tagged = new Recognising("tagged", "state");
+        Recognising untagged = new Recognising("untagged", "state");
+
+        registry.register(untagged);
+        registry.register("order", tagged);
+
+        assertSame(tagged.participant, registry.deserialize(record("order", "state")));
+        assertEquals(Collections.singletonList("tagged"), offered);
+    }
+
+    @Test
+    public void deserializerRegisteredForSeveralTagsIsOfferedUntaggedRecordsOnce() throws Exception {
+        Recognising shared = new Recognising("shared", "other");
+        Recognising untagged = new Recognising("untagged", "state");
+
+        registry.register("order", shared);
+        registry.register("payment", shared);
+        registry.register(untagged);
+
+        assertSame(shared, registry.lookup("order"));
+        assertSame(shared, registry.lookup("payment"));
+        assertSame(untagged.participant, registry.deserialize(record(null, "state")));
+        assertEquals("tagged deserializers are not offered untagged records", Collections.singletonList("untagged"), offered);
+
+        offered.clear();
+        registry.register(shared);
+
+        assertNull(registry.deserialize(record(null, "unknown")));
+        assertEquals("each deserializer is offered a record at most once", Arrays.asList("untagged", "shared"), offered);
+    }
+
+    @Test
+    public void recordsWithUnknownTagsAreOfferedToUntaggedDeserializersInRegistrationOrder() throws Exception {
+        registry.register(new Recognising("first", "a"));
+        registry.register(new Recognising("second", "b"));
+        registry.register("order", new Recognising("tagged", "b"));
+
+        LRAParticipant participant = registry.deserialize(record("unknown", "b"));
+
+        assertEquals(Arrays.asList("first", "second"), offered);
+        assertEquals("second", participant.toString());
+    }
+
+    @Test
+    public void replacingAndUnregisteringRemovesEveryTag() throws Exception {
+        Recognising replaced = new Recognising("replaced", "state");
+        Recognising replacement = new Recognising("replacement", "state");
+
+        registry.register("order", replaced);
+        registry.register("order", replacement);
+
+        assertSame(replacement, registry.lookup("order"));
+
+        registry.register("payment", replacement);
+        registry.register(replacement);
+        registry.unregister(replacement);
+
+        assertNull(registry.lookup("order"));
+        assertNull(registry.lookup("payment"));
+        assertNull(registry.deserialize(record(null, "state")));
+        assertEquals(Collections.emptyList(), offered);
+    }
+
+    private static RecoveryRecord record(String typeTag, String state) throws Exception {
+        return new RecoveryRecord(new URL("http://localhost/lra-test/1"), typeTag, state.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * recreates a participant from one particular state and records that it was offered a record
+     */
+    private final class Recognising implements LRAParticipantDeserializer {
+        private final String name;
+        private final String state;
+        private final LRAParticipant participant;
+
+        Recognising(String name, String state) {
+            this.name = name;
+            this.state = state;
+            this.participant = new RecordingParticipant(name, offered) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public String toString() {
+                    return Recognising.this.name;
+                }
+            };
+        }
+
+        @Override
+        public LRAParticipant deserialize(URL lraId, byte[] recoveryState) {
+            offered.add(name);
+
+            return state.equals(new String(recoveryState, StandardCharsets.UTF_8)) ? participant : null;
+        }
+    }
+}
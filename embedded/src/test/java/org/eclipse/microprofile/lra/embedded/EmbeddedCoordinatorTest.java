@@ -0,0 +1,392 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAId;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Starts and ends LRAs on an embedded coordinator and checks the notifications,
+ * outcomes and queries that result
+ */
+public class EmbeddedCoordinatorTest {
+    private final TestCoordinator coordinator = new TestCoordinator();
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void close() {
+        coordinator.close();
+    }
+
+    @Test
+    public void closeCompletesInJoinOrderAndCancelCompensatesInReverse() {
+        URL closed = startWithParticipants(null, "a", "b", "c");
+
+        assertEquals(CompensatorStatus.Completed, coordinator.close(closed));
+        assertEquals(Arrays.asList("a:complete", "b:complete", "c:complete"), log);
+
+        log.clear();
+
+        URL cancelled = startWithParticipants(null, "a", "b", "c");
+
+        assertEquals(CompensatorStatus.Compensated, coordinator.cancel(cancelled));
+        assertEquals(Arrays.asList("c:compensate", "b:compensate", "a:compensate"), log);
+    }
+
+    @Test
+    public void endedLRAsCannotBeJoinedOrEndedAgain() {
+        URL lra = startWithParticipants(null, "a");
+
+        coordinator.close(lra);
+
+        assertFailure(404, () -> coordinator.join(lra, new RecordingParticipant("b", log), 0L, TimeUnit.SECONDS));
+        assertFailure(404, () -> coordinator.cancel(lra));
+    }
+
+    @Test
+    public void leavingParticipantsAreNotNotified() {
+        URL lra = coordinator.start(null, "leave", 0L, TimeUnit.SECONDS);
+        LRAParticipant leaving = new RecordingParticipant("a", log);
+
+        coordinator.join(lra, leaving, 0L, TimeUnit.SECONDS);
+        coordinator.join(lra, new RecordingParticipant("b", log), 0L, TimeUnit.SECONDS);
+
+        assertTrue(coordinator.leave(lra, leaving));
+        assertFalse("a participant can only leave once", coordinator.leave(lra, leaving));
+
+        coordinator.close(lra);
+
+        assertEquals(Collections.singletonList("b:complete"), log);
+    }
+
+    @Test
+    public void closedNestedLRAIsCompensatedWhenItsParentIsCancelled() {
+        URL parent = startWithParticipants(null, "parent");
+        URL child = startWithParticipants(parent, "child");
+        List<CompensatorStatus> outcomes = Collections.synchronizedList(new ArrayList<>());
+
+        coordinator.onTermination(child, outcomes::add);
+
+        assertEquals(CompensatorStatus.Completed, coordinator.close(child));
+        assertEquals("a closed nested LRA can still be compensated", Optional.empty(),
+                coordinator.awaitOutcome(child, 0L, TimeUnit.MILLISECONDS));
+        assertTrue("listeners should wait for the parent to end", outcomes.isEmpty());
+
+        assertEquals(CompensatorStatus.Compensated, coordinator.cancel(parent));
+
+        assertEquals(Arrays.asList("child:complete", "child:compensate", "parent:compensate"), log);
+        assertEquals("listeners should see the status that the nested LRA ended with",
+                Collections.singletonList(CompensatorStatus.Compensated), outcomes);
+        assertFailure(404, () -> coordinator.getStatus(child));
+    }
+
+    @Test
+    public void closedNestedLRAIsCompletedWhenItsParentIsClosed() {
+        URL parent = coordinator.start(null, "parent", 0L, TimeUnit.SECONDS);
+        URL child = startWithParticipants(parent, "child");
+        List<CompensatorStatus> outcomes = Collections.synchronizedList(new ArrayList<>());
+
+        coordinator.onTermination(child, outcomes::add);
+        coordinator.close(child);
+
+        assertEquals(Optional.of(CompensatorStatus.Completed), coordinator.getStatus(child));
+
+        coordinator.close(parent);
+
+        assertEquals(Collections.singletonList("child:complete"), log);
+        assertEquals(Collections.singletonList(CompensatorStatus.Completed), outcomes);
+    }
+
+    @Test
+    public void activeNestedLRAsEndWithTheirParent() {
+        URL parent = startWithParticipants(null, "parent");
+
+        startWithParticipants(parent, "child");
+        coordinator.cancel(parent);
+
+        assertEquals(Arrays.asList("child:compensate", "parent:compensate"), log);
+        assertTrue(coordinator.find(LRAQuery.all()).isEmpty());
+    }
+
+    @Test
+    public void timeLimitCancelsTheLRA() throws Exception {
+        URL lra = startWithParticipants(null, "a");
+        Future<CompensatorStatus> outcome = outcomeOf(lra);
+
+        coordinator.renewTimeLimit(lra, 50L, TimeUnit.MILLISECONDS);
+
+        assertEquals(CompensatorStatus.Compensated, outcome.get(5L, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("a:compensate"), log);
+    }
+
+    @Test
+    public void slowParticipantDoesNotDelayOtherTimeouts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch compensating = new CountDownLatch(1);
+        URL slow = coordinator.start(null, "slow", 0L, TimeUnit.SECONDS);
+        Future<CompensatorStatus> slowOutcome = outcomeOf(slow);
+
+        coordinator.join(slow, new BlockingParticipant(compensating, release), 0L, TimeUnit.SECONDS);
+        coordinator.renewTimeLimit(slow, 10L, TimeUnit.MILLISECONDS);
+
+        try {
+            assertTrue("the slow LRA did not time out", compensating.await(5L, TimeUnit.SECONDS));
+
+            URL fast = startWithParticipants(null, "fast");
+            Future<CompensatorStatus> fastOutcome = outcomeOf(fast);
+
+            coordinator.renewTimeLimit(fast, 10L, TimeUnit.MILLISECONDS);
+
+            assertEquals("a participant of another LRA held up the timer", CompensatorStatus.Compensated,
+                    fastOutcome.get(5L, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(CompensatorStatus.Compensated, slowOutcome.get(5L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void pagesFollowStartOrder() {
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            expected.add(coordinator.start(null, "page-" + i, 0L, TimeUnit.SECONDS).toExternalForm());
+            coordinator.start(null, "other-" + i, 0L, TimeUnit.SECONDS);
+        }
+
+        LRAQuery query = LRAQuery.all().withClientIdPrefix("page-");
+        List<String> found = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+
+        do {
+            LRAInfoPage page = coordinator.find(query, 2, token);
+
+            assertTrue("page is too big", page.getLRAs().size() <= 2);
+            page.getLRAs().forEach(info -> found.add(info.getLraId()));
+            token = page.getContinuationToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(expected, found);
+        assertEquals(3, pages);
+        assertFailure(400, () -> coordinator.find(query, 2, "not a token"));
+        assertFailure(400, () -> coordinator.find(query, 0, null));
+    }
+
+    @Test
+    public void queriesSelectByClientIdAndState() {
+        URL active = coordinator.start(null, "query-active", 0L, TimeUnit.SECONDS);
+        URL parent = coordinator.start(null, "query-parent", 0L, TimeUnit.SECONDS);
+        URL closed = coordinator.start(parent, "query-closed", 0L, TimeUnit.SECONDS);
+
+        coordinator.start(null, "unrelated", 0L, TimeUnit.SECONDS);
+        coordinator.close(closed);
+
+        assertEquals("queries by client id prefix are in client id order", Arrays.asList(active, closed, parent),
+                ids(coordinator.find(LRAQuery.all().withClientIdPrefix("query-"))));
+        assertEquals(Collections.singletonList(closed),
+                ids(coordinator.find(LRAQuery.all().withStates(LRAQuery.State.COMPLETED))));
+        assertEquals(Arrays.asList(active, parent),
+                ids(coordinator.find(LRAQuery.all().withClientIdPrefix("query-").withStates(LRAQuery.State.ACTIVE))));
+        assertEquals(Collections.singletonList(closed), ids(coordinator.find(LRAQuery.all().withParent(parent))));
+
+        coordinator.cancel(parent);
+
+        assertEquals(Collections.singletonList(active),
+                ids(coordinator.find(LRAQuery.all().withClientIdPrefix("query-"))));
+        assertTrue(coordinator.find(LRAQuery.all().withStates(LRAQuery.State.COMPLETED)).isEmpty());
+    }
+
+    @Test
+    public void queriesSelectByStartTimeAndParent() throws Exception {
+        URL early = coordinator.start(null, "early", 0L, TimeUnit.SECONDS);
+        Instant between = instantBetweenStarts();
+        URL parent = coordinator.start(null, "parent", 0L, TimeUnit.SECONDS);
+        List<URL> children = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            children.add(coordinator.start(parent, "child-" + i, 0L, TimeUnit.SECONDS));
+        }
+
+        coordinator.start(null, "unrelated", 0L, TimeUnit.SECONDS);
+
+        List<URL> later = new ArrayList<>(Collections.singletonList(parent));
+
+        later.addAll(children);
+        later.add(ids(coordinator.find(LRAQuery.all().withClientIdPrefix("unrelated"))).get(0));
+
+        assertEquals(Collections.singletonList(early), ids(coordinator.find(LRAQuery.all().withStartedBefore(between))));
+        assertEquals(later, ids(coordinator.find(LRAQuery.all().withStartedAfter(between))));
+        assertEquals(children, ids(coordinator.find(LRAQuery.all().withParent(parent))));
+
+        List<URL> paged = new ArrayList<>();
+        String token = null;
+
+        do {
+            LRAInfoPage page = coordinator.find(LRAQuery.all().withParent(parent), 2, token);
+
+            paged.addAll(ids(page.getLRAs()));
+            token = page.getContinuationToken();
+        } while (token != null);
+
+        assertEquals(children, paged);
+        assertTrue(coordinator.find(LRAQuery.all().withParent(early)).isEmpty());
+    }
+
+    @Test
+    public void lrasWhoseParticipantsFailedAreRecovering() {
+        URL lra = coordinator.start(null, "failing", 0L, TimeUnit.SECONDS);
+
+        coordinator.join(lra, new RecordingParticipant("failing", log) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Future<Void> completeWork(URL lraId) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+
+                failed.completeExceptionally(new IllegalStateException("cannot complete"));
+
+                return failed;
+            }
+        }, 0L, TimeUnit.SECONDS);
+
+        List<LRAInfo> recovering = new ArrayList<>();
+
+        coordinator.onTermination(lra, status -> recovering.addAll(coordinator.find(LRAQuery.all().withStates(LRAQuery.State.RECOVERING))));
+
+        assertEquals(CompensatorStatus.FailedToComplete, coordinator.close(lra));
+        assertEquals(Collections.singletonList(lra), ids(recovering));
+        assertTrue("the state index and the LRA info should agree", recovering.get(0).isRecovering());
+    }
+
+    @Test
+    public void unknownLRAsAreNotFound() throws Exception {
+        URL unknown = new URL(coordinator.getBaseUri() + "/unknown");
+
+        assertFailure(404, () -> coordinator.getStatus(unknown));
+        assertFailure(404, () -> coordinator.close(unknown));
+        assertFailure(404, () -> coordinator.start(unknown, "child", 0L, TimeUnit.SECONDS));
+        assertFalse(coordinator.isLocal(new URL("http://elsewhere/lra-coordinator/1")));
+    }
+
+    private URL startWithParticipants(URL parent, String... names) {
+        URL lra = coordinator.start(parent, names.length == 0 ? null : names[0], 0L, TimeUnit.SECONDS);
+
+        for (String name : names) {
+            coordinator.join(lra, new RecordingParticipant(name, log), 0L, TimeUnit.SECONDS);
+        }
+
+        return lra;
+    }
+
+    // an LRA is forgotten as soon as it ends so register for its outcome while it is still known
+    private Future<CompensatorStatus> outcomeOf(URL lra) {
+        CompletableFuture<CompensatorStatus> outcome = new CompletableFuture<>();
+
+        coordinator.onTermination(lra, outcome::complete);
+
+        return outcome;
+    }
+
+    // a time that is after the start of every LRA started so far and before the start of the next one
+    private static Instant instantBetweenStarts() throws InterruptedException {
+        Thread.sleep(2);
+
+        Instant between = Instant.now();
+
+        Thread.sleep(2);
+
+        return between;
+    }
+
+    private static List<URL> ids(List<LRAInfo> lras) {
+        return lras.stream().map(info -> LRAId.valueOf(info.getLraId()).toURL()).collect(Collectors.toList());
+    }
+
+    static void assertFailure(int status, Runnable request) {
+        try {
+            request.run();
+            fail("expected a failure with status " + status);
+        } catch (TestCoordinator.Failure e) {
+            assertEquals(e.getMessage(), status, e.getStatus());
+        }
+    }
+
+    /*
+     * compensates only once it is released
+     */
+    private static final class BlockingParticipant implements LRAParticipant {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CountDownLatch compensating;
+        private final transient CountDownLatch release;
+
+        BlockingParticipant(CountDownLatch compensating, CountDownLatch release) {
+            this.compensating = compensating;
+            this.release = release;
+        }
+
+        @Override
+        public Future<Void> completeWork(URL lraId) {
+            return null;
+        }
+
+        @Override
+        public Future<Void> compensateWork(URL lraId) {
+            compensating.countDown();
+
+            try {
+                release.await(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return null;
+        }
+    }
+}
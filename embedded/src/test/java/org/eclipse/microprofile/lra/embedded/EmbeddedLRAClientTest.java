@@ -0,0 +1,230 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Escalates embedded LRAs to a stub remote coordinator
+ */
+public class EmbeddedLRAClientTest {
+    private final TestCoordinator coordinator = new TestCoordinator();
+    private final RemoteStub stub = new RemoteStub();
+    private final EmbeddedLRAClient client = new EmbeddedLRAClient(coordinator, stub.proxy());
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void close() {
+        executor.shutdownNow();
+        coordinator.close();
+    }
+
+    @Test
+    public void concurrentRemoteJoinsEscalateOnce() throws Exception {
+        URL lra = client.startLRA(null, "escalate", 0L, TimeUnit.SECONDS);
+        List<Future<String>> joins = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            joins.add(executor.submit(() -> joinRemote(lra)));
+        }
+
+        for (Future<String> join : joins) {
+            assertEquals("recovery", join.get(5L, TimeUnit.SECONDS));
+        }
+
+        assertEquals("only one remote LRA should be started", 1, stub.started.get());
+        assertEquals(Collections.nCopies(8, stub.lastStarted()), stub.joined);
+
+        client.closeLRA(lra);
+
+        assertEquals(Collections.singletonList("closeLRA " + stub.lastStarted()), stub.ended);
+    }
+
+    @Test
+    public void escalationsOfDifferentLRAsDoNotWaitForEachOther() throws Exception {
+        URL blocked = client.startLRA(null, "blocked", 0L, TimeUnit.SECONDS);
+        URL other = client.startLRA(null, "other", 0L, TimeUnit.SECONDS);
+        Future<String> blockedJoin = executor.submit(() -> joinRemote(blocked));
+
+        try {
+            assertTrue("the remote LRA was not started", stub.blocking.await(5L, TimeUnit.SECONDS));
+            assertEquals("recovery", executor.submit(() -> joinRemote(other)).get(5L, TimeUnit.SECONDS));
+            assertFalse(blockedJoin.isDone());
+        } finally {
+            stub.release.countDown();
+        }
+
+        assertEquals("recovery", blockedJoin.get(5L, TimeUnit.SECONDS));
+
+        client.cancelLRA(blocked);
+
+        assertEquals(1, stub.ended.size());
+        assertTrue(stub.ended.get(0).startsWith("cancelLRA "));
+    }
+
+    @Test
+    public void failedEscalationIsRetried() throws Exception {
+        URL lra = client.startLRA(null, "failing", 0L, TimeUnit.SECONDS);
+
+        try {
+            joinRemote(lra);
+            fail("the remote LRA should not have been started");
+        } catch (IllegalStateException expected) {
+            // the stub refuses the first request
+        }
+
+        assertEquals("recovery", joinRemote(lra));
+        assertEquals(2, stub.started.get());
+    }
+
+    @Test
+    public void compactContextIsConfigured() {
+        Map<String, String> config = new HashMap<>();
+
+        assertFalse(currentContextIsCompact(new EmbeddedLRAClient(coordinator, null)));
+        assertFalse(currentContextIsCompact(EmbeddedLRAClient.fromConfig(coordinator, null, config::get)));
+
+        config.put(LRAClient.LRA_HTTP_HEADER_COMPACT_KEY, "true");
+
+        assertTrue(currentContextIsCompact(EmbeddedLRAClient.fromConfig(coordinator, null, config::get)));
+        assertTrue(currentContextIsCompact(new EmbeddedLRAClient(coordinator, null, true)));
+    }
+
+    @Test
+    public void streamsReadTheCoordinatorAPageAtATime() {
+        EmbeddedLRAClient local = new EmbeddedLRAClient(coordinator, null);
+        List<URL> lras = local.startLRAs(600, "streamed", 0L, TimeUnit.SECONDS);
+        long before = local.getTransportStatistics().getRequestCount();
+        Stream<LRAInfo> active = local.streamActiveLRAs();
+
+        assertEquals("no page should be read until the stream is traversed",
+                before, local.getTransportStatistics().getRequestCount());
+        assertTrue(active.findFirst().isPresent());
+        assertEquals("only the first page should be read", before + 1, local.getTransportStatistics().getRequestCount());
+
+        assertEquals(lras.size(), local.streamActiveLRAs().count());
+        assertEquals("the whole stream should be read in three pages",
+                before + 4, local.getTransportStatistics().getRequestCount());
+
+        local.closeLRAs(lras);
+    }
+
+    private boolean currentContextIsCompact(EmbeddedLRAClient configured) {
+        URL lra = configured.startLRA(null, "compact", 0L, TimeUnit.SECONDS);
+
+        try {
+            return configured.getCurrentContext().isCompact();
+        } finally {
+            configured.cancelLRA(lra);
+        }
+    }
+
+    private String joinRemote(URL lra) throws Exception {
+        URL participant = new URL("http://localhost/participant");
+
+        return client.joinLRA(lra, 0L, participant, participant, participant, participant, participant, null);
+    }
+
+    /*
+     * a remote coordinator that records requests: it blocks the start of an LRA with client id "blocked"
+     * until released and refuses the first start of an LRA with client id "failing"
+     */
+    private static final class RemoteStub {
+        private final AtomicInteger started = new AtomicInteger();
+        private final List<URL> joined = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> ended = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch blocking = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile URL lastStarted;
+
+        LRAClient proxy() {
+            return (LRAClient) Proxy.newProxyInstance(LRAClient.class.getClassLoader(),
+                    new Class<?>[] {LRAClient.class}, (proxy, method, args) -> invoke(proxy, method, args));
+        }
+
+        URL lastStarted() {
+            return lastStarted;
+        }
+
+        private Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            switch (method.getName()) {
+                case "startLRA":
+                    return start((String) args[1]);
+                case "joinLRA":
+                    joined.add((URL) args[0]);
+                    return "recovery";
+                case "closeLRA":
+                case "cancelLRA":
+                    ended.add(method.getName() + " " + args[0]);
+                    return "";
+                case "getStatus":
+                    return Optional.empty();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        }
+
+        private URL start(String clientId) throws Exception {
+            int n = started.incrementAndGet();
+
+            if ("blocked".equals(clientId)) {
+                blocking.countDown();
+                release.await(5L, TimeUnit.SECONDS);
+            } else if ("failing".equals(clientId) && n == 1) {
+                throw new IllegalStateException("remote coordinator unavailable");
+            }
+
+            lastStarted = new URL("http://remote/lra-coordinator/" + n);
+
+            return lastStarted;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalLRAManagementTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private Path path;
+
+    @After
+    public void close() throws Exception {
+        Collections.reverse(resources);
+
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void participantsOfLRAsLostInARestartAreCompensatedAndForgotten() throws Exception {
+        path = folder.getRoot().toPath().resolve("participants.journal");
+
+        TestCoordinator coordinator = coordinator();
+        JournalLRAManagement manager = open(coordinator);
+        URL lost = coordinator.start(null, "lost", 0L, TimeUnit.SECONDS);
+        URL closed = coordinator.start(null, "closed", 0L, TimeUnit.SECONDS);
+
+        manager.joinLRA(new RecordingParticipant("a", log), lost, 0L, TimeUnit.SECONDS);
+        manager.joinLRA(new RecordingParticipant("b", log), lost, 0L, TimeUnit.SECONDS);
+        manager.joinLRA(new RecordingParticipant("c", log), closed, 0L, TimeUnit.SECONDS);
+
+        assertEquals(CompensatorStatus.Completed, coordinator.close(closed));
+        assertEquals("finished participants are removed from the journal", 2, manager.getPendingCount());
+
+        // the JVM stops before the LRA ends so the LRA is lost with the coordinator
+        manager.close();
+        coordinator.close();
+        log.clear();
+
+        TestCoordinator restarted = coordinator();
+        JournalLRAManagement recovering = open(restarted);
+        RecoveryProgress progress = recovering.recover(replay(restarted, recovering));
+
+        assertEquals(Arrays.asList("b:compensate", "a:compensate"), log);
+        assertEquals(2, progress.getTotal());
+        assertEquals(2, progress.getResolved());
+        assertEquals(0, recovering.getPendingCount());
+
+        recovering.close();
+
+        JournalLRAManagement reopened = open(restarted);
+
+        assertEquals("resolved participants must not be replayed after the next restart", 0, reopened.getPendingCount());
+        assertTrue(reopened.recover(replay(restarted, reopened)).isDone());
+        assertEquals(2, log.size());
+    }
+
+    private TestCoordinator coordinator() {
+        TestCoordinator coordinator = new TestCoordinator();
+
+        resources.add(coordinator);
+
+        return coordinator;
+    }
+
+    private JournalLRAManagement open(TestCoordinator coordinator) throws IOException {
+        JournalLRAManagement manager = JournalLRAManagement.open(new EmbeddedLRAClient(coordinator, null), path, 4096, true, 0.5);
+
+        manager.registerDeserializer(RecordingParticipant.TYPE_TAG, RecordingParticipant.deserializer(log));
+        resources.add(manager);
+
+        return manager;
+    }
+
+    private static RecoveryReplay replay(TestCoordinator coordinator, JournalLRAManagement manager) {
+        return new RecoveryReplay(new EmbeddedLRAClient(coordinator, null), manager.getDeserializers(), 4, 2, 0, 0L, 1000L,
+                RecoveryReplay.NotFoundPolicy.COMPENSATE) {
+            @Override
+            protected boolean isNotFound(Throwable failure) {
+                return failure instanceof TestCoordinator.Failure && ((TestCoordinator.Failure) failure).getStatus() == 404;
+            }
+        };
+    }
+}
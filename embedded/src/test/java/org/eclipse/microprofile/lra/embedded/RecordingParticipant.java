@@ -0,0 +1,91 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.eclipse.microprofile.lra.participant.LRAParticipantDeserializer;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * A participant that records the notifications it receives in a log shared
+ * with other participants. Its persistent form is its name.
+ */
+class RecordingParticipant implements LRAParticipant {
+    static final String TYPE_TAG = "recording";
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final transient List<String> log;
+
+    RecordingParticipant(String name, List<String> log) {
+        this.name = name;
+        this.log = log;
+    }
+
+    /**
+     * @param log the log that recreated participants record their notifications in
+     * @return a deserializer that recreates participants from their names
+     */
+    static LRAParticipantDeserializer deserializer(List<String> log) {
+        return (lraId, state) -> new RecordingParticipant(new String(state, StandardCharsets.UTF_8), log);
+    }
+
+    /**
+     * @param record the record of a participant
+     * @return the name of the participant
+     */
+    static String nameOf(RecoveryRecord record) {
+        return StandardCharsets.UTF_8.decode(record.getState()).toString();
+    }
+
+    @Override
+    public Future<Void> completeWork(URL lraId) {
+        log.add(name + ":complete");
+
+        return null;
+    }
+
+    @Override
+    public Future<Void> compensateWork(URL lraId) {
+        log.add(name + ":compensate");
+
+        return null;
+    }
+
+    @Override
+    public String getRecoveryTypeTag() {
+        return TYPE_TAG;
+    }
+
+    @Override
+    public boolean writeRecoveryState(ByteBuffer buffer) {
+        buffer.put(name.getBytes(StandardCharsets.UTF_8));
+
+        return true;
+    }
+}
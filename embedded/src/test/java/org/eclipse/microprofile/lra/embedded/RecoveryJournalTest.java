@@ -0,0 +1,277 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecoveryJournalTest {
+    private static final int SIZE = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final List<RecoveryJournal> opened = new ArrayList<>();
+    private URL lra;
+    private Path path;
+
+    @After
+    public void close() throws IOException {
+        for (RecoveryJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedWithEverythingAfterIt() throws Exception {
+        RecoveryJournal journal = open();
+
+        append(journal, "a", "b", "c", "ghost");
+        journal.close();
+
+        // tear c, leaving the record that reached the file after it
+        corrupt(offsets().get(2) + 4);
+
+        journal = open();
+
+        assertEquals(Arrays.asList("a", "b"), names(journal));
+
+        append(journal, "d"); // takes the place of c
+        journal.close();
+
+        assertEquals("the bytes after the torn record were not cleared", Arrays.asList("a", "b", "d"), names(open()));
+    }
+
+    @Test
+    public void lostTombstoneOnlyCausesAReplay() throws Exception {
+        RecoveryJournal journal = open();
+        long a = journal.append(lra, participant("a"));
+
+        append(journal, "b");
+        journal.remove(a);
+        journal.close();
+
+        List<Integer> offsets = offsets();
+
+        corrupt(offsets.get(offsets.size() - 1) + 4); // lose the tombstone
+
+        journal = open();
+
+        assertEquals("the finished participant is replayed again", Arrays.asList("a", "b"), names(journal));
+
+        journal.remove(a);
+        append(journal, "c");
+        journal.close();
+
+        assertEquals(Arrays.asList("b", "c"), names(open()));
+    }
+
+    @Test
+    public void compactedJournalCanBeReopened() throws Exception {
+        RecoveryJournal journal = open();
+        List<Long> ids = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            ids.add(journal.append(lra, participant("p" + i)));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 2 == 0) {
+                journal.remove(ids.get(i));
+            } else {
+                expected.add("p" + i);
+            }
+        }
+
+        journal.compact();
+        journal.remove(ids.get(1));
+        expected.remove("p1");
+        append(journal, "after");
+        expected.add("after");
+        journal.close();
+
+        journal = open();
+
+        assertEquals(expected, names(journal));
+        assertFalse("the compaction file was left behind", Files.exists(path.resolveSibling(path.getFileName() + ".compact")));
+
+        journal.remove(ids.get(3));
+        expected.remove("p3");
+        append(journal, "reopened");
+        expected.add("reopened");
+        journal.close();
+
+        assertEquals(expected, names(open()));
+    }
+
+    @Test
+    public void fullJournalOfFinishedParticipantsIsCompactedRatherThanGrown() throws Exception {
+        RecoveryJournal journal = open();
+        List<String> kept = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            long id = journal.append(lra, participant("p" + i));
+
+            if (i % 100 == 0) {
+                kept.add("p" + i);
+            } else {
+                journal.remove(id);
+            }
+        }
+
+        assertEquals(kept.size(), journal.size());
+        assertEquals(SIZE, Files.size(path));
+
+        journal.close();
+
+        assertEquals(kept, names(open()));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentAppendsAreAllDurable() throws Exception {
+        RecoveryJournal journal = open();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> appends = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < 8; t++) {
+                String thread = "t" + t;
+
+                appends.add(threads.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+
+                    for (int i = 0; i < 50; i++) {
+                        ids.add(journal.append(lra, participant(thread + "-" + i)));
+                    }
+
+                    return ids;
+                }));
+            }
+
+            List<Long> ids = new ArrayList<>();
+
+            for (Future<List<Long>> append : appends) {
+                ids.addAll(append.get());
+            }
+
+            assertEquals("record ids must be unique", 400, ids.stream().distinct().count());
+        } finally {
+            threads.shutdownNow();
+        }
+
+        journal.close();
+
+        List<String> names = names(open());
+
+        assertEquals(400, names.size());
+
+        for (int t = 0; t < 8; t++) {
+            String prefix = "t" + t + "-";
+            List<String> appended = names.stream().filter(name -> name.startsWith(prefix)).collect(Collectors.toList());
+
+            for (int i = 0; i < appended.size(); i++) {
+                assertEquals("records are recovered in the order they were appended", prefix + i, appended.get(i));
+            }
+
+            assertEquals(50, appended.size());
+        }
+    }
+
+    private RecoveryJournal open() throws Exception {
+        if (path == null) {
+            path = folder.getRoot().toPath().resolve("participants.journal");
+            lra = new URL("http://localhost/lra-test/journal");
+        }
+
+        RecoveryJournal journal = RecoveryJournal.open(path, SIZE, true, 0.5);
+
+        opened.add(journal);
+
+        return journal;
+    }
+
+    private RecordingParticipant participant(String name) {
+        return new RecordingParticipant(name, log);
+    }
+
+    private void append(RecoveryJournal journal, String... names) throws IOException {
+        for (String name : names) {
+            journal.append(lra, participant(name));
+        }
+    }
+
+    private static List<String> names(RecoveryJournal journal) {
+        Map<Long, RecoveryRecord> recovered = journal.getRecovered();
+
+        assertEquals(recovered.size(), journal.size());
+        assertTrue(recovered.values().stream().allMatch(record -> RecordingParticipant.TYPE_TAG.equals(record.getTypeTag())));
+
+        return recovered.values().stream().map(RecordingParticipant::nameOf).collect(Collectors.toList());
+    }
+
+    // the offsets of the records in the (closed) journal file
+    private List<Integer> offsets() throws IOException {
+        List<Integer> offsets = new ArrayList<>();
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        int length;
+
+        for (int position = 8; (length = bytes.getInt(position)) > 0; position += 4 + length) {
+            offsets.add(position);
+        }
+
+        return offsets;
+    }
+
+    private void corrupt(int offset) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+
+            file.read(b, offset);
+            b.put(0, (byte) ~b.get(0)).rewind();
+            file.write(b, offset);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package org.eclipse.microprofile.lra.embedded;
+
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.embedded.RecoveryReplay.NotFoundPolicy;
+import org.eclipse.microprofile.lra.participant.AsyncLRAParticipant;
+import org.eclipse.microprofile.lra.participant.JoinLRAException;
+import org.eclipse.microprofile.lra.participant.LRAParticipant;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecoveryReplayTest {
+    private static final int UNKNOWN_LRAS = 20;
+
+    private final TestCoordinator coordinator = new TestCoordinator();
+    private final EmbeddedLRAClient client = new EmbeddedLRAClient(coordinator, null);
+    private final DeserializerRegistry deserializers = new DeserializerRegistry();
+    private final Map<String, List<String>> logs = new ConcurrentHashMap<>();
+    private final List<RecoveryRecord> resolved = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger statusRequests = new AtomicInteger();
+    private final AtomicInteger maxStatusRequests = new AtomicInteger();
+    private final AtomicInteger notFound = new AtomicInteger();
+
+    /*
+     * a client that records how many status requests are in flight and holds each one long enough for them to overlap
+     */
+    private final LRAClient countingClient = (LRAClient) Proxy.newProxyInstance(LRAClient.class.getClassLoader(),
+            new Class<?>[] {LRAClient.class}, (proxy, method, args) -> {
+                boolean status = "getStatus".equals(method.getName());
+
+                if (status) {
+                    maxStatusRequests.accumulateAndGet(statusRequests.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                }
+
+                try {
+                    return method.invoke(client, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    if (status) {
+                        statusRequests.decrementAndGet();
+                    }
+                }
+            });
+
+    public RecoveryReplayTest() {
+        deserializers.register("log", (lraId, state) -> new RecordingParticipant(text(state), logOf(lraId)));
+        deserializers.register("failing", (lraId, state) -> new Finishing(failed()));
+        deserializers.register("stuck", (lraId, state) -> new Finishing(new CompletableFuture<>()));
+        deserializers.register("gone", (lraId, state) -> new Finishing(null) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Future<Void> completeWork(URL lraId) {
+                throw new TestCoordinator.Failure(404, "the participant has already finished");
+            }
+        });
+    }
+
+    @After
+    public void close() {
+        coordinator.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void participantsFollowTheOutcomeThatTheCoordinatorReports() throws Exception {
+        URL closing = stalled(true);
+        URL cancelling = stalled(false);
+        URL parent = coordinator.start(null, "parent", 0L, TimeUnit.SECONDS);
+        URL child = coordinator.start(parent, "child", 0L, TimeUnit.SECONDS);
+        URL active = coordinator.start(null, "active", 0L, TimeUnit.SECONDS);
+        List<RecoveryRecord> records = new ArrayList<>();
+
+        coordinator.close(child);
+
+        assertEquals(Optional.of(CompensatorStatus.Completing), coordinator.getStatus(closing));
+        assertEquals(Optional.of(CompensatorStatus.Compensating), coordinator.getStatus(cancelling));
+        assertEquals(Optional.of(CompensatorStatus.Completed), coordinator.getStatus(child));
+
+        add(records, closing, "log:a", "log:b", "failing:f", "log:c", "mystery:m");
+        add(records, cancelling, "log:a", "log:b", "log:c", "stuck:s");
+        add(records, child, "log:x", "gone:g");
+        add(records, active, "log:y");
+
+        for (int i = 0; i < UNKNOWN_LRAS; i++) {
+            add(records, new URL(coordinator.getBaseUri() + "/unknown-" + i), "log:u");
+        }
+
+        RecoveryProgress progress = replay(NotFoundPolicy.COMPENSATE).replay(records, resolved::add);
+
+        assertEquals("participants complete in join order", Arrays.asList("a:complete", "b:complete", "c:complete"), logOf(closing));
+        assertEquals("participants compensate in reverse join order",
+                Arrays.asList("c:compensate", "b:compensate", "a:compensate"), logOf(cancelling));
+        assertEquals(Collections.singletonList("x:complete"), logOf(child));
+        assertEquals("the participants of an active LRA are not in doubt", Collections.emptyList(), logOf(active));
+
+        for (int i = 0; i < UNKNOWN_LRAS; i++) {
+            assertEquals("an LRA that the coordinator has lost is presumed to be cancelled",
+                    Collections.singletonList("u:compensate"), logOf(new URL(coordinator.getBaseUri() + "/unknown-" + i)));
+        }
+
+        assertTrue("too many concurrent status requests: " + maxStatusRequests, maxStatusRequests.get() <= 2);
+
+        assertTrue(progress.isDone());
+        assertEquals(records.size(), progress.getTotal());
+        assertEquals(records.size() - 3, progress.getResolved());
+        assertEquals(1, progress.getFailed());
+        assertEquals(3, progress.getUnresolved());
+        assertEquals(progress.getResolved(), resolved.size());
+
+        for (RecoveryRecord record : resolved) {
+            assertFalse("an unresolved participant was reported as resolved: " + record,
+                    record.getLraId().toExternalForm().equals(active.toExternalForm())
+                            || Arrays.asList("mystery", "stuck").contains(record.getTypeTag()));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void forgottenLRAsAreResolvedWithoutNotifyingTheirParticipants() throws Exception {
+        URL unknown = new URL(coordinator.getBaseUri() + "/unknown");
+        List<RecoveryRecord> records = new ArrayList<>();
+
+        add(records, unknown, "log:a", "log:b");
+
+        RecoveryProgress progress = replay(NotFoundPolicy.FORGET).replay(records, resolved::add);
+
+        assertEquals(Collections.emptyList(), logOf(unknown));
+        assertEquals(2, progress.getResolved());
+        assertEquals(records, resolved);
+    }
+
+    @Test(timeout = 10_000)
+    public void retainedLRAsAreLeftUnresolved() throws Exception {
+        URL unknown = new URL(coordinator.getBaseUri() + "/unknown");
+        List<RecoveryRecord> records = new ArrayList<>();
+
+        add(records, unknown, "log:a", "log:b");
+
+        RecoveryProgress progress = replay(NotFoundPolicy.RETAIN).replay(records, resolved::add);
+
+        assertEquals(Collections.emptyList(), logOf(unknown));
+        assertEquals(2, progress.getUnresolved());
+        assertTrue(resolved.isEmpty());
+    }
+
+    @Test(timeout = 10_000)
+    public void lostLRAsAreRetainedByDefault() throws Exception {
+        URL unknown = new URL(coordinator.getBaseUri() + "/unknown");
+        List<RecoveryRecord> records = new ArrayList<>();
+        RecoveryReplay defaults = new RecoveryReplay(countingClient, deserializers, 8, 2, 0, 0L) {
+            @Override
+            protected boolean isNotFound(Throwable failure) {
+                notFound.incrementAndGet();
+
+                return failure instanceof TestCoordinator.Failure && ((TestCoordinator.Failure) failure).getStatus() == 404;
+            }
+        };
+
+        add(records, unknown, "log:a", "log:b");
+
+        RecoveryProgress progress = defaults.replay(records, resolved::add);
+
+        assertEquals("the coordinator should have reported the LRA as not found", 1, notFound.get());
+        assertEquals("completed work must not be compensated unless asked for", Collections.emptyList(), logOf(unknown));
+        assertEquals(2, progress.getUnresolved());
+        assertTrue(resolved.isEmpty());
+    }
+
+    private RecoveryReplay replay(NotFoundPolicy policy) {
+        return new RecoveryReplay(countingClient, deserializers, 8, 2, 0, 0L, 200L, policy) {
+            @Override
+            protected boolean isNotFound(Throwable failure) {
+                return failure instanceof TestCoordinator.Failure && ((TestCoordinator.Failure) failure).getStatus() == 404;
+            }
+        };
+    }
+
+    /*
+     * start an LRA with a participant that never finishes and then close or cancel it
+     */
+    private URL stalled(boolean close) throws JoinLRAException {
+        URL lra = coordinator.start(null, "stalled", 0L, TimeUnit.SECONDS);
+
+        client.joinLRA(new AsyncLRAParticipant() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletionStage<Void> completeWork(URL lraId) {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public CompletionStage<Void> compensateWork(URL lraId) {
+                return new CompletableFuture<>();
+            }
+        }, lra);
+
+        if (close) {
+            coordinator.closeAsync(lra);
+        } else {
+            coordinator.cancelAsync(lra);
+        }
+
+        return lra;
+    }
+
+    // each participant is given as typeTag:name
+    private static void add(List<RecoveryRecord> records, URL lra, String... participants) {
+        for (String participant : participants) {
+            String[] parts = participant.split(":");
+
+            records.add(new RecoveryRecord(lra, parts[0], parts[1].getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private List<String> logOf(URL lra) {
+        return logs.computeIfAbsent(lra.toExternalForm(), id -> Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    private static String text(byte[] state) {
+        return new String(state, StandardCharsets.UTF_8);
+    }
+
+    private static CompletableFuture<Void> failed() {
+        CompletableFuture<Void> work = new CompletableFuture<>();
+
+        work.completeExceptionally(new IllegalStateException("the participant failed"));
+
+        return work;
+    }
+
+    /*
+     * finishes its work with the given future
+     */
+    private static class Finishing implements LRAParticipant {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Future<Void> work;
+
+        Finishing(Future<Void> work) {
+            this.work = work;
+        }
+
+        @Override
+        public Future<Void> completeWork(URL lraId) {
+            return work;
+        }
+
+        @Override
+        public Future<Void> compensateWork(URL lraId) {
+            return work;
+        }
+    }
+}
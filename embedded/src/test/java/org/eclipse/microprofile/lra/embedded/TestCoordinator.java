@@ -0,0 +1,65 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.embedded;
+
+import java.net.URI;
+import java.net.URL;
+
+/**
+ * An embedded coordinator that reports errors without a JAX-RS runtime
+ */
+class TestCoordinator extends EmbeddedCoordinator {
+    TestCoordinator() {
+        super(URI.create("http://localhost/lra-test"));
+    }
+
+    @Override
+    protected RuntimeException notFound(URL lraId) {
+        return new Failure(404, "LRA not found: " + lraId);
+    }
+
+    @Override
+    protected RuntimeException illegalState(String lraId, String operation, String reason) {
+        return new Failure(412, operation + " " + lraId + ": " + reason);
+    }
+
+    @Override
+    protected RuntimeException failure(URL lraId, int statusCode, String reason, Throwable cause) {
+        return new Failure(statusCode, reason);
+    }
+
+    static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        Failure(int status, String message) {
+            super(message);
+
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+}
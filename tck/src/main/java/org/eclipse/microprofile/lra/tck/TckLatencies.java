@@ -0,0 +1,194 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package org.eclipse.microprofile.lra.tck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The latencies of the operations timed by the performance profile of the TCK
+ * and the service level objectives (SLOs) that they are checked against.
+ *
+ * An instance is not thread safe: each client records into its own instance
+ * and the instances are merged once the clients have finished.
+ *
+ * An SLO is set with a system property, for example <code>lra.tck.perf.slo.p99=50</code>
+ * limits the 99th percentile latency of every operation to 50 milliseconds and
+ * <code>lra.tck.perf.slo.p99.close=200</code> overrides the limit for the close
+ * operation. SLOs that are not set are not checked.
+ */
+class TckLatencies {
+    /**
+     * Key for the system property that enables the performance profile
+     */
+    static final String ENABLED_KEY = "lra.tck.perf";
+    /**
+     * Key for the system property that sets the number of concurrent clients
+     */
+    static final String CLIENTS_KEY = "lra.tck.perf.clients";
+    /**
+     * Key for the system property that sets the number of LRAs that each client runs
+     */
+    static final String ITERATIONS_KEY = "lra.tck.perf.iterations";
+    /**
+     * Key for the system property that sets the minimum throughput in operations per second
+     */
+    static final String MIN_THROUGHPUT_KEY = "lra.tck.perf.slo.throughput";
+    /**
+     * Key for the system property that sets the maximum median latency in milliseconds
+     */
+    static final String MAX_P50_KEY = "lra.tck.perf.slo.p50";
+    /**
+     * Key for the system property that sets the maximum 99th percentile latency in milliseconds
+     */
+    static final String MAX_P99_KEY = "lra.tck.perf.slo.p99";
+    /**
+     * Key for the system property that sets the maximum 99.9th percentile latency in milliseconds
+     */
+    static final String MAX_P999_KEY = "lra.tck.perf.slo.p999";
+
+    private final Map<String, Samples> samples = new LinkedHashMap<>();
+
+    /**
+     * @param operation the operation that was timed
+     * @param startNanos the value of {@link System#nanoTime()} when the operation started
+     */
+    void record(String operation, long startNanos) {
+        samples.computeIfAbsent(operation, k -> new Samples()).add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param other latencies recorded by another client
+     */
+    void addAll(TckLatencies other) {
+        other.samples.forEach((operation, s) -> samples.computeIfAbsent(operation, k -> new Samples()).addAll(s));
+    }
+
+    /**
+     * @param elapsedNanos the wall clock time taken by the run
+     * @return the throughput and latency percentiles of each operation
+     */
+    String report(long elapsedNanos) {
+        StringBuilder report = new StringBuilder();
+
+        samples.forEach((operation, s) -> {
+            if (report.length() != 0) {
+                report.append("; ");
+            }
+
+            report.append(String.format("%s: %d ops %.1f ops/sec p50=%.3fms p99=%.3fms p999=%.3fms",
+                    operation, s.size, throughput(s, elapsedNanos),
+                    millis(s.percentile(0.5)), millis(s.percentile(0.99)), millis(s.percentile(0.999))));
+        });
+
+        return report.toString();
+    }
+
+    /**
+     * @param elapsedNanos the wall clock time taken by the run
+     * @param properties looks up the SLOs by key, returning null if the SLO is not set
+     * @return a description of each SLO that was not met
+     */
+    List<String> checkSlos(long elapsedNanos, Function<String, String> properties) {
+        List<String> violations = new ArrayList<>();
+
+        samples.forEach((operation, s) -> {
+            Double minThroughput = slo(properties, MIN_THROUGHPUT_KEY, operation);
+
+            if (minThroughput != null && throughput(s, elapsedNanos) < minThroughput) {
+                violations.add(String.format("%s throughput %.1f ops/sec is below %.1f",
+                        operation, throughput(s, elapsedNanos), minThroughput));
+            }
+
+            checkLatency(violations, operation, "p50", millis(s.percentile(0.5)), slo(properties, MAX_P50_KEY, operation));
+            checkLatency(violations, operation, "p99", millis(s.percentile(0.99)), slo(properties, MAX_P99_KEY, operation));
+            checkLatency(violations, operation, "p999", millis(s.percentile(0.999)), slo(properties, MAX_P999_KEY, operation));
+        });
+
+        return violations;
+    }
+
+    private static void checkLatency(List<String> violations, String operation, String percentile,
+                                     double latency, Double max) {
+        if (max != null && latency > max) {
+            violations.add(String.format("%s %s latency %.3fms exceeds %.3fms", operation, percentile, latency, max));
+        }
+    }
+
+    private static Double slo(Function<String, String> properties, String key, String operation) {
+        String value = properties.apply(key + '.' + operation);
+
+        if (value == null) {
+            value = properties.apply(key);
+        }
+
+        return value == null ? null : Double.valueOf(value.trim());
+    }
+
+    private static double throughput(Samples s, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0.0 : s.size * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class Samples {
+        private long[] values = new long[256];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = value;
+            sorted = false;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        // nearest rank
+        long percentile(double p) {
+            if (size == 0) {
+                return 0L;
+            }
+
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+
+            return values[Math.max(0, (int) Math.ceil(p * size) - 1)];
+        }
+    }
+}
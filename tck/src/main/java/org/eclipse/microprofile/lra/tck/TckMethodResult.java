@@ -29,6 +29,7 @@ class TckMethodResult {
     private boolean passed;
     private boolean ran;
     private boolean verbose;
+    private boolean isolated;
     private String result;
     private Throwable failureReason;
 
@@ -38,6 +39,11 @@ class TckMethodResult {
         this.verbose = verbose;
     }
 
+    TckMethodResult(String testName, Function<TckTests, String> testMethod, boolean verbose, boolean isolated) {
+        this(testName, testMethod, verbose);
+        this.isolated = isolated;
+    }
+
     public String getTestName() {
         return testName;
     }
@@ -50,6 +56,15 @@ class TckMethodResult {
         return ran;
     }
 
+    /**
+     * @return true if the test makes assertions about state that is shared by
+     * every test (such as the set of active LRAs or the health of the
+     * coordinator) and therefore must not run concurrently with other tests
+     */
+    public boolean isIsolated() {
+        return isolated;
+    }
+
     public String getResult() {
         return result;
     }
@@ -19,6 +19,7 @@
  *******************************************************************************/
 package org.eclipse.microprofile.lra.tck;
 
+import org.eclipse.microprofile.lra.client.AsyncLRAClient;
 import org.eclipse.microprofile.lra.client.LRAClient;
 
 import javax.annotation.PostConstruct;
@@ -36,14 +37,18 @@ import javax.ws.rs.core.MediaType;
 public class TckResource {
 
     private static final String VERBOSE = "verbose";
+    private static final String PARALLELISM = "parallelism";
     @Inject
     private LRAClient lraClient;
 
+    @Inject
+    private AsyncLRAClient asyncLRAClient;
+
     private TckTests test;
 
     @PostConstruct
     private void setup() {
-        TckTests.beforeClass(lraClient);
+        TckTests.beforeClass(lraClient, asyncLRAClient);
         test = new TckTests();
     }
 
@@ -55,10 +60,11 @@ public class TckResource {
     @PUT
     @Path("{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    public TckResult runTck(@PathParam("name") String testName, @DefaultValue("true") @QueryParam(VERBOSE) boolean isVerbose) {
+    public TckResult runTck(@PathParam("name") String testName, @DefaultValue("true") @QueryParam(VERBOSE) boolean isVerbose,
+                            @DefaultValue("1") @QueryParam(PARALLELISM) int parallelism) {
         test.before();
 
-        TckResult results = test.runTck(lraClient, testName, isVerbose);
+        TckResult results = test.runTck(lraClient, asyncLRAClient, testName, isVerbose, parallelism);
 
         test.after();
 
@@ -23,6 +23,10 @@ package org.eclipse.microprofile.lra.tck;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -40,13 +44,34 @@ class TckResult {
         tests.add( new TckMethodResult(testName, testMethod, verbose));
     }
 
+    void addIsolated(String testName, Function<TckTests, String> testMethod, boolean verbose) {
+        tests.add( new TckMethodResult(testName, testMethod, verbose, true));
+    }
+
     void runTests(TckTests testSpec, String testname) {
+        runTests(testSpec, testname, 1);
+    }
+
+    /**
+     * Run the named test or, if there is no test with that name, every test.
+     * When running every test with a parallelism greater than one the tests
+     * that are not isolated run concurrently, each in its own participant
+     * namespace (see {@link TckTests#forTest(String)}), and then the isolated
+     * tests run one after the other.
+     *
+     * @param testSpec the tests
+     * @param testname the name of the test to run
+     * @param parallelism the maximum number of tests to run at the same time
+     */
+    void runTests(TckTests testSpec, String testname, int parallelism) {
         Optional<TckMethodResult> tckTest = tests.stream()
                 .filter(name -> name.getTestName().equalsIgnoreCase(testname))
                 .findFirst();
 
         if (tckTest.isPresent()) {
             tckTest.get().test(testSpec);
+        } else if (parallelism > 1) {
+            runConcurrently(testSpec, parallelism);
         } else {
             tests.forEach(t -> t.test(testSpec));
         }
@@ -61,6 +86,33 @@ class TckResult {
                 .collect(Collectors.toList());
     }
 
+    private void runConcurrently(TckTests testSpec, int parallelism) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+
+        try {
+            List<Future<?>> pending = tests.stream()
+                    .filter(t -> !t.isIsolated())
+                    .map(t -> executor.submit(() -> t.test(testSpec.forTest(t.getTestName()))))
+                    .collect(Collectors.toList());
+
+            for (Future<?> test : pending) {
+                test.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // close anything the concurrent tests left behind before running the tests that need the coordinator to themselves
+        testSpec.after();
+
+        tests.stream().filter(TckMethodResult::isIsolated).forEach(t -> t.test(testSpec));
+    }
+
     public int getNumberOfFailures() {
         return failures.size();
     }
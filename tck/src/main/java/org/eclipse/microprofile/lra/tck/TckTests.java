@@ -19,9 +19,23 @@
  *******************************************************************************/
 package org.eclipse.microprofile.lra.tck;
 
+import org.eclipse.microprofile.lra.annotation.CompensatorStatus;
+import org.eclipse.microprofile.lra.client.AsyncLRAClient;
 import org.eclipse.microprofile.lra.client.GenericLRAException;
 import org.eclipse.microprofile.lra.client.LRAClient;
+import org.eclipse.microprofile.lra.client.LRAContextToken;
+import org.eclipse.microprofile.lra.client.LRACoordinatorHealth;
+import org.eclipse.microprofile.lra.client.LRACoordinatorRing;
+import org.eclipse.microprofile.lra.client.LRAEvent;
+import org.eclipse.microprofile.lra.client.LRAId;
 import org.eclipse.microprofile.lra.client.LRAInfo;
+import org.eclipse.microprofile.lra.client.LRAInfoPage;
+import org.eclipse.microprofile.lra.client.LRAQuery;
+import org.eclipse.microprofile.lra.client.LRAStatusCacheStatistics;
+import org.eclipse.microprofile.lra.client.LRAStatusSnapshot;
+import org.eclipse.microprofile.lra.client.LRASubscription;
+import org.eclipse.microprofile.lra.client.LRATransportConfig;
+import org.eclipse.microprofile.lra.client.LRATransportStatistics;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -29,21 +43,48 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
 import java.net.MalformedURLException;
+import java.net.ServerSocket;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_HOST_KEY;
 import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PORT_KEY;
@@ -51,67 +92,157 @@ import static org.eclipse.microprofile.lra.client.LRAClient.LRA_COORDINATOR_PATH
 import static org.eclipse.microprofile.lra.client.LRAClient.LRA_RECOVERY_PATH_KEY;
 import static org.eclipse.microprofile.lra.tck.participant.api.ActivityController.ACCEPT_WORK;
 import static org.eclipse.microprofile.lra.tck.participant.api.ActivityController.ACTIVITIES_PATH;
+import static org.eclipse.microprofile.lra.tck.participant.api.ActivityController.TCK_NAMESPACE_HEADER;
 
 public class TckTests {
     private static final Long LRA_TIMEOUT_MILLIS = 50000L;
+    private static final long ASYNC_TIMEOUT_MILLIS = 30000L;
+    private static final int ASYNC_LRA_COUNT = 10;
+    private static final int BATCH_LRA_COUNT = 5;
+    private static final int PAGE_SIZE = 2;
+    private static final long SHORT_TIMEOUT_MILLIS = 100L;
+    private static final int CONCURRENT_READERS = 16;
+    private static final int RING_COORDINATORS = 4;
+    private static final int RING_KEYS = 1000;
+    private static final int CONNECTION_BURST = 50;
+    private static final int PERF_CLIENTS = 16;
+    private static final int PERF_ITERATIONS = 100;
     private static URL micrserviceBaseUrl;
     private static URL rcBaseUrl;
+    private static URI coordinatorURI;
 
     private static final int COORDINATOR_SWARM_PORT = 8082;
     private static final int TEST_SWARM_PORT = 8080;
 
     private static LRAClient lraClient;
+    private static AsyncLRAClient asyncLRAClient;
     private static Client msClient;
     private static Client rcClient;
 
+    private final String namespace;
+    private Client nsClient;
     private WebTarget msTarget;
     private WebTarget recoveryTarget;
 
     private static List<LRAInfo> oldLRAs;
 
+    private static class NamespaceFilter implements ClientRequestFilter {
+        private final String namespace;
+
+        NamespaceFilter(String namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public void filter(ClientRequestContext requestContext) {
+            requestContext.getHeaders().putSingle(TCK_NAMESPACE_HEADER, namespace);
+        }
+    }
+
     private enum CompletionType {
         complete, compensate, mixed
     }
 
+    public TckTests() {
+        this(null);
+    }
+
+    private TckTests(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Create the tests for running a single test concurrently with other tests.
+     * Requests that the test makes to the participant microservice carry a
+     * namespace unique to the test so that the completion and compensation
+     * counts that the test sees are those of its own participants only.
+     *
+     * @param testName the name of the test that will be run
+     * @return the tests to run the test with
+     */
+    TckTests forTest(String testName) {
+        return new TckTests(testName + "-" + UUID.randomUUID());
+    }
+
     @BeforeClass
-    public static void beforeClass(LRAClient lraClient) {
-        initTck(lraClient);
+    public static void beforeClass(LRAClient lraClient, AsyncLRAClient asyncLRAClient) {
+        initTck(lraClient, asyncLRAClient);
+    }
+
+    public TckResult runTck(LRAClient lraClient, AsyncLRAClient asyncLRAClient, String testname, boolean verbose) {
+        return runTck(lraClient, asyncLRAClient, testname, verbose, 1);
     }
 
-    public TckResult runTck(LRAClient lraClient, String testname, boolean verbose) {
+    public TckResult runTck(LRAClient lraClient, AsyncLRAClient asyncLRAClient, String testname, boolean verbose,
+                            int parallelism) {
         TckResult run = new TckResult();
 
-        initTck(lraClient);
+        initTck(lraClient, asyncLRAClient);
 
         run.add("timeLimit", TckTests::timeLimitRequiredLRA, verbose);
         run.add("timeLimit", TckTests::timeLimitSupportsLRA, verbose);
         run.add("startLRA", TckTests::startLRA, verbose);
+        run.add("startLRAs", TckTests::startLRAs, verbose);
         run.add("cancelLRA", TckTests::cancelLRA, verbose);
         run.add("closeLRA", TckTests::closeLRA, verbose);
-        run.add("delayCloseLRA", TckTests::delayCloseLRA, verbose);
+        run.add("cancelLRAs", TckTests::cancelLRAs, verbose);
+        run.add("closeLRAs", TckTests::closeLRAs, verbose);
+        run.addIsolated("delayCloseLRA", TckTests::delayCloseLRA, verbose);
         run.add("getActiveLRAs", TckTests::getActiveLRAs, verbose);
         run.add("getAllLRAs", TckTests::getAllLRAs, verbose);
+        run.add("getActiveLRAsPaged", TckTests::getActiveLRAsPaged, verbose);
+        run.add("getAllLRAsPaged", TckTests::getAllLRAsPaged, verbose);
+        run.add("streamActiveLRAs", TckTests::streamActiveLRAs, verbose);
+        run.add("streamAllLRAs", TckTests::streamAllLRAs, verbose);
+        run.add("findLRAsByClientId", TckTests::findLRAsByClientId, verbose);
+        run.add("findLRAsByParent", TckTests::findLRAsByParent, verbose);
+        run.add("findLRAsByStartTime", TckTests::findLRAsByStartTime, verbose);
         run.add("isActiveLRA", TckTests::isActiveLRA, verbose);
+        run.add("getStatuses", TckTests::getStatuses, verbose);
+        run.add("getStatusSnapshot", TckTests::getStatusSnapshot, verbose);
+        run.add("lraIdOverloads", TckTests::lraIdOverloads, verbose);
+        run.add("compactContext", TckTests::compactContext, verbose);
+        run.add("coordinatorRing", TckTests::coordinatorRing, verbose);
+        run.addIsolated("shardedCoordinators", TckTests::shardedCoordinators, verbose);
+        run.addIsolated("coordinatorHealth", TckTests::coordinatorHealth, verbose);
+        run.addIsolated("coordinatorFailover", TckTests::coordinatorFailover, verbose);
+        run.addIsolated("connectionReuse", TckTests::connectionReuse, verbose);
+        run.addIsolated("statusCacheClose", TckTests::statusCacheClose, verbose);
+        run.addIsolated("statusCacheCancel", TckTests::statusCacheCancel, verbose);
+        run.add("concurrentReads", TckTests::concurrentReads, verbose);
+        run.add("onTerminationClose", TckTests::onTerminationClose, verbose);
+        run.add("onTerminationCancel", TckTests::onTerminationCancel, verbose);
+        run.add("onLRAEvents", TckTests::onLRAEvents, verbose);
+        run.add("awaitOutcomeTimeLimit", TckTests::awaitOutcomeTimeLimit, verbose);
+        run.add("awaitOutcomeDeadline", TckTests::awaitOutcomeDeadline, verbose);
         run.add("nestedActivity", TckTests::nestedActivity, verbose);
         run.add("completeMultiLevelNestedActivity", TckTests::completeMultiLevelNestedActivity, verbose);
         run.add("compensateMultiLevelNestedActivity", TckTests::compensateMultiLevelNestedActivity, verbose);
         run.add("mixedMultiLevelNestedActivity", TckTests::mixedMultiLevelNestedActivity, verbose);
         run.add("joinLRAViaHeader", TckTests::joinLRAViaHeader, verbose);
-        run.add("join", TckTests::join, verbose);
+        run.addIsolated("join", TckTests::join, verbose);
         run.add("leaveLRA", TckTests::leaveLRA, verbose);
         run.add("leaveLRAViaAPI", TckTests::leaveLRAViaAPI, verbose);
         run.add("dependentLRA", TckTests::dependentLRA, verbose);
         run.add("cancelOn", TckTests::cancelOn, verbose);
         run.add("cancelOnFamily", TckTests::cancelOnFamily, verbose);
-        run.add("acceptTest", TckTests::acceptTest, verbose);
+        run.addIsolated("acceptTest", TckTests::acceptTest, verbose);
+        run.add("startLRAAsync", TckTests::startLRAAsync, verbose);
+        run.add("cancelLRAAsync", TckTests::cancelLRAAsync, verbose);
+        run.add("closeLRAAsync", TckTests::closeLRAAsync, verbose);
+        run.add("getActiveLRAsAsync", TckTests::getActiveLRAsAsync, verbose);
+        run.add("getStatusAsync", TckTests::getStatusAsync, verbose);
+        run.add("concurrentLRAsAsync", TckTests::concurrentLRAsAsync, verbose);
+        run.addIsolated("performance", TckTests::performance, verbose);
 
-        run.runTests(this, testname);
+        run.runTests(this, testname, parallelism);
 
         return run;
     }
 
-    private static void initTck(LRAClient lraClient) {
+    private static void initTck(LRAClient lraClient, AsyncLRAClient asyncLRAClient) {
         TckTests.lraClient = lraClient;
+        TckTests.asyncLRAClient = asyncLRAClient;
 
         try {
             if (Boolean.valueOf(System.getProperty("enablePause", "true"))) {
@@ -127,7 +258,10 @@ public class TckTests {
             micrserviceBaseUrl = new URL(String.format("http://localhost:%d", servicePort));
             rcBaseUrl = new URL(String.format("http://%s:%d", rcHost, rcPort));
 
-            lraClient.setCoordinatorURI(new URI(String.format("http://%s:%d/%s", rcHost, rcPort, coordinatorPath)));
+            coordinatorURI = new URI(String.format("http://%s:%d/%s", rcHost, rcPort, coordinatorPath));
+
+            lraClient.setCoordinatorURI(coordinatorURI);
+            asyncLRAClient.setCoordinatorURI(coordinatorURI);
             msClient = ClientBuilder.newClient();
             rcClient = ClientBuilder.newClient();
 
@@ -141,6 +275,7 @@ public class TckTests {
     public static void afterClass() {
         oldLRAs.clear();
         lraClient.close();
+        asyncLRAClient.close();
         msClient.close();
         rcClient.close();
     }
@@ -148,8 +283,16 @@ public class TckTests {
     @Before
     public void before() {
         try {
-            msTarget = msClient.target(URI.create(new URL(micrserviceBaseUrl, "/").toExternalForm()));
-            recoveryTarget = rcClient.target(URI.create(new URL(rcBaseUrl, "/").toExternalForm()));
+            if (namespace == null) {
+                msTarget = msClient.target(URI.create(new URL(micrserviceBaseUrl, "/").toExternalForm()));
+                recoveryTarget = rcClient.target(URI.create(new URL(rcBaseUrl, "/").toExternalForm()));
+            } else {
+                // the shared clients are not safe for use by tests running concurrently
+                nsClient = ClientBuilder.newClient();
+                msTarget = nsClient.target(URI.create(new URL(micrserviceBaseUrl, "/").toExternalForm()))
+                        .register(new NamespaceFilter(namespace));
+                recoveryTarget = nsClient.target(URI.create(new URL(rcBaseUrl, "/").toExternalForm()));
+            }
         } catch (MalformedURLException e) {
             throw new RuntimeException(e);
         }
@@ -157,21 +300,35 @@ public class TckTests {
 
     @After
     public void after() {
-        List<LRAInfo> activeLRAs = lraClient.getActiveLRAs();
+        if (namespace != null) {
+            // the runner closes any LRAs left behind once all of the concurrent tests have finished
+            try {
+                msTarget.path(ACTIVITIES_PATH).path("activitycounts").request().delete().close();
+            } catch (WebApplicationException | ProcessingException e) {
+                System.out.printf("After Test: exception %s clearing the counts of %s%n", e.getMessage(), namespace);
+            } finally {
+                nsClient.close();
+            }
 
-        if (activeLRAs.size() != 0) {
-            activeLRAs.forEach(lra -> {
-                try {
-                    if (!oldLRAs.contains(lra)) {
-                        System.out.printf("%s: WARNING: test did not close %s%n", "testName.getMethodName()", lra.getLraId());
-                        oldLRAs.add(lra);
-                        lraClient.closeLRA(new URL(lra.getLraId()));
-                    }
-                } catch (WebApplicationException | MalformedURLException e) {
-                    System.out.printf("After Test: exception %s closing %s%n", e.getMessage(), lra.getLraId());
-                }
-            });
+            return;
         }
+
+        // stream the active LRAs since there may be too many to fetch them all in one go
+        List<LRAInfo> unclosedLRAs;
+
+        try (Stream<LRAInfo> activeLRAs = lraClient.streamActiveLRAs()) {
+            unclosedLRAs = activeLRAs.filter(lra -> !oldLRAs.contains(lra)).collect(Collectors.toList());
+        }
+
+        unclosedLRAs.forEach(lra -> {
+            try {
+                System.out.printf("%s: WARNING: test did not close %s%n", "testName.getMethodName()", lra.getLraId());
+                oldLRAs.add(lra);
+                lraClient.closeLRA(new URL(lra.getLraId()));
+            } catch (WebApplicationException | MalformedURLException e) {
+                System.out.printf("After Test: exception %s closing %s%n", e.getMessage(), lra.getLraId());
+            }
+        });
 //        Current.popAll();
     }
 
@@ -184,6 +341,31 @@ public class TckTests {
         return lra.toExternalForm();
     }
 
+    @Test
+    private String startLRAs() throws WebApplicationException {
+        String clientIDPrefix = "SpecTest#startLRAs-";
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, clientIDPrefix, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            assertEquals(BATCH_LRA_COUNT, lras.size(), "startLRAs: wrong number of LRAs started", null);
+            assertEquals(BATCH_LRA_COUNT, (int) lras.stream().distinct().count(),
+                    "startLRAs: batch started LRAs should be distinct", null);
+
+            List<LRAInfo> active = lraClient.getActiveLRAs();
+
+            IntStream.range(0, lras.size()).forEach(i -> {
+                LRAInfo info = getLra(active, lras.get(i).toExternalForm());
+
+                assertNotNull(info, "startLRAs: batch started LRA is not active: " + lras.get(i), null);
+                assertEquals(clientIDPrefix + i, info.getClientId(), "startLRAs: wrong client id", null);
+            });
+        } finally {
+            lras.forEach(lraClient::closeLRA);
+        }
+
+        return "passed";
+    }
+
     @Test
     private String cancelLRA() throws WebApplicationException {
         URL lra = lraClient.startLRA(null,"SpecTest#cancelLRA", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
@@ -210,6 +392,54 @@ public class TckTests {
         return lra.toExternalForm();
     }
 
+    @Test
+    private String cancelLRAs() throws WebApplicationException {
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, "SpecTest#cancelLRAs-", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        Map<URL, String> outcomes = lraClient.cancelLRAs(lras);
+
+        checkBatchOutcomes("cancelLRAs", lras, outcomes,
+                CompensatorStatus.Compensating, CompensatorStatus.Compensated, CompensatorStatus.FailedToCompensate);
+
+        return "passed";
+    }
+
+    @Test
+    private String closeLRAs() throws WebApplicationException {
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, "SpecTest#closeLRAs-", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        Map<URL, String> outcomes = lraClient.closeLRAs(lras);
+
+        checkBatchOutcomes("closeLRAs", lras, outcomes,
+                CompensatorStatus.Completing, CompensatorStatus.Completed, CompensatorStatus.FailedToComplete);
+
+        return "passed";
+    }
+
+    /*
+     * validate the result of ending a batch of LRAs: there should be an outcome for each LRA,
+     * each outcome should be either unknown or one of the expected statuses and none of the LRAs
+     * should still be active
+     */
+    private void checkBatchOutcomes(String testName, List<URL> lras, Map<URL, String> outcomes,
+                                    CompensatorStatus ... expected) {
+        List<String> expectedNames = Arrays.stream(expected).map(CompensatorStatus::name).collect(Collectors.toList());
+
+        assertEquals(lras.size(), outcomes.size(), testName + ": wrong number of outcomes", null);
+
+        lras.forEach(lra -> {
+            String outcome = outcomes.get(lra);
+
+            assertNotNull(outcome, testName + ": missing outcome for " + lra, null);
+            assertTrue(outcome.isEmpty() || expectedNames.contains(outcome),
+                    testName + ": unexpected outcome " + outcome, null, lra);
+        });
+
+        List<LRAInfo> active = lraClient.getActiveLRAs();
+
+        lras.forEach(lra -> assertNull(getLra(active, lra.toExternalForm()), testName + ": lra still active " + lra, null));
+    }
+
     @Test
     private String delayCloseLRA () throws WebApplicationException {
         int[] cnt1 = {completedCount(true), completedCount(false)};
@@ -261,6 +491,160 @@ public class TckTests {
         return "passed";
     }
 
+    @Test
+    private String getActiveLRAsPaged() throws WebApplicationException {
+        return pagedLRAs("getActiveLRAsPaged", lraClient::getActiveLRAs);
+    }
+
+    @Test
+    private String getAllLRAsPaged() throws WebApplicationException {
+        return pagedLRAs("getAllLRAsPaged", lraClient::getAllLRAs);
+    }
+
+    @Test
+    private String streamActiveLRAs() throws WebApplicationException {
+        return streamedLRAs("streamActiveLRAs", lraClient::streamActiveLRAs);
+    }
+
+    @Test
+    private String streamAllLRAs() throws WebApplicationException {
+        return streamedLRAs("streamAllLRAs", lraClient::streamAllLRAs);
+    }
+
+    @Test
+    private String findLRAsByClientId() throws WebApplicationException {
+        // use a unique prefix so that LRAs left behind by other tests or clients cannot match
+        String prefix = "SpecTest#findLRAsByClientId-" + UUID.randomUUID() + "-";
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, prefix, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        URL other = lraClient.startLRA(null, "SpecTest#findLRAsByClientId", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            List<LRAInfo> found = lraClient.findLRAs(LRAQuery.all().withClientIdPrefix(prefix));
+
+            assertEquals(lras.size(), found.size(), "findLRAsByClientId: wrong number of matching LRAs", null);
+            lras.forEach(lra -> assertNotNull(getLra(found, lra.toExternalForm()),
+                    "findLRAsByClientId: missing lra " + lra, null));
+
+            found.forEach(info -> assertTrue(info.getClientId().startsWith(prefix) && info.isActive() && info.isTopLevel(),
+                    "findLRAsByClientId: LRA does not match the query " + info.getLraId(), null, null));
+
+            // the same LRAs should match when the query also selects by state and nesting
+            List<LRAInfo> active = lraClient.findLRAs(LRAQuery.all()
+                    .withClientIdPrefix(prefix)
+                    .withTopLevel(true)
+                    .withStates(LRAQuery.State.ACTIVE));
+
+            assertEquals(lras.size(), active.size(), "findLRAsByClientId: wrong number of active top level LRAs", null);
+
+            // but none of them are nested
+            assertEquals(0, lraClient.findLRAs(LRAQuery.all().withClientIdPrefix(prefix).withTopLevel(false)).size(),
+                    "findLRAsByClientId: top level LRAs matched a nested query", null);
+        } finally {
+            lraClient.closeLRAs(lras);
+            lraClient.closeLRA(other);
+        }
+
+        return "passed";
+    }
+
+    @Test
+    private String findLRAsByParent() throws WebApplicationException {
+        URL parent = lraClient.startLRA(null, "SpecTest#findLRAsByParent", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            URL nested = lraClient.startLRA(parent, "SpecTest#findLRAsByParent-nested", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            List<LRAInfo> found = lraClient.findLRAs(LRAQuery.all().withParent(parent));
+
+            assertEquals(1, found.size(), "findLRAsByParent: wrong number of nested LRAs", null);
+            assertEquals(nested.toExternalForm(), found.get(0).getLraId(), "findLRAsByParent: wrong nested LRA", null);
+            assertTrue(!found.get(0).isTopLevel(), "findLRAsByParent: nested LRA reported as top level", null, nested);
+        } finally {
+            lraClient.closeLRA(parent);
+        }
+
+        return "passed";
+    }
+
+    @Test
+    private String findLRAsByStartTime() throws WebApplicationException {
+        String prefix = "SpecTest#findLRAsByStartTime-" + UUID.randomUUID();
+        Instant before = Instant.now().minusSeconds(60);
+        URL lra = lraClient.startLRA(null, prefix, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        Instant after = Instant.now().plusSeconds(60);
+        LRAQuery query = LRAQuery.all().withClientIdPrefix(prefix);
+
+        try {
+            // allow for clock differences between the TCK and the coordinator by using a generous window
+            assertNotNull(getLra(lraClient.findLRAs(query.withStartedAfter(before).withStartedBefore(after)), lra.toExternalForm()),
+                    "findLRAsByStartTime: LRA not found in its start time window", null);
+            assertNull(getLra(lraClient.findLRAs(query.withStartedAfter(after)), lra.toExternalForm()),
+                    "findLRAsByStartTime: LRA matched a start time after it started", null);
+            assertNull(getLra(lraClient.findLRAs(query.withStartedBefore(before)), lra.toExternalForm()),
+                    "findLRAsByStartTime: LRA matched a start time before it started", null);
+        } finally {
+            lraClient.closeLRA(lra);
+        }
+
+        return "passed";
+    }
+
+    /*
+     * start a batch of LRAs and check that reading every page of the query returns each of them exactly once
+     */
+    private String pagedLRAs(String testName, PageQuery query) {
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, "SpecTest#" + testName + "-",
+                LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            Set<String> seen = new HashSet<>();
+            String continuationToken = null;
+            LRAInfoPage page;
+
+            do {
+                page = query.getPage(PAGE_SIZE, continuationToken);
+
+                assertTrue(page.getLRAs().size() <= PAGE_SIZE, testName + ": page is larger than the page size", null, null);
+
+                page.getLRAs().forEach(lra -> assertTrue(seen.add(lra.getLraId()),
+                        testName + ": lra returned more than once " + lra.getLraId(), null, null));
+
+                continuationToken = page.getContinuationToken();
+                assertEquals(page.isLastPage(), continuationToken == null,
+                        testName + ": last page should not have a continuation token", null);
+            } while (!page.isLastPage());
+
+            lras.forEach(lra -> assertTrue(seen.contains(lra.toExternalForm()),
+                    testName + ": missing lra " + lra, null, lra));
+        } finally {
+            lraClient.closeLRAs(lras);
+        }
+
+        return "passed";
+    }
+
+    private String streamedLRAs(String testName, StreamQuery query) {
+        URL lra = lraClient.startLRA(null, "SpecTest#" + testName, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try (Stream<LRAInfo> lras = query.getLRAs()) {
+            assertTrue(lras.anyMatch(info -> info.getLraId().equals(lra.toExternalForm())),
+                    testName + ": missing lra " + lra, null, lra);
+        } finally {
+            lraClient.closeLRA(lra);
+        }
+
+        return "passed";
+    }
+
+    @FunctionalInterface
+    private interface PageQuery {
+        LRAInfoPage getPage(int pageSize, String continuationToken);
+    }
+
+    @FunctionalInterface
+    private interface StreamQuery {
+        Stream<LRAInfo> getLRAs();
+    }
+
     //    @Test
     private void getRecoveringLRAs() throws WebApplicationException {
         // TODO
@@ -277,6 +661,566 @@ public class TckTests {
         return lra.toExternalForm();
     }
 
+    @Test
+    private String getStatuses() throws WebApplicationException {
+        List<URL> lras = lraClient.startLRAs(BATCH_LRA_COUNT, "SpecTest#getStatuses-", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        URL closed = lras.get(0);
+
+        try {
+            lraClient.closeLRA(closed);
+
+            Map<URL, Optional<CompensatorStatus>> statuses = lraClient.getStatuses(lras);
+
+            // the coordinator may clean up when an LRA is closed so there may be no status for the closed LRA
+            if (statuses.containsKey(closed)) {
+                assertTrue(statuses.get(closed).isPresent(), "getStatuses: closed LRA reported as active", null, closed);
+            }
+
+            lras.stream().skip(1).forEach(lra -> {
+                assertTrue(statuses.containsKey(lra), "getStatuses: missing status", null, lra);
+                assertTrue(!statuses.get(lra).isPresent(), "getStatuses: active LRA should not have a status", null, lra);
+            });
+        } finally {
+            lraClient.closeLRAs(lras.subList(1, lras.size()));
+        }
+
+        return "passed";
+    }
+
+    @Test
+    private String getStatusSnapshot() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#getStatusSnapshot", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            LRAStatusSnapshot snapshot = lraClient.getStatusSnapshot(lra);
+
+            assertEquals(lra.toExternalForm(), snapshot.getLraId().toExternalForm(), "getStatusSnapshot: wrong LRA", null);
+            assertTrue(snapshot.isActive(), "getStatusSnapshot: LRA should be active", null, lra);
+            assertTrue(!snapshot.isCompleted() && !snapshot.isCompensated() && !snapshot.isTerminal(),
+                    "getStatusSnapshot: active LRA should not have finished", null, lra);
+        } finally {
+            lraClient.closeLRA(lra);
+        }
+
+        return "passed";
+    }
+
+    @Test
+    private String lraIdOverloads() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#lraIdOverloads", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        LRAId lraId = LRAId.valueOf(lra);
+
+        try {
+            String encoded = URLEncoder.encode(lra.toExternalForm(), "UTF-8");
+
+            assertEquals(lraId, LRAId.valueOf(lra.toExternalForm()), "lraIdOverloads: ids should be equal", null);
+            assertEquals(lraId, LRAId.fromHeader(lra.toExternalForm()),
+                    "lraIdOverloads: id from header should be equal", null);
+            assertEquals(lraId, LRAId.fromHeader(encoded), "lraIdOverloads: id from encoded header should be equal", null);
+            assertEquals(lraId.hashCode(), LRAId.fromHeader(encoded).hashCode(),
+                    "lraIdOverloads: equal ids should have the same hash code", null);
+            assertEquals(lra.toExternalForm(), lraId.toURL().toExternalForm(), "lraIdOverloads: wrong URL", null);
+        } catch (UnsupportedEncodingException e) {
+            throw new GenericLRAException(lra, Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage(), e);
+        }
+
+        assertTrue(lraClient.isActiveLRA(lraId), "lraIdOverloads: LRA should be active", null, lra);
+        assertTrue(!lraClient.getStatus(lraId).isPresent(), "lraIdOverloads: active LRA should not have a status", null, lra);
+
+        lraClient.closeLRA(lraId);
+
+        assertTrue(!isActive(lraId), "lraIdOverloads: LRA should not be active after close", null, lra);
+
+        return "passed";
+    }
+
+    @Test
+    private String compactContext() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#compactContext", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        LRAId lraId = LRAId.valueOf(lra);
+        // the id of an LRA is relative to the coordinator that manages it, which need not be the one the TCK was configured with
+        String id = lraId.toString();
+        URI base = URI.create(id.substring(0, id.lastIndexOf('/')));
+
+        try {
+            LRAContextToken urlForm = LRAContextToken.parse(lra.toExternalForm());
+            LRAContextToken compact = LRAContextToken.compact(base, lraId);
+
+            assertTrue(!urlForm.isCompact(), "compactContext: URL should not parse as a compact context", null, lra);
+            assertEquals(lraId, urlForm.expand(base), "compactContext: wrong LRA for URL form", null);
+            assertTrue(compact.isCompact(), "compactContext: LRA id is not relative to its coordinator", null, lra);
+            assertTrue(compact.toHeaderValue().length() < lra.toExternalForm().length(),
+                    "compactContext: compact form should be shorter than the URL form", null, lra);
+            assertEquals(compact, LRAContextToken.parse(compact.toHeaderValue()),
+                    "compactContext: compact form did not survive a round trip", null);
+            assertEquals(LRAContextToken.routingKey(base), compact.getRoutingKey().orElse(null),
+                    "compactContext: wrong routing key", null);
+            assertEquals(lraId, compact.expand(base), "compactContext: wrong LRA for compact form", null);
+
+            lraClient.setCurrentContext(compact);
+
+            assertEquals(compact, lraClient.getCurrentContext(), "compactContext: context was expanded early", null);
+            assertEquals(lra.toExternalForm(), lraClient.getCurrent().toExternalForm(),
+                    "compactContext: wrong current LRA", null);
+        } finally {
+            lraClient.setCurrentLRA(null);
+            lraClient.closeLRA(lra);
+        }
+
+        return "passed";
+    }
+
+    /*
+     * Check the placement and routing of LRAs across a ring of local coordinator stand-ins
+     */
+    @Test
+    private String coordinatorRing() throws WebApplicationException {
+        List<URI> coordinators = IntStream.range(0, RING_COORDINATORS)
+                .mapToObj(i -> URI.create(String.format("http://localhost:%d/lra-coordinator", 18080 + i)))
+                .collect(Collectors.toList());
+        LRACoordinatorRing ring = LRACoordinatorRing.of(coordinators);
+        LRACoordinatorRing smallerRing = LRACoordinatorRing.of(coordinators.subList(1, RING_COORDINATORS));
+        Map<URI, Integer> placements = new HashMap<>();
+        int moved = 0;
+
+        for (int i = 0; i < RING_KEYS; i++) {
+            String key = "SpecTest#coordinatorRing-" + i;
+            URI coordinator = ring.select(key);
+
+            assertEquals(coordinator, LRACoordinatorRing.of(coordinators).select(key),
+                    "coordinatorRing: placement is not stable", null);
+
+            placements.merge(coordinator, 1, Integer::sum);
+
+            if (!coordinator.equals(smallerRing.select(key))) {
+                moved++;
+
+                assertEquals(coordinators.get(0), coordinator,
+                        "coordinatorRing: removing a coordinator moved a key it did not own", null);
+            }
+        }
+
+        for (URI coordinator : coordinators) {
+            // a fair share is RING_KEYS / RING_COORDINATORS so allow for a generous imbalance
+            assertTrue(placements.getOrDefault(coordinator, 0) > RING_KEYS / (RING_COORDINATORS * 4),
+                    "coordinatorRing: too few LRAs placed on " + coordinator, null, null);
+
+            LRAId lraId = LRAId.valueOf(coordinator + "/0_ffff0a28054b_9133_5ae8f7a9_3");
+
+            assertEquals(coordinator, ring.coordinatorOf(lraId).orElse(null),
+                    "coordinatorRing: LRA routed to the wrong coordinator", null);
+            assertEquals(coordinator, ring.coordinatorOf(LRAContextToken.compact(coordinator, lraId)).orElse(null),
+                    "coordinatorRing: compact context routed to the wrong coordinator", null);
+        }
+
+        assertEquals(placements.getOrDefault(coordinators.get(0), 0), moved,
+                "coordinatorRing: removing a coordinator should only move its own keys", null);
+        assertTrue(!ring.coordinatorOf(LRAId.valueOf("http://localhost:18080/lra-coordinator-2/0_ffff"))
+                .isPresent(), "coordinatorRing: LRA from an unknown coordinator was routed", null, null);
+
+        return "passed";
+    }
+
+    /*
+     * Spread LRAs across the coordinator under test reached via several addresses
+     */
+    @Test
+    private String shardedCoordinators() throws WebApplicationException {
+        List<URI> coordinators = coordinatorAliases();
+        List<URL> lras = new ArrayList<>();
+
+        lraClient.setCoordinatorURIs(coordinators);
+
+        try {
+            for (int i = 0; i < BATCH_LRA_COUNT * coordinators.size(); i++) {
+                lras.add(lraClient.startLRA(null, "SpecTest#shardedCoordinators-" + i,
+                        LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            }
+
+            List<LRAInfo> all = lraClient.getAllLRAs();
+
+            for (URL lra : lras) {
+                assertEquals(1L, all.stream().filter(info -> lra.toExternalForm().equals(info.getLraId())).count(),
+                        "shardedCoordinators: LRA should be listed exactly once", null);
+                assertTrue(lraClient.isActiveLRA(lra), "shardedCoordinators: LRA should be active", null, lra);
+            }
+        } finally {
+            lras.forEach(lraClient::closeLRA);
+            lraClient.setCoordinatorURI(coordinatorURI);
+        }
+
+        return "passed";
+    }
+
+    /*
+     * The client should track the health of the coordinator that it sends requests to
+     */
+    @Test
+    private String coordinatorHealth() throws WebApplicationException {
+        for (int i = 0; i < BATCH_LRA_COUNT; i++) {
+            lraClient.closeLRA(lraClient.startLRA(null, "SpecTest#coordinatorHealth", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        Optional<LRACoordinatorHealth> tracker = lraClient.getCoordinatorHealth().stream()
+                .filter(health -> coordinatorURI.equals(health.getCoordinator()))
+                .findFirst();
+
+        if (!tracker.isPresent()) {
+            return "skipped (the client does not send requests to " + coordinatorURI + ")";
+        }
+
+        LRACoordinatorHealth health = tracker.get();
+
+        assertEquals(LRACoordinatorHealth.State.CLOSED, health.getState(),
+                "coordinatorHealth: circuit of an available coordinator should be closed " + health, null);
+        assertEquals(0, health.getConsecutiveFailures(), "coordinatorHealth: failures were reported " + health, null);
+        assertTrue(!Double.isNaN(health.getLatencyEwmaMillis()),
+                "coordinatorHealth: request latencies were not reported " + health, null, null);
+        assertTrue(health.getErrorRate() < health.getPolicy().getErrorRateThreshold(),
+                "coordinatorHealth: error rate of an available coordinator is too high " + health, null, null);
+
+        return "passed";
+    }
+
+    /*
+     * New LRAs should fail over from a coordinator that is not running to the coordinator under test
+     */
+    @Test
+    private String coordinatorFailover() throws WebApplicationException {
+        URI unavailable = unavailableCoordinatorURI();
+        List<URL> lras = new ArrayList<>();
+        int refused = 0;
+
+        lraClient.setCoordinatorURIs(Arrays.asList(coordinatorURI, unavailable));
+
+        try {
+            Optional<LRACoordinatorHealth> tracker = lraClient.getCoordinatorHealth().stream()
+                    .filter(health -> unavailable.equals(health.getCoordinator()))
+                    .findFirst();
+
+            if (!tracker.isPresent()) {
+                return "skipped (the client does not track the health of its coordinators)";
+            }
+
+            LRACoordinatorHealth health = tracker.get();
+
+            // start LRAs until the ring has placed enough of them on the unavailable coordinator to open its circuit
+            for (int i = 0; i < RING_KEYS && health.getState() == LRACoordinatorHealth.State.CLOSED; i++) {
+                try {
+                    lras.add(lraClient.startLRA(null, "SpecTest#coordinatorFailover-" + i,
+                            LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+                } catch (GenericLRAException e) {
+                    refused++;
+                }
+            }
+
+            assertEquals(LRACoordinatorHealth.State.OPEN, health.getState(),
+                    "coordinatorFailover: circuit of the unavailable coordinator should be open " + health, null);
+            assertTrue(refused <= health.getPolicy().getFailureThreshold(),
+                    "coordinatorFailover: " + refused + " LRAs were refused before the circuit opened", null, null);
+
+            // while the circuit is open every new LRA is placed on the coordinator under test
+            for (int i = 0; i < BATCH_LRA_COUNT; i++) {
+                URL lra = lraClient.startLRA(null, "SpecTest#coordinatorFailover-open-" + i,
+                        LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                lras.add(lra);
+                assertTrue(lra.toExternalForm().startsWith(coordinatorURI.toString()),
+                        "coordinatorFailover: LRA was not placed on the available coordinator", null, lra);
+            }
+        } finally {
+            lras.forEach(lraClient::closeLRA);
+            lraClient.setCoordinatorURI(coordinatorURI);
+        }
+
+        return "passed";
+    }
+
+    /*
+     * A burst of short coordinator requests should be carried over a few pooled connections
+     */
+    @Test
+    private String connectionReuse() throws WebApplicationException {
+        LRATransportStatistics before = lraClient.getTransportStatistics();
+        // judge the counters against the configuration of the client under test rather than the TCK's properties
+        LRATransportConfig config = before.getConfig();
+
+        for (int i = 0; i < CONNECTION_BURST; i++) {
+            lraClient.closeLRA(lraClient.startLRA(null, "SpecTest#connectionReuse", LRA_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS));
+        }
+
+        LRATransportStatistics after = lraClient.getTransportStatistics();
+        long requests = after.getRequestCount() - before.getRequestCount();
+        long opened = after.getConnectionsOpened() - before.getConnectionsOpened();
+
+        assertTrue(requests >= 2 * CONNECTION_BURST, "connectionReuse: requests were not counted", null, null);
+
+        if (config.getKeepAliveMillis() > 0) {
+            assertTrue(opened <= config.getPoolSize(),
+                    String.format("connectionReuse: %d connections were opened for %d requests", opened, requests),
+                    null, null);
+            assertTrue(after.getOpenConnections() <= config.getPoolSize(),
+                    "connectionReuse: connection pool exceeded its size", null, null);
+        }
+
+        return "passed";
+    }
+
+    /*
+     * The coordinator URI together with the same URI using a different address for the coordinator host
+     */
+    private static List<URI> coordinatorAliases() {
+        List<URI> aliases = new ArrayList<>();
+
+        aliases.add(coordinatorURI);
+
+        try {
+            String host = coordinatorURI.getHost();
+            InetAddress address = InetAddress.getByName(host);
+            String alias = host.equals(address.getHostAddress()) ? address.getCanonicalHostName() : address.getHostAddress();
+
+            if (!host.equals(alias)) {
+                aliases.add(new URI(coordinatorURI.getScheme(), coordinatorURI.getUserInfo(), alias,
+                        coordinatorURI.getPort(), coordinatorURI.getPath(), null, null));
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new GenericLRAException(null, 0, "cannot resolve the coordinator host: " + e.getMessage(), e);
+        }
+
+        return aliases;
+    }
+
+    /*
+     * The coordinator URI with a port on which nothing is listening
+     */
+    private static URI unavailableCoordinatorURI() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return new URI(coordinatorURI.getScheme(), coordinatorURI.getUserInfo(), coordinatorURI.getHost(),
+                    socket.getLocalPort(), coordinatorURI.getPath(), null, null);
+        } catch (IOException | URISyntaxException e) {
+            throw new GenericLRAException(null, 0, "cannot find an unused port: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isActive(LRAId lraId) {
+        try {
+            return lraClient.isActiveLRA(lraId);
+        } catch (NotFoundException ignore) {
+            return false;
+        }
+    }
+
+    @Test
+    private String statusCacheClose() throws WebApplicationException {
+        return statusCache("statusCacheClose", true, CompensatorStatus.Completed);
+    }
+
+    @Test
+    private String statusCacheCancel() throws WebApplicationException {
+        return statusCache("statusCacheCancel", false, CompensatorStatus.Compensated);
+    }
+
+    /*
+     * Check that a client never reports a stale status from its status cache after ending an LRA
+     * and that, if the cache is enabled, repeated requests for a final status do not go to the coordinator
+     */
+    private String statusCache(String testName, boolean close, CompensatorStatus expected) {
+        URL lra = lraClient.startLRA(null, "SpecTest#" + testName, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        // read the status of the active LRA so that a cache, if there is one, may hold it
+        assertTrue(!lraClient.getStatus(lra).isPresent(), testName + ": active LRA should not have a status", null, lra);
+
+        if (close) {
+            lraClient.closeLRA(lra);
+        } else {
+            lraClient.cancelLRA(lra);
+        }
+
+        try {
+            Optional<CompensatorStatus> status = lraClient.getStatus(lra);
+
+            assertTrue(status.isPresent(), testName + ": client returned a stale status for an ended LRA", null, lra);
+            assertEquals(expected, status.get(), testName + ": wrong final status", null);
+
+            LRAStatusCacheStatistics before = lraClient.getStatusCacheStatistics();
+            // the cache is configured on the client under test so ask it rather than reading the config here
+            boolean cacheEnabled = isStatusCacheEnabled(before);
+
+            assertEquals(expected, lraClient.getStatus(lra).orElse(null), testName + ": final status changed", null);
+
+            LRAStatusCacheStatistics after = lraClient.getStatusCacheStatistics();
+
+            if (cacheEnabled) {
+                assertEquals(before.getHitCount() + 1, after.getHitCount(),
+                        testName + ": final status was not served from the cache", null);
+            } else {
+                assertEquals(before.getMissCount() + 1, after.getMissCount(),
+                        testName + ": status request was not counted as a miss", null);
+            }
+        } catch (NotFoundException ignore) {
+            // the coordinator cleans up when an LRA ends (and ending the LRA invalidated any cached status)
+        }
+
+        return lra.toExternalForm();
+    }
+
+    /*
+     * A client whose status cache is disabled reports zero for every counter except the miss count
+     * (see LRAClient#getStatusCacheStatistics) and, after a final status has been read, an enabled
+     * cache holds at least that entry
+     */
+    private static boolean isStatusCacheEnabled(LRAStatusCacheStatistics statistics) {
+        return statistics.getSize() > 0 || statistics.getHitCount() > 0 || statistics.getEvictionCount() > 0;
+    }
+
+    /*
+     * Many threads reading the same LRA at the same time must all see a consistent view of it
+     * regardless of whether or not the client coalesces identical reads. Reads issued after the
+     * LRA is closed must not see the result of a read that was issued before it was closed.
+     */
+    @Test
+    private String concurrentReads() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#concurrentReads", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_READERS);
+
+        try {
+            List<CompletableFuture<Boolean>> reads = IntStream.range(0, CONCURRENT_READERS * 2)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        switch (i % 3) {
+                            case 0:
+                                return !lraClient.getStatus(lra).isPresent();
+                            case 1:
+                                return lraClient.isActiveLRA(lra);
+                            default:
+                                return getLra(lraClient.getActiveLRAs(), lra.toExternalForm()) != null;
+                        }
+                    }, executor))
+                    .collect(Collectors.toList());
+
+            reads.forEach(read -> assertTrue(await(read), "concurrentReads: LRA should be active", null, lra));
+
+            lraClient.closeLRA(lra);
+
+            List<CompletableFuture<Boolean>> readsAfterClose = IntStream.range(0, CONCURRENT_READERS)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return lraClient.getStatus(lra).isPresent();
+                        } catch (NotFoundException e) {
+                            return true; // the coordinator cleans up when the LRA is closed
+                        }
+                    }, executor))
+                    .collect(Collectors.toList());
+
+            readsAfterClose.forEach(read -> assertTrue(await(read),
+                    "concurrentReads: read after close reported the LRA as active", null, lra));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String onTerminationClose() throws WebApplicationException {
+        return onTermination("onTerminationClose", true, CompensatorStatus.Completed);
+    }
+
+    @Test
+    private String onTerminationCancel() throws WebApplicationException {
+        return onTermination("onTerminationCancel", false, CompensatorStatus.Compensated);
+    }
+
+    private String onTermination(String testName, boolean close, CompensatorStatus expected) {
+        URL lra = lraClient.startLRA(null, "SpecTest#" + testName, LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        CompletableFuture<CompensatorStatus> outcome = new CompletableFuture<>();
+
+        try (LRASubscription subscription = lraClient.onTermination(lra, outcome::complete)) {
+            assertTrue(subscription.isActive(), testName + ": subscription should be active", null, lra);
+
+            if (close) {
+                lraClient.closeLRA(lra);
+            } else {
+                lraClient.cancelLRA(lra);
+            }
+
+            assertEquals(expected, await(outcome), testName + ": wrong final status", null);
+        }
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String onLRAEvents() throws WebApplicationException {
+        ConcurrentLinkedQueue<LRAEvent> events = new ConcurrentLinkedQueue<>();
+        CountDownLatch terminated = new CountDownLatch(1);
+        AtomicReference<URL> lra = new AtomicReference<>();
+
+        try (LRASubscription subscription = lraClient.onLRAEvents(event -> {
+            events.add(event);
+
+            if (event.getType() == LRAEvent.Type.TERMINATED && lra.get() != null
+                    && event.getLraId().toExternalForm().equals(lra.get().toExternalForm())) {
+                terminated.countDown();
+            }
+        })) {
+            lra.set(lraClient.startLRA(null, "SpecTest#onLRAEvents", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            lraClient.closeLRA(lra.get());
+
+            assertTrue(terminated.await(ASYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS),
+                    "onLRAEvents: no TERMINATED event", null, lra.get());
+        } catch (InterruptedException e) {
+            throw new GenericLRAException(lra.get(), 0, "onLRAEvents: interrupted", e);
+        }
+
+        // the events for the LRA should have been delivered in the order in which they occurred
+        List<LRAEvent.Type> types = events.stream()
+                .filter(event -> event.getLraId().toExternalForm().equals(lra.get().toExternalForm()))
+                .map(LRAEvent::getType)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(LRAEvent.Type.STARTED, LRAEvent.Type.CLOSING, LRAEvent.Type.TERMINATED), types,
+                "onLRAEvents: wrong sequence of events", null);
+
+        return lra.get().toExternalForm();
+    }
+
+    /*
+     * An LRA that reaches its time limit is cancelled. Wait for that to happen
+     * by asking the coordinator for the outcome rather than sleeping
+     */
+    @Test
+    private String awaitOutcomeTimeLimit() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#awaitOutcomeTimeLimit", SHORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        Optional<CompensatorStatus> outcome = lraClient.awaitOutcome(lra, ASYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertTrue(outcome.isPresent(), "awaitOutcomeTimeLimit: LRA did not time out", null, lra);
+        assertEquals(CompensatorStatus.Compensated, outcome.get(),
+                "awaitOutcomeTimeLimit: LRA should have been cancelled when it timed out", null);
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String awaitOutcomeDeadline() throws WebApplicationException {
+        URL lra = lraClient.startLRA(null, "SpecTest#awaitOutcomeDeadline", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            long start = System.nanoTime();
+            Optional<CompensatorStatus> outcome = lraClient.awaitOutcome(lra, SHORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(!outcome.isPresent(), "awaitOutcomeDeadline: an active LRA should not have an outcome", null, lra);
+            assertTrue(waited >= SHORT_TIMEOUT_MILLIS,
+                    String.format("awaitOutcomeDeadline: returned after %d ms before the deadline passed", waited), null, lra);
+        } finally {
+            lraClient.closeLRA(lra);
+        }
+
+        return lra.toExternalForm();
+    }
+
     // the coordinator cleans up when canceled
     @Test
     private String isCompensatedLRA() throws WebApplicationException {
@@ -680,6 +1624,200 @@ public class TckTests {
         assertEquals(countBefore, countAfter, "joinAndEnd: wrong LRA count", resourcePath);
     }
 
+    @Test
+    private String startLRAAsync() throws WebApplicationException {
+        URL lra = await(asyncLRAClient.startLRA(null, "SpecTest#startLRAAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        assertNotNull(lra, "startLRAAsync: stage completed with a null LRA", null);
+
+        await(asyncLRAClient.closeLRA(lra));
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String cancelLRAAsync() throws WebApplicationException {
+        URL lra = await(asyncLRAClient.startLRA(null, "SpecTest#cancelLRAAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        await(asyncLRAClient.cancelLRA(lra));
+
+        List<LRAInfo> lras = await(asyncLRAClient.getAllLRAs());
+
+        assertNull(getLra(lras, lra.toExternalForm()), "cancelLRAAsync via async client: lra still active", null);
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String closeLRAAsync() throws WebApplicationException {
+        URL lra = await(asyncLRAClient.startLRA(null, "SpecTest#closeLRAAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        await(asyncLRAClient.closeLRA(lra));
+
+        List<LRAInfo> lras = await(asyncLRAClient.getAllLRAs());
+
+        assertNull(getLra(lras, lra.toExternalForm()), "closeLRAAsync via async client: lra still active", null);
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String getActiveLRAsAsync() throws WebApplicationException {
+        URL lra = await(asyncLRAClient.startLRA(null, "SpecTest#getActiveLRAsAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        List<LRAInfo> lras = await(asyncLRAClient.getActiveLRAs());
+
+        assertNotNull(getLra(lras, lra.toExternalForm()), "getActiveLRAsAsync: getLra returned null", null);
+
+        await(asyncLRAClient.closeLRA(lra));
+
+        return lra.toExternalForm();
+    }
+
+    @Test
+    private String getStatusAsync() throws WebApplicationException {
+        URL lra = await(asyncLRAClient.startLRA(null, "SpecTest#getStatusAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        Optional<CompensatorStatus> status = await(asyncLRAClient.getStatus(lra));
+
+        assertTrue(!status.isPresent(), "getStatusAsync: an active LRA should not have a status", null, lra);
+        assertTrue(await(asyncLRAClient.isActiveLRA(lra)), "getStatusAsync: LRA should be active", null, lra);
+
+        await(asyncLRAClient.closeLRA(lra));
+
+        return lra.toExternalForm();
+    }
+
+    /*
+     * Start a number of LRAs without waiting for any of the coordinator responses
+     * and then end all of them, again without waiting for each one in turn
+     */
+    @Test
+    private String concurrentLRAsAsync() throws WebApplicationException {
+        List<CompletionStage<URL>> starts = IntStream.range(0, ASYNC_LRA_COUNT)
+                .mapToObj(i -> asyncLRAClient.startLRA(null, "SpecTest#concurrentLRAsAsync", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                .collect(Collectors.toList());
+        List<URL> lras = starts.stream().map(TckTests::await).collect(Collectors.toList());
+
+        assertEquals(ASYNC_LRA_COUNT, (int) lras.stream().distinct().count(),
+                "concurrentLRAsAsync: concurrently started LRAs should be distinct", null);
+
+        List<LRAInfo> active = await(asyncLRAClient.getActiveLRAs());
+
+        lras.forEach(lra -> assertNotNull(getLra(active, lra.toExternalForm()),
+                "concurrentLRAsAsync: missing lra " + lra, null));
+
+        List<CompletionStage<String>> closes = lras.stream()
+                .map(asyncLRAClient::closeLRA)
+                .collect(Collectors.toList());
+
+        closes.forEach(TckTests::await);
+
+        List<LRAInfo> remaining = await(asyncLRAClient.getActiveLRAs());
+
+        lras.forEach(lra -> assertNull(getLra(remaining, lra.toExternalForm()),
+                "concurrentLRAsAsync: lra still active " + lra, null));
+
+        return "passed";
+    }
+
+    /*
+     * The performance profile: many clients concurrently start LRAs, join them via the
+     * ActivityController endpoints and then close or cancel them. Disabled unless the
+     * lra.tck.perf system property is true (see TckLatencies for the other settings).
+     */
+    @Test
+    private String performance() throws WebApplicationException {
+        if (!Boolean.getBoolean(TckLatencies.ENABLED_KEY)) {
+            return "skipped (set " + TckLatencies.ENABLED_KEY + "=true to enable)";
+        }
+
+        int clients = Integer.getInteger(TckLatencies.CLIENTS_KEY, PERF_CLIENTS);
+        int iterations = Integer.getInteger(TckLatencies.ITERATIONS_KEY, PERF_ITERATIONS);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch startGate = new CountDownLatch(1);
+        TckLatencies latencies = new TckLatencies();
+        long elapsed;
+
+        try {
+            List<CompletableFuture<TckLatencies>> runs = IntStream.range(0, clients)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> performanceClient(startGate, iterations), executor))
+                    .collect(Collectors.toList());
+            long start = System.nanoTime();
+
+            startGate.countDown();
+            runs.forEach(run -> latencies.addAll(run.join()));
+            elapsed = System.nanoTime() - start;
+        } catch (CompletionException e) {
+            throw new GenericLRAException(null, 0, "performance: client failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String report = String.format("%d clients x %d LRAs in %d ms: %s",
+                clients, iterations, TimeUnit.NANOSECONDS.toMillis(elapsed), latencies.report(elapsed));
+        List<String> violations = latencies.checkSlos(elapsed, System::getProperty);
+
+        System.out.printf("performance: %s%n", report);
+        assertTrue(violations.isEmpty(), "performance: SLOs not met: " + violations + " (" + report + ")", null, null);
+
+        return report;
+    }
+
+    private TckLatencies performanceClient(CountDownLatch startGate, int iterations) {
+        TckLatencies latencies = new TckLatencies();
+        // each client has its own connections like an independent service would
+        Client client = ClientBuilder.newClient();
+
+        try {
+            WebTarget activities = client.target(URI.create(new URL(micrserviceBaseUrl, "/").toExternalForm()))
+                    .path(ACTIVITIES_PATH);
+
+            startGate.await();
+
+            for (int i = 0; i < iterations; i++) {
+                long t = System.nanoTime();
+                URL lra = lraClient.startLRA(null, "SpecTest#performance", LRA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                latencies.record("start", t);
+
+                // alternate between participants that finish immediately and ones that finish asynchronously
+                WebTarget work = activities.path(i % 2 == 0 ? "work" : ACCEPT_WORK);
+
+                t = System.nanoTime();
+                checkStatusAndClose(work.request().header(LRAClient.LRA_HTTP_HEADER, lra).put(Entity.text("")),
+                        Response.Status.OK.getStatusCode(), false, work);
+                latencies.record("join", t);
+
+                WebTarget nested = activities.path("nestedActivity");
+
+                t = System.nanoTime();
+                checkStatusAndClose(nested.request().header(LRAClient.LRA_HTTP_HEADER, lra).put(Entity.text("")),
+                        Response.Status.OK.getStatusCode(), false, nested);
+                latencies.record("nested", t);
+
+                t = System.nanoTime();
+
+                if ((i / 2) % 2 == 0) {
+                    lraClient.closeLRA(lra);
+                    latencies.record("close", t);
+                } else {
+                    lraClient.cancelLRA(lra);
+                    latencies.record("cancel", t);
+                }
+            }
+
+            return latencies;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new GenericLRAException(null, 0, "performance: interrupted", e);
+        } catch (MalformedURLException e) {
+            throw new GenericLRAException(null, 0, "performance: " + e.getMessage(), e);
+        } finally {
+            client.close();
+        }
+    }
+
     private void renewTimeLimit() {
         int[] cnt1 = {completedCount(true), completedCount(false)};
         Response response = null;
@@ -909,6 +2047,40 @@ public class TckTests {
         }
     }
 
+    /*
+     * wait for a stage returned from the AsyncLRAClient to complete reporting any failure
+     * in the same way as the equivalent call on the synchronous LRAClient would have done
+     */
+    static private <T> T await(CompletionStage<T> stage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        stage.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        });
+
+        try {
+            return result.get(ASYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof WebApplicationException) {
+                throw (WebApplicationException) cause;
+            }
+
+            throw new GenericLRAException(null, 0, "async request failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException | TimeoutException e) {
+            throw new GenericLRAException(null, 0, "async request did not complete: " + e.getMessage(), e);
+        }
+    }
+
     static private LRAInfo getLra(List<LRAInfo> lras, String lraId) {
         for (LRAInfo lraInfo : lras) {
             if (lraInfo.getLraId().equals(lraId))
@@ -922,7 +2094,10 @@ public class TckTests {
 //        assert condition;
 
         if (!condition) {
-            throw new GenericLRAException(lra, 0, target.getUri().toString() + ": " + reason, null);
+            if (target == null)
+                throw new GenericLRAException(lra, 0, reason, null);
+            else
+                throw new GenericLRAException(lra, 0, target.getUri().toString() + ": " + reason, null);
         }
     }
 
@@ -930,7 +2105,10 @@ public class TckTests {
 //        assert expected.equals(actual);
 
         if (!expected.equals(actual)) {
-            throw new GenericLRAException(null, 0, target.getUri().toString() + ": " + reason, null);
+            if (target == null)
+                throw new GenericLRAException(null, 0, reason, null);
+            else
+                throw new GenericLRAException(null, 0, target.getUri().toString() + ": " + reason, null);
         }
     }
     static private void fail(String msg) {
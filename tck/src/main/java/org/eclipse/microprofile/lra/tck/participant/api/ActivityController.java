@@ -52,6 +52,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -62,6 +63,7 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -77,6 +79,13 @@ import static org.eclipse.microprofile.lra.client.LRAClient.LRA_HTTP_RECOVERY_HE
 public class ActivityController {
     public static final String ACTIVITIES_PATH = "activities";
     public static final String ACCEPT_WORK = "acceptWork";
+    /**
+     * The name of the HTTP header that carries the namespace of the test that
+     * made the request. Participants record the namespace of the test that
+     * enlisted them so that tests running concurrently each see only the
+     * completions and compensations of their own participants.
+     */
+    public static final String TCK_NAMESPACE_HEADER = "Lra-Tck-Namespace";
     private static final Logger LOGGER = Logger.getLogger(ActivityController.class.getName());
 
     @Inject
@@ -84,10 +93,15 @@ public class ActivityController {
 
     private static final AtomicInteger COMPLETED_COUNT = new AtomicInteger(0);
     private static final AtomicInteger COMPENSATED_COUNT = new AtomicInteger(0);
+    private static final Map<String, AtomicInteger> COMPLETED_COUNTS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> COMPENSATED_COUNTS = new ConcurrentHashMap<>();
 
     @Context
     private UriInfo context;
 
+    @Context
+    private HttpHeaders headers;
+
     @Inject
     private ActivityService activityService;
 
@@ -190,6 +204,7 @@ public class ActivityController {
 
         Activity activity = activityService.getActivity(lraId);
 
+        count(COMPLETED_COUNTS, activity);
         activity.setEndData(userData);
 
         if (activity.getAndDecrementAcceptCount() > 0) {
@@ -223,6 +238,7 @@ public class ActivityController {
 
         Activity activity = activityService.getActivity(lraId);
 
+        count(COMPENSATED_COUNTS, activity);
         activity.setEndData(userData);
 
         if (activity.getAndDecrementAcceptCount() > 0) {
@@ -254,6 +270,7 @@ public class ActivityController {
 
         Activity activity = activityService.getActivity(lraId);
 
+        count(COMPLETED_COUNTS, activity);
         activityService.remove(activity.getId());
         activity.setStatus(CompensatorStatus.Completed);
         activity.setStatusUrl(String.format("%s/%s/activity/completed", context.getBaseUri(), lraId));
@@ -345,6 +362,7 @@ public class ActivityController {
                 .path(path)
                 .request()
                 .header(LRAClient.LRA_HTTP_HEADER, lraURL)
+                .header(TCK_NAMESPACE_HEADER, headers.getHeaderString(TCK_NAMESPACE_HEADER))
                 .put(Entity.text(bodyText));
 
         if (response.hasEntity())
@@ -409,7 +427,7 @@ public class ActivityController {
             return activityService.getActivity(lraId);
         }
         catch (NotFoundException e) {
-            Activity activity = new Activity(lraId);
+            Activity activity = newActivity(lraId);
 
             activity.setRcvUrl(rcvId);
             activity.setStatus(null);
@@ -420,6 +438,29 @@ public class ActivityController {
         }
     }
 
+    private Activity newActivity(String lraId) {
+        Activity activity = new Activity(lraId);
+
+        activity.setNamespace(headers.getHeaderString(TCK_NAMESPACE_HEADER));
+
+        return activity;
+    }
+
+    private static void count(Map<String, AtomicInteger> counters, Activity activity) {
+        if (activity.getNamespace() != null) {
+            counter(counters, activity.getNamespace()).incrementAndGet();
+        }
+    }
+
+    private static AtomicInteger counter(Map<String, AtomicInteger> counters, String namespace) {
+        return counters.computeIfAbsent(namespace, ns -> new AtomicInteger(0));
+    }
+
+    // reading a count must not create a counter that nothing would remove
+    private static int countOf(Map<String, AtomicInteger> counters, String namespace) {
+        return counters.getOrDefault(namespace, new AtomicInteger(0)).get();
+    }
+
     private void endCheck(Activity activity, boolean complete) {
         String how = activity.getHow();
         String arg = activity.getArg();
@@ -450,16 +491,35 @@ public class ActivityController {
     @Path("/completedactivitycount")
     @Produces(MediaType.APPLICATION_JSON)
     @LRA(LRA.Type.NOT_SUPPORTED)
-    public Response getCompletedCount() {
-        return Response.ok(COMPLETED_COUNT.get()).build();
+    public Response getCompletedCount(@HeaderParam(TCK_NAMESPACE_HEADER) String namespace) {
+        return Response.ok(namespace == null ? COMPLETED_COUNT.get() : countOf(COMPLETED_COUNTS, namespace)).build();
     }
 
     @GET
     @Path("/compensatedactivitycount")
     @Produces(MediaType.APPLICATION_JSON)
     @LRA(LRA.Type.NOT_SUPPORTED)
-    public Response getCompensatedCount() {
-        return Response.ok(COMPENSATED_COUNT.get()).build();
+    public Response getCompensatedCount(@HeaderParam(TCK_NAMESPACE_HEADER) String namespace) {
+        return Response.ok(namespace == null ? COMPENSATED_COUNT.get() : countOf(COMPENSATED_COUNTS, namespace)).build();
+    }
+
+    /**
+     * Discard the completion and compensation counts of a namespace once the
+     * test that used it has finished (the global counts are never discarded)
+     *
+     * @param namespace the namespace of the test
+     * @return an empty response
+     */
+    @DELETE
+    @Path("/activitycounts")
+    @LRA(LRA.Type.NOT_SUPPORTED)
+    public Response clearCounts(@HeaderParam(TCK_NAMESPACE_HEADER) String namespace) {
+        if (namespace != null) {
+            COMPLETED_COUNTS.remove(namespace);
+            COMPENSATED_COUNTS.remove(namespace);
+        }
+
+        return Response.noContent().build();
     }
 
     @GET
@@ -469,7 +529,7 @@ public class ActivityController {
     public Response cancelOn(@HeaderParam(LRA_HTTP_HEADER) String lraId) {
         assertHeaderPresent(lraId);
 
-        activityService.add(new Activity(lraId));
+        activityService.add(newActivity(lraId));
 
         return Response.status(Response.Status.BAD_REQUEST).entity(Entity.text("Simulate buisiness logic failure")).build();
     }
@@ -481,7 +541,7 @@ public class ActivityController {
     public Response cancelOnFamily(@HeaderParam(LRA_HTTP_HEADER) String lraId) {
         assertHeaderPresent(lraId);
 
-        activityService.add(new Activity(lraId));
+        activityService.add(newActivity(lraId));
 
         return Response.status(Response.Status.BAD_REQUEST).entity(Entity.text("Simulate buisiness logic failure")).build();
     }
@@ -494,7 +554,7 @@ public class ActivityController {
     public Response timeLimitRequiredLRA(@HeaderParam(LRA_HTTP_HEADER) String lraId) {
         assertHeaderPresent(lraId);
 
-        activityService.add(new Activity(lraId));
+        activityService.add(newActivity(lraId));
 
         try {
             Thread.sleep(300); // sleep for 200 miliseconds (should be longer than specified in the @TimeLimit annotation)
@@ -513,7 +573,7 @@ public class ActivityController {
     public Response timeLimitSupportsLRA(@HeaderParam(LRA_HTTP_HEADER) String lraId) {
         assertHeaderPresent(lraId);
 
-        activityService.add(new Activity(lraId));
+        activityService.add(newActivity(lraId));
 
         try {
             Thread.sleep(300); // sleep for 200 miliseconds (should be longer than specified in the @TimeLimit annotation)
@@ -532,7 +592,7 @@ public class ActivityController {
     public Response extendTimeLimit(@HeaderParam(LRA_HTTP_HEADER) String lraId) {
         assertHeaderPresent(lraId);
 
-        activityService.add(new Activity(lraId));
+        activityService.add(newActivity(lraId));
 
         try {
             /*
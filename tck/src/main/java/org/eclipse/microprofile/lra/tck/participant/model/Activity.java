@@ -33,6 +33,7 @@ public class Activity implements Serializable {
     private String endData;
     private String how;
     private String arg;
+    private String namespace;
 
     private final AtomicInteger acceptedCount = new AtomicInteger(0);
 
@@ -127,4 +128,12 @@ public class Activity implements Serializable {
     public void setArg(String arg) {
         this.arg = arg;
     }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
 }
@@ -25,13 +25,13 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 public class ActivityService {
-    private Map<String, Activity> activities = new HashMap<>();
+    private Map<String, Activity> activities = new ConcurrentHashMap<>();
 
     public Activity getActivity(String txId) throws NotFoundException {
         if (!activities.containsKey(txId))